@@ -33,6 +33,7 @@ public enum AppAttribute
     EMAIL_ITEM_COUNTER( "itemQueue.itemCount" ),
     LOCALDB_IMPORT_STATUS( "localDB.import.status" ),
     WORDLIST_METADATA( "wordlist.metadata" ),
+    WORDLIST_RANKED_ENTRIES( "wordlist.rankedEntries" ),
     SEEDLIST_METADATA( "seedlist.metadata" ),
     HTTPS_SELF_CERT( "https.selfCert" ),
     CONFIG_LOGIN_HISTORY( "config.loginHistory" ),
@@ -42,7 +42,9 @@ public enum AppProperty
     APPLICATION_WORDLIST_RETRY_SECONDS              ( "application.wordlistRetryImportSeconds" ),
     AUDIT_EVENTS_EMAILFROM                          ( "audit.events.emailFrom" ),
     AUDIT_EVENTS_EMAILSUBJECT                       ( "audit.events.emailSubject" ),
+    AUDIT_EVENTS_LOCALDB_COMMIT_INTERVAL_MS         ( "audit.events.localdb.commitIntervalMs" ),
     AUDIT_EVENTS_LOCALDB_MAX_BULK_REMOVALS          ( "audit.events.localdb.maxBulkRemovals" ),
+    AUDIT_EVENTS_LOCALDB_WRITE_BUFFER_SIZE          ( "audit.events.localdb.writeBufferSize" ),
     AUDIT_SYSLOG_CEF_TIMEZONE                       ( "audit.syslog.cef.timezone" ),
     AUDIT_SYSLOG_CEF_HEADER_PRODUCT                 ( "audit.syslog.cef.header.product" ),
     AUDIT_SYSLOG_CEF_HEADER_SEVERITY                ( "audit.syslog.cef.header.severity" ),
@@ -110,6 +112,7 @@ public enum AppProperty
     HTTP_RESOURCES_MAX_CACHE_BYTES                  ( "http.resources.maxCacheBytes" ),
     HTTP_RESOURCES_EXPIRATION_SECONDS               ( "http.resources.expirationSeconds" ),
     HTTP_RESOURCES_ENABLE_GZIP                      ( "http.resources.gzip.enable" ),
+    HTTP_RESOURCES_ENABLE_PRECOMPRESS               ( "http.resources.precompress.enable" ),
     HTTP_RESOURCES_PATH_NONCE_LENGTH                ( "http.resources.pathNonce.length" ),
     HTTP_RESOURCES_ENABLE_PATH_NONCE                ( "http.resources.pathNonceEnable" ),
     HTTP_RESOURCES_NONCE_PATH_PREFIX                ( "http.resources.pathNoncePrefix" ),
@@ -199,6 +202,10 @@ public enum AppProperty
     INTRUDER_DELAY_PER_COUNT_MS                     ( "intruder.delayPerCountMS" ),
     INTRUDER_DELAY_MAX_JITTER_MS                    ( "intruder.delayMaxJitterMS" ),
     INTRUDER_STORAGE_HASH_ALGORITHM                 ( "intruder.storageHashAlgorithm" ),
+    INTRUDER_WRITE_BEHIND_INTERVAL_MS               ( "intruder.writeBehindIntervalMS" ),
+    INTRUDER_MAX_IDLE_COUNTER_ENTRIES               ( "intruder.maxIdleCounterEntries" ),
+    INTRUDER_MAX_COUNTER_ENTRIES                    ( "intruder.maxCounterEntries" ),
+    INTRUDER_SHARED_RECORD_REFRESH_INTERVAL_MS      ( "intruder.sharedRecordRefreshIntervalMS" ),
     HEALTHCHECK_ENABLED                             ( "healthCheck.enabled" ),
     HEALTHCHECK_NOMINAL_CHECK_INTERVAL              ( "healthCheck.nominalCheckIntervalSeconds" ),
     HEALTHCHECK_MIN_CHECK_INTERVAL                  ( "healthCheck.minimumCheckIntervalSeconds" ),
@@ -233,6 +240,7 @@ public enum AppProperty
     LDAP_CONNECTION_TIMEOUT                         ( "ldap.connection.timeoutMS" ),
     LDAP_PROFILE_RETRY_DELAY                        ( "ldap.profile.retryDelayMS" ),
     LDAP_PROMISCUOUS_ENABLE                         ( "ldap.promiscuousEnable" ),
+    LDAP_PERMISSION_LOCAL_FILTER_ENABLE             ( "ldap.permission.localFilter.enable" ),
     LDAP_PASSWORD_REPLICA_CHECK_INIT_DELAY_MS       ( "ldap.password.replicaCheck.initialDelayMS" ),
     LDAP_PASSWORD_REPLICA_CHECK_CYCLE_DELAY_MS      ( "ldap.password.replicaCheck.cycleDelayMS" ),
     LDAP_PASSWORD_CHANGE_SELF_ENABLE                ( "ldap.password.change.self.enable" ),
@@ -244,6 +252,7 @@ public enum AppProperty
     LDAP_SEARCH_PARALLEL_ENABLE                     ( "ldap.search.parallel.enable" ),
     LDAP_SEARCH_PARALLEL_FACTOR                     ( "ldap.search.parallel.factor" ),
     LDAP_SEARCH_PARALLEL_THREAD_MAX                 ( "ldap.search.parallel.threadMax" ),
+    LDAP_USER_INFO_PREFETCH_ENABLE                  ( "ldap.userInfo.prefetch.enable" ),
     LDAP_ORACLE_POST_TEMPPW_USE_CURRENT_TIME        ( "ldap.oracle.postTempPasswordUseCurrentTime" ),
     LOGGING_OUTPUT_CONFIGURATION                    ( "logging.output.configuration.enable" ),
     LOGGING_OUTPUT_HEALTHCHECK                      ( "logging.output.healthCheck.enable" ),
@@ -288,6 +297,7 @@ public enum AppProperty
     OTP_QR_IMAGE_WIDTH                              ( "otp.qrImage.width" ),
     OTP_ENCRYPTION_ALG                              ( "otp.encryptionAlg" ),
     PASSWORD_RANDOMGEN_MAX_ATTEMPTS                 ( "password.randomGenerator.maxAttempts" ),
+    PASSWORD_RANDOMGEN_CONSTRUCT_ATTEMPTS           ( "password.randomGenerator.constructAttempts" ),
     PASSWORD_RANDOMGEN_MAX_LENGTH                   ( "password.randomGenerator.maxLength" ),
     PASSWORD_RANDOMGEN_MIN_LENGTH                   ( "password.randomGenerator.minLength" ),
     PASSWORD_RANDOMGEN_DEFAULT_STRENGTH             ( "password.randomGenerator.defaultStrength" ),
@@ -299,9 +309,16 @@ public enum AppProperty
     PASSWORD_STRENGTH_THRESHOLD_GOOD                ( "password.strength.threshold.good" ),
     PASSWORD_STRENGTH_THRESHOLD_WEAK                ( "password.strength.threshold.weak" ),
     PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK           ( "password.strength.threshold.veryWeak" ),
+    PASSWORD_STRENGTH_ZXCVBN_MEMO_SIZE              ( "password.strength.zxcvbn.memoSize" ),
+    PASSWORD_STRENGTH_ZXCVBN_WORDLIST_ENTRIES       ( "password.strength.zxcvbn.wordlistEntries" ),
+    PASSWORD_STRENGTH_ZXCVBN_WORDLIST_RANKED        ( "password.strength.zxcvbn.wordlistRanked" ),
     PASSWORD_RULE_WORDLIST_FAIL_WHEN_CLOSED         ( "password.rule.wordlist.failWhenClosed" ),
     PHOTO_CLIENT_CACHE_SECONDS                      ( "photo.clientCacheTimeSeconds" ),
     PHOTO_INTERNAL_HTTP_PROXY_ENABLE                ( "photo.internalHttpProxy.enable" ),
+    PHOTO_THUMBNAIL_ENABLE                          ( "photo.thumbnail.enable" ),
+    PHOTO_THUMBNAIL_MAX_DIMENSION                   ( "photo.thumbnail.maxDimension" ),
+    PHOTO_THUMBNAIL_CACHE_MEMORY_MAX_BYTES          ( "photo.thumbnail.cache.memoryMaxBytes" ),
+    PHOTO_THUMBNAIL_CACHE_DISK_MAX_BYTES            ( "photo.thumbnail.cache.diskMaxBytes" ),
     PWNOTIFY_BATCH_COUNT                            ( "pwNotify.batch.count" ),
     PWNOTIFY_BATCH_DELAY_TIME_MULTIPLIER            ( "pwNotify.batch.delayTimeMultiplier" ),
     PWNOTIFY_MAX_LDAP_SEARCH_SIZE                   ( "pwNotify.maxLdapSearchSize" ),
@@ -310,6 +327,7 @@ public enum AppProperty
     PEOPLESEARCH_EXPORT_CSV_MAX_ITEMS               ( "peoplesearch.export.csv.maxItems" ),
     PEOPLESEARCH_EXPORT_CSV_MAX_SECONDS             ( "peoplesearch.export.csv.maxSeconds" ),
     PEOPLESEARCH_EXPORT_CSV_MAX_THREADS             ( "peoplesearch.export.csv.threads" ),
+    PEOPLESEARCH_ORGCHART_CHILD_LOOKUP_THREADS      ( "peoplesearch.orgChart.childLookupThreads" ),
     PEOPLESEARCH_ORGCHART_ENABLE_CHILD_COUNT        ( "peoplesearch.orgChart.enableChildCount" ),
     PEOPLESEARCH_ORGCHART_MAX_PARENTS               ( "peoplesearch.orgChart.maxParents" ),
     PEOPLESEARCH_MAX_VALUE_VERIFYUSERDN             ( "peoplesearch.values.verifyUserDN" ),
@@ -320,12 +338,20 @@ public enum AppProperty
     QUEUE_EMAIL_MAX_COUNT                           ( "queue.email.maxCount" ),
     QUEUE_EMAIL_MAX_THREADS                         ( "queue.email.maxThreads" ),
     QUEUE_EMAIL_MAX_ITEMS_PER_CONNECTION            ( "queue.email.maxItemsPerConnection" ),
+    QUEUE_EMAIL_LANES                               ( "queue.email.lanes" ),
+    QUEUE_EMAIL_BATCH_SIZE                          ( "queue.email.batchSize" ),
+    QUEUE_EMAIL_BATCH_WINDOW_MS                     ( "queue.email.batchWindowMs" ),
     QUEUE_EMAIL_MAX_SECONDS_PER_CONNECTION          ( "queue.email.maxSecondsPerConnection" ),
+    QUEUE_EMAIL_MIN_IDLE_CONNECTIONS                ( "queue.email.minIdleConnections" ),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ( "queue.sms.retryTimeoutMs" ),
     QUEUE_SMS_MAX_COUNT                             ( "queue.sms.maxCount" ),
+    QUEUE_SMS_LANES                                 ( "queue.sms.lanes" ),
     QUEUE_SYSLOG_RETRY_TIMEOUT_MS                   ( "queue.syslog.retryTimeoutMs" ),
     QUEUE_SYSLOG_MAX_AGE_MS                         ( "queue.syslog.maxAgeMs" ),
     QUEUE_SYSLOG_MAX_COUNT                          ( "queue.syslog.maxCount" ),
+    QUEUE_SYSLOG_LANES                              ( "queue.syslog.lanes" ),
+    QUEUE_SYSLOG_BATCH_SIZE                         ( "queue.syslog.batchSize" ),
+    QUEUE_SYSLOG_BATCH_WINDOW_MS                    ( "queue.syslog.batchWindowMs" ),
     RECAPTCHA_CLIENT_JS_URL                         ( "recaptcha.clientJsUrl" ),
     RECAPTCHA_CLIENT_IFRAME_URL                     ( "recaptcha.clientIframeUrl" ),
     RECAPTCHA_VALIDATE_URL                          ( "recaptcha.validateUrl" ),
@@ -387,12 +413,16 @@ public enum AppProperty
     VERSION_CHECK_URL                               ( "versionCheck.url" ),
     VERSION_CHECK_CHECK_INTERVAL_SECONDS            ( "versionCheck.checkIntervalSeconds" ),
     VERSION_CHECK_CHECK_INTERVAL_ERROR_SECONDS      ( "versionCheck.checkIntervalErrorSeconds" ),
+    WORDLIST_BLOOM_FILTER_ENABLE                    ( "wordlist.bloomFilter.enable" ),
+    WORDLIST_BLOOM_FILTER_HASH_COUNT                ( "wordlist.bloomFilter.hashCount" ),
+    WORDLIST_BLOOM_FILTER_SIZE_BYTES                ( "wordlist.bloomFilter.sizeBytes" ),
     WORDLIST_BUILTIN_PATH                           ( "wordlist.builtin.path" ),
     WORDLIST_CHAR_LENGTH_MAX                        ( "wordlist.maxCharLength" ),
     WORDLIST_CHAR_LENGTH_MIN                        ( "wordlist.minCharLength" ),
     WORDLIST_BUCKET_CHECK_WARNING_TIMEOUT_MS        ( "wordlist.bucketCheckLogWarningTimeoutMs" ),
     WORDLIST_WARMUP_COUNT                           ( "wordlist.warmup.count" ),
     WORDLIST_IMPORT_AUTO_IMPORT_RECHECK_SECONDS     ( "wordlist.import.autoImportRecheckSeconds" ),
+    WORDLIST_IMPORT_CHUNK_LINES                     ( "wordlist.import.chunkLines" ),
     WORDLIST_IMPORT_DURATION_GOAL_MS                ( "wordlist.import.durationGoalMS" ),
     WORDLIST_IMPORT_MIN_FREE_SPACE                  ( "wordlist.import.minFreeSpace" ),
     WORDLIST_IMPORT_MIN_TRANSACTIONS                ( "wordlist.import.minTransactions" ),
@@ -401,9 +431,11 @@ public enum AppProperty
     WORDLIST_IMPORT_LINE_COMMENTS                   ( "wordlist.import.lineComments" ),
     WORDLIST_IMPORT_PAUSE_DURATION_MS               ( "wordlist.import.pauseDurationMs" ),
     WORDLIST_IMPORT_PAUSE_FREQUENCY_MS              ( "wordlist.import.pauseFrequencyMs" ),
+    WORDLIST_IMPORT_WORKER_THREADS                  ( "wordlist.import.workerThreads" ),
     WORDLIST_INSPECTOR_FREQUENCY_SECONDS            ( "wordlist.inspector.frequencySeconds" ),
     WORDLIST_TEST_MODE                              ( "wordlist.testMode" ),
     WORDLIST_BUCKET_CHECK_TIME_WARNING_MS           ( "wordlist.bucket.checkTimeWarningMs" ),
+    WORDLIST_BUCKET_TYPE                            ( "wordlist.bucket.type" ),
     WS_REST_CLIENT_PWRULE_HALTONERROR               ( "ws.restClient.pwRule.haltOnError" ),
     WS_REST_SERVER_SIGNING_FORM_TIMEOUT_SECONDS     ( "ws.restServer.signing.form.timeoutSeconds" ),
     WS_REST_SERVER_STATISTICS_DEFAULT_HISTORY       ( "ws.restServer.statistics.defaultHistoryDays" ),
@@ -20,6 +20,7 @@
 
 package password.pwm.config;
 
+import lombok.Value;
 import password.pwm.PwmConstants;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.EmailItemBean;
@@ -64,6 +65,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -78,6 +80,41 @@ public class StoredSettingReader implements SettingReader
     private final Map<ProfileDefinition, Map> profileCache;
     private final String valueHash;
 
+    // compiled at construction, indexed by PwmSetting ordinal; null for settings not readable by this reader
+    private final StoredValue[] settingValues;
+    private final boolean[] deprecatedSettings;
+
+    // immutable typed values, converted on first read and indexed by PwmSetting ordinal
+    private final AtomicReferenceArray<ConvertedValue> convertedValues;
+
+    private enum ConversionType
+    {
+        ACTION,
+        BOOLEAN,
+        CERTIFICATE,
+        ENUM,
+        FORM,
+        LONG,
+        OPTION_LIST,
+        REMOTE_WEB_SERVICE,
+        STRING,
+        STRING_ARRAY,
+        USER_PERMISSION
+    }
+
+    @Value
+    private static class ConvertedValue
+    {
+        private final ConversionType conversionType;
+        private final Class<?> enumClass;
+        private final Object value;
+
+        boolean matches( final ConversionType conversionType, final Class<?> enumClass )
+        {
+            return this.conversionType == conversionType && this.enumClass == enumClass;
+        }
+    }
+
     public StoredSettingReader( final StoredConfiguration storedConfiguration, final ProfileID profileID, final DomainID domainID )
     {
         this.storedConfiguration = Objects.requireNonNull( storedConfiguration );
@@ -87,23 +124,37 @@ public class StoredSettingReader implements SettingReader
         this.profileCache = profileID == null
                 ? ProfileReader.makeCacheMap( storedConfiguration, domainID )
                 : Collections.emptyMap();
+
+        final PwmSetting[] allSettings = PwmSetting.values();
+        this.settingValues = new StoredValue[allSettings.length];
+        this.deprecatedSettings = new boolean[allSettings.length];
+        this.convertedValues = new AtomicReferenceArray<>( allSettings.length );
+        for ( final PwmSetting setting : allSettings )
+        {
+            if ( isReadableSetting( setting ) )
+            {
+                final StoredConfigKey key = StoredConfigKey.forSetting( setting, profileID, domainID );
+                settingValues[setting.ordinal()] = StoredConfigurationUtil.getValueOrDefault( storedConfiguration, key );
+                deprecatedSettings[setting.ordinal()] = setting.getFlags().contains( PwmSettingFlag.Deprecated );
+            }
+        }
     }
 
     @Override
     public List<UserPermission> readSettingAsUserPermission( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToUserPermissions( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.USER_PERMISSION, null, ValueTypeConverter::valueToUserPermissions );
     }
 
     @Override
     public String readSettingAsString( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToString( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.STRING, null, ValueTypeConverter::valueToString );
     }
 
     public List<String> readSettingAsStringArray( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToStringArray( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.STRING_ARRAY, null, ValueTypeConverter::valueToStringArray );
     }
 
     public List<String> readSettingAsLocalizedStringArray( final PwmSetting setting, final Locale locale )
@@ -132,37 +183,41 @@ public class StoredSettingReader implements SettingReader
 
     public List<FormConfiguration> readSettingAsForm( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToForm( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.FORM, null, ValueTypeConverter::valueToForm );
     }
 
     public <E extends Enum<E>> Set<E> readSettingAsOptionList( final PwmSetting setting, final Class<E> enumClass )
     {
-        return ValueTypeConverter.valueToOptionList( setting, readSetting( setting ), enumClass );
+        return readConvertedSetting( setting, ConversionType.OPTION_LIST, enumClass,
+                storedValue -> ValueTypeConverter.valueToOptionList( setting, storedValue, enumClass ) );
     }
 
     public <E extends Enum<E>> E readSettingAsEnum( final PwmSetting setting, final Class<E> enumClass )
     {
-        return ValueTypeConverter.valueToEnum( setting, readSetting( setting ), enumClass );
+        return readConvertedSetting( setting, ConversionType.ENUM, enumClass,
+                storedValue -> ValueTypeConverter.valueToEnum( setting, storedValue, enumClass ) );
     }
 
     public List<ActionConfiguration> readSettingAsAction( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToAction( setting, readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.ACTION, null,
+                storedValue -> ValueTypeConverter.valueToAction( setting, storedValue ) );
     }
 
     public List<X509Certificate> readSettingAsCertificate( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToX509Certificates( setting, readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.CERTIFICATE, null,
+                storedValue -> ValueTypeConverter.valueToX509Certificates( setting, storedValue ) );
     }
 
     public boolean readSettingAsBoolean( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToBoolean( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.BOOLEAN, null, ValueTypeConverter::valueToBoolean );
     }
 
     public long readSettingAsLong( final PwmSetting setting )
     {
-        return ValueTypeConverter.valueToLong( readSetting( setting ) );
+        return readConvertedSetting( setting, ConversionType.LONG, null, ValueTypeConverter::valueToLong );
     }
 
     @Override
@@ -178,7 +233,7 @@ public class StoredSettingReader implements SettingReader
 
     public List<RemoteWebServiceConfiguration> readSettingAsRemoteWebService( final PwmSetting pwmSetting )
     {
-        return ValueTypeConverter.valueToRemoteWebServiceConfiguration( readSetting( pwmSetting ) );
+        return readConvertedSetting( pwmSetting, ConversionType.REMOTE_WEB_SERVICE, null, ValueTypeConverter::valueToRemoteWebServiceConfiguration );
     }
 
     public Map<String, NamedSecretData> readSettingAsNamedPasswords( final PwmSetting setting )
@@ -295,7 +350,53 @@ public class StoredSettingReader implements SettingReader
         }
     }
 
+    private <T> T readConvertedSetting(
+            final PwmSetting setting,
+            final ConversionType conversionType,
+            final Class<?> enumClass,
+            final Function<StoredValue, T> converter
+    )
+    {
+        final int ordinal = setting.ordinal();
+        final ConvertedValue convertedValue = convertedValues.get( ordinal );
+        if ( convertedValue != null && convertedValue.matches( conversionType, enumClass ) )
+        {
+            return ( T ) convertedValue.getValue();
+        }
+
+        final T value = converter.apply( readSetting( setting ) );
+        convertedValues.set( ordinal, new ConvertedValue( conversionType, enumClass, value ) );
+        return value;
+    }
+
+    private boolean isReadableSetting( final PwmSetting setting )
+    {
+        final PwmSettingScope scope = setting.getCategory().getScope();
+        final boolean scopeMatches = DomainID.systemId().equals( domainID )
+                ? scope != PwmSettingScope.DOMAIN
+                : scope != PwmSettingScope.SYSTEM;
+        return scopeMatches && ( profileID != null ) == setting.getCategory().hasProfiles();
+    }
+
     private StoredValue readSetting( final PwmSetting setting )
+    {
+        final int ordinal = setting.ordinal();
+        final StoredValue storedValue = settingValues[ordinal];
+        if ( storedValue == null )
+        {
+            // settings outside this reader's scope are not compiled, the uncompiled read reports the reason
+            return readUncompiledSetting( setting );
+        }
+
+        if ( deprecatedSettings[ordinal] )
+        {
+            LOGGER.warn( () -> "attempt to read deprecated config setting: " + setting.toMenuLocationDebug( profileID, null ) );
+        }
+
+        return storedValue;
+    }
+
+    private StoredValue readUncompiledSetting( final PwmSetting setting )
     {
         if ( DomainID.systemId().equals( domainID ) )
         {
@@ -69,6 +69,7 @@ public class PwmPasswordPolicy implements Profile, Serializable
     private static final PwmPasswordPolicy DEFAULT_POLICY = makeDefaultPolicy();
 
     private final transient Supplier<List<HealthRecord>> healthChecker = LazySupplier.create( () -> doHealthChecks( this ) );
+    private final transient Supplier<PasswordRuleReaderHelper> ruleHelper = LazySupplier.create( () -> new PasswordRuleReaderHelper( this ) );
     private final transient ChaiPasswordPolicy chaiPasswordPolicy;
 
     private final Map<String, String> policyMap;
@@ -243,7 +244,10 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     public PasswordRuleReaderHelper getRuleHelper( )
     {
-        return new PasswordRuleReaderHelper( this );
+        // transient fields are not restored when a policy is deserialized
+        return ruleHelper == null
+                ? new PasswordRuleReaderHelper( this )
+                : ruleHelper.get();
     }
 
     public String getValue( final PwmPasswordRule rule )
@@ -54,6 +54,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.servlet.AbstractPwmServlet;
 import password.pwm.http.servlet.PwmRequestID;
 import password.pwm.http.servlet.PwmServletDefinition;
+import password.pwm.svc.secure.DomainSecureService;
 import password.pwm.svc.secure.SecureService;
 import password.pwm.user.UserInfo;
 import password.pwm.util.Validator;
@@ -662,6 +663,22 @@ public class PwmRequest extends PwmHttpRequestWrapper
         return secureService.encryptObjectToString( serializableObject, pwmSecurityKey );
     }
 
+    public String encryptToCompactString( final String value )
+            throws PwmUnrecoverableException
+    {
+        final DomainSecureService secureService = pwmApplication.domains().get( domainID ).getSecureService();
+        final PwmSecurityKey pwmSecurityKey = getPwmSession().getSecurityKey( this );
+        return secureService.encryptToCompactString( value, pwmSecurityKey );
+    }
+
+    public String decryptCompactString( final String value )
+            throws PwmUnrecoverableException
+    {
+        final DomainSecureService secureService = pwmApplication.domains().get( domainID ).getSecureService();
+        final PwmSecurityKey pwmSecurityKey = getPwmSession().getSecurityKey( this );
+        return secureService.decryptCompactStringValue( value, pwmSecurityKey );
+    }
+
     public <T> T decryptObject( final String value, final Class<T> returnClass )
             throws PwmUnrecoverableException
     {
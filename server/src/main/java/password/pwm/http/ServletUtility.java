@@ -25,6 +25,7 @@ import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
@@ -48,4 +49,36 @@ public final class ServletUtility
         }
         return value;
     }
+
+    /**
+     * Test if an {@code If-None-Match} request header value matches an etag.  The header may list several etags
+     * separated by commas, and etags are compared using the weak comparison, so a {@code W/} prefix is ignored.
+     *
+     * @param ifNoneMatchValue value of the request header, may be null.
+     * @param eTagValue etag of the current representation of the resource.
+     * @return true if the header is {@code *} or lists the etag.
+     */
+    public static boolean ifNoneMatchContains( final String ifNoneMatchValue, final String eTagValue )
+    {
+        if ( StringUtil.isTrimEmpty( ifNoneMatchValue ) || StringUtil.isTrimEmpty( eTagValue ) )
+        {
+            return false;
+        }
+
+        final String opaqueTag = stripWeakPrefix( eTagValue.trim() );
+        for ( final String listValue : ifNoneMatchValue.split( "," ) )
+        {
+            final String candidate = listValue.trim();
+            if ( "*".equals( candidate ) || opaqueTag.equals( stripWeakPrefix( candidate ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix( final String eTagValue )
+    {
+        return eTagValue.startsWith( "W/" ) ? eTagValue.substring( 2 ) : eTagValue;
+    }
 }
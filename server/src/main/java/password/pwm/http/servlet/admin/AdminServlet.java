@@ -50,6 +50,7 @@ import password.pwm.http.servlet.PwmServletDefinition;
 import password.pwm.i18n.Message;
 import password.pwm.ldap.search.UserSearchService;
 import password.pwm.svc.event.AuditEventType;
+import password.pwm.svc.event.AuditQuery;
 import password.pwm.svc.event.AuditRecord;
 import password.pwm.svc.intruder.IntruderRecordType;
 import password.pwm.svc.intruder.PublicIntruderRecord;
@@ -479,7 +480,8 @@ public class AdminServlet extends ControlledPwmServlet
         final int max = readMaxParameter( pwmRequest, 100, 10 * 1000 );
         final AuditEventType auditDataType = AuditEventType.valueOf( pwmRequest.readParameterAsString( "type", AuditEventType.USER.name() ) );
         final ArrayList<AuditRecord> records = new ArrayList<>();
-        final Iterator<AuditRecord> iterator = pwmRequest.getPwmDomain().getAuditService().readVault();
+        final AuditQuery auditQuery = AuditQuery.builder().type( auditDataType ).build();
+        final Iterator<AuditRecord> iterator = pwmRequest.getPwmDomain().getAuditService().readVault( auditQuery );
 
         while (
                 iterator.hasNext()
@@ -487,11 +489,7 @@ public class AdminServlet extends ControlledPwmServlet
                         && TimeDuration.fromCurrent( startTime ).isShorterThan( maxSearchTime )
         )
         {
-            final AuditRecord loopRecord = iterator.next();
-            if ( auditDataType == loopRecord.getType() )
-            {
-                records.add( loopRecord );
-            }
+            records.add( iterator.next() );
         }
 
         final HashMap<String, Object> resultData = new HashMap<>( Collections.singletonMap( "records", records ) );
@@ -285,6 +285,17 @@ public class ConfigManagerWordlistServlet extends AbstractPwmServlet
                                 percentComplete ) );
 
                     }
+
+                    presentableValues.add( new DisplayElement(
+                            wordlistType.name() + "_importRate",
+                            DisplayElement.Type.number,
+                            "Import Rate (words/second)",
+                            Long.toString( wordlistStatus.getImportWordsPerSecond() ) ) );
+                    presentableValues.add( new DisplayElement(
+                            wordlistType.name() + "_importBacklog",
+                            DisplayElement.Type.string,
+                            "Import Backlog (read/write chunks)",
+                            wordlistStatus.getImportReadBacklog() + " / " + wordlistStatus.getImportWriteBacklog() ) );
                 }
 
                 builder.presentableData( Collections.unmodifiableList( presentableValues ) );
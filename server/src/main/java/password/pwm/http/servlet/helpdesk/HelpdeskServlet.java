@@ -1389,7 +1389,6 @@ public class HelpdeskServlet extends ControlledPwmServlet
         final PhotoDataReader.Settings settings = PhotoDataReader.Settings.builder()
                 .enabled( enabled )
                 .photoPermissions( null )
-                .chaiProvider( HelpdeskServletUtil.getChaiUser( pwmRequest, helpdeskProfile, userIdentity ).getChaiProvider() )
                 .build();
 
         return new PhotoDataReader( pwmRequest, settings, userIdentity );
@@ -93,6 +93,11 @@ public class PeopleSearchConfiguration
         return Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.PEOPLESEARCH_ORGCHART_ENABLE_CHILD_COUNT ) );
     }
 
+    int getOrgChartChildLookupThreads()
+    {
+        return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PEOPLESEARCH_ORGCHART_CHILD_LOOKUP_THREADS ) );
+    }
+
     public int getOrgChartMaxParents()
     {
         return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PEOPLESEARCH_ORGCHART_MAX_PARENTS ) );
@@ -41,6 +41,7 @@ import password.pwm.error.PwmError;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.PwmRequest;
+import password.pwm.http.PwmRequestContext;
 import password.pwm.http.servlet.helpdesk.HelpdeskServletUtil;
 import password.pwm.http.servlet.peoplesearch.bean.AttributeDetailBean;
 import password.pwm.http.servlet.peoplesearch.bean.LinkReferenceBean;
@@ -77,6 +78,7 @@ import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -85,16 +87,23 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 class PeopleSearchDataReader
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( PeopleSearchDataReader.class );
 
     private final PwmRequest pwmRequest;
+    private final PwmRequestContext pwmRequestContext;
     private final PeopleSearchConfiguration peopleSearchConfiguration;
+    private final boolean useProxy;
+    private final UserIdentity cacheIdentity;
 
     private enum CacheIdentifier
     {
@@ -102,13 +111,17 @@ class PeopleSearchDataReader
         checkIfViewable,
         searchResultBean,
         photo,
+        orgChartReference,
     }
 
     PeopleSearchDataReader( final PwmRequest pwmRequest, final PeopleSearchProfile peopleSearchProfile )
             throws PwmUnrecoverableException
     {
         this.pwmRequest = pwmRequest;
+        this.pwmRequestContext = pwmRequest.getPwmRequestContext();
         this.peopleSearchConfiguration = new PeopleSearchConfiguration( pwmRequest.getDomainConfig(), peopleSearchProfile );
+        this.useProxy = peopleSearchConfiguration.isUseProxy() || ( !pwmRequest.isAuthenticated() && pwmRequest.getURL().isPublicUrl() );
+        this.cacheIdentity = pwmRequest.isAuthenticated() && !useProxy ? pwmRequest.getUserInfoIfLoggedIn() : null;
     }
 
     SearchResultBean makeSearchResultBean(
@@ -194,10 +207,13 @@ class PeopleSearchDataReader
         {
             // make children reference
             final Map<String, OrgChartReferenceBean> sortedChildren = new TreeMap<>();
-            final List<UserIdentity> childIdentities = readUserDNAttributeValues( userIdentity, peopleSearchConfiguration.getOrgChartChildAttr( userIdentity ) );
-            for ( final UserIdentity childIdentity : childIdentities )
+            final List<UserIdentity> childIdentities = readUserDNAttributeValues(
+                    userIdentity,
+                    peopleSearchConfiguration.getOrgChartChildAttr( userIdentity ),
+                    false );
+            final List<OrgChartReferenceBean> childReferences = makeOrgChartReferencesForIdentities( childIdentities, isVerifyUserDNValues() );
+            for ( final OrgChartReferenceBean childReference : childReferences )
             {
-                final OrgChartReferenceBean childReference = makeOrgChartReferenceForIdentity( childIdentity );
                 if ( childReference != null )
                 {
                     if ( childReference.getDisplayNames() != null && !childReference.getDisplayNames().isEmpty() )
@@ -367,19 +383,10 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
-        final UserIdentity userIdentity;
-        if ( pwmRequest.isAuthenticated() && !useProxy() )
-        {
-            userIdentity = pwmRequest.getUserInfoIfLoggedIn();
-        }
-        else
-        {
-            userIdentity = null;
-        }
-        final String keyString = operationIdentifier + "|" + pwmRequest.getPwmDomain().getSecureService().hash( dataIdentifier );
+        final String keyString = operationIdentifier + "|" + pwmRequestContext.getPwmDomain().getSecureService().hash( dataIdentifier );
         return CacheKey.newKey(
                 this.getClass(),
-                userIdentity,
+                cacheIdentity,
                 keyString );
     }
 
@@ -388,15 +395,196 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
-        final OrgChartReferenceBean orgChartReferenceBean = new OrgChartReferenceBean();
-        orgChartReferenceBean.setUserKey( PeopleSearchServlet.obfuscateUserIdentity( pwmRequest, userIdentity ) );
-        final PhotoDataReader photoDataReader = photoDataReader( userIdentity );
-        photoDataReader.figurePhotoURL( ).ifPresent( orgChartReferenceBean::setPhotoURL );
+        final String userKey = PeopleSearchServlet.obfuscateUserIdentity( pwmRequest, userIdentity );
+        return makeOrgChartReferenceForIdentity( userIdentity, userKey, pwmRequest.getURLwithoutQueryString() );
+    }
+
+    /**
+     * Build an org chart reference without reading from the {@link PwmRequest}, so it can be called from a
+     * {@link PeopleSearchService} job executor thread.
+     */
+    private OrgChartReferenceBean makeOrgChartReferenceForIdentity(
+            final UserIdentity userIdentity,
+            final String userKey,
+            final String photoServletUrl
+    )
+            throws PwmUnrecoverableException
+    {
+        final CacheLoader<OrgChartReferenceBean> cacheLoader = () ->
+        {
+            final OrgChartReferenceBean orgChartReferenceBean = new OrgChartReferenceBean();
+            orgChartReferenceBean.setUserKey( userKey );
+            PhotoDataReader.figurePhotoURL( pwmRequestContext, photoSettings(), userIdentity, photoServletUrl, userKey )
+                    .ifPresent( orgChartReferenceBean::setPhotoURL );
+
+            final List<String> displayLabels = figureDisplaynames( userIdentity );
+            orgChartReferenceBean.setDisplayNames( displayLabels );
 
-        final List<String> displayLabels = figureDisplaynames( userIdentity );
-        orgChartReferenceBean.setDisplayNames( displayLabels );
+            return orgChartReferenceBean;
+        };
 
-        return orgChartReferenceBean;
+        return storeDataInCache( CacheIdentifier.orgChartReference, userIdentity.toDelimitedKey(), OrgChartReferenceBean.class, cacheLoader );
+    }
+
+    /**
+     * Resolves org chart references for a list of users using {@link #resolveConcurrently(Executor, int, List, ItemResolver)}.
+     * The user keys and servlet url are read from the request before the work is started, so the worker threads
+     * never access the {@link PwmRequest}.
+     *
+     * @param userIdentities identities to resolve
+     * @param checkViewable if each identity should be checked with {@link #checkIfUserIdentityViewable(UserIdentity)}
+     * @return references in the same order as {@code userIdentities}
+     * @throws PwmUnrecoverableException the first error encountered resolving any of the identities
+     */
+    private List<OrgChartReferenceBean> makeOrgChartReferencesForIdentities(
+            final List<UserIdentity> userIdentities,
+            final boolean checkViewable
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( userIdentities.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final Instant startTime = Instant.now();
+        final String photoServletUrl = pwmRequest.getURLwithoutQueryString();
+        final Map<UserIdentity, String> userKeys;
+        {
+            final Map<UserIdentity, String> keyMap = new HashMap<>();
+            for ( final UserIdentity userIdentity : userIdentities )
+            {
+                keyMap.put( userIdentity, PeopleSearchServlet.obfuscateUserIdentity( pwmRequest, userIdentity ) );
+            }
+            userKeys = Collections.unmodifiableMap( keyMap );
+        }
+
+        final int maxThreads = peopleSearchConfiguration.getOrgChartChildLookupThreads();
+        final List<OrgChartReferenceBean> returnList = resolveConcurrently(
+                pwmRequestContext.getPwmDomain().getPeopleSearchService().getJobExecutor(),
+                maxThreads,
+                userIdentities,
+                userIdentity ->
+                {
+                    if ( checkViewable )
+                    {
+                        checkIfUserIdentityViewable( userIdentity );
+                    }
+                    return makeOrgChartReferenceForIdentity( userIdentity, userKeys.get( userIdentity ), photoServletUrl );
+                } );
+
+        LOGGER.trace( pwmRequestContext.getSessionLabel(), () -> "resolved " + userIdentities.size() + " org chart references using up to "
+                + Math.max( Math.min( maxThreads, userIdentities.size() ), 1 ) + " threads", TimeDuration.fromCurrent( startTime ) );
+
+        return returnList;
+    }
+
+    interface ItemResolver<I, R>
+    {
+        R resolve( I item ) throws PwmUnrecoverableException;
+    }
+
+    /**
+     * Resolves each item of a list, fanning the work out over an executor.  The calling thread also takes work from
+     * the list, so the call completes even when the executor is saturated or rejects the work (for example when
+     * called from a csv export job running on the same executor).
+     *
+     * @param executor executor used for additional worker threads, may be null
+     * @param maxThreads maximum number of threads, including the calling thread, resolving items
+     * @param items items to resolve
+     * @param resolver resolver called once for each item, possibly concurrently
+     * @param <I> item type
+     * @param <R> result type
+     * @return results in the same order as {@code items}
+     * @throws PwmUnrecoverableException the first error encountered resolving any of the items
+     */
+    static <I, R> List<R> resolveConcurrently(
+            final Executor executor,
+            final int maxThreads,
+            final List<I> items,
+            final ItemResolver<I, R> resolver
+    )
+            throws PwmUnrecoverableException
+    {
+        final int itemCount = items.size();
+        final AtomicReferenceArray<R> results = new AtomicReferenceArray<>( itemCount );
+        final AtomicInteger nextIndex = new AtomicInteger( 0 );
+        final CountDownLatch completedItems = new CountDownLatch( itemCount );
+        final AtomicReference<PwmUnrecoverableException> firstError = new AtomicReference<>();
+
+        final Runnable worker = () ->
+        {
+            for ( int index = nextIndex.getAndIncrement(); index < itemCount; index = nextIndex.getAndIncrement() )
+            {
+                try
+                {
+                    if ( firstError.get() == null )
+                    {
+                        results.set( index, resolver.resolve( items.get( index ) ) );
+                    }
+                }
+                catch ( final PwmUnrecoverableException e )
+                {
+                    firstError.compareAndSet( null, e );
+                }
+                catch ( final Exception e )
+                {
+                    final String msg = "unexpected error resolving people search data: " + e.getMessage();
+                    firstError.compareAndSet( null, PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, msg ) );
+                }
+                finally
+                {
+                    completedItems.countDown();
+                }
+            }
+        };
+
+        final int helperCount = Math.min( maxThreads, itemCount ) - 1;
+        if ( executor != null )
+        {
+            for ( int i = 0; i < helperCount; i++ )
+            {
+                try
+                {
+                    executor.execute( worker );
+                }
+                catch ( final RejectedExecutionException e )
+                {
+                    break;
+                }
+            }
+        }
+
+        worker.run();
+
+        try
+        {
+            // only items already claimed by a running helper can still be outstanding here
+            completedItems.await();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "interrupted while resolving people search data" );
+        }
+
+        if ( firstError.get() != null )
+        {
+            throw firstError.get();
+        }
+
+        final List<R> returnList = new ArrayList<>( itemCount );
+        for ( int i = 0; i < itemCount; i++ )
+        {
+            returnList.add( results.get( i ) );
+        }
+
+        return Collections.unmodifiableList( returnList );
+    }
+
+    private boolean isVerifyUserDNValues()
+    {
+        return Boolean.parseBoolean( pwmRequest.getDomainConfig().readAppProperty( AppProperty.PEOPLESEARCH_MAX_VALUE_VERIFYUSERDN ) );
     }
 
     private List<UserIdentity> readUserDNAttributeValues(
@@ -405,6 +593,16 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
+        return readUserDNAttributeValues( userIdentity, attributeName, isVerifyUserDNValues() );
+    }
+
+    private List<UserIdentity> readUserDNAttributeValues(
+            final UserIdentity userIdentity,
+            final String attributeName,
+            final boolean checkUserDNValues
+    )
+            throws PwmUnrecoverableException
+    {
 
         final List<UserIdentity> returnObj = new ArrayList<>();
 
@@ -427,8 +625,6 @@ class PeopleSearchDataReader
             throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE, e.getMessage() ) );
         }
 
-
-        final boolean checkUserDNValues = Boolean.parseBoolean( pwmRequest.getDomainConfig().readAppProperty( AppProperty.PEOPLESEARCH_MAX_VALUE_VERIFYUSERDN ) );
         for ( final String userDN : ldapValues )
         {
             final UserIdentity loopIdentity = UserIdentity.create( userDN, userIdentity.getLdapProfileID(), pwmRequest.getDomainID() );
@@ -455,7 +651,7 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
-        final PwmDomain pwmDomain = pwmRequest.getPwmDomain();
+        final PwmDomain pwmDomain = pwmRequestContext.getPwmDomain();
         final TimeDuration maxCacheTime = this.peopleSearchConfiguration.getMaxCacheTime();
         if ( !maxCacheTime.isZero() )
         {
@@ -472,7 +668,7 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
-        final PwmDomain pwmDomain = pwmRequest.getPwmDomain();
+        final PwmDomain pwmDomain = pwmRequestContext.getPwmDomain();
         final CacheKey cacheKey = makeCacheKey( operationIdentifier.name(), dataIdentifier );
         final TimeDuration maxCacheTime = this.peopleSearchConfiguration.getMaxCacheTime();
         final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( maxCacheTime );
@@ -590,16 +786,16 @@ class PeopleSearchDataReader
     )
             throws PwmUnrecoverableException
     {
-        final Locale locale = pwmRequest.getLocale();
-        final ChaiProvider chaiProvider = pwmRequest.getPwmDomain().getProxiedChaiUser( pwmRequest.getLabel(), userIdentity ).getChaiProvider();
+        final Locale locale = pwmRequestContext.getLocale();
+        final ChaiProvider chaiProvider = pwmRequestContext.getPwmDomain().getProxiedChaiUser( pwmRequestContext.getSessionLabel(), userIdentity ).getChaiProvider();
         final UserInfo userInfo = UserInfoFactory.newUserInfo(
-                pwmRequest.getPwmApplication(),
-                pwmRequest.getLabel(),
+                pwmRequestContext.getPwmApplication(),
+                pwmRequestContext.getSessionLabel(),
                 locale,
                 userIdentity,
                 chaiProvider
         );
-        return MacroRequest.forUser( pwmRequest.getPwmApplication(), pwmRequest.getLabel(), userInfo, null );
+        return MacroRequest.forUser( pwmRequestContext.getPwmApplication(), pwmRequestContext.getSessionLabel(), userInfo, null );
     }
 
     void checkIfUserIdentityViewable(
@@ -623,7 +819,7 @@ class PeopleSearchDataReader
                     .ldapProfileID( userIdentity.getLdapProfileID() )
                     .build();
 
-            return UserPermissionUtility.testUserPermission( pwmRequest.getPwmRequestContext(), userIdentity, userPermission );
+            return UserPermissionUtility.testUserPermission( pwmRequestContext, userIdentity, userPermission );
         };
 
         final boolean result = storeDataInCache( CacheIdentifier.checkIfViewable, userIdentity.toDelimitedKey(), Boolean.class, cacheLoader );
@@ -632,13 +828,13 @@ class PeopleSearchDataReader
             if ( !result )
             {
                 final String msg = "attempt to read data of out-of-scope userDN '" + userIdentity.toDisplayString() + "' by user " + userIdentity.toDisplayString();
-                LOGGER.warn( pwmRequest, () -> msg );
+                LOGGER.warn( pwmRequestContext.getSessionLabel(), () -> msg );
                 throw PwmUnrecoverableException.newException( PwmError.ERROR_SERVICE_NOT_AVAILABLE, msg );
             }
         }
         finally
         {
-            LOGGER.trace( pwmRequest, () -> "completed checkIfUserViewable for " + userIdentity.toDisplayString() + " in ", TimeDuration.fromCurrent( startTime ) );
+            LOGGER.trace( pwmRequestContext.getSessionLabel(), () -> "completed checkIfUserViewable for " + userIdentity.toDisplayString() + " in ", TimeDuration.fromCurrent( startTime ) );
         }
     }
 
@@ -650,7 +846,7 @@ class PeopleSearchDataReader
             return configuredFilter;
         }
 
-        final List<String> defaultObjectClasses = pwmRequest.getDomainConfig().readSettingAsStringArray( PwmSetting.DEFAULT_OBJECT_CLASSES );
+        final List<String> defaultObjectClasses = pwmRequestContext.getDomainConfig().readSettingAsStringArray( PwmSetting.DEFAULT_OBJECT_CLASSES );
         final Set<String> searchAttributes = peopleSearchConfiguration.getSearchAttributes();
         final StringBuilder filter = new StringBuilder();
 
@@ -687,10 +883,7 @@ class PeopleSearchDataReader
 
     private boolean useProxy( )
     {
-        final boolean useProxy = peopleSearchConfiguration.isUseProxy();
-        final boolean publicAccess = pwmRequest.getURL().isPublicUrl();
-
-        return useProxy || ( !pwmRequest.isAuthenticated() && publicAccess );
+        return useProxy;
     }
 
     ChaiUser getChaiUser(
@@ -1093,15 +1286,16 @@ class PeopleSearchDataReader
 
 
     PhotoDataReader photoDataReader( final UserIdentity userIdentity )
-            throws PwmUnrecoverableException
     {
-        final PhotoDataReader.Settings settings = PhotoDataReader.Settings.builder()
+        return new PhotoDataReader( pwmRequest, photoSettings(), userIdentity );
+    }
+
+    private PhotoDataReader.Settings photoSettings()
+    {
+        return PhotoDataReader.Settings.builder()
                 .enabled( peopleSearchConfiguration.isPhotosEnabled() )
                 .photoPermissions( peopleSearchConfiguration.getSearchPhotoFilter() )
-                .chaiProvider( getChaiUser( userIdentity ).getChaiProvider() )
                 .build();
-
-        return new PhotoDataReader( pwmRequest, settings, userIdentity );
     }
 
 }
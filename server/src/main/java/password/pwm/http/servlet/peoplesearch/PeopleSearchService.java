@@ -20,21 +20,30 @@
 
 package password.pwm.http.servlet.peoplesearch;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.bean.DomainID;
+import password.pwm.config.AppConfig;
 import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
 import password.pwm.util.PwmScheduler;
+import password.pwm.util.logging.PwmLogger;
 
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class PeopleSearchService extends AbstractPwmService implements PwmService
 {
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PeopleSearchService.class );
+
     private ThreadPoolExecutor threadPoolExecutor;
+    private PhotoThumbnailCache photoThumbnailCache;
 
     @Override
     public STATUS postAbstractInit( final PwmApplication pwmApplication, final DomainID domainID )
@@ -44,9 +53,41 @@ public class PeopleSearchService extends AbstractPwmService implements PwmServic
 
         threadPoolExecutor = PwmScheduler.makeMultiThreadExecutor( maxThreadCount, pwmApplication, getSessionLabel(), PeopleSearchService.class );
 
+        // the executor's queue is unbounded, so it never grows past its core size on its own; idle threads still time out.
+        threadPoolExecutor.setCorePoolSize( maxThreadCount );
+
+        photoThumbnailCache = makePhotoThumbnailCache( pwmApplication, domainID );
+
         return STATUS.OPEN;
     }
 
+    private PhotoThumbnailCache makePhotoThumbnailCache( final PwmApplication pwmApplication, final DomainID domainID )
+    {
+        final AppConfig appConfig = pwmApplication.getConfig();
+        if ( !Boolean.parseBoolean( appConfig.readAppProperty( AppProperty.PHOTO_THUMBNAIL_ENABLE ) ) )
+        {
+            return null;
+        }
+
+        final PhotoThumbnailCache.Settings settings = PhotoThumbnailCache.Settings.builder()
+                .maxDimension( Integer.parseInt( appConfig.readAppProperty( AppProperty.PHOTO_THUMBNAIL_MAX_DIMENSION ) ) )
+                .memoryMaxBytes( Long.parseLong( appConfig.readAppProperty( AppProperty.PHOTO_THUMBNAIL_CACHE_MEMORY_MAX_BYTES ) ) )
+                .diskMaxBytes( Long.parseLong( appConfig.readAppProperty( AppProperty.PHOTO_THUMBNAIL_CACHE_DISK_MAX_BYTES ) ) )
+                .build();
+
+        Path diskDirectory = null;
+        try
+        {
+            diskDirectory = pwmApplication.getTempDirectory().toPath().resolve( "photo-thumbnails" ).resolve( domainID.stringValue() );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.debug( getSessionLabel(), () -> "photo thumbnail disk cache not available: " + e.getMessage() );
+        }
+
+        return new PhotoThumbnailCache( settings, diskDirectory );
+    }
+
     @Override
     public void shutdownImpl()
     {
@@ -55,6 +96,7 @@ public class PeopleSearchService extends AbstractPwmService implements PwmServic
             threadPoolExecutor.shutdown();
             threadPoolExecutor = null;
         }
+        photoThumbnailCache = null;
     }
 
     @Override
@@ -66,11 +108,18 @@ public class PeopleSearchService extends AbstractPwmService implements PwmServic
     @Override
     public ServiceInfoBean serviceInfo()
     {
-        return ServiceInfoBean.builder().build();
+        return ServiceInfoBean.builder()
+                .debugProperties( photoThumbnailCache == null ? Collections.emptyMap() : photoThumbnailCache.debugInfo() )
+                .build();
     }
 
     public ThreadPoolExecutor getJobExecutor()
     {
         return threadPoolExecutor;
     }
+
+    Optional<PhotoThumbnailCache> getPhotoThumbnailCache()
+    {
+        return Optional.ofNullable( photoThumbnailCache );
+    }
 }
@@ -20,7 +20,6 @@
 
 package password.pwm.http.servlet.peoplesearch;
 
-import com.novell.ldapchai.provider.ChaiProvider;
 import lombok.Builder;
 import lombok.Value;
 import password.pwm.AppProperty;
@@ -36,7 +35,9 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.HttpHeader;
 import password.pwm.http.HttpMethod;
 import password.pwm.http.PwmRequest;
+import password.pwm.http.PwmRequestContext;
 import password.pwm.http.PwmURL;
+import password.pwm.http.ServletUtility;
 import password.pwm.data.ImmutableByteArray;
 import password.pwm.ldap.LdapOperationsHelper;
 import password.pwm.ldap.permission.UserPermissionUtility;
@@ -74,7 +75,6 @@ public class PhotoDataReader
     {
         private boolean enabled;
         private List<UserPermission> photoPermissions;
-        private ChaiProvider chaiProvider;
     }
 
     public enum PhotoReaderMethod
@@ -91,16 +91,19 @@ public class PhotoDataReader
         this.userIdentity = userIdentity;
     }
 
-    private PhotoReaderMethod figurePhotoDataReaderMethod()
+    private static PhotoReaderMethod figurePhotoDataReaderMethod(
+            final PwmRequestContext pwmRequestContext,
+            final UserIdentity userIdentity
+    )
             throws PwmUnrecoverableException
     {
-        final Optional<String> photoUrlOverride = getPhotoUrlOverride( userIdentity );
+        final Optional<String> photoUrlOverride = getPhotoUrlOverride( pwmRequestContext, userIdentity );
         if ( !photoUrlOverride.isPresent() )
         {
             return PhotoReaderMethod.Ldap;
         }
 
-        final boolean enableInternalHttpProxy = Boolean.parseBoolean( pwmRequest.getDomainConfig().readAppProperty( AppProperty.PHOTO_INTERNAL_HTTP_PROXY_ENABLE ) );
+        final boolean enableInternalHttpProxy = Boolean.parseBoolean( pwmRequestContext.getDomainConfig().readAppProperty( AppProperty.PHOTO_INTERNAL_HTTP_PROXY_ENABLE ) );
         if ( enableInternalHttpProxy )
         {
             return PhotoReaderMethod.ServerHttp;
@@ -109,7 +112,11 @@ public class PhotoDataReader
         return PhotoReaderMethod.ClientHttp;
     }
 
-    private boolean verifyViewPhotoPermission()
+    private static boolean verifyViewPhotoPermission(
+            final PwmRequestContext pwmRequestContext,
+            final Settings settings,
+            final UserIdentity userIdentity
+    )
             throws PwmUnrecoverableException
     {
         final Instant startTime = Instant.now();
@@ -125,10 +132,11 @@ public class PhotoDataReader
             return true;
         }
 
-        final boolean hasPermission = UserPermissionUtility.testUserPermission( pwmRequest.getPwmDomain(), pwmRequest.getLabel(), userIdentity, permissions );
+        final boolean hasPermission = UserPermissionUtility.testUserPermission(
+                pwmRequestContext.getPwmDomain(), pwmRequestContext.getSessionLabel(), userIdentity, permissions );
         if ( !hasPermission )
         {
-            LOGGER.debug( pwmRequest, () -> "user " + userIdentity + " failed photo query filter, denying photo view ("
+            LOGGER.debug( pwmRequestContext.getSessionLabel(), () -> "user " + userIdentity + " failed photo query filter, denying photo view ("
                     + TimeDuration.compactFromCurrent( startTime ) + ")" );
         }
 
@@ -138,23 +146,51 @@ public class PhotoDataReader
     public Optional<String> figurePhotoURL()
             throws PwmUnrecoverableException
     {
-        if ( !verifyViewPhotoPermission() )
+        return figurePhotoURL(
+                pwmRequest.getPwmRequestContext(),
+                settings,
+                userIdentity,
+                pwmRequest.getURLwithoutQueryString(),
+                PeopleSearchServlet.obfuscateUserIdentity( pwmRequest, userIdentity ) );
+    }
+
+    /**
+     * Determine the photo url using only values captured from the request, so it can be called off the request thread.
+     *
+     * @param pwmRequestContext context of the request the url is built for
+     * @param settings photo settings
+     * @param userIdentity user the photo belongs to
+     * @param servletUrl url of the servlet serving photo data, without a query string
+     * @param userKey obfuscated user key of {@code userIdentity} for the request
+     * @return the photo url, if the photo is viewable
+     * @throws PwmUnrecoverableException if the photo permission or url can not be evaluated
+     */
+    static Optional<String> figurePhotoURL(
+            final PwmRequestContext pwmRequestContext,
+            final Settings settings,
+            final UserIdentity userIdentity,
+            final String servletUrl,
+            final String userKey
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( !verifyViewPhotoPermission( pwmRequestContext, settings, userIdentity ) )
         {
             return Optional.empty();
         }
 
-        final PhotoReaderMethod method = figurePhotoDataReaderMethod( );
+        final PhotoReaderMethod method = figurePhotoDataReaderMethod( pwmRequestContext, userIdentity );
 
         switch ( method )
         {
             case ClientHttp:
-                return getPhotoUrlOverride( userIdentity );
+                return getPhotoUrlOverride( pwmRequestContext, userIdentity );
 
             case Ldap:
             case ServerHttp:
-                String returnUrl = pwmRequest.getURLwithoutQueryString();
+                String returnUrl = servletUrl;
                 returnUrl = PwmURL.appendAndEncodeUrlParameters( returnUrl, PwmConstants.PARAM_ACTION_REQUEST, PeopleSearchServlet.PeopleSearchActions.photo.name() );
-                returnUrl = PwmURL.appendAndEncodeUrlParameters( returnUrl, PwmConstants.PARAM_USERKEY,  PeopleSearchServlet.obfuscateUserIdentity( pwmRequest, userIdentity ) );
+                returnUrl = PwmURL.appendAndEncodeUrlParameters( returnUrl, PwmConstants.PARAM_USERKEY, userKey );
                 return Optional.of( returnUrl );
 
             default:
@@ -170,12 +206,13 @@ public class PhotoDataReader
     {
         final Instant startTime = Instant.now();
 
-        if ( !verifyViewPhotoPermission() )
+        final PwmRequestContext pwmRequestContext = pwmRequest.getPwmRequestContext();
+        if ( !verifyViewPhotoPermission( pwmRequestContext, settings, userIdentity ) )
         {
             return Optional.empty();
         }
 
-        final PhotoReaderMethod method = figurePhotoDataReaderMethod( );
+        final PhotoReaderMethod method = figurePhotoDataReaderMethod( pwmRequestContext, userIdentity );
 
         Optional<PhotoDataBean> photoDataBean = Optional.empty();
         try
@@ -226,7 +263,7 @@ public class PhotoDataReader
     private Optional<PhotoDataBean> readPhotoDataFromHTTP()
             throws PwmUnrecoverableException, PwmOperationalException
     {
-        final Optional<String> overrideURL = getPhotoUrlOverride( userIdentity );
+        final Optional<String> overrideURL = getPhotoUrlOverride( pwmRequest.getPwmRequestContext(), userIdentity );
         if ( overrideURL.isEmpty() )
         {
             return Optional.empty();
@@ -261,15 +298,15 @@ public class PhotoDataReader
         }
     }
 
-    private Optional<String> getPhotoUrlOverride( final UserIdentity userIdentity )
+    private static Optional<String> getPhotoUrlOverride( final PwmRequestContext pwmRequestContext, final UserIdentity userIdentity )
             throws PwmUnrecoverableException
     {
-        final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmRequest.getAppConfig() );
+        final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmRequestContext.getAppConfig() );
         final String configuredUrl = ldapProfile.readSettingAsString( PwmSetting.LDAP_ATTRIBUTE_PHOTO_URL_OVERRIDE );
 
         if ( StringUtil.notEmpty( configuredUrl ) )
         {
-            final MacroRequest macroRequest = MacroRequest.forUser( pwmRequest.getPwmRequestContext(), userIdentity );
+            final MacroRequest macroRequest = MacroRequest.forUser( pwmRequestContext, userIdentity );
             return Optional.of( macroRequest.expandMacros( configuredUrl ) );
 
         }
@@ -287,18 +324,41 @@ public class PhotoDataReader
         pwmRequest.getPwmResponse().getHttpServletResponse().setDateHeader( HttpHeader.Expires.getHttpName(), System.currentTimeMillis() + ( maxCacheTime.asMillis() ) );
         pwmRequest.getPwmResponse().setHeader( HttpHeader.CacheControl,  "private, max-age=" + maxCacheTime.as( TimeDuration.Unit.SECONDS ) );
 
-        try ( OutputStream outputStream = pwmRequest.getPwmResponse().getOutputStream() )
+        try
         {
-            final Optional<PhotoDataBean> optionalPhotoDataBean = photoReader.call();
-            if ( optionalPhotoDataBean.isPresent() )
+            Optional<PhotoDataBean> optionalPhotoDataBean = photoReader.call();
+
+            final Optional<PhotoThumbnailCache> thumbnailCache = pwmRequest.getPwmDomain().getPeopleSearchService().getPhotoThumbnailCache();
+            if ( thumbnailCache.isPresent()
+                    && optionalPhotoDataBean.isPresent()
+                    && optionalPhotoDataBean.get().getContents() != null
+                    && !optionalPhotoDataBean.get().getContents().isEmpty() )
             {
-                final PhotoDataBean photoDataBean = optionalPhotoDataBean.get();
-                final HttpServletResponse resp = pwmRequest.getPwmResponse().getHttpServletResponse();
-                resp.setContentType( photoDataBean.getMimeType() );
+                final PhotoThumbnailCache.Thumbnail thumbnail = thumbnailCache.get().thumbnailFor( optionalPhotoDataBean.get() );
 
-                if ( photoDataBean.getContents() != null && !photoDataBean.getContents().isEmpty() )
+                // the etag is also sent with a 304 response so the client keeps using its stored copy
+                pwmRequest.getPwmResponse().setHeader( HttpHeader.ETag, thumbnail.getETag() );
+                final String ifNoneMatchValue = pwmRequest.readHeaderValueAsString( HttpHeader.If_None_Match );
+                if ( ServletUtility.ifNoneMatchContains( ifNoneMatchValue, thumbnail.getETag() ) )
+                {
+                    pwmRequest.getPwmResponse().setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+                    return;
+                }
+                optionalPhotoDataBean = Optional.of( thumbnail.getPhotoData() );
+            }
+
+            try ( OutputStream outputStream = pwmRequest.getPwmResponse().getOutputStream() )
+            {
+                if ( optionalPhotoDataBean.isPresent() )
                 {
-                    JavaHelper.copy( photoDataBean.getContents().newByteArrayInputStream(), outputStream );
+                    final PhotoDataBean photoDataBean = optionalPhotoDataBean.get();
+                    final HttpServletResponse resp = pwmRequest.getPwmResponse().getHttpServletResponse();
+                    resp.setContentType( photoDataBean.getMimeType() );
+
+                    if ( photoDataBean.getContents() != null && !photoDataBean.getContents().isEmpty() )
+                    {
+                        JavaHelper.copy( photoDataBean.getContents().newByteArrayInputStream(), outputStream );
+                    }
                 }
             }
         }
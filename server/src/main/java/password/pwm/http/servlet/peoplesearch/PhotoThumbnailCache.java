@@ -0,0 +1,393 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package password.pwm.http.servlet.peoplesearch;
+
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.bean.PhotoDataBean;
+import password.pwm.data.ImmutableByteArray;
+import password.pwm.util.java.Percent;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.SecureEngine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Size bounded memory and disk cache of photo thumbnails.  Entries are keyed by a hash of the source photo content
+ * and the thumbnail dimension, so a changed photo is never served from a stale entry and the same key doubles
+ * as the http ETag.
+ */
+class PhotoThumbnailCache
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PhotoThumbnailCache.class );
+
+    private static final String DISK_FILE_SUFFIX = ".thumb";
+    private static final String DISK_TEMP_FILE_SUFFIX = ".tmp";
+
+    private final Settings settings;
+    private final Path diskDirectory;
+    private final MemoryStore memoryStore;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final StatisticCounterBundle<StatKey> stats = new StatisticCounterBundle<>( StatKey.class );
+
+    enum StatKey
+    {
+        memoryHits,
+        diskHits,
+        misses,
+        undecodable,
+        sourceBytes,
+        servedBytes,
+    }
+
+    @Value
+    @Builder
+    static class Settings
+    {
+        private final int maxDimension;
+        private final long memoryMaxBytes;
+        private final long diskMaxBytes;
+    }
+
+    @Value
+    static class Thumbnail
+    {
+        private final String eTag;
+        private final PhotoDataBean photoData;
+    }
+
+    /**
+     * @param settings cache settings
+     * @param diskDirectory directory for the disk tier, or null to cache in memory only
+     */
+    PhotoThumbnailCache( final Settings settings, final Path diskDirectory )
+    {
+        this.settings = settings;
+        this.memoryStore = new MemoryStore( settings.getMemoryMaxBytes() );
+        this.diskDirectory = settings.getDiskMaxBytes() > 0 ? initDiskDirectory( diskDirectory ) : null;
+    }
+
+    private Path initDiskDirectory( final Path directory )
+    {
+        if ( directory == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            Files.createDirectories( directory );
+
+            // temp files are only left behind by writes interrupted by a shutdown or crash
+            try ( Stream<Path> files = Files.list( directory ) )
+            {
+                files.filter( path -> hasSuffix( path, DISK_TEMP_FILE_SUFFIX ) ).forEach( PhotoThumbnailCache::deleteQuietly );
+            }
+
+            try ( Stream<Path> files = Files.list( directory ) )
+            {
+                diskBytes.set( files.filter( path -> hasSuffix( path, DISK_FILE_SUFFIX ) ).mapToLong( PhotoThumbnailCache::fileSize ).sum() );
+            }
+            return directory;
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.warn( () -> "unable to use photo thumbnail disk cache directory '" + directory + "', error: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Returns the thumbnail for the source photo, creating and caching it if it is not already cached.  If the
+     * source can not be decoded as an image it is returned as-is (and not cached).
+     */
+    Thumbnail thumbnailFor( final PhotoDataBean source )
+    {
+        final String key = SecureEngine.hash( source.getContents().newByteArrayInputStream(), PwmHashAlgorithm.SHA256 )
+                + "-" + settings.getMaxDimension();
+        final String eTag = '"' + key + '"';
+
+        stats.increment( StatKey.sourceBytes, source.getContents().size() );
+
+        final PhotoDataBean photoData = readCached( key ).orElseGet( () -> makeAndStore( key, source ) );
+        stats.increment( StatKey.servedBytes, photoData.getContents().size() );
+        return new Thumbnail( eTag, photoData );
+    }
+
+    private Optional<PhotoDataBean> readCached( final String key )
+    {
+        final Optional<PhotoDataBean> memoryValue = memoryStore.get( key );
+        if ( memoryValue.isPresent() )
+        {
+            stats.increment( StatKey.memoryHits );
+            return memoryValue;
+        }
+
+        final Optional<PhotoDataBean> diskValue = readDisk( key );
+        if ( diskValue.isPresent() )
+        {
+            stats.increment( StatKey.diskHits );
+            memoryStore.put( key, diskValue.get() );
+            return diskValue;
+        }
+
+        return Optional.empty();
+    }
+
+    private PhotoDataBean makeAndStore( final String key, final PhotoDataBean source )
+    {
+        stats.increment( StatKey.misses );
+
+        final Instant startTime = Instant.now();
+        final Optional<PhotoDataBean> thumbnail = PhotoThumbnailer.makeThumbnail( source, settings.getMaxDimension() );
+        if ( thumbnail.isEmpty() )
+        {
+            stats.increment( StatKey.undecodable );
+            return source;
+        }
+
+        LOGGER.trace( () -> "created photo thumbnail " + thumbnail.get() + " from " + source, TimeDuration.fromCurrent( startTime ) );
+
+        memoryStore.put( key, thumbnail.get() );
+        writeDisk( key, thumbnail.get() );
+        return thumbnail.get();
+    }
+
+    private Optional<PhotoDataBean> readDisk( final String key )
+    {
+        if ( diskDirectory == null )
+        {
+            return Optional.empty();
+        }
+
+        final Path file = diskDirectory.resolve( key + DISK_FILE_SUFFIX );
+        if ( !Files.exists( file ) )
+        {
+            return Optional.empty();
+        }
+
+        try ( InputStream inputStream = Files.newInputStream( file );
+              DataInputStream dataInputStream = new DataInputStream( inputStream ) )
+        {
+            final String mimeType = dataInputStream.readUTF();
+            final byte[] contents = dataInputStream.readAllBytes();
+
+            // touch the file so disk eviction removes the least recently used entries first
+            Files.setLastModifiedTime( file, FileTime.from( Instant.now() ) );
+            return Optional.of( new PhotoDataBean( mimeType, ImmutableByteArray.of( contents ) ) );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "error reading photo thumbnail cache file '" + file + "', error: " + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private void writeDisk( final String key, final PhotoDataBean photoData )
+    {
+        if ( diskDirectory == null )
+        {
+            return;
+        }
+
+        final Path file = diskDirectory.resolve( key + DISK_FILE_SUFFIX );
+        Path tempFile = null;
+        try
+        {
+            tempFile = Files.createTempFile( diskDirectory, key, DISK_TEMP_FILE_SUFFIX );
+            try ( OutputStream outputStream = Files.newOutputStream( tempFile );
+                  DataOutputStream dataOutputStream = new DataOutputStream( outputStream ) )
+            {
+                dataOutputStream.writeUTF( photoData.getMimeType() );
+                dataOutputStream.write( photoData.getContents().copyOf() );
+            }
+            final long previousSize = fileSize( file );
+            Files.move( tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            diskBytes.addAndGet( fileSize( file ) - previousSize );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "error writing photo thumbnail cache file '" + file + "', error: " + e.getMessage() );
+            if ( tempFile != null )
+            {
+                deleteQuietly( tempFile );
+            }
+            return;
+        }
+
+        if ( diskBytes.get() > settings.getDiskMaxBytes() )
+        {
+            evictDisk();
+        }
+    }
+
+    private synchronized void evictDisk()
+    {
+        try ( Stream<Path> files = Files.list( diskDirectory ) )
+        {
+            final List<Path> oldestFirst = files
+                    .filter( path -> hasSuffix( path, DISK_FILE_SUFFIX ) )
+                    .sorted( Comparator.comparing( PhotoThumbnailCache::lastModified ) )
+                    .collect( Collectors.toList() );
+
+            long totalBytes = oldestFirst.stream().mapToLong( PhotoThumbnailCache::fileSize ).sum();
+            for ( final Path path : oldestFirst )
+            {
+                if ( totalBytes <= settings.getDiskMaxBytes() )
+                {
+                    break;
+                }
+                final long size = fileSize( path );
+                if ( Files.deleteIfExists( path ) )
+                {
+                    totalBytes -= size;
+                }
+            }
+            diskBytes.set( totalBytes );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "error evicting photo thumbnail cache files, error: " + e.getMessage() );
+        }
+    }
+
+    private static boolean hasSuffix( final Path path, final String suffix )
+    {
+        return path.getFileName().toString().endsWith( suffix );
+    }
+
+    private static void deleteQuietly( final Path path )
+    {
+        try
+        {
+            Files.deleteIfExists( path );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "error deleting photo thumbnail cache file '" + path + "', error: " + e.getMessage() );
+        }
+    }
+
+    private static long fileSize( final Path path )
+    {
+        try
+        {
+            return Files.exists( path ) ? Files.size( path ) : 0;
+        }
+        catch ( final IOException e )
+        {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified( final Path path )
+    {
+        try
+        {
+            return Files.getLastModifiedTime( path );
+        }
+        catch ( final IOException e )
+        {
+            return FileTime.fromMillis( 0 );
+        }
+    }
+
+    Map<String, String> debugInfo()
+    {
+        final long hits = stats.get( StatKey.memoryHits ) + stats.get( StatKey.diskHits );
+        final long total = hits + stats.get( StatKey.misses );
+
+        final Map<String, String> debugInfo = new LinkedHashMap<>( stats.debugStats() );
+        debugInfo.put( "thumbnailHitRate", Percent.of( hits, total ).pretty( 2 ) );
+        debugInfo.put( "thumbnailMemoryBytes", Long.toString( memoryStore.size() ) );
+        debugInfo.put( "thumbnailDiskBytes", Long.toString( diskBytes.get() ) );
+        return Collections.unmodifiableMap( debugInfo );
+    }
+
+    /**
+     * Least-recently-used map bounded by the total byte size of the stored photos rather than the entry count.
+     */
+    private static class MemoryStore
+    {
+        private final long maxBytes;
+        private final LinkedHashMap<String, PhotoDataBean> entries = new LinkedHashMap<>( 16, 0.75f, true );
+        private long currentBytes;
+
+        MemoryStore( final long maxBytes )
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Optional<PhotoDataBean> get( final String key )
+        {
+            return Optional.ofNullable( entries.get( key ) );
+        }
+
+        synchronized void put( final String key, final PhotoDataBean value )
+        {
+            final long valueSize = value.getContents().size();
+            if ( valueSize > maxBytes )
+            {
+                return;
+            }
+
+            final PhotoDataBean previous = entries.put( key, value );
+            if ( previous != null )
+            {
+                currentBytes -= previous.getContents().size();
+            }
+            currentBytes += valueSize;
+
+            final Iterator<PhotoDataBean> iterator = entries.values().iterator();
+            while ( currentBytes > maxBytes && iterator.hasNext() )
+            {
+                currentBytes -= iterator.next().getContents().size();
+                iterator.remove();
+            }
+        }
+
+        synchronized long size()
+        {
+            return currentBytes;
+        }
+    }
+}
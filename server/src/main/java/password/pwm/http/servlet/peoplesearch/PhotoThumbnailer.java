@@ -0,0 +1,231 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package password.pwm.http.servlet.peoplesearch;
+
+import password.pwm.bean.PhotoDataBean;
+import password.pwm.data.ImmutableByteArray;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Downscales photo data to a bounded pixel dimension and re-encodes it as a jpeg, or as a png when the
+ * source image has transparency.
+ */
+final class PhotoThumbnailer
+{
+    private static final String MIME_JPEG = "image/jpeg";
+    private static final String MIME_PNG = "image/png";
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Source images larger than this many pixels are not decoded at all.
+     */
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    private PhotoThumbnailer()
+    {
+    }
+
+    /**
+     * Make a thumbnail of the source photo.
+     *
+     * @param source photo data as read from ldap or a remote url
+     * @param maxDimension maximum width or height of the thumbnail, in pixels
+     * @return the thumbnail; the unmodified source if it is already within {@code maxDimension} or re-encoding would not
+     *     make it smaller; or empty if the source can not be decoded as an image.
+     */
+    static Optional<PhotoDataBean> makeThumbnail( final PhotoDataBean source, final int maxDimension )
+    {
+        if ( source == null || source.getContents() == null || source.getContents().isEmpty() || maxDimension < 1 )
+        {
+            return Optional.empty();
+        }
+
+        final Optional<BufferedImage> sourceImage = decode( source.getContents(), maxDimension );
+        if ( sourceImage.isEmpty() )
+        {
+            return Optional.empty();
+        }
+
+        final BufferedImage image = sourceImage.get();
+        if ( Math.max( image.getWidth(), image.getHeight() ) <= maxDimension )
+        {
+            return Optional.of( source );
+        }
+
+        final boolean hasAlpha = image.getColorModel().hasAlpha();
+        final BufferedImage scaledImage = scale( image, maxDimension, hasAlpha );
+
+        final Optional<ImmutableByteArray> encoded = hasAlpha ? encodePng( scaledImage ) : encodeJpeg( scaledImage );
+        if ( encoded.isEmpty() || encoded.get().size() >= source.getContents().size() )
+        {
+            return Optional.of( source );
+        }
+
+        return Optional.of( new PhotoDataBean( hasAlpha ? MIME_PNG : MIME_JPEG, encoded.get() ) );
+    }
+
+    /**
+     * Decode the image, sub-sampling during the decode when the source is much larger than needed so that
+     * large photos never have to be fully expanded in memory.
+     */
+    private static Optional<BufferedImage> decode( final ImmutableByteArray contents, final int maxDimension )
+    {
+        try ( ImageInputStream imageInputStream = ImageIO.createImageInputStream( contents.newByteArrayInputStream() ) )
+        {
+            if ( imageInputStream == null )
+            {
+                return Optional.empty();
+            }
+
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders( imageInputStream );
+            if ( !readers.hasNext() )
+            {
+                return Optional.empty();
+            }
+
+            final ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput( imageInputStream, true, true );
+                final int width = reader.getWidth( 0 );
+                final int height = reader.getHeight( 0 );
+                if ( width < 1 || height < 1 || ( long ) width * height > MAX_SOURCE_PIXELS )
+                {
+                    return Optional.empty();
+                }
+
+                // keep at least twice the target resolution so the scaling steps can still smooth the image; a
+                // sub-sampled image is therefore always still larger than maxDimension.
+                final int subsampling = Math.max( 1, Math.max( width, height ) / ( maxDimension * 2 ) );
+                final ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling( subsampling, subsampling, 0, 0 );
+                final BufferedImage image = reader.read( 0, readParam );
+                return Optional.ofNullable( image );
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Scale in successive halving steps; a single bilinear step from a large image to a small one skips most
+     * source pixels and produces visible aliasing.
+     */
+    private static BufferedImage scale( final BufferedImage source, final int maxDimension, final boolean hasAlpha )
+    {
+        final double ratio = ( double ) maxDimension / Math.max( source.getWidth(), source.getHeight() );
+        final int targetWidth = Math.max( 1, ( int ) Math.round( source.getWidth() * ratio ) );
+        final int targetHeight = Math.max( 1, ( int ) Math.round( source.getHeight() * ratio ) );
+        final int imageType = hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do
+        {
+            width = Math.max( targetWidth, width / 2 );
+            height = Math.max( targetHeight, height / 2 );
+
+            final BufferedImage next = new BufferedImage( width, height, imageType );
+            final Graphics2D graphics = next.createGraphics();
+            try
+            {
+                graphics.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR );
+                graphics.setRenderingHint( RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY );
+                graphics.drawImage( current, 0, 0, width, height, null );
+            }
+            finally
+            {
+                graphics.dispose();
+            }
+            current = next;
+        }
+        while ( width != targetWidth || height != targetHeight );
+
+        return current;
+    }
+
+    private static Optional<ImmutableByteArray> encodeJpeg( final BufferedImage image )
+    {
+        final Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType( MIME_JPEG );
+        if ( !writers.hasNext() )
+        {
+            return Optional.empty();
+        }
+
+        final ImageWriter writer = writers.next();
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try ( ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream( byteArrayOutputStream ) )
+        {
+            final ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+            writeParam.setCompressionQuality( JPEG_QUALITY );
+            writer.setOutput( imageOutputStream );
+            writer.write( null, new IIOImage( image, null, null ), writeParam );
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            return Optional.empty();
+        }
+        finally
+        {
+            writer.dispose();
+        }
+        return Optional.of( ImmutableByteArray.of( byteArrayOutputStream.toByteArray() ) );
+    }
+
+    private static Optional<ImmutableByteArray> encodePng( final BufferedImage image )
+    {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try
+        {
+            if ( !ImageIO.write( image, "png", byteArrayOutputStream ) )
+            {
+                return Optional.empty();
+            }
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            return Optional.empty();
+        }
+        return Optional.of( ImmutableByteArray.of( byteArrayOutputStream.toByteArray() ) );
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.servlet.resource;
+
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.bean.SessionLabel;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.SecureEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checksums and pre-compressed variants of the files in the web application resource directory.  Variants are
+ * written to a store directory under the application path together with a manifest, so that after a restart
+ * only files whose size or modification time has changed are read and compressed again.
+ *
+ * <p>Gzip variants are generated for compressible files.  Brotli variants can not be generated as there is no
+ * Brotli encoder available, but a {@code .br} file placed next to a resource, for example by the build, is
+ * recorded and served to clients accepting it.</p>
+ */
+class PrecompressedResourceStore
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PrecompressedResourceStore.class );
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final String MANIFEST_FILENAME = "manifest.json";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String BROTLI_SUFFIX = ".br";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of( "css", "htm", "html", "js", "json", "map", "mjs", "svg", "txt", "xml" );
+
+    private final File resourceDirectory;
+    private final File storeDirectory;
+    private final Map<String, ManifestEntry> entries;
+
+    @Value
+    @Builder
+    static class Manifest
+    {
+        private final int version;
+        private final String resourceDirectory;
+        private final Map<String, ManifestEntry> entries;
+    }
+
+    @Value
+    @Builder
+    static class ManifestEntry
+    {
+        private final String sha256;
+        private final long length;
+        private final long lastModified;
+        private final boolean gzip;
+        private final boolean brotli;
+    }
+
+    /**
+     * Resolved variants of a single resource file.
+     */
+    @Value
+    static class PrecompressedResource
+    {
+        private final String etag;
+        private final File identityFile;
+        private final File gzipFile;
+        private final File brotliFile;
+
+        /**
+         * Variants available in a content encoding accepted by a request, most preferred first.  Each content encoding
+         * has its own etag, so a cache can not mistake one encoding of the resource for another.
+         */
+        List<Variant> acceptedVariants( final boolean acceptsBrotli, final boolean acceptsGzip )
+        {
+            final List<Variant> variants = new ArrayList<>( 3 );
+            if ( brotliFile != null && acceptsBrotli )
+            {
+                variants.add( new Variant( brotliFile, "br", encodingEtag( "br" ) ) );
+            }
+            if ( gzipFile != null && acceptsGzip )
+            {
+                variants.add( new Variant( gzipFile, "gzip", encodingEtag( "gzip" ) ) );
+            }
+            variants.add( new Variant( identityFile, null, etag ) );
+            return Collections.unmodifiableList( variants );
+        }
+
+        private String encodingEtag( final String contentEncoding )
+        {
+            return etag.substring( 0, etag.length() - 1 ) + '-' + contentEncoding + '"';
+        }
+    }
+
+    /**
+     * A single encoding of a resource file, the content encoding is null for the uncompressed file.
+     */
+    @Value
+    static class Variant
+    {
+        private final File file;
+        private final String contentEncoding;
+        private final String etag;
+    }
+
+    private PrecompressedResourceStore( final File resourceDirectory, final File storeDirectory, final Map<String, ManifestEntry> entries )
+    {
+        this.resourceDirectory = resourceDirectory;
+        this.storeDirectory = storeDirectory;
+        this.entries = Collections.unmodifiableMap( entries );
+    }
+
+    static PrecompressedResourceStore initialize(
+            final SessionLabel sessionLabel,
+            final File resourceDirectory,
+            final File storeDirectory
+    )
+            throws IOException
+    {
+        final Instant startTime = Instant.now();
+        Files.createDirectories( storeDirectory.toPath() );
+
+        final Map<String, ManifestEntry> previousEntries = readManifest( sessionLabel, resourceDirectory, storeDirectory );
+        final Map<String, ManifestEntry> entries = new TreeMap<>();
+        int updatedFiles = 0;
+
+        final List<Path> resourceFiles;
+        try ( Stream<Path> pathStream = Files.walk( resourceDirectory.toPath() ) )
+        {
+            resourceFiles = pathStream.filter( Files::isRegularFile ).sorted().collect( Collectors.toList() );
+        }
+
+        for ( final Path resourceFile : resourceFiles )
+        {
+            final String relativePath = relativePath( resourceDirectory, resourceFile.toFile() );
+            final ManifestEntry previousEntry = previousEntries.get( relativePath );
+            if ( isCurrent( storeDirectory, resourceFile.toFile(), previousEntry ) )
+            {
+                entries.put( relativePath, previousEntry );
+            }
+            else
+            {
+                entries.put( relativePath, makeEntry( storeDirectory, resourceFile.toFile() ) );
+                updatedFiles++;
+            }
+        }
+
+        writeManifest( resourceDirectory, storeDirectory, entries );
+        removeUnreferencedVariants( storeDirectory, entries );
+
+        final int finalUpdatedFiles = updatedFiles;
+        LOGGER.debug( sessionLabel, () -> "prepared " + entries.size() + " resource files in " + storeDirectory.getAbsolutePath()
+                + ", " + finalUpdatedFiles + " new or modified", TimeDuration.fromCurrent( startTime ) );
+
+        return new PrecompressedResourceStore( resourceDirectory, storeDirectory, entries );
+    }
+
+    /**
+     * Checksum of the content of all resource files, changes whenever any resource file is added, removed or modified.
+     */
+    String checksum()
+    {
+        final MessageDigest messageDigest = PwmHashAlgorithm.SHA256.newMessageDigest();
+        for ( final Map.Entry<String, ManifestEntry> entry : entries.entrySet() )
+        {
+            messageDigest.update( entry.getKey().getBytes( StandardCharsets.UTF_8 ) );
+            messageDigest.update( entry.getValue().getSha256().getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return JavaHelper.binaryArrayToHex( messageDigest.digest() ).toLowerCase();
+    }
+
+    /**
+     * Find the variants of a resource file, if the file is unchanged since the store was initialized.
+     */
+    Optional<PrecompressedResource> lookup( final File file )
+    {
+        final String relativePath = relativePath( resourceDirectory, file );
+        if ( relativePath == null )
+        {
+            return Optional.empty();
+        }
+
+        final ManifestEntry entry = entries.get( relativePath );
+        if ( entry == null || entry.getLength() != file.length() || entry.getLastModified() != file.lastModified() )
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of( new PrecompressedResource(
+                '"' + entry.getSha256() + '"',
+                file,
+                entry.isGzip() ? gzipFile( storeDirectory, entry ) : null,
+                entry.isBrotli() ? brotliFile( file ) : null ) );
+    }
+
+    private static boolean isCurrent( final File storeDirectory, final File file, final ManifestEntry entry )
+    {
+        if ( entry == null || entry.getLength() != file.length() || entry.getLastModified() != file.lastModified() )
+        {
+            return false;
+        }
+
+        if ( entry.isGzip() && !gzipFile( storeDirectory, entry ).exists() )
+        {
+            return false;
+        }
+
+        return entry.isBrotli() == hasBrotliVariant( file );
+    }
+
+    private static ManifestEntry makeEntry( final File storeDirectory, final File file )
+            throws IOException
+    {
+        final String sha256;
+        try ( InputStream inputStream = Files.newInputStream( file.toPath() ) )
+        {
+            sha256 = SecureEngine.hash( inputStream, PwmHashAlgorithm.SHA256 ).toLowerCase();
+        }
+
+        final ManifestEntry entry = ManifestEntry.builder()
+                .sha256( sha256 )
+                .length( file.length() )
+                .lastModified( file.lastModified() )
+                .gzip( isCompressible( file ) )
+                .brotli( hasBrotliVariant( file ) )
+                .build();
+
+        if ( entry.isGzip() )
+        {
+            final File gzipFile = gzipFile( storeDirectory, entry );
+
+            // variants are named by content hash so identical files share a single variant
+            if ( !gzipFile.exists() )
+            {
+                final Path tempFile = Path.of( gzipFile.getAbsolutePath() + TEMP_SUFFIX );
+                try (
+                        InputStream inputStream = Files.newInputStream( file.toPath() );
+                        OutputStream outputStream = new GZIPOutputStream( Files.newOutputStream( tempFile ) )
+                )
+                {
+                    JavaHelper.copy( inputStream, outputStream );
+                }
+                Files.move( tempFile, gzipFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+        }
+
+        return entry;
+    }
+
+    private static boolean isCompressible( final File file )
+    {
+        final String name = file.getName();
+        final int dotIndex = name.lastIndexOf( '.' );
+        return dotIndex > 0 && COMPRESSIBLE_EXTENSIONS.contains( name.substring( dotIndex + 1 ).toLowerCase() );
+    }
+
+    private static boolean hasBrotliVariant( final File file )
+    {
+        final File brotliFile = brotliFile( file );
+        return isCompressible( file ) && brotliFile.exists() && brotliFile.lastModified() >= file.lastModified();
+    }
+
+    private static File gzipFile( final File storeDirectory, final ManifestEntry entry )
+    {
+        return new File( storeDirectory, entry.getSha256() + GZIP_SUFFIX );
+    }
+
+    private static File brotliFile( final File file )
+    {
+        return new File( file.getAbsolutePath() + BROTLI_SUFFIX );
+    }
+
+    private static String relativePath( final File resourceDirectory, final File file )
+    {
+        final Path resourcePath = resourceDirectory.toPath().toAbsolutePath().normalize();
+        final Path filePath = file.toPath().toAbsolutePath().normalize();
+        if ( !filePath.startsWith( resourcePath ) )
+        {
+            return null;
+        }
+        return resourcePath.relativize( filePath ).toString().replace( File.separatorChar, '/' );
+    }
+
+    private static Map<String, ManifestEntry> readManifest(
+            final SessionLabel sessionLabel,
+            final File resourceDirectory,
+            final File storeDirectory
+    )
+    {
+        final Path manifestFile = storeDirectory.toPath().resolve( MANIFEST_FILENAME );
+        if ( !Files.exists( manifestFile ) )
+        {
+            return Collections.emptyMap();
+        }
+
+        try
+        {
+            final String json = Files.readString( manifestFile, StandardCharsets.UTF_8 );
+            final Manifest manifest = JsonFactory.get().deserialize( json, Manifest.class );
+            if ( manifest != null
+                    && manifest.getVersion() == MANIFEST_VERSION
+                    && resourceDirectory.getAbsolutePath().equals( manifest.getResourceDirectory() )
+                    && manifest.getEntries() != null )
+            {
+                return manifest.getEntries();
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( sessionLabel, () -> "ignoring unreadable resource manifest " + manifestFile + ": " + e.getMessage() );
+        }
+
+        return Collections.emptyMap();
+    }
+
+    private static void writeManifest( final File resourceDirectory, final File storeDirectory, final Map<String, ManifestEntry> entries )
+            throws IOException
+    {
+        final Manifest manifest = Manifest.builder()
+                .version( MANIFEST_VERSION )
+                .resourceDirectory( resourceDirectory.getAbsolutePath() )
+                .entries( entries )
+                .build();
+
+        final Path manifestFile = storeDirectory.toPath().resolve( MANIFEST_FILENAME );
+        final Path tempFile = storeDirectory.toPath().resolve( MANIFEST_FILENAME + TEMP_SUFFIX );
+        Files.writeString( tempFile, JsonFactory.get().serialize( manifest ), StandardCharsets.UTF_8 );
+        Files.move( tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    private static void removeUnreferencedVariants( final File storeDirectory, final Map<String, ManifestEntry> entries )
+            throws IOException
+    {
+        final Set<String> referencedFiles = new HashSet<>();
+        referencedFiles.add( MANIFEST_FILENAME );
+        for ( final ManifestEntry entry : entries.values() )
+        {
+            if ( entry.isGzip() )
+            {
+                referencedFiles.add( entry.getSha256() + GZIP_SUFFIX );
+            }
+        }
+
+        final List<Path> storeFiles;
+        try ( Stream<Path> pathStream = Files.list( storeDirectory.toPath() ) )
+        {
+            storeFiles = pathStream.collect( Collectors.toList() );
+        }
+
+        for ( final Path storeFile : storeFiles )
+        {
+            final String fileName = storeFile.getFileName().toString();
+            if ( !referencedFiles.contains( fileName ) )
+            {
+                Files.deleteIfExists( storeFile );
+            }
+        }
+    }
+}
@@ -137,7 +137,13 @@ class ResourceFileRequest
     boolean allowsCompression()
             throws PwmUnrecoverableException
     {
-        // If content type is text, then determine whether GZIP content encoding is supported by
+        return allowsCompression( "gzip" );
+    }
+
+    boolean allowsCompression( final String contentEncoding )
+            throws PwmUnrecoverableException
+    {
+        // If content type is text, then determine whether the content encoding is supported by
         // the browser and expand content type with the one and right character encoding.
         if ( resourceServletConfiguration.isEnableGzip() )
         {
@@ -148,7 +154,7 @@ class ResourceFileRequest
                         httpServletRequest,
                         domainConfig.getAppConfig() );
                 final String acceptEncoding = pwmHttpRequestWrapper.readHeaderValueAsString( HttpHeader.AcceptEncoding );
-                return acceptEncoding != null && accepts( acceptEncoding, "gzip" );
+                return acceptEncoding != null && accepts( acceptEncoding, contentEncoding );
             }
         }
         return false;
@@ -29,6 +29,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.HttpHeader;
 import password.pwm.http.HttpMethod;
 import password.pwm.http.PwmRequest;
+import password.pwm.http.ServletUtility;
 import password.pwm.data.ImmutableByteArray;
 import password.pwm.http.servlet.PwmServlet;
 import password.pwm.svc.stats.Statistic;
@@ -44,14 +45,22 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 @WebServlet(
@@ -130,29 +139,47 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
 
         final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
 
-        if ( respondWithNotModified( pwmRequest, resourceConfiguration ) )
+        // pre-compressed resources have a strong etag per content encoding derived from their content, which remains valid across restarts
+        final boolean acceptsBrotli = resourceFileRequest.allowsCompression( "br" );
+        final List<PrecompressedResourceStore.Variant> precompressedVariants = resourceService.lookupPrecompressedResource( file )
+                .map( precompressedResource -> precompressedResource.acceptedVariants( acceptsBrotli, acceptsGzip ) )
+                .orElse( List.of() );
+        final List<String> eTagValues = precompressedVariants.isEmpty()
+                ? Collections.singletonList( resourceConfiguration.getNonceValue() )
+                : precompressedVariants.stream().map( PrecompressedResourceStore.Variant::getEtag ).collect( Collectors.toList() );
+        final String eTagValue = eTagValues.get( 0 );
+
+        if ( respondWithNotModified( pwmRequest, resourceConfiguration, eTagValues ) )
         {
             return;
         }
 
         // Initialize response.
         addExpirationHeaders( resourceConfiguration, response );
-        response.setHeader(  HttpHeader.ETag.getHttpName(), resourceConfiguration.getNonceValue() );
+        response.setHeader(  HttpHeader.ETag.getHttpName(), eTagValue );
         response.setContentType( contentType );
 
         try
         {
             boolean fromCache = false;
             String debugText;
-            try
+            if ( !precompressedVariants.isEmpty() )
             {
-                fromCache = handleCacheableResponse( resourceFileRequest, response, resourceService.getCacheMap() );
-                debugText = makeDebugText( fromCache, acceptsGzip, false );
+                fromCache = true;
+                debugText = handlePrecompressedResponse( response, precompressedVariants.get( 0 ) );
             }
-            catch ( final UncacheableResourceException e )
+            else
             {
-                handleUncachedResponse( response, file, acceptsGzip );
-                debugText = makeDebugText( fromCache, acceptsGzip, true );
+                try
+                {
+                    fromCache = handleCacheableResponse( resourceFileRequest, response, resourceService.getCacheMap() );
+                    debugText = makeDebugText( fromCache, acceptsGzip, false );
+                }
+                catch ( final UncacheableResourceException e )
+                {
+                    handleUncachedResponse( response, file, acceptsGzip );
+                    debugText = makeDebugText( fromCache, acceptsGzip, true );
+                }
             }
 
             pwmRequest.debugHttpRequestToLog( debugText, TimeDuration.fromCurrent( pwmRequest.getRequestStartTime() ) );
@@ -324,6 +351,38 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         return fromCache;
     }
 
+    private static String handlePrecompressedResponse(
+            final HttpServletResponse response,
+            final PrecompressedResourceStore.Variant variant
+    )
+            throws IOException
+    {
+        final File responseFile = variant.getFile();
+        final String contentEncoding = variant.getContentEncoding();
+
+        if ( contentEncoding != null )
+        {
+            response.setHeader( HttpHeader.ContentEncoding.getHttpName(), contentEncoding );
+        }
+
+        try (
+                FileChannel fileChannel = FileChannel.open( responseFile.toPath(), StandardOpenOption.READ );
+                WritableByteChannel responseChannel = Channels.newChannel( response.getOutputStream() )
+        )
+        {
+            final long size = fileChannel.size();
+            response.setHeader( HttpHeader.ContentLength.getHttpName(), String.valueOf( size ) );
+
+            long position = 0;
+            while ( position < size )
+            {
+                position += fileChannel.transferTo( position, size - position, responseChannel );
+            }
+        }
+
+        return contentEncoding == null ? "(precompressed)" : "(precompressed, " + contentEncoding + ")";
+    }
+
     private static void handleUncachedResponse(
             final HttpServletResponse response,
             final FileResource file,
@@ -362,17 +421,30 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         httpResponse.setHeader( "Vary", "Accept-Encoding" );
     }
 
-    private boolean respondWithNotModified( final PwmRequest pwmRequest, final ResourceServletConfiguration resourceConfiguration )
+    /**
+     * A client holding any variant of a pre-compressed resource in an encoding it still accepts can keep using it,
+     * the etag of that variant is sent with the 304 response so a cache knows which stored response to use.
+     */
+    private boolean respondWithNotModified(
+            final PwmRequest pwmRequest,
+            final ResourceServletConfiguration resourceConfiguration,
+            final List<String> eTagValues
+    )
     {
-        final String eTagValue = resourceConfiguration.getNonceValue();
         final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
 
         final String ifNoneMatchValue = pwmRequest.readHeaderValueAsString( HttpHeader.If_None_Match );
-        if ( ifNoneMatchValue != null && ifNoneMatchValue.equals( eTagValue ) )
+        final Optional<String> matchedETag = eTagValues.stream()
+                .filter( eTagValue -> ServletUtility.ifNoneMatchContains( ifNoneMatchValue, eTagValue ) )
+                .findFirst();
+
+        if ( matchedETag.isPresent() )
         {
             // reply back with etag.
             response.reset();
             response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            addExpirationHeaders( resourceConfiguration, response );
+            response.setHeader( HttpHeader.ETag.getHttpName(), matchedETag.get() );
             try
             {
                 pwmRequest.debugHttpRequestToLog( "returning HTTP 304 status", null );
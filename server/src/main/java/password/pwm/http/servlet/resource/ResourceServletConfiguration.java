@@ -61,6 +61,7 @@ class ResourceServletConfiguration
     private int maxCacheItems;
     private long cacheExpireSeconds;
     private boolean enableGzip;
+    private boolean enablePrecompression;
     private boolean enablePathNonce;
     private long maxCacheBytes;
 
@@ -74,6 +75,7 @@ class ResourceServletConfiguration
         maxCacheItems = 100;
         cacheExpireSeconds = 60;
         enableGzip = false;
+        enablePrecompression = false;
         enablePathNonce = false;
         maxCacheBytes = 1024;
 
@@ -90,6 +92,7 @@ class ResourceServletConfiguration
         maxCacheItems = Integer.parseInt( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS ) );
         cacheExpireSeconds = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_EXPIRATION_SECONDS ) );
         enableGzip = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_GZIP ) );
+        enablePrecompression = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_PRECOMPRESS ) );
         enablePathNonce = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE ) );
         maxCacheBytes = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES ) );
 
@@ -65,9 +65,12 @@ import java.util.zip.ZipFile;
 public class ResourceServletService extends AbstractPwmService implements PwmService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( ResourceServletService.class );
+    private static final String PRECOMPRESSED_STORE_DIRECTORY = "resourcecache";
 
     private ResourceServletConfiguration resourceServletConfiguration;
+
     private Cache<CacheKey, CacheEntry> cache;
+    private PrecompressedResourceStore precompressedResourceStore;
     private String resourceNonce = "";
 
     private PwmDomain pwmDomain;
@@ -162,6 +165,8 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
             return STATUS.CLOSED;
         }
 
+        precompressedResourceStore = initPrecompressedResourceStore();
+
         try
         {
             final Instant start = Instant.now();
@@ -205,6 +210,45 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
         return resourceServletConfiguration;
     }
 
+    Optional<PrecompressedResourceStore.PrecompressedResource> lookupPrecompressedResource( final FileResource fileResource )
+    {
+        if ( precompressedResourceStore == null || !( fileResource instanceof RealFileResource ) )
+        {
+            return Optional.empty();
+        }
+
+        return precompressedResourceStore.lookup( ( ( RealFileResource ) fileResource ).getRealFile() );
+    }
+
+    private PrecompressedResourceStore initPrecompressedResourceStore()
+    {
+        if ( !resourceServletConfiguration.isEnablePrecompression() )
+        {
+            return null;
+        }
+
+        final File applicationPath = pwmDomain.getPwmApplication().getPwmEnvironment().getApplicationPath();
+        final Optional<File> resourceDirectory = locateResourceDirectory( pwmDomain );
+        if ( applicationPath == null || resourceDirectory.isEmpty() )
+        {
+            return null;
+        }
+
+        final File storeDirectory = new File( applicationPath.getAbsolutePath()
+                + File.separator + PRECOMPRESSED_STORE_DIRECTORY
+                + File.separator + pwmDomain.getDomainID().stringValue() );
+        try
+        {
+            return PrecompressedResourceStore.initialize( getSessionLabel(), resourceDirectory.get(), storeDirectory );
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.warn( getSessionLabel(), () -> "unable to prepare pre-compressed resources, resources will be compressed on request: " + e.getMessage() );
+        }
+
+        return null;
+    }
+
     private String makeResourcePathNonce( )
             throws IOException
     {
@@ -297,39 +341,55 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
         }
     }
 
-    private static void checksumResourceFilePath( final PwmDomain pwmDomain, final DigestOutputStream checksumStream )
+    private void checksumResourceFilePath( final PwmDomain pwmDomain, final DigestOutputStream checksumStream )
+            throws IOException
+    {
+        if ( precompressedResourceStore != null )
+        {
+            // the store has checksummed every resource file, reading only files modified since the last start
+            checksumStream.write( precompressedResourceStore.checksum().getBytes( StandardCharsets.UTF_8 ) );
+            return;
+        }
+
+        try
+        {
+            final Optional<File> resourcePath = locateResourceDirectory( pwmDomain );
+            if ( resourcePath.isPresent() )
+            {
+                final Iterator<FileSystemUtility.FileSummaryInformation> iter =
+                        FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath.get() ) );
+                while ( iter.hasNext()  )
+                {
+                    final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
+                    checksumStream.write( fileSummaryInformation.getSha512Hash().getBytes( StandardCharsets.UTF_8 ) );
+                }
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
+        }
+    }
+
+    private static Optional<File> locateResourceDirectory( final PwmDomain pwmDomain )
     {
         if ( pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager() != null )
         {
-            try
+            final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
+            if ( webInfPath.isPresent() && webInfPath.get().exists() )
             {
-                final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
-                if ( webInfPath.isPresent() && webInfPath.get().exists() )
+                final File basePath = webInfPath.get().getParentFile();
+                if ( basePath != null && basePath.exists() )
                 {
-                    final File basePath = webInfPath.get().getParentFile();
-                    if ( basePath != null && basePath.exists() )
+                    final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
+                    if ( resourcePath.exists() )
                     {
-                        final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
-                        if ( resourcePath.exists() )
-                        {
-                            final Iterator<FileSystemUtility.FileSummaryInformation> iter =
-                                    FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath ) );
-                            {
-                                while ( iter.hasNext()  )
-                                {
-                                    final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
-                                    checksumStream.write( fileSummaryInformation.getSha512Hash().getBytes( StandardCharsets.UTF_8 ) );
-                                }
-
-                            }
-                        }
+                        return Optional.of( resourcePath );
                     }
                 }
             }
-            catch ( final Exception e )
-            {
-                LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
-            }
         }
+
+        return Optional.empty();
     }
 }
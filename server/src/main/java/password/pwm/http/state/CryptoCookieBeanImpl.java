@@ -24,13 +24,17 @@ import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.PwmCookiePath;
+import password.pwm.http.PwmHttpResponseWrapper;
 import password.pwm.http.PwmRequest;
 import password.pwm.http.PwmRequestAttribute;
 import password.pwm.http.bean.PwmSessionBean;
 import password.pwm.svc.secure.DomainSecureService;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PooledMessageDigest;
+import password.pwm.util.secure.PwmHashAlgorithm;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -43,6 +47,8 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
 
     private static final PwmCookiePath COOKIE_PATH = PwmCookiePath.PwmServlet;
 
+    private static final String REMOVED_BEAN_HASH = "";
+
     @Override
     public <E extends PwmSessionBean> E getSessionBean( final PwmRequest pwmRequest, final Class<E> theClass )
             throws PwmUnrecoverableException
@@ -59,13 +65,15 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
 
         try
         {
-            final Optional<E> rawValue = pwmRequest.readEncryptedCookie( cookieName, theClass );
-            if ( rawValue.isPresent() )
+            final Optional<String> cookieValue = pwmRequest.readCookie( cookieName );
+            if ( cookieValue.isPresent() )
             {
-                final E cookieBean = rawValue.get();
+                final String jsonValue = pwmRequest.decryptCompactString( cookieValue.get() );
+                final E cookieBean = JsonFactory.get().deserialize( jsonValue, theClass );
                 if ( validateCookie( pwmRequest, cookieName, cookieBean ) )
                 {
                     sessionBeans.put( theClass, cookieBean );
+                    getRequestBeanHashMap( pwmRequest ).put( theClass, hashBean( cookieBean ) );
                     return cookieBean;
                 }
             }
@@ -134,20 +142,37 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         try
         {
             final Map<Class<? extends PwmSessionBean>, PwmSessionBean> beansInRequest = getRequestBeanMap( pwmRequest );
+            final Map<Class<? extends PwmSessionBean>, String> beanHashes = getRequestBeanHashMap( pwmRequest );
             if ( beansInRequest != null )
             {
                 for ( final Map.Entry<Class<? extends PwmSessionBean>, PwmSessionBean> entry : beansInRequest.entrySet() )
                 {
                     final Class<? extends PwmSessionBean> theClass = entry.getKey();
-                    final String cookieName = nameForClass( pwmRequest, theClass );
                     final PwmSessionBean bean = entry.getValue();
                     if ( bean == null )
                     {
-                        pwmRequest.getPwmResponse().removeCookie( cookieName, COOKIE_PATH );
+                        if ( !REMOVED_BEAN_HASH.equals( beanHashes.get( theClass ) ) )
+                        {
+                            pwmRequest.getPwmResponse().removeCookie( nameForClass( pwmRequest, theClass ), COOKIE_PATH );
+                            beanHashes.put( theClass, REMOVED_BEAN_HASH );
+                        }
                     }
                     else
                     {
-                        pwmRequest.getPwmResponse().writeEncryptedCookie( cookieName, entry.getValue(), -1, COOKIE_PATH );
+                        // only re-emit the cookie if the bean has been modified since it was read or last written
+                        final String jsonValue = JsonFactory.get().serialize( bean );
+                        final String beanHash = hashValue( jsonValue );
+                        if ( !beanHash.equals( beanHashes.get( theClass ) ) )
+                        {
+                            final String encryptedValue = pwmRequest.encryptToCompactString( jsonValue );
+                            pwmRequest.getPwmResponse().writeCookie(
+                                    nameForClass( pwmRequest, theClass ),
+                                    encryptedValue,
+                                    -1,
+                                    COOKIE_PATH,
+                                    PwmHttpResponseWrapper.Flag.BypassSanitation );
+                            beanHashes.put( theClass, beanHash );
+                        }
                     }
                 }
             }
@@ -177,6 +202,27 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         return ( Map<Class<? extends PwmSessionBean>, PwmSessionBean> ) sessionBeans;
     }
 
+    private static Map<Class<? extends PwmSessionBean>, String> getRequestBeanHashMap( final PwmRequest pwmRequest )
+    {
+        Object beanHashes = pwmRequest.getAttribute( PwmRequestAttribute.CookieBeanHashes );
+        if ( beanHashes == null )
+        {
+            beanHashes = new HashMap<>();
+            pwmRequest.setAttribute( PwmRequestAttribute.CookieBeanHashes, beanHashes );
+        }
+        return ( Map<Class<? extends PwmSessionBean>, String> ) beanHashes;
+    }
+
+    private static String hashBean( final PwmSessionBean bean )
+    {
+        return hashValue( JsonFactory.get().serialize( bean ) );
+    }
+
+    private static String hashValue( final String jsonValue )
+    {
+        return PooledMessageDigest.appendHash( PwmHashAlgorithm.SHA256, jsonValue, new StringBuilder(), PooledMessageDigest.HexCase.LOWER ).toString();
+    }
+
     private static String nameForClass( final PwmRequest pwmRequest, final Class<? extends PwmSessionBean> theClass )
             throws PwmUnrecoverableException
     {
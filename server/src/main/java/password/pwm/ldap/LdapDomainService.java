@@ -57,6 +57,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -75,6 +76,7 @@ public class LdapDomainService extends AbstractPwmService implements PwmService
     private PwmDomain pwmDomain;
     private ChaiProviderFactory chaiProviderFactory;
     private AtomicLoopIntIncrementer slotIncrementer;
+    private UserAttributePrefetchPlan userAttributePrefetchPlan;
 
     private final StatisticCounterBundle<StatKey> stats = new StatisticCounterBundle<>( StatKey.class );
 
@@ -138,6 +140,7 @@ public class LdapDomainService extends AbstractPwmService implements PwmService
         final int connectionsPerProfile = maxSlotsPerProfile( pwmDomain );
         LOGGER.trace( getSessionLabel(), () -> "allocating " + connectionsPerProfile + " ldap proxy connections per profile" );
         slotIncrementer = AtomicLoopIntIncrementer.builder().ceiling( connectionsPerProfile ).build();
+        userAttributePrefetchPlan = UserAttributePrefetchPlan.create( pwmDomain.getConfig() );
 
         for ( final LdapProfile ldapProfile : pwmDomain.getConfig().getLdapProfiles().values() )
         {
@@ -179,6 +182,10 @@ public class LdapDomainService extends AbstractPwmService implements PwmService
         final Map<String, String> debugProperties = new LinkedHashMap<>();
         debugProperties.putAll( chaiProviderFactory.getGlobalStatistics() );
         debugProperties.putAll( connectionDebugInfo() );
+        if ( userAttributePrefetchPlan != null )
+        {
+            debugProperties.putAll( userAttributePrefetchPlan.debugInfo() );
+        }
         return ServiceInfoBean.builder()
                 .storageMethod(  DataStorageMethod.LDAP )
                 .debugProperties( debugProperties )
@@ -310,6 +317,11 @@ public class LdapDomainService extends AbstractPwmService implements PwmService
         return count;
     }
 
+    public Optional<UserAttributePrefetchPlan> getUserAttributePrefetchPlan( )
+    {
+        return Optional.ofNullable( userAttributePrefetchPlan );
+    }
+
     public ChaiProviderFactory getChaiProviderFactory( )
     {
         if ( status() != STATUS.OPEN )
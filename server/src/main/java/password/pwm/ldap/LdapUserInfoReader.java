@@ -24,6 +24,7 @@ import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiException;
 import com.novell.ldapchai.exception.ChaiOperationException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.impl.edir.entry.EdirEntries;
 import com.novell.ldapchai.provider.ChaiProvider;
 import com.novell.ldapchai.provider.SearchScope;
 import password.pwm.PwmApplication;
@@ -60,13 +61,14 @@ import password.pwm.user.UserInfo;
 import password.pwm.util.PasswordData;
 import password.pwm.util.form.FormUtility;
 import password.pwm.util.i18n.LocaleHelper;
-import password.pwm.util.java.CachingProxyWrapper;
+import password.pwm.util.java.MemoizingProxy;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.password.PasswordUtility;
 import password.pwm.util.password.PwmPasswordRuleValidator;
 
+import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
@@ -79,11 +81,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 public class LdapUserInfoReader implements UserInfo
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LdapUserInfoReader.class );
 
+    private static final Pattern GENERALIZED_TIME_PATTERN = Pattern.compile( "\\d{14}Z" );
+
     private final UserIdentity userIdentity;
     private final PasswordData currentPassword;
     private final Locale locale;
@@ -91,6 +97,9 @@ public class LdapUserInfoReader implements UserInfo
     private final ChaiUser chaiUser;
     private final SessionLabel sessionLabel;
     private final PwmDomain pwmDomain;
+    private final UserAttributePrefetchPlan prefetchPlan;
+    private final Set<String> prefetchAttributes;
+    private boolean prefetchComplete;
 
     /**
      * A reference to this object, but with memorized (cached) method implementations.  In most cases references to 'this'
@@ -114,8 +123,13 @@ public class LdapUserInfoReader implements UserInfo
         this.locale = locale;
         this.sessionLabel = sessionLabel;
 
-        final ChaiProvider cachingProvider = CachingProxyWrapper.create( ChaiProvider.class, chaiProvider );
+        final ChaiProvider cachingProvider = MemoizingProxy.create( ChaiProvider.class, chaiProvider, LdapUserInfoReader::chaiProviderCallPolicy );
         this.chaiUser = cachingProvider.getEntryFactory().newChaiUser( userIdentity.getUserDN() );
+
+        this.prefetchPlan = pwmDomain.getLdapService().getUserAttributePrefetchPlan().orElse( null );
+        this.prefetchAttributes = prefetchPlan == null
+                ? Collections.emptySet()
+                : prefetchPlan.attributesForProfile( userIdentity.getLdapProfileID() );
     }
 
     static UserInfo create(
@@ -132,11 +146,32 @@ public class LdapUserInfoReader implements UserInfo
         LdapOperationsHelper.addConfiguredUserObjectClass( sessionLabel, userIdentity, pwmDomain );
 
         final LdapUserInfoReader userInfo = new LdapUserInfoReader( userIdentity, currentPassword, sessionLabel, locale, pwmApplication, chaiProvider );
-        final UserInfo selfCachedReference = CachingProxyWrapper.create( UserInfo.class, userInfo );
+        final UserInfo selfCachedReference = new MemoizingUserInfo( userInfo );
         userInfo.selfCachedReference = selfCachedReference;
         return selfCachedReference;
     }
 
+    /**
+     * Only idempotent reads of the provider are memoized.  Writes discard the memoized values, and everything else
+     * (connection state, statistics, configuration) is passed through.
+     */
+    static MemoizingProxy.CallPolicy chaiProviderCallPolicy( final Method method )
+    {
+        final String name = method.getName();
+        if ( name.startsWith( "read" ) || name.startsWith( "search" ) || name.startsWith( "compare" ) )
+        {
+            return MemoizingProxy.CallPolicy.MEMOIZE;
+        }
+
+        if ( name.startsWith( "write" ) || name.startsWith( "delete" ) || name.startsWith( "create" )
+                || name.startsWith( "replace" ) || name.startsWith( "rename" ) || name.startsWith( "extendedOperation" ) )
+        {
+            return MemoizingProxy.CallPolicy.INVALIDATE;
+        }
+
+        return MemoizingProxy.CallPolicy.PASS_THROUGH;
+    }
+
     @Override
     public Map<String, String> getCachedPasswordRuleAttributes( ) throws PwmUnrecoverableException
     {
@@ -689,7 +724,7 @@ public class LdapUserInfoReader implements UserInfo
         return interestingUserAttributes;
     }
 
-    private final Map<String, List<String>> cacheMap = new HashMap<>();
+    private final Map<String, List<String>> cacheMap = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
 
     @Override
     public String readStringAttribute(
@@ -732,6 +767,22 @@ public class LdapUserInfoReader implements UserInfo
     public Instant readDateAttribute( final String attribute )
             throws PwmUnrecoverableException
     {
+        if ( prefetchAttributes.contains( attribute ) )
+        {
+            final List<String> values = readMultiStringAttribute( attribute );
+            if ( values == null || values.isEmpty() )
+            {
+                return null;
+            }
+
+            // other date syntaxes are vendor specific and are left to the chai implementation
+            final String value = values.get( 0 );
+            if ( GENERALIZED_TIME_PATTERN.matcher( value ).matches() )
+            {
+                return EdirEntries.convertZuluToInstant( value );
+            }
+        }
+
         try
         {
             return chaiUser.readDateAttribute( attribute );
@@ -781,11 +832,25 @@ public class LdapUserInfoReader implements UserInfo
 
         // figure out uncached attributes.
         final Set<String> uncachedAttributes = new HashSet<>( attributes );
-        uncachedAttributes.removeAll( cacheMap.keySet() );
+        uncachedAttributes.removeIf( cacheMap::containsKey );
+
+        if ( prefetchPlan != null )
+        {
+            prefetchPlan.recordReads( attributes, prefetchAttributes );
+        }
 
         // read uncached attributes into cache
         if ( !uncachedAttributes.isEmpty() )
         {
+            // the first read includes all the attributes of the prefetch plan
+            final boolean includePrefetch = !prefetchComplete && !prefetchAttributes.isEmpty();
+            if ( includePrefetch )
+            {
+                prefetchAttributes.stream()
+                        .filter( attribute -> !cacheMap.containsKey( attribute ) )
+                        .forEach( uncachedAttributes::add );
+            }
+
             final Map<String, Map<String, List<String>>> results;
             try
             {
@@ -816,7 +881,14 @@ public class LdapUserInfoReader implements UserInfo
                 throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_LDAP_DATA_ERROR, msg ) );
             }
 
-            final Map<String, List<String>> allAttributeValues = results.values().iterator().next();
+            if ( includePrefetch )
+            {
+                prefetchComplete = true;
+                prefetchPlan.recordPrefetch();
+            }
+
+            final Map<String, List<String>> allAttributeValues = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+            allAttributeValues.putAll( results.values().iterator().next() );
             for ( final String attribute : uncachedAttributes )
             {
                 final List<String> attributeValues = allAttributeValues.get( attribute );
@@ -0,0 +1,366 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import password.pwm.bean.PasswordStatus;
+import password.pwm.bean.ProfileID;
+import password.pwm.bean.ResponseInfoBean;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.profile.ChallengeProfile;
+import password.pwm.config.profile.ProfileDefinition;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.otp.OTPUserRecord;
+import password.pwm.user.UserInfo;
+import password.pwm.util.java.LazySupplier;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memoizing {@link UserInfo} wrapper.  Each value is read from the wrapped instance once and then returned from
+ * memory for the lifetime of the wrapper, so a new instance must be read after the user entry has been modified.
+ * Exceptions are not memoized, so a failed read is retried on the next call.
+ */
+class MemoizingUserInfo implements UserInfo
+{
+    private static final Object NULL_VALUE = new Object();
+
+    private enum Memo
+    {
+        CachedPasswordRuleAttributes,
+        CachedAttributeValues,
+        LastLdapLoginTime,
+        Language,
+        ChallengeProfile,
+        PasswordPolicy,
+        PasswordExpirationTime,
+        Username,
+        PasswordStatus,
+        RequiresNewPassword,
+        RequiresResponseConfig,
+        RequiresOtpConfig,
+        RequiresUpdateProfile,
+        RequiresInteraction,
+        AccountEnabled,
+        AccountExpired,
+        PasswordLocked,
+        WithinPasswordMinimumLifetime,
+        PasswordLastModifiedTime,
+        UserEmailAddress,
+        UserEmailAddress2,
+        UserEmailAddress3,
+        UserSmsNumber,
+        UserSmsNumber2,
+        UserSmsNumber3,
+        UserGuid,
+        ResponseInfoBean,
+        OtpUserRecord,
+        AccountExpirationTime,
+        ProfileIDs,
+        PasswordExpirationNoticeSendTime,
+    }
+
+    private final UserInfo userInfo;
+    private final AtomicReferenceArray<Object> memoizedValues = new AtomicReferenceArray<>( Memo.values().length );
+    private final Map<String, Object> stringAttributes = new ConcurrentHashMap<>();
+    private final Map<String, Object> binaryAttributes = new ConcurrentHashMap<>();
+    private final Map<String, Object> dateAttributes = new ConcurrentHashMap<>();
+    private final Map<String, Object> multiStringAttributes = new ConcurrentHashMap<>();
+    private final Map<List<String>, Object> stringAttributeSets = new ConcurrentHashMap<>();
+
+    MemoizingUserInfo( final UserInfo userInfo )
+    {
+        this.userInfo = Objects.requireNonNull( userInfo );
+    }
+
+    private <T> T memoize( final Memo memo, final LazySupplier.CheckedSupplier<T, PwmUnrecoverableException> source )
+            throws PwmUnrecoverableException
+    {
+        final Object memoizedValue = memoizedValues.get( memo.ordinal() );
+        if ( memoizedValue != null )
+        {
+            return unwrap( memoizedValue );
+        }
+
+        final T value = source.call();
+        memoizedValues.set( memo.ordinal(), value == null ? NULL_VALUE : value );
+        return value;
+    }
+
+    private static <K, T> T memoize(
+            final Map<K, Object> values,
+            final K key,
+            final LazySupplier.CheckedSupplier<T, PwmUnrecoverableException> source
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( key == null )
+        {
+            return source.call();
+        }
+
+        final Object memoizedValue = values.get( key );
+        if ( memoizedValue != null )
+        {
+            return unwrap( memoizedValue );
+        }
+
+        final T value = source.call();
+        values.put( key, value == null ? NULL_VALUE : value );
+        return value;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> T unwrap( final Object memoizedValue )
+    {
+        return memoizedValue == NULL_VALUE ? null : ( T ) memoizedValue;
+    }
+
+    @Override
+    public Map<String, String> getCachedPasswordRuleAttributes( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.CachedPasswordRuleAttributes, userInfo::getCachedPasswordRuleAttributes );
+    }
+
+    @Override
+    public Map<String, String> getCachedAttributeValues( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.CachedAttributeValues, userInfo::getCachedAttributeValues );
+    }
+
+    @Override
+    public Instant getLastLdapLoginTime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.LastLdapLoginTime, userInfo::getLastLdapLoginTime );
+    }
+
+    @Override
+    public String getLanguage( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.Language, userInfo::getLanguage );
+    }
+
+    @Override
+    public ChallengeProfile getChallengeProfile( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.ChallengeProfile, userInfo::getChallengeProfile );
+    }
+
+    @Override
+    public PwmPasswordPolicy getPasswordPolicy( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordPolicy, userInfo::getPasswordPolicy );
+    }
+
+    @Override
+    public UserIdentity getUserIdentity( )
+    {
+        return userInfo.getUserIdentity();
+    }
+
+    @Override
+    public Instant getPasswordExpirationTime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordExpirationTime, userInfo::getPasswordExpirationTime );
+    }
+
+    @Override
+    public String getUsername( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.Username, userInfo::getUsername );
+    }
+
+    @Override
+    public PasswordStatus getPasswordStatus( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordStatus, userInfo::getPasswordStatus );
+    }
+
+    @Override
+    public boolean isRequiresNewPassword( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.RequiresNewPassword, userInfo::isRequiresNewPassword );
+    }
+
+    @Override
+    public boolean isRequiresResponseConfig( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.RequiresResponseConfig, userInfo::isRequiresResponseConfig );
+    }
+
+    @Override
+    public boolean isRequiresOtpConfig( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.RequiresOtpConfig, userInfo::isRequiresOtpConfig );
+    }
+
+    @Override
+    public boolean isRequiresUpdateProfile( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.RequiresUpdateProfile, userInfo::isRequiresUpdateProfile );
+    }
+
+    @Override
+    public boolean isRequiresInteraction( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.RequiresInteraction, userInfo::isRequiresInteraction );
+    }
+
+    @Override
+    public boolean isAccountEnabled( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.AccountEnabled, userInfo::isAccountEnabled );
+    }
+
+    @Override
+    public boolean isAccountExpired( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.AccountExpired, userInfo::isAccountExpired );
+    }
+
+    @Override
+    public boolean isPasswordLocked( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordLocked, userInfo::isPasswordLocked );
+    }
+
+    @Override
+    public boolean isWithinPasswordMinimumLifetime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.WithinPasswordMinimumLifetime, userInfo::isWithinPasswordMinimumLifetime );
+    }
+
+    @Override
+    public Instant getPasswordLastModifiedTime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordLastModifiedTime, userInfo::getPasswordLastModifiedTime );
+    }
+
+    @Override
+    public String getUserEmailAddress( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserEmailAddress, userInfo::getUserEmailAddress );
+    }
+
+    @Override
+    public String getUserEmailAddress2( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserEmailAddress2, userInfo::getUserEmailAddress2 );
+    }
+
+    @Override
+    public String getUserEmailAddress3( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserEmailAddress3, userInfo::getUserEmailAddress3 );
+    }
+
+    @Override
+    public String getUserSmsNumber( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserSmsNumber, userInfo::getUserSmsNumber );
+    }
+
+    @Override
+    public String getUserSmsNumber2( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserSmsNumber2, userInfo::getUserSmsNumber2 );
+    }
+
+    @Override
+    public String getUserSmsNumber3( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserSmsNumber3, userInfo::getUserSmsNumber3 );
+    }
+
+    @Override
+    public String getUserGuid( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.UserGuid, userInfo::getUserGuid );
+    }
+
+    @Override
+    public ResponseInfoBean getResponseInfoBean( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.ResponseInfoBean, userInfo::getResponseInfoBean );
+    }
+
+    @Override
+    public OTPUserRecord getOtpUserRecord( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.OtpUserRecord, userInfo::getOtpUserRecord );
+    }
+
+    @Override
+    public Instant getAccountExpirationTime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.AccountExpirationTime, userInfo::getAccountExpirationTime );
+    }
+
+    @Override
+    public Map<ProfileDefinition, ProfileID> getProfileIDs( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.ProfileIDs, userInfo::getProfileIDs );
+    }
+
+    @Override
+    public String readStringAttribute( final String attribute ) throws PwmUnrecoverableException
+    {
+        return memoize( stringAttributes, attribute, () -> userInfo.readStringAttribute( attribute ) );
+    }
+
+    @Override
+    public byte[] readBinaryAttribute( final String attribute ) throws PwmUnrecoverableException
+    {
+        return memoize( binaryAttributes, attribute, () -> userInfo.readBinaryAttribute( attribute ) );
+    }
+
+    @Override
+    public Instant readDateAttribute( final String attribute ) throws PwmUnrecoverableException
+    {
+        return memoize( dateAttributes, attribute, () -> userInfo.readDateAttribute( attribute ) );
+    }
+
+    @Override
+    public List<String> readMultiStringAttribute( final String attribute ) throws PwmUnrecoverableException
+    {
+        return memoize( multiStringAttributes, attribute, () -> userInfo.readMultiStringAttribute( attribute ) );
+    }
+
+    @Override
+    public Map<String, String> readStringAttributes( final Collection<String> attributes ) throws PwmUnrecoverableException
+    {
+        final List<String> key = new ArrayList<>( attributes );
+        return memoize( stringAttributeSets, key, () -> userInfo.readStringAttributes( attributes ) );
+    }
+
+    @Override
+    public Instant getPasswordExpirationNoticeSendTime( ) throws PwmUnrecoverableException
+    {
+        return memoize( Memo.PasswordExpirationNoticeSendTime, userInfo::getPasswordExpirationNoticeSendTime );
+    }
+}
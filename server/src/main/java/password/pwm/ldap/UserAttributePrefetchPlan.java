@@ -0,0 +1,153 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import password.pwm.AppProperty;
+import password.pwm.bean.ProfileID;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.option.ADPolicyComplexity;
+import password.pwm.config.profile.LdapProfile;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.util.java.Percent;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.StringUtil;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Set of user attributes, per ldap profile, that {@link LdapUserInfoReader} reads with a single search the first
+ * time any attribute value is needed.  The plan is derived from the domain configuration once, and tracks how many
+ * attribute reads were satisfied by the prefetched values.
+ */
+public class UserAttributePrefetchPlan
+{
+    private static final List<String> AD_COMPLEXITY_ATTRIBUTES = List.of( "sAMAccountName", "displayName", "fullname", "cn" );
+
+    private final Map<ProfileID, Set<String>> profileAttributes;
+    private final StatisticCounterBundle<StatKey> stats = new StatisticCounterBundle<>( StatKey.class );
+
+    enum StatKey
+    {
+        prefetchSearches,
+        prefetchPlanHits,
+        prefetchPlanMisses,
+    }
+
+    private UserAttributePrefetchPlan( final Map<ProfileID, Set<String>> profileAttributes )
+    {
+        this.profileAttributes = profileAttributes;
+    }
+
+    public static UserAttributePrefetchPlan create( final DomainConfig domainConfig )
+    {
+        if ( !Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.LDAP_USER_INFO_PREFETCH_ENABLE ) ) )
+        {
+            return new UserAttributePrefetchPlan( Collections.emptyMap() );
+        }
+
+        final Set<String> policyAttributes = figurePasswordPolicyAttributes( domainConfig );
+
+        final Map<ProfileID, Set<String>> profileAttributes = new HashMap<>();
+        for ( final LdapProfile ldapProfile : domainConfig.getLdapProfiles().values() )
+        {
+            final Set<String> attributes = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+            attributes.addAll( policyAttributes );
+            attributes.addAll( ldapProfile.readSettingAsStringArray( PwmSetting.CACHED_USER_ATTRIBUTES ) );
+            addAttribute( attributes, ldapProfile.getUsernameAttribute() );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE ) );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE_2 ) );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE_3 ) );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.SMS_USER_PHONE_ATTRIBUTE ) );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.SMS_USER_PHONE_ATTRIBUTE_2 ) );
+            addAttribute( attributes, ldapProfile.readSettingAsString( PwmSetting.SMS_USER_PHONE_ATTRIBUTE_3 ) );
+
+            profileAttributes.put( ldapProfile.getId(), Collections.unmodifiableSet( attributes ) );
+        }
+
+        return new UserAttributePrefetchPlan( Collections.unmodifiableMap( profileAttributes ) );
+    }
+
+    private static Set<String> figurePasswordPolicyAttributes( final DomainConfig domainConfig )
+    {
+        final Set<String> attributes = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        for ( final ProfileID profileID : domainConfig.getPasswordProfileIDs() )
+        {
+            final PwmPasswordPolicy passwordPolicy = domainConfig.getPasswordPolicy( profileID );
+            attributes.addAll( passwordPolicy.getRuleHelper().getDisallowedAttributes() );
+
+            final ADPolicyComplexity complexity = passwordPolicy.getRuleHelper().getADComplexityLevel();
+            if ( complexity == ADPolicyComplexity.AD2003 || complexity == ADPolicyComplexity.AD2008 )
+            {
+                attributes.addAll( AD_COMPLEXITY_ATTRIBUTES );
+            }
+        }
+        return attributes;
+    }
+
+    private static void addAttribute( final Set<String> attributes, final String attribute )
+    {
+        if ( !StringUtil.isTrimEmpty( attribute ) )
+        {
+            attributes.add( attribute.trim() );
+        }
+    }
+
+    /**
+     * Attributes to prefetch for users of an ldap profile.
+     *
+     * @param ldapProfileID ldap profile of the user.
+     * @return case-insensitive set of attribute names, empty if nothing should be prefetched.
+     */
+    public Set<String> attributesForProfile( final ProfileID ldapProfileID )
+    {
+        return profileAttributes.getOrDefault( ldapProfileID, Collections.emptySet() );
+    }
+
+    void recordPrefetch()
+    {
+        stats.increment( StatKey.prefetchSearches );
+    }
+
+    void recordReads( final Collection<String> requestedAttributes, final Set<String> planAttributes )
+    {
+        final long hits = requestedAttributes.stream().filter( planAttributes::contains ).count();
+        stats.increment( StatKey.prefetchPlanHits, hits );
+        stats.increment( StatKey.prefetchPlanMisses, requestedAttributes.size() - hits );
+    }
+
+    public Map<String, String> debugInfo()
+    {
+        final long hits = stats.get( StatKey.prefetchPlanHits );
+        final long total = hits + stats.get( StatKey.prefetchPlanMisses );
+
+        final Map<String, String> debugInfo = new LinkedHashMap<>( stats.debugStats() );
+        debugInfo.put( "prefetchPlanHitRate", Percent.of( hits, total ).pretty( 2 ) );
+        return Collections.unmodifiableMap( debugInfo );
+    }
+}
@@ -35,7 +35,8 @@ class AllPermissionTypeHelper implements PermissionTypeHelper
             final PwmDomain pwmDomain,
             final SessionLabel pwmSession,
             final UserIdentity userIdentity,
-            final UserPermission userPermission
+            final UserPermission userPermission,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
@@ -0,0 +1,522 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap.permission;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates an LDAP search filter (RFC 4515) against a set of attribute values that have already been read from
+ * an entry.  Equality, presence and substring assertions are only evaluated for attributes known to use case ignore
+ * string or distinguished name matching, which are compared the same way the directory would.  Assertions that
+ * can't be reliably evaluated locally (other attributes, attribute options, ordering, approximate and extensible
+ * matches) evaluate as undetermined, in which case the filter needs to be evaluated by the ldap server.
+ */
+class LdapFilterMatcher
+{
+    private static final Pattern DN_SEPARATOR_WHITESPACE = Pattern.compile( "\\s*([,=+])\\s*" );
+    private static final Pattern WHITESPACE = Pattern.compile( "\\s+" );
+
+    private enum MatchingRule
+    {
+        caseIgnore,
+        distinguishedName,
+    }
+
+    /**
+     * Lower-cased attributes with case ignore or distinguished name equality matching in the common directory
+     * schemas.  Other attributes may use exact, numeric or object identifier matching, or be an alias or supertype
+     * of other attributes (such as {@code name} or {@code surname}), which can't be evaluated without the schema.
+     */
+    private static final Map<String, MatchingRule> MATCHING_RULES = Map.ofEntries(
+            Map.entry( "c", MatchingRule.caseIgnore ),
+            Map.entry( "cn", MatchingRule.caseIgnore ),
+            Map.entry( "company", MatchingRule.caseIgnore ),
+            Map.entry( "department", MatchingRule.caseIgnore ),
+            Map.entry( "departmentnumber", MatchingRule.caseIgnore ),
+            Map.entry( "description", MatchingRule.caseIgnore ),
+            Map.entry( "displayname", MatchingRule.caseIgnore ),
+            Map.entry( "employeenumber", MatchingRule.caseIgnore ),
+            Map.entry( "employeetype", MatchingRule.caseIgnore ),
+            Map.entry( "givenname", MatchingRule.caseIgnore ),
+            Map.entry( "l", MatchingRule.caseIgnore ),
+            Map.entry( "mail", MatchingRule.caseIgnore ),
+            Map.entry( "o", MatchingRule.caseIgnore ),
+            Map.entry( "ou", MatchingRule.caseIgnore ),
+            Map.entry( "samaccountname", MatchingRule.caseIgnore ),
+            Map.entry( "sn", MatchingRule.caseIgnore ),
+            Map.entry( "st", MatchingRule.caseIgnore ),
+            Map.entry( "title", MatchingRule.caseIgnore ),
+            Map.entry( "uid", MatchingRule.caseIgnore ),
+            Map.entry( "userprincipalname", MatchingRule.caseIgnore ),
+            Map.entry( "directreports", MatchingRule.distinguishedName ),
+            Map.entry( "groupmembership", MatchingRule.distinguishedName ),
+            Map.entry( "manager", MatchingRule.distinguishedName ),
+            Map.entry( "member", MatchingRule.distinguishedName ),
+            Map.entry( "memberof", MatchingRule.distinguishedName ),
+            Map.entry( "owner", MatchingRule.distinguishedName ),
+            Map.entry( "secretary", MatchingRule.distinguishedName ),
+            Map.entry( "securityequals", MatchingRule.distinguishedName ),
+            Map.entry( "seealso", MatchingRule.distinguishedName ) );
+
+    private final String filter;
+    private final Node rootNode;
+    private final Set<String> attributeNames;
+
+    private LdapFilterMatcher( final String filter, final Node rootNode, final Set<String> attributeNames )
+    {
+        this.filter = filter;
+        this.rootNode = rootNode;
+        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * Parse an ldap filter.
+     *
+     * @param filter ldap search filter, with or without enclosing parentheses.
+     * @return a matcher for the filter, or empty if the filter can not be parsed.
+     */
+    static Optional<LdapFilterMatcher> parse( final String filter )
+    {
+        if ( filter == null || filter.isBlank() )
+        {
+            return Optional.empty();
+        }
+
+        final String trimmedFilter = filter.trim();
+        final String fullFilter = trimmedFilter.startsWith( "(" ) ? trimmedFilter : "(" + trimmedFilter + ")";
+
+        try
+        {
+            final Parser parser = new Parser( fullFilter );
+            final Node rootNode = parser.parseFilter();
+            if ( !parser.isComplete() )
+            {
+                return Optional.empty();
+            }
+            return Optional.of( new LdapFilterMatcher( filter, rootNode, Collections.unmodifiableSet( parser.attributeNames ) ) );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            return Optional.empty();
+        }
+    }
+
+    String getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Attribute names referenced by the filter, lower-cased.
+     *
+     * @return set of attribute names.
+     */
+    Set<String> getAttributeNames()
+    {
+        return attributeNames;
+    }
+
+    /**
+     * Evaluate the filter against entry attribute values.
+     *
+     * @param attributeValues attribute values of the entry, keyed by case-insensitive attribute name.  Attributes
+     *                        absent from the map are treated as not present on the entry.
+     * @return the match result, or empty if the filter can not be evaluated locally.
+     */
+    Optional<Boolean> matches( final Map<String, List<String>> attributeValues )
+    {
+        return rootNode.evaluate( attributeValues );
+    }
+
+    private static String normalizeValue( final MatchingRule matchingRule, final String value )
+    {
+        final String lowerValue = value.trim().toLowerCase( Locale.ROOT );
+        return matchingRule == MatchingRule.distinguishedName
+                ? DN_SEPARATOR_WHITESPACE.matcher( lowerValue ).replaceAll( "$1" )
+                : WHITESPACE.matcher( lowerValue ).replaceAll( " " );
+    }
+
+    private static List<String> valuesFor( final Map<String, List<String>> attributeValues, final String attributeName )
+    {
+        final List<String> values = attributeValues.get( attributeName );
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    private interface Node
+    {
+        Optional<Boolean> evaluate( Map<String, List<String>> attributeValues );
+    }
+
+    private static class AndNode implements Node
+    {
+        private final List<Node> children;
+
+        AndNode( final List<Node> children )
+        {
+            this.children = children;
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            boolean undetermined = false;
+            for ( final Node child : children )
+            {
+                final Optional<Boolean> result = child.evaluate( attributeValues );
+                if ( result.isEmpty() )
+                {
+                    undetermined = true;
+                }
+                else if ( !result.get() )
+                {
+                    return Optional.of( false );
+                }
+            }
+            return undetermined ? Optional.empty() : Optional.of( true );
+        }
+    }
+
+    private static class OrNode implements Node
+    {
+        private final List<Node> children;
+
+        OrNode( final List<Node> children )
+        {
+            this.children = children;
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            boolean undetermined = false;
+            for ( final Node child : children )
+            {
+                final Optional<Boolean> result = child.evaluate( attributeValues );
+                if ( result.isEmpty() )
+                {
+                    undetermined = true;
+                }
+                else if ( result.get() )
+                {
+                    return Optional.of( true );
+                }
+            }
+            return undetermined ? Optional.empty() : Optional.of( false );
+        }
+    }
+
+    private static class NotNode implements Node
+    {
+        private final Node child;
+
+        NotNode( final Node child )
+        {
+            this.child = child;
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            return child.evaluate( attributeValues ).map( result -> !result );
+        }
+    }
+
+    private static class PresentNode implements Node
+    {
+        private final String attributeName;
+
+        PresentNode( final String attributeName )
+        {
+            this.attributeName = attributeName;
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            // every entry has an objectClass, even if it was not readable
+            return Optional.of( "objectclass".equals( attributeName ) || !valuesFor( attributeValues, attributeName ).isEmpty() );
+        }
+    }
+
+    private static class EqualityNode implements Node
+    {
+        private final String attributeName;
+        private final MatchingRule matchingRule;
+        private final String normalizedValue;
+
+        EqualityNode( final String attributeName, final MatchingRule matchingRule, final String value )
+        {
+            this.attributeName = attributeName;
+            this.matchingRule = matchingRule;
+            this.normalizedValue = normalizeValue( matchingRule, value );
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            for ( final String value : valuesFor( attributeValues, attributeName ) )
+            {
+                if ( normalizedValue.equals( normalizeValue( matchingRule, value ) ) )
+                {
+                    return Optional.of( true );
+                }
+            }
+            return Optional.of( false );
+        }
+    }
+
+    private static class SubstringNode implements Node
+    {
+        private final String attributeName;
+        private final List<String> components;
+
+        /**
+         * @param components lower-cased value components separated by wildcards, with whitespace runs collapsed.
+         *                   The first and last components are the anchored initial and final values, and may be empty.
+         */
+        SubstringNode( final String attributeName, final List<String> components )
+        {
+            this.attributeName = attributeName;
+            this.components = components;
+        }
+
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            for ( final String value : valuesFor( attributeValues, attributeName ) )
+            {
+                if ( substringMatch( normalizeValue( MatchingRule.caseIgnore, value ) ) )
+                {
+                    return Optional.of( true );
+                }
+            }
+            return Optional.of( false );
+        }
+
+        private boolean substringMatch( final String value )
+        {
+            final String initial = components.get( 0 );
+            final String last = components.get( components.size() - 1 );
+            if ( !value.startsWith( initial ) )
+            {
+                return false;
+            }
+
+            int position = initial.length();
+            for ( int i = 1; i < components.size() - 1; i++ )
+            {
+                final int index = value.indexOf( components.get( i ), position );
+                if ( index < 0 )
+                {
+                    return false;
+                }
+                position = index + components.get( i ).length();
+            }
+
+            return value.length() - position >= last.length() && value.endsWith( last );
+        }
+    }
+
+    private static class UndeterminedNode implements Node
+    {
+        @Override
+        public Optional<Boolean> evaluate( final Map<String, List<String>> attributeValues )
+        {
+            return Optional.empty();
+        }
+    }
+
+    private static class Parser
+    {
+        private final String input;
+        private final Set<String> attributeNames = new TreeSet<>();
+        private int position;
+
+        Parser( final String input )
+        {
+            this.input = input;
+        }
+
+        boolean isComplete()
+        {
+            return position == input.length();
+        }
+
+        Node parseFilter()
+        {
+            expect( '(' );
+            final Node node;
+            final char type = peek();
+            if ( type == '&' || type == '|' )
+            {
+                position++;
+                final List<Node> children = new ArrayList<>();
+                while ( peek() == '(' )
+                {
+                    children.add( parseFilter() );
+                }
+                node = type == '&' ? new AndNode( children ) : new OrNode( children );
+            }
+            else if ( type == '!' )
+            {
+                position++;
+                node = new NotNode( parseFilter() );
+            }
+            else
+            {
+                node = parseItem();
+            }
+            expect( ')' );
+            return node;
+        }
+
+        private Node parseItem()
+        {
+            final int closeIndex = input.indexOf( ')', position );
+            if ( closeIndex < 0 )
+            {
+                throw new IllegalArgumentException( "unterminated filter item" );
+            }
+
+            final String item = input.substring( position, closeIndex );
+            position = closeIndex;
+
+            final int equalsIndex = item.indexOf( '=' );
+            if ( equalsIndex < 1 || item.indexOf( '(' ) >= 0 )
+            {
+                throw new IllegalArgumentException( "invalid filter item" );
+            }
+
+            final char operator = item.charAt( equalsIndex - 1 );
+            if ( operator == '~' || operator == '>' || operator == '<' || operator == ':' )
+            {
+                return new UndeterminedNode();
+            }
+
+            final String attributeName = item.substring( 0, equalsIndex ).trim().toLowerCase( Locale.ROOT );
+            final String value = item.substring( equalsIndex + 1 );
+            if ( attributeName.isEmpty() || !attributeName.chars().allMatch( c -> Character.isLetterOrDigit( c ) || c == '-' || c == '.' ) )
+            {
+                // attribute options such as ";binary" are not handled locally
+                return new UndeterminedNode();
+            }
+
+            if ( "objectclass".equals( attributeName ) && "*".equals( value ) )
+            {
+                return new PresentNode( attributeName );
+            }
+
+            final MatchingRule matchingRule = MATCHING_RULES.get( attributeName );
+            if ( matchingRule == null )
+            {
+                return new UndeterminedNode();
+            }
+
+            if ( "*".equals( value ) )
+            {
+                attributeNames.add( attributeName );
+                return new PresentNode( attributeName );
+            }
+
+            if ( value.indexOf( '*' ) >= 0 )
+            {
+                // distinguished names have no substring matching rule
+                if ( matchingRule != MatchingRule.caseIgnore )
+                {
+                    return new UndeterminedNode();
+                }
+
+                final List<String> components = new ArrayList<>();
+                for ( final String component : value.split( "\\*", -1 ) )
+                {
+                    components.add( WHITESPACE.matcher( unescape( component ).toLowerCase( Locale.ROOT ) ).replaceAll( " " ) );
+                }
+                attributeNames.add( attributeName );
+                return new SubstringNode( attributeName, Collections.unmodifiableList( components ) );
+            }
+
+            attributeNames.add( attributeName );
+            return new EqualityNode( attributeName, matchingRule, unescape( value ) );
+        }
+
+        private char peek()
+        {
+            if ( position >= input.length() )
+            {
+                throw new IllegalArgumentException( "unexpected end of filter" );
+            }
+            return input.charAt( position );
+        }
+
+        private void expect( final char expected )
+        {
+            if ( peek() != expected )
+            {
+                throw new IllegalArgumentException( "expected '" + expected + "' at position " + position );
+            }
+            position++;
+        }
+
+        private static String unescape( final String value )
+        {
+            if ( value.indexOf( '\\' ) < 0 )
+            {
+                return value;
+            }
+
+            // escaped values are hex encoded utf-8 bytes, possibly spanning several escape sequences
+            final StringBuilder output = new StringBuilder( value.length() );
+            final ByteArrayOutputStream escapedBytes = new ByteArrayOutputStream();
+            int index = 0;
+            while ( index < value.length() )
+            {
+                if ( value.charAt( index ) == '\\' )
+                {
+                    if ( index + 3 > value.length() )
+                    {
+                        throw new IllegalArgumentException( "truncated escape sequence" );
+                    }
+                    escapedBytes.write( Integer.parseInt( value.substring( index + 1, index + 3 ), 16 ) );
+                    index += 3;
+                }
+                else
+                {
+                    output.append( escapedBytes.toString( StandardCharsets.UTF_8 ) );
+                    escapedBytes.reset();
+                    output.append( value.charAt( index ) );
+                    index++;
+                }
+            }
+            output.append( escapedBytes.toString( StandardCharsets.UTF_8 ) );
+            return output.toString();
+        }
+    }
+}
@@ -34,6 +34,7 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.Optional;
 
 class LdapGroupTypeHelper implements PermissionTypeHelper
 {
@@ -44,7 +45,8 @@ class LdapGroupTypeHelper implements PermissionTypeHelper
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
-            final UserPermission userPermission
+            final UserPermission userPermission,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
@@ -59,16 +61,16 @@ class LdapGroupTypeHelper implements PermissionTypeHelper
         LOGGER.trace( sessionLabel, () -> "begin check for ldapGroup match for " + userIdentity + " using groupMatch: " + groupDN );
 
         boolean result = false;
-        if ( StringUtil.isEmpty( groupDN ) )
+        final Optional<String> matchFilter = readMatchFilter( pwmDomain, userIdentity, userPermission );
+        if ( matchFilter.isEmpty() )
         {
             LOGGER.trace( sessionLabel, () -> "missing groupDN value, skipping check" );
         }
         else
         {
-            final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmDomain.getPwmApplication().getConfig() );
-            final String filterString = "(" + ldapProfile.readSettingAsString( PwmSetting.LDAP_USER_GROUP_ATTRIBUTE ) + "=" + groupDN + ")";
+            final String filterString = matchFilter.get();
             LOGGER.trace( sessionLabel, () -> "checking ldap to see if " + userIdentity + " matches group '" + groupDN + "' using filter '" + filterString + "'" );
-            result = LdapQueryHelper.selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString );
+            result = LdapQueryHelper.selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString, attributeSnapshot );
 
         }
 
@@ -83,6 +85,24 @@ class LdapGroupTypeHelper implements PermissionTypeHelper
         return result;
     }
 
+    @Override
+    public Optional<String> readMatchFilter(
+            final PwmDomain pwmDomain,
+            final UserIdentity userIdentity,
+            final UserPermission userPermission
+    )
+            throws PwmUnrecoverableException
+    {
+        final String groupDN = userPermission.getLdapBase();
+        if ( userIdentity == null || StringUtil.isEmpty( groupDN ) )
+        {
+            return Optional.empty();
+        }
+
+        final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmDomain.getPwmApplication().getConfig() );
+        return Optional.of( "(" + ldapProfile.readSettingAsString( PwmSetting.LDAP_USER_GROUP_ATTRIBUTE ) + "=" + groupDN + ")" );
+    }
+
     @Override
     public SearchConfiguration searchConfigurationFromPermission( final UserPermission userPermission )
             throws PwmUnrecoverableException
@@ -36,6 +36,7 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 
 class LdapQueryHelper implements PermissionTypeHelper
 {
@@ -47,7 +48,8 @@ class LdapQueryHelper implements PermissionTypeHelper
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
-            final UserPermission userPermission
+            final UserPermission userPermission,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
@@ -76,24 +78,52 @@ class LdapQueryHelper implements PermissionTypeHelper
             return false;
         }
 
-        if ( "(objectClass=*)".equalsIgnoreCase( filterString ) || "objectClass=*".equalsIgnoreCase( filterString ) )
+        if ( isMatchAllFilter( filterString ) )
         {
             LOGGER.trace( sessionLabel, () -> "queryMatch check is guaranteed to be true, skipping ldap query" );
             return true;
         }
 
         LOGGER.trace( sessionLabel, () -> "checking ldap to see if " + userIdentity + " matches '" + filterString + "'" );
-        return selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString );
+        return selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString, attributeSnapshot );
+    }
+
+    @Override
+    public Optional<String> readMatchFilter(
+            final PwmDomain pwmDomain,
+            final UserIdentity userIdentity,
+            final UserPermission userPermission
+    )
+    {
+        final String filterString = userPermission.getLdapQuery();
+        if ( StringUtil.isEmpty( filterString ) || isMatchAllFilter( filterString ) )
+        {
+            return Optional.empty();
+        }
+        return Optional.of( filterString );
+    }
+
+    private static boolean isMatchAllFilter( final String filterString )
+    {
+        return "(objectClass=*)".equalsIgnoreCase( filterString ) || "objectClass=*".equalsIgnoreCase( filterString );
     }
 
     static boolean selfUserSearch(
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
-            final String searchFilter
+            final String searchFilter,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
+        final Optional<Boolean> localResult = attributeSnapshot.evaluate( searchFilter );
+        if ( localResult.isPresent() )
+        {
+            LOGGER.trace( sessionLabel, () -> "evaluated filter '" + searchFilter + "' for " + userIdentity + " using previously read attribute values" );
+            return localResult.get();
+        }
+
         try
         {
             final ChaiUser theUser = pwmDomain.getProxiedChaiUser( sessionLabel, userIdentity );
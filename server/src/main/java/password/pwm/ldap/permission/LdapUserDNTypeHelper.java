@@ -43,7 +43,8 @@ class LdapUserDNTypeHelper implements PermissionTypeHelper
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
-            final UserPermission userPermission
+            final UserPermission userPermission,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
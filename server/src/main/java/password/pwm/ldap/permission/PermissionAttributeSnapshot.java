@@ -0,0 +1,238 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package password.pwm.ldap.permission;
+
+import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.exception.ChaiException;
+import com.novell.ldapchai.provider.SearchScope;
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.PwmDomain;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.value.data.UserPermission;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.cache.CacheKey;
+import password.pwm.svc.cache.CachePolicy;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Attribute values of a user entry used to evaluate a list of permission filters in memory.  Nothing is read until
+ * the first filter is evaluated, so permissions that don't use a filter are tested without reading the entry.  The
+ * first evaluation reads every attribute referenced by the filters of the list with a single base search.
+ *
+ * <p>The values read are kept in the cache service for the rest of the request, so testing the other permission
+ * lists of a login only reads attributes not already read by the request.</p>
+ */
+class PermissionAttributeSnapshot
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PermissionAttributeSnapshot.class );
+
+    private static final TimeDuration REQUEST_CACHE_DURATION = TimeDuration.SECONDS_30;
+
+    static final PermissionAttributeSnapshot EMPTY = new PermissionAttributeSnapshot( null, null, null, Collections.emptyMap() );
+
+    private final PwmDomain pwmDomain;
+    private final SessionLabel sessionLabel;
+    private final UserIdentity userIdentity;
+    private final Map<String, LdapFilterMatcher> matchers;
+
+    private boolean readComplete;
+    private Map<String, List<String>> attributeValues;
+
+    private PermissionAttributeSnapshot(
+            final PwmDomain pwmDomain,
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final Map<String, LdapFilterMatcher> matchers
+    )
+    {
+        this.pwmDomain = pwmDomain;
+        this.sessionLabel = sessionLabel;
+        this.userIdentity = userIdentity;
+        this.matchers = matchers;
+    }
+
+    static PermissionAttributeSnapshot forPermissions(
+            final PwmDomain pwmDomain,
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final Collection<UserPermission> userPermissions
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( userIdentity == null
+                || !Boolean.parseBoolean( pwmDomain.getConfig().readAppProperty( AppProperty.LDAP_PERMISSION_LOCAL_FILTER_ENABLE ) ) )
+        {
+            return EMPTY;
+        }
+
+        final Map<String, LdapFilterMatcher> matchers = new HashMap<>();
+        for ( final UserPermission userPermission : userPermissions )
+        {
+            if ( userPermission != null && UserPermissionUtility.checkIfProfileAppliesToUser( userIdentity, userPermission ) )
+            {
+                final Optional<String> filter = userPermission.getType().getPermissionTypeTester().readMatchFilter( pwmDomain, userIdentity, userPermission );
+                filter.flatMap( LdapFilterMatcher::parse ).ifPresent( matcher -> matchers.put( matcher.getFilter(), matcher ) );
+            }
+        }
+
+        return matchers.isEmpty()
+                ? EMPTY
+                : new PermissionAttributeSnapshot( pwmDomain, sessionLabel, userIdentity, Collections.unmodifiableMap( matchers ) );
+    }
+
+    /**
+     * Evaluate a permission filter against the snapshot, reading the attribute values if they have not been read yet.
+     *
+     * @param filter a filter previously returned by {@link PermissionTypeHelper#readMatchFilter}.
+     * @return the match result, or empty if the filter must be evaluated by the ldap server.
+     */
+    Optional<Boolean> evaluate( final String filter )
+            throws PwmUnrecoverableException
+    {
+        final LdapFilterMatcher matcher = matchers.get( filter );
+        if ( matcher == null )
+        {
+            return Optional.empty();
+        }
+
+        final Map<String, List<String>> values = readAttributeValues();
+        return values == null ? Optional.empty() : matcher.matches( values );
+    }
+
+    private synchronized Map<String, List<String>> readAttributeValues()
+            throws PwmUnrecoverableException
+    {
+        if ( !readComplete )
+        {
+            attributeValues = loadAttributeValues();
+            readComplete = true;
+        }
+        return attributeValues;
+    }
+
+    private Map<String, List<String>> loadAttributeValues()
+            throws PwmUnrecoverableException
+    {
+        final Set<String> attributeNames = new TreeSet<>();
+        for ( final LdapFilterMatcher matcher : matchers.values() )
+        {
+            attributeNames.addAll( matcher.getAttributeNames() );
+        }
+
+        final Optional<CacheKey> cacheKey = requestCacheKey();
+        final Map<String, List<String>> values = new HashMap<>();
+        if ( cacheKey.isPresent() )
+        {
+            final RequestAttributeValues cachedValues = pwmDomain.getCacheService().get( cacheKey.get(), RequestAttributeValues.class );
+            if ( cachedValues != null )
+            {
+                values.putAll( cachedValues.getValues() );
+            }
+        }
+
+        final Set<String> missingAttributeNames = new TreeSet<>( attributeNames );
+        missingAttributeNames.removeAll( values.keySet() );
+        if ( missingAttributeNames.isEmpty() )
+        {
+            LOGGER.trace( sessionLabel, () -> "using permission attributes of " + userIdentity.toDisplayString() + " previously read during this request" );
+            return Collections.unmodifiableMap( values );
+        }
+
+        final Instant startTime = Instant.now();
+        try
+        {
+            final ChaiUser theUser = pwmDomain.getProxiedChaiUser( sessionLabel, userIdentity );
+            final Map<String, Map<String, List<String>>> results = theUser.getChaiProvider().searchMultiValues(
+                    theUser.getEntryDN(),
+                    "(objectClass=*)",
+                    missingAttributeNames,
+                    SearchScope.BASE );
+
+            if ( results == null || results.size() != 1 )
+            {
+                LOGGER.debug( sessionLabel, () -> "unable to read permission attributes for " + userIdentity.toDisplayString()
+                        + ", permissions will be evaluated by ldap server" );
+                return null;
+            }
+
+            final Map<String, List<String>> resultValues = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+            resultValues.putAll( results.values().iterator().next() );
+            for ( final String attributeName : missingAttributeNames )
+            {
+                values.put( attributeName.toLowerCase( Locale.ROOT ), resultValues.getOrDefault( attributeName, Collections.emptyList() ) );
+            }
+
+            LOGGER.trace( sessionLabel, () -> "read " + missingAttributeNames.size() + " permission attributes for "
+                    + matchers.size() + " permission filters of user " + userIdentity.toDisplayString(),
+                    TimeDuration.fromCurrent( startTime ) );
+        }
+        catch ( final ChaiException e )
+        {
+            LOGGER.debug( sessionLabel, () -> "error reading permission attributes for " + userIdentity.toDisplayString()
+                    + ", permissions will be evaluated by ldap server: " + e.getMessage() );
+            return null;
+        }
+
+        if ( cacheKey.isPresent() )
+        {
+            final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( REQUEST_CACHE_DURATION );
+            pwmDomain.getCacheService().put( cacheKey.get(), cachePolicy, new RequestAttributeValues( new HashMap<>( values ) ) );
+        }
+
+        return Collections.unmodifiableMap( values );
+    }
+
+    private Optional<CacheKey> requestCacheKey()
+    {
+        if ( sessionLabel == null || StringUtil.isEmpty( sessionLabel.getRequestID() ) )
+        {
+            return Optional.empty();
+        }
+
+        final String valueID = "permissionAttributes-" + sessionLabel.getSessionID() + "-" + sessionLabel.getRequestID();
+        return Optional.of( CacheKey.newKey( PermissionAttributeSnapshot.class, userIdentity, valueID ) );
+    }
+
+    /**
+     * Lower-cased attribute names read during a request and their values, empty for attributes not on the entry.
+     */
+    @Value
+    static class RequestAttributeValues implements Serializable
+    {
+        private final Map<String, List<String>> values;
+    }
+}
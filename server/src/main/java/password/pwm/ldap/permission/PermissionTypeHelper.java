@@ -28,6 +28,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.search.SearchConfiguration;
 
 import java.io.Serializable;
+import java.util.Optional;
 
 interface PermissionTypeHelper extends Serializable
 {
@@ -35,10 +36,25 @@ interface PermissionTypeHelper extends Serializable
             PwmDomain pwmDomain,
             SessionLabel pwmSession,
             UserIdentity userIdentity,
-            UserPermission userPermission
+            UserPermission userPermission,
+            PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException;
 
+    /**
+     * Ldap filter that is tested against the user entry to determine a match, if the permission is
+     * evaluated using a filter.
+     */
+    default Optional<String> readMatchFilter(
+            final PwmDomain pwmDomain,
+            final UserIdentity userIdentity,
+            final UserPermission userPermission
+    )
+            throws PwmUnrecoverableException
+    {
+        return Optional.empty();
+    }
+
     SearchConfiguration searchConfigurationFromPermission( UserPermission userPermission )
             throws PwmUnrecoverableException;
 
@@ -81,9 +81,12 @@ public class UserPermissionUtility
         final List<UserPermission> sortedList = new ArrayList<>( userPermissions );
         Collections.sort( sortedList );
 
+        // attributes used by the permission filters are read together on the first filter evaluated, if any
+        final PermissionAttributeSnapshot attributeSnapshot = PermissionAttributeSnapshot.forPermissions( pwmDomain, sessionLabel, userIdentity, sortedList );
+
         for ( final UserPermission userPermission : sortedList )
         {
-            if ( testUserPermission( pwmDomain, sessionLabel, userIdentity, userPermission ) )
+            if ( testUserPermission( pwmDomain, sessionLabel, userIdentity, userPermission, attributeSnapshot ) )
             {
                 return true;
             }
@@ -91,7 +94,7 @@ public class UserPermissionUtility
         return false;
     }
 
-    private static boolean checkIfProfileAppliesToUser(
+    static boolean checkIfProfileAppliesToUser(
             final UserIdentity userIdentity,
             final UserPermission userPermission
     )
@@ -105,7 +108,8 @@ public class UserPermissionUtility
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
-            final UserPermission userPermission
+            final UserPermission userPermission,
+            final PermissionAttributeSnapshot attributeSnapshot
     )
             throws PwmUnrecoverableException
     {
@@ -121,7 +125,7 @@ public class UserPermissionUtility
 
         final PermissionTypeHelper permissionTypeHelper = userPermission.getType().getPermissionTypeTester();
         final Instant startTime = Instant.now();
-        final boolean match = permissionTypeHelper.testMatch( pwmDomain, sessionLabel, userIdentity, userPermission );
+        final boolean match = permissionTypeHelper.testMatch( pwmDomain, sessionLabel, userIdentity, userPermission, attributeSnapshot );
         LOGGER.debug( sessionLabel, () -> "user " + userIdentity.toDisplayString() + " is "
                         + ( match ? "" : "not " )
                         + "a match for permission '" + userPermission + "'",
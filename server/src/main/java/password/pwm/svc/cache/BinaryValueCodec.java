@@ -0,0 +1,619 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import lombok.Value;
+
+import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Encodes a mutable object graph into a compact in-memory form and decodes an independent copy of it.  The structure
+ * of the graph (beans, lists, sets and maps) is written to a byte array, while immutable leaf values such as strings,
+ * numbers and enums are kept in a side table and shared by reference between the cached value and each copy.
+ * Decoded lists, sets and maps are unmodifiable.
+ *
+ * <p>Encoded values never leave the JVM, so beans are identified by a process local layout id rather than a
+ * class name.  Graphs containing types that can not be copied this way, such as arrays, cycles or collections
+ * with a comparator, are rejected with an {@link IOException}.</p>
+ */
+final class BinaryValueCodec
+{
+    private static final int TAG_NULL = 0;
+    private static final int TAG_REFERENCE = 1;
+    private static final int TAG_LIST = 2;
+    private static final int TAG_SET = 3;
+    private static final int TAG_SORTED_SET = 4;
+    private static final int TAG_MAP = 5;
+    private static final int TAG_SORTED_MAP = 6;
+    private static final int TAG_BEAN = 7;
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final List<BeanLayout> LAYOUTS = new CopyOnWriteArrayList<>();
+
+    private static final ClassValue<Optional<BeanLayout>> BEAN_LAYOUTS = new ClassValue<>()
+    {
+        @Override
+        protected Optional<BeanLayout> computeValue( final Class<?> type )
+        {
+            return BeanLayout.forClass( type );
+        }
+    };
+
+    private BinaryValueCodec()
+    {
+    }
+
+    @Value
+    static class EncodedValue
+    {
+        private final byte[] structure;
+        private final Object[] references;
+
+        long size()
+        {
+            long size = structure.length;
+            for ( final Object reference : references )
+            {
+                size += reference instanceof CharSequence ? ( ( CharSequence ) reference ).length() : Long.BYTES;
+            }
+            return size;
+        }
+    }
+
+    static EncodedValue encode( final Object value )
+            throws IOException
+    {
+        final Encoder encoder = new Encoder();
+        encoder.writeValue( value, 0 );
+        return new EncodedValue( encoder.structure(), encoder.references.toArray() );
+    }
+
+    static Object decode( final EncodedValue encodedValue )
+    {
+        return new Decoder( encodedValue ).readValue();
+    }
+
+    private static class Encoder
+    {
+        private final List<Object> references = new ArrayList<>();
+        private byte[] buffer = new byte[64];
+        private int length;
+
+        void writeValue( final Object value, final int depth )
+                throws IOException
+        {
+            if ( value == null )
+            {
+                writeVarInt( TAG_NULL );
+                return;
+            }
+
+            if ( CacheValueType.forClass( value.getClass() ) == CacheValueType.Reference )
+            {
+                writeVarInt( TAG_REFERENCE );
+                writeVarInt( references.size() );
+                references.add( value );
+                return;
+            }
+
+            if ( depth > MAX_DEPTH )
+            {
+                throw new IOException( "maximum object depth exceeded, graph may be cyclic" );
+            }
+
+            if ( value instanceof SortedSet )
+            {
+                requireNaturalOrder( ( ( SortedSet<?> ) value ).comparator() );
+                writeCollection( TAG_SORTED_SET, ( Collection<?> ) value, depth );
+            }
+            else if ( value instanceof Set )
+            {
+                writeCollection( TAG_SET, ( Collection<?> ) value, depth );
+            }
+            else if ( value instanceof List )
+            {
+                writeCollection( TAG_LIST, ( Collection<?> ) value, depth );
+            }
+            else if ( value instanceof SortedMap )
+            {
+                requireNaturalOrder( ( ( SortedMap<?, ?> ) value ).comparator() );
+                writeMap( TAG_SORTED_MAP, ( Map<?, ?> ) value, depth );
+            }
+            else if ( value instanceof Map )
+            {
+                writeMap( TAG_MAP, ( Map<?, ?> ) value, depth );
+            }
+            else
+            {
+                writeBean( value, depth );
+            }
+        }
+
+        private void writeCollection( final int tag, final Collection<?> collection, final int depth )
+                throws IOException
+        {
+            writeVarInt( tag );
+            writeVarInt( collection.size() );
+            for ( final Object item : collection )
+            {
+                writeValue( item, depth + 1 );
+            }
+        }
+
+        private void writeMap( final int tag, final Map<?, ?> map, final int depth )
+                throws IOException
+        {
+            writeVarInt( tag );
+            writeVarInt( map.size() );
+            for ( final Map.Entry<?, ?> entry : map.entrySet() )
+            {
+                writeValue( entry.getKey(), depth + 1 );
+                writeValue( entry.getValue(), depth + 1 );
+            }
+        }
+
+        private void writeBean( final Object bean, final int depth )
+                throws IOException
+        {
+            final BeanLayout layout = BEAN_LAYOUTS.get( bean.getClass() )
+                    .orElseThrow( () -> new IOException( "unsupported cache value type " + bean.getClass().getName() ) );
+
+            writeVarInt( TAG_BEAN );
+            writeVarInt( layout.id );
+            for ( final Field field : layout.fields )
+            {
+                final Object fieldValue = layout.get( field, bean );
+                if ( fieldValue != null && !field.getType().isPrimitive() && !field.getType().isAssignableFrom( decodedType( fieldValue ) ) )
+                {
+                    throw new IOException( "field " + field.getName() + " of " + bean.getClass().getName()
+                            + " can not hold a copy of type " + fieldValue.getClass().getName() );
+                }
+                writeValue( fieldValue, depth + 1 );
+            }
+        }
+
+        private static void requireNaturalOrder( final Object comparator )
+                throws IOException
+        {
+            if ( comparator != null )
+            {
+                throw new IOException( "sorted collections with a comparator are not supported" );
+            }
+        }
+
+        private void writeVarInt( final int value )
+        {
+            ensureCapacity( 5 );
+            int remaining = value;
+            while ( ( remaining & ~0x7F ) != 0 )
+            {
+                buffer[length++] = ( byte ) ( ( remaining & 0x7F ) | 0x80 );
+                remaining >>>= 7;
+            }
+            buffer[length++] = ( byte ) remaining;
+        }
+
+        private void ensureCapacity( final int additional )
+        {
+            if ( length + additional > buffer.length )
+            {
+                buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, length + additional ) );
+            }
+        }
+
+        byte[] structure()
+        {
+            return Arrays.copyOf( buffer, length );
+        }
+    }
+
+    /**
+     * Type of the copy that is created when decoding a value.
+     */
+    private static Class<?> decodedType( final Object value )
+    {
+        if ( CacheValueType.forClass( value.getClass() ) == CacheValueType.Reference )
+        {
+            return value.getClass();
+        }
+        if ( value instanceof SortedSet )
+        {
+            return SortedSet.class;
+        }
+        if ( value instanceof Set )
+        {
+            return Set.class;
+        }
+        if ( value instanceof List )
+        {
+            return List.class;
+        }
+        if ( value instanceof SortedMap )
+        {
+            return SortedMap.class;
+        }
+        if ( value instanceof Map )
+        {
+            return Map.class;
+        }
+        return value.getClass();
+    }
+
+    private static class Decoder
+    {
+        private final byte[] structure;
+        private final Object[] references;
+        private int position;
+
+        Decoder( final EncodedValue encodedValue )
+        {
+            this.structure = encodedValue.getStructure();
+            this.references = encodedValue.getReferences();
+        }
+
+        Object readValue()
+        {
+            final int tag = readVarInt();
+            switch ( tag )
+            {
+                case TAG_NULL:
+                    return null;
+
+                case TAG_REFERENCE:
+                    return references[readVarInt()];
+
+                case TAG_LIST:
+                {
+                    final int size = readVarInt();
+                    return Collections.unmodifiableList( ( List<Object> ) readItems( new ArrayList<>( size ), size ) );
+                }
+
+                case TAG_SET:
+                {
+                    final int size = readVarInt();
+                    return Collections.unmodifiableSet( ( Set<Object> ) readItems( new LinkedHashSet<>( mapCapacity( size ) ), size ) );
+                }
+
+                case TAG_SORTED_SET:
+                    return Collections.unmodifiableSortedSet( ( SortedSet<Object> ) readItems( new TreeSet<>(), readVarInt() ) );
+
+                case TAG_MAP:
+                {
+                    final int size = readVarInt();
+                    return Collections.unmodifiableMap( readEntries( new LinkedHashMap<>( mapCapacity( size ) ), size ) );
+                }
+
+                case TAG_SORTED_MAP:
+                    return Collections.unmodifiableSortedMap( ( SortedMap<Object, Object> ) readEntries( new TreeMap<>(), readVarInt() ) );
+
+                case TAG_BEAN:
+                    return readBean( LAYOUTS.get( readVarInt() ) );
+
+                default:
+                    throw new IllegalStateException( "unknown tag " + tag + " in encoded cache value" );
+            }
+        }
+
+        private Collection<Object> readItems( final Collection<Object> collection, final int size )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                collection.add( readValue() );
+            }
+            return collection;
+        }
+
+        private Map<Object, Object> readEntries( final Map<Object, Object> map, final int size )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                final Object key = readValue();
+                map.put( key, readValue() );
+            }
+            return map;
+        }
+
+        private Object readBean( final BeanLayout layout )
+        {
+            final Object[] values = new Object[layout.fields.length];
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = readValue();
+            }
+            return layout.newInstance( values );
+        }
+
+        private int readVarInt()
+        {
+            int value = 0;
+            int shift = 0;
+            byte next;
+            do
+            {
+                next = structure[position++];
+                value |= ( next & 0x7F ) << shift;
+                shift += 7;
+            }
+            while ( ( next & 0x80 ) != 0 );
+            return value;
+        }
+
+        private static int mapCapacity( final int size )
+        {
+            return ( int ) ( size / 0.75f ) + 1;
+        }
+    }
+
+    /**
+     * Copyable fields of a bean class and how to construct it.  Beans are constructed either with a no-argument
+     * constructor followed by setting each field, or with a constructor taking every instance field, as generated
+     * for immutable beans.  Each constructor parameter is matched to a field by name when the class was compiled
+     * with parameter names, otherwise by a type that no other field has.  Classes whose constructor can not be
+     * matched this way are not supported.  Transient fields are not copied.
+     */
+    private static final class BeanLayout
+    {
+        private final int id;
+        private final Field[] fields;
+        private final Constructor<?> constructor;
+        private final boolean fieldConstructor;
+        private final Object[] constructorDefaults;
+        private final int[] constructorPositions;
+
+        private BeanLayout(
+                final int id,
+                final Field[] fields,
+                final Constructor<?> constructor,
+                final Field[] constructorFields
+        )
+        {
+            this.id = id;
+            this.fields = fields;
+            this.constructor = constructor;
+            this.fieldConstructor = constructorFields != null;
+
+            if ( fieldConstructor )
+            {
+                constructorDefaults = new Object[constructorFields.length];
+                constructorPositions = new int[fields.length];
+                for ( int i = 0; i < constructorFields.length; i++ )
+                {
+                    final Class<?> type = constructorFields[i].getType();
+                    constructorDefaults[i] = type.isPrimitive() ? Array.get( Array.newInstance( type, 1 ), 0 ) : null;
+                }
+                for ( int i = 0; i < fields.length; i++ )
+                {
+                    constructorPositions[i] = Arrays.asList( constructorFields ).indexOf( fields[i] );
+                }
+            }
+            else
+            {
+                constructorDefaults = null;
+                constructorPositions = null;
+            }
+        }
+
+        static Optional<BeanLayout> forClass( final Class<?> type )
+        {
+            final int modifiers = type.getModifiers();
+            if ( type.isArray()
+                    || type.isInterface()
+                    || type.isSynthetic()
+                    || type.isAnonymousClass()
+                    || type.isLocalClass()
+                    || Modifier.isAbstract( modifiers )
+                    || ( type.isMemberClass() && !Modifier.isStatic( modifiers ) )
+                    || type.getName().startsWith( "java." )
+                    || type.getName().startsWith( "javax." ) )
+            {
+                return Optional.empty();
+            }
+
+            try
+            {
+                final List<Field> allFields = new ArrayList<>();
+                for ( Class<?> loopClass = type; loopClass != Object.class; loopClass = loopClass.getSuperclass() )
+                {
+                    final List<Field> declaredFields = new ArrayList<>();
+                    for ( final Field field : loopClass.getDeclaredFields() )
+                    {
+                        if ( !Modifier.isStatic( field.getModifiers() ) && !field.isSynthetic() )
+                        {
+                            field.setAccessible( true );
+                            declaredFields.add( field );
+                        }
+                    }
+                    allFields.addAll( 0, declaredFields );
+                }
+
+                final Field[] copiedFields = allFields.stream()
+                        .filter( field -> !Modifier.isTransient( field.getModifiers() ) )
+                        .toArray( Field[]::new );
+
+                final Optional<Constructor<?>> noArgConstructor = findConstructor( type );
+                if ( noArgConstructor.isPresent() )
+                {
+                    return Optional.of( register( copiedFields, noArgConstructor.get(), null ) );
+                }
+
+                for ( final Constructor<?> constructor : type.getDeclaredConstructors() )
+                {
+                    final Optional<Field[]> constructorFields = matchParameters( constructor, allFields );
+                    if ( constructorFields.isPresent() )
+                    {
+                        constructor.setAccessible( true );
+                        return Optional.of( register( copiedFields, constructor, constructorFields.get() ) );
+                    }
+                }
+            }
+            catch ( final RuntimeException e )
+            {
+                // inaccessible module or security restriction, value will not be copied with this codec
+            }
+
+            return Optional.empty();
+        }
+
+        private static synchronized BeanLayout register(
+                final Field[] fields,
+                final Constructor<?> constructor,
+                final Field[] constructorFields
+        )
+        {
+            final BeanLayout layout = new BeanLayout( LAYOUTS.size(), fields, constructor, constructorFields );
+            LAYOUTS.add( layout );
+            return layout;
+        }
+
+        /**
+         * Field received by each constructor parameter, empty unless every field is received by exactly one parameter.
+         */
+        private static Optional<Field[]> matchParameters( final Constructor<?> constructor, final List<Field> fields )
+        {
+            final Parameter[] parameters = constructor.getParameters();
+            if ( parameters.length != fields.size() )
+            {
+                return Optional.empty();
+            }
+
+            final String[] parameterNames = parameterNames( constructor );
+            final Field[] constructorFields = new Field[parameters.length];
+            for ( int i = 0; i < parameters.length; i++ )
+            {
+                final Parameter parameter = parameters[i];
+                final List<Field> candidates = new ArrayList<>();
+                for ( final Field field : fields )
+                {
+                    if ( field.getType() == parameter.getType() && ( parameterNames == null || field.getName().equals( parameterNames[i] ) ) )
+                    {
+                        candidates.add( field );
+                    }
+                }
+                if ( candidates.size() != 1 || Arrays.asList( constructorFields ).contains( candidates.get( 0 ) ) )
+                {
+                    return Optional.empty();
+                }
+                constructorFields[i] = candidates.get( 0 );
+            }
+            return Optional.of( constructorFields );
+        }
+
+        /**
+         * Constructor parameter names from {@link ConstructorProperties}, which lombok adds to generated constructors,
+         * or from the class file if it was compiled with parameter names.  Null if neither is available, in which
+         * case parameters are matched to fields by type alone.
+         */
+        private static String[] parameterNames( final Constructor<?> constructor )
+        {
+            final ConstructorProperties constructorProperties = constructor.getAnnotation( ConstructorProperties.class );
+            if ( constructorProperties != null && constructorProperties.value().length == constructor.getParameterCount() )
+            {
+                return constructorProperties.value();
+            }
+
+            final Parameter[] parameters = constructor.getParameters();
+            if ( Arrays.stream( parameters ).allMatch( Parameter::isNamePresent ) )
+            {
+                return Arrays.stream( parameters ).map( Parameter::getName ).toArray( String[]::new );
+            }
+
+            return null;
+        }
+
+        private static Optional<Constructor<?>> findConstructor( final Class<?> type )
+        {
+            try
+            {
+                final Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible( true );
+                return Optional.of( constructor );
+            }
+            catch ( final NoSuchMethodException e )
+            {
+                return Optional.empty();
+            }
+        }
+
+        Object get( final Field field, final Object bean )
+                throws IOException
+        {
+            try
+            {
+                return field.get( bean );
+            }
+            catch ( final IllegalAccessException e )
+            {
+                throw new IOException( "unable to read field " + field.getName() + ": " + e.getMessage(), e );
+            }
+        }
+
+        Object newInstance( final Object[] values )
+        {
+            try
+            {
+                if ( fieldConstructor )
+                {
+                    final Object[] arguments = constructorDefaults.clone();
+                    for ( int i = 0; i < values.length; i++ )
+                    {
+                        arguments[constructorPositions[i]] = values[i];
+                    }
+                    return constructor.newInstance( arguments );
+                }
+
+                final Object bean = constructor.newInstance();
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    fields[i].set( bean, values[i] );
+                }
+                return bean;
+            }
+            catch ( final InstantiationException | IllegalAccessException | InvocationTargetException e )
+            {
+                throw new IllegalStateException( "unable to copy cached value of type "
+                        + constructor.getDeclaringClass().getName() + ": " + e.getMessage(), e );
+            }
+        }
+    }
+}
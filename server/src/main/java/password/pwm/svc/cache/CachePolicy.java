@@ -28,6 +28,7 @@ import java.time.Instant;
 public class CachePolicy implements Serializable
 {
     private Instant expiration;
+    private Instant refreshDate;
 
     CachePolicy( )
     {
@@ -38,6 +39,15 @@ public class CachePolicy implements Serializable
         return expiration;
     }
 
+    /**
+     * Time after which a cached value is reloaded in the background while the current value continues to be served,
+     * or null if the value is only loaded once it has expired.
+     */
+    public Instant getRefreshDate( )
+    {
+        return refreshDate;
+    }
+
     public static CachePolicy makePolicyWithExpirationMS( final long expirationMs )
     {
         final CachePolicy policy = new CachePolicy();
@@ -50,4 +60,19 @@ public class CachePolicy implements Serializable
         return makePolicyWithExpirationMS( timeDuration.asMillis() );
     }
 
+    /**
+     * Make a policy that reloads values read through a {@link CacheLoader} once they are within {@code refreshAhead}
+     * of their expiration.  The reload runs on a background thread, so the loader must not depend on the state
+     * of the request that created it.
+     */
+    public static CachePolicy makePolicyWithRefreshAhead( final TimeDuration timeDuration, final TimeDuration refreshAhead )
+    {
+        final CachePolicy policy = makePolicyWithExpiration( timeDuration );
+        if ( refreshAhead.isShorterThan( timeDuration ) )
+        {
+            policy.refreshDate = policy.expiration.minusMillis( refreshAhead.asMillis() );
+        }
+        return policy;
+    }
+
 }
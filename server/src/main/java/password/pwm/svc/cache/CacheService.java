@@ -72,7 +72,7 @@ public class CacheService extends AbstractPwmService implements PwmService
         }
 
         final int maxMemItems = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_MAX_ITEMS ) );
-        memoryCacheStore = new MemoryCacheStore( maxMemItems );
+        memoryCacheStore = new MemoryCacheStore( maxMemItems, this::scheduleJob );
         this.traceDebugOutputter = ConditionalTaskExecutor.forPeriodicTask(
                 this::outputTraceInfo,
                 TimeDuration.MINUTE.asDuration() );
@@ -171,8 +171,7 @@ public class CacheService extends AbstractPwmService implements PwmService
 
         traceDebugOutputter.conditionallyExecuteTask();
 
-        final Instant expirationDate = cachePolicy.getExpiration();
-        return memoryCacheStore.readAndStore( cacheKey, expirationDate, classOfT, cacheLoader );
+        return memoryCacheStore.readAndStore( cacheKey, cachePolicy, classOfT, cacheLoader );
     }
 
     private void outputTraceInfo( )
@@ -31,7 +31,7 @@ public interface CacheStore
 {
     void store( CacheKey cacheKey, Instant expirationDate, Serializable data ) throws PwmUnrecoverableException;
 
-    <T extends Serializable> T readAndStore( CacheKey cacheKey, Instant expirationDate, Class<T> classOfT, CacheLoader<T> cacheLoader )
+    <T extends Serializable> T readAndStore( CacheKey cacheKey, CachePolicy cachePolicy, Class<T> classOfT, CacheLoader<T> cacheLoader )
             throws PwmUnrecoverableException;
 
     <T extends Serializable> T read( CacheKey cacheKey, Class<T> classOfT ) throws PwmUnrecoverableException;
@@ -50,5 +50,7 @@ public interface CacheStore
         readCount,
         hitCount,
         missCount,
+        coalescedCount,
+        refreshCount,
     }
 }
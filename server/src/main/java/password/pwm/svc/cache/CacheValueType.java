@@ -20,6 +20,131 @@
 
 package password.pwm.svc.cache;
 
+import password.pwm.util.json.JsonFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Codec used to hold a value in the cache.  Cached values must not be shared with callers unless they are
+ * immutable, otherwise a caller modifying a returned value would modify the cached copy.
+ */
 public enum CacheValueType
 {
+    /**
+     * Immutable values are held and returned by reference.
+     */
+    Reference
+            {
+                @Override
+                Object encode( final Serializable value )
+                {
+                    return value;
+                }
+
+                @Override
+                <T extends Serializable> T decode( final Object payload, final Class<T> classOfT )
+                {
+                    return classOfT.isInstance( payload ) ? classOfT.cast( payload ) : null;
+                }
+
+                @Override
+                long payloadSize( final Object payload )
+                {
+                    return payload instanceof CharSequence ? ( ( CharSequence ) payload ).length() : 0;
+                }
+            },
+
+    /**
+     * Mutable values are held in a compact binary form, see {@link BinaryValueCodec}, and a new copy is decoded
+     * for each read.
+     */
+    Binary
+            {
+                @Override
+                Object encode( final Serializable value )
+                        throws IOException
+                {
+                    return BinaryValueCodec.encode( value );
+                }
+
+                @Override
+                <T extends Serializable> T decode( final Object payload, final Class<T> classOfT )
+                {
+                    final Object value = BinaryValueCodec.decode( ( BinaryValueCodec.EncodedValue ) payload );
+                    return classOfT.isInstance( value ) ? classOfT.cast( value ) : null;
+                }
+
+                @Override
+                long payloadSize( final Object payload )
+                {
+                    return ( ( BinaryValueCodec.EncodedValue ) payload ).size();
+                }
+            },
+
+    /**
+     * Fallback for values whose object graph can not be binary serialized.
+     */
+    Json
+            {
+                @Override
+                Object encode( final Serializable value )
+                {
+                    return JsonFactory.get().serialize( value );
+                }
+
+                @Override
+                <T extends Serializable> T decode( final Object payload, final Class<T> classOfT )
+                {
+                    return JsonFactory.get().deserialize( ( String ) payload, classOfT );
+                }
+
+                @Override
+                long payloadSize( final Object payload )
+                {
+                    return ( ( String ) payload ).length();
+                }
+            },;
+
+    private static final Set<Class<?>> IMMUTABLE_CLASSES = Set.of(
+            String.class,
+            Boolean.class,
+            Character.class,
+            Byte.class,
+            Short.class,
+            Integer.class,
+            Long.class,
+            Float.class,
+            Double.class,
+            BigInteger.class,
+            BigDecimal.class,
+            Instant.class,
+            UUID.class );
+
+    private static final ClassValue<CacheValueType> CLASS_TYPES = new ClassValue<>()
+    {
+        @Override
+        protected CacheValueType computeValue( final Class<?> type )
+        {
+            return IMMUTABLE_CLASSES.contains( type ) || Enum.class.isAssignableFrom( type )
+                    ? Reference
+                    : Binary;
+        }
+    };
+
+    abstract Object encode( Serializable value ) throws IOException;
+
+    abstract <T extends Serializable> T decode( Object payload, Class<T> classOfT );
+
+    abstract long payloadSize( Object payload );
+
+    static CacheValueType forClass( final Class<?> type )
+    {
+        return CLASS_TYPES.get( type );
+    }
 }
@@ -24,11 +24,13 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Value;
 import password.pwm.bean.UserIdentity;
+import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
-import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
@@ -37,15 +39,27 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 class MemoryCacheStore implements CacheStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( MemoryCacheStore.class );
     private final Cache<CacheKey, CacheValueWrapper> memoryStore;
     private final StatisticCounterBundle<DebugKey> cacheStoreInfo = new StatisticCounterBundle<>( DebugKey.class );
+    private final Map<CacheKey, CompletableFuture<CacheValueWrapper>> pendingLoads = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor;
 
     MemoryCacheStore( final int maxItems )
     {
+        this( maxItems, Runnable::run );
+    }
+
+    MemoryCacheStore( final int maxItems, final Executor refreshExecutor )
+    {
+        this.refreshExecutor = refreshExecutor;
         memoryStore = Caffeine.newBuilder()
                 .maximumSize( maxItems )
                 .build();
@@ -56,12 +70,11 @@ class MemoryCacheStore implements CacheStore
             throws PwmUnrecoverableException
     {
         cacheStoreInfo.increment( DebugKey.storeCount );
-        final String jsonData = JsonFactory.get().serialize( data );
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonData ) );
+        memoryStore.put( cacheKey, wrapValue( cacheKey, expirationDate, null, data ) );
     }
 
     @Override
-    public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final Instant expirationDate, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
+    public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final CachePolicy cachePolicy, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
             throws PwmUnrecoverableException
     {
         cacheStoreInfo.increment( DebugKey.readCount );
@@ -70,15 +83,165 @@ class MemoryCacheStore implements CacheStore
             final T extractedValue = extractValue( classOfT, valueWrapper, cacheKey );
             if ( extractedValue != null )
             {
+                if ( valueWrapper.isRefreshDue() )
+                {
+                    refreshAhead( cacheKey, cachePolicy, cacheLoader, valueWrapper );
+                }
                 return extractedValue;
             }
         }
 
-        final T data = cacheLoader.read();
-        final String jsonIfiedData = JsonFactory.get().serialize( data );
         cacheStoreInfo.increment( DebugKey.missCount );
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonIfiedData ) );
-        return data;
+
+        // only one loader runs per key, other readers of the same key wait for its result
+        final CompletableFuture<CacheValueWrapper> pendingLoad = new CompletableFuture<>();
+        final CompletableFuture<CacheValueWrapper> existingLoad = pendingLoads.putIfAbsent( cacheKey, pendingLoad );
+        if ( existingLoad != null )
+        {
+            cacheStoreInfo.increment( DebugKey.coalescedCount );
+            return awaitLoad( existingLoad, classOfT );
+        }
+
+        // another loader may have completed between the cache read and becoming the pending loader
+        final CacheValueWrapper valueWrapper = memoryStore.getIfPresent( cacheKey );
+        final T extractedValue = extractValue( classOfT, valueWrapper, cacheKey );
+        if ( extractedValue != null )
+        {
+            pendingLoads.remove( cacheKey, pendingLoad );
+            pendingLoad.complete( valueWrapper );
+            return extractedValue;
+        }
+
+        return load( cacheKey, cachePolicy, cacheLoader, pendingLoad );
+    }
+
+    private <T extends Serializable> T load(
+            final CacheKey cacheKey,
+            final CachePolicy cachePolicy,
+            final CacheLoader<T> cacheLoader,
+            final CompletableFuture<CacheValueWrapper> pendingLoad
+    )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            final T data = cacheLoader.read();
+            CacheValueWrapper valueWrapper = null;
+            if ( data == null )
+            {
+                memoryStore.invalidate( cacheKey );
+            }
+            else
+            {
+                valueWrapper = wrapValue( cacheKey, cachePolicy.getExpiration(), cachePolicy.getRefreshDate(), data );
+                memoryStore.put( cacheKey, valueWrapper );
+            }
+            pendingLoad.complete( valueWrapper );
+            return data;
+        }
+        catch ( final PwmUnrecoverableException | RuntimeException | Error e )
+        {
+            pendingLoad.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            pendingLoads.remove( cacheKey, pendingLoad );
+        }
+    }
+
+    private <T extends Serializable> void refreshAhead(
+            final CacheKey cacheKey,
+            final CachePolicy cachePolicy,
+            final CacheLoader<T> cacheLoader,
+            final CacheValueWrapper currentValue
+    )
+    {
+        final CompletableFuture<CacheValueWrapper> pendingLoad = new CompletableFuture<>();
+        if ( pendingLoads.putIfAbsent( cacheKey, pendingLoad ) != null )
+        {
+            return;
+        }
+
+        cacheStoreInfo.increment( DebugKey.refreshCount );
+        try
+        {
+            refreshExecutor.execute( () ->
+            {
+                try
+                {
+                    load( cacheKey, cachePolicy, cacheLoader, pendingLoad );
+                }
+                catch ( final PwmUnrecoverableException | RuntimeException e )
+                {
+                    // keep serving the current value until it expires rather than retrying on every read
+                    memoryStore.asMap().replace( cacheKey, currentValue, currentValue.withoutRefresh() );
+                    LOGGER.debug( () -> "error refreshing cache value " + cacheKey + ": " + e.getMessage() );
+                }
+            } );
+        }
+        catch ( final RuntimeException e )
+        {
+            pendingLoads.remove( cacheKey, pendingLoad );
+            pendingLoad.complete( currentValue );
+            LOGGER.trace( () -> "unable to schedule cache value refresh: " + e.getMessage() );
+        }
+    }
+
+    private static <T extends Serializable> T awaitLoad( final CompletableFuture<CacheValueWrapper> pendingLoad, final Class<T> classOfT )
+            throws PwmUnrecoverableException
+    {
+        final CacheValueWrapper valueWrapper;
+        try
+        {
+            valueWrapper = pendingLoad.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "interrupted while waiting for cache value to load" );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw ( Error ) cause;
+            }
+            throw new IllegalStateException( "unexpected error loading cache value: " + cause.getMessage(), cause );
+        }
+
+        return valueWrapper == null
+                ? null
+                : valueWrapper.getValueType().decode( valueWrapper.getPayload(), classOfT );
+    }
+
+    private static CacheValueWrapper wrapValue(
+            final CacheKey cacheKey,
+            final Instant expirationDate,
+            final Instant refreshDate,
+            final Serializable data
+    )
+    {
+        final CacheValueType valueType = CacheValueType.forClass( data.getClass() );
+        try
+        {
+            return new CacheValueWrapper( cacheKey, expirationDate, refreshDate, valueType, valueType.encode( data ) );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.trace( () -> "unable to binary encode cache value of type " + data.getClass().getName()
+                    + ", will store as json: " + e.getMessage() );
+            return new CacheValueWrapper( cacheKey, expirationDate, refreshDate, CacheValueType.Json, JsonFactory.get().serialize( data ) );
+        }
     }
 
     private <T extends Serializable> T extractValue( final Class<T> classOfT, final CacheValueWrapper valueWrapper, final CacheKey cacheKey )
@@ -89,9 +252,12 @@ class MemoryCacheStore implements CacheStore
             {
                 if ( valueWrapper.getExpirationDate().isAfter( Instant.now() ) )
                 {
-                    cacheStoreInfo.increment( DebugKey.hitCount );
-                    final String jsonValue  = valueWrapper.getPayload();
-                    return JsonFactory.get().deserialize( jsonValue, classOfT );
+                    final T value = valueWrapper.getValueType().decode( valueWrapper.getPayload(), classOfT );
+                    if ( value != null )
+                    {
+                        cacheStoreInfo.increment( DebugKey.hitCount );
+                    }
+                    return value;
                 }
             }
         }
@@ -137,7 +303,7 @@ class MemoryCacheStore implements CacheStore
             final CacheValueWrapper cacheValueWrapper = entry.getValue();
             final Instant storeDate = cacheValueWrapper.getExpirationDate();
             final String age = Duration.between( storeDate, Instant.now() ).toString();
-            final int chars = cacheValueWrapper.getPayload().length();
+            final int chars = ( int ) cacheValueWrapper.payloadSize();
             final String keyClass = cacheKey.getSrcClass() == null ? "null" : cacheKey.getSrcClass().getName();
             final String keyUserID = cacheKey.getUserIdentity() == null ? "null" : cacheKey.getUserIdentity().toDisplayString();
             final String keyValue = cacheKey.getValueID() == null ? "null" : cacheKey.getValueID();
@@ -161,9 +327,28 @@ class MemoryCacheStore implements CacheStore
         private final CacheKey cacheKey;
         private final Instant expirationDate;
 
-        // serialize to json even though stored in memory, this prevents object-reuse because we don't know
-        // if the object is immutable.  Thus an effective clone is made for each store/read.
-        private final String payload;
+        // null if the value is not reloaded before it expires
+        private final Instant refreshDate;
+
+        // mutable values are held encoded and decoded to a new copy on each read, this prevents object-reuse
+        // between callers.  Immutable values are held directly, see CacheValueType.
+        private final CacheValueType valueType;
+        private final Object payload;
+
+        boolean isRefreshDue()
+        {
+            return refreshDate != null && refreshDate.isBefore( Instant.now() );
+        }
+
+        CacheValueWrapper withoutRefresh()
+        {
+            return new CacheValueWrapper( cacheKey, expirationDate, null, valueType, payload );
+        }
+
+        long payloadSize()
+        {
+            return valueType.payloadSize( payload );
+        }
     }
 
     Map<String, Integer> storedClassHistogram( final String prefix )
@@ -192,7 +377,7 @@ class MemoryCacheStore implements CacheStore
             final String valueID = cacheKey.getValueID();
             byteCount += valueID == null ? 0 : cacheKey.getValueID().length();
             final CacheValueWrapper cacheValueWrapper = entry.getValue();
-            byteCount += cacheValueWrapper.payload.length();
+            byteCount += cacheValueWrapper.payloadSize();
         }
         return byteCount;
     }
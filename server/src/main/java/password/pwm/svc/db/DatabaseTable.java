@@ -30,4 +30,6 @@ public enum DatabaseTable
     OTP,
     PW_NOTIFY,
     CLUSTER_STATE,
+    TOKENS_EXPIRY,
+    INTRUDER_EXPIRY,
 }
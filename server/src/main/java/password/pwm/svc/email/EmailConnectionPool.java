@@ -21,60 +21,81 @@
 package password.pwm.svc.email;
 
 import jakarta.mail.Transport;
+import password.pwm.PwmApplication;
 import password.pwm.bean.SessionLabel;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
-import password.pwm.util.java.AtomicLoopIntIncrementer;
+import password.pwm.svc.stats.AvgStatistic;
+import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.MovingAverage;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Pool of SMTP connections.  Idle connections are checked out without locking, and new connections are opened by the
+ * requesting thread so a slow server only delays its own caller.  Up to {@link EmailServiceSettings#getConnectionMinIdle()}
+ * idle connections are opened ahead of demand in the background.
+ */
 public class EmailConnectionPool
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( EmailConnectionPool.class );
 
-    private final Set<EmailConnection> connections = Collections.newSetFromMap( new ConcurrentHashMap<>() );
-    private final Lock lock = new ReentrantLock();
+    private static final int MAX_FAILURE_PENALTY_SHIFT = 10;
+
+    private final Deque<EmailConnection> idleConnections = new ConcurrentLinkedDeque<>();
 
+    private final PwmApplication pwmApplication;
     private final EmailServiceSettings settings;
     private final SessionLabel sessionLabel;
     private final List<EmailServer> servers;
+    private final Executor warmupExecutor;
 
     private final AtomicInteger activeConnectionCounter = new AtomicInteger();
+    private final AtomicInteger pendingWarmupCounter = new AtomicInteger();
     private final AtomicBoolean closed = new AtomicBoolean( false );
-    private final AtomicLoopIntIncrementer serverIncrementer;
+
+    private final MovingAverage averageWaitTime = new MovingAverage( TimeDuration.MINUTE.asDuration() );
 
     public static EmailConnectionPool emptyConnectionPool()
     {
-        return new EmailConnectionPool( Collections.emptyList(), EmailServiceSettings.builder().build(), null );
+        return new EmailConnectionPool( null, Collections.emptyList(), EmailServiceSettings.builder().build(), null, Runnable::run );
     }
 
     public EmailConnectionPool(
+            final PwmApplication pwmApplication,
             final List<EmailServer> servers,
             final EmailServiceSettings settings,
-            final SessionLabel sessionLabel
+            final SessionLabel sessionLabel,
+            final Executor warmupExecutor
     )
     {
+        this.pwmApplication = pwmApplication;
         this.servers = List.copyOf( servers );
         this.settings = settings;
         this.sessionLabel = sessionLabel;
-        this.serverIncrementer = AtomicLoopIntIncrementer.builder().ceiling( servers.size() ).build();
+        this.warmupExecutor = warmupExecutor;
     }
 
     public int idleConnectionCount()
     {
-        return connections.size();
+        return idleConnections.size();
     }
 
     public int activeConnectionCount()
@@ -82,6 +103,11 @@ public class EmailConnectionPool
         return activeConnectionCounter.get();
     }
 
+    public TimeDuration averageWaitTime()
+    {
+        return TimeDuration.fromDuration( averageWaitTime.getAverageAsDuration() );
+    }
+
     public List<EmailServer> getServers()
     {
         return servers;
@@ -95,61 +121,103 @@ public class EmailConnectionPool
             throw new PwmUnrecoverableException( PwmError.ERROR_SERVICE_NOT_AVAILABLE, "email connection pool is closed" );
         }
 
-        lock.lock();
+        final Instant startTime = Instant.now();
         try
         {
-            while  ( !connections.isEmpty() )
+            EmailConnection idleConnection = idleConnections.pollFirst();
+            while ( idleConnection != null )
             {
-                final EmailConnection emailConnection = connections.iterator().next();
-                connections.remove( emailConnection );
-                if ( connectionStillValid( emailConnection ) )
+                if ( connectionStillValid( idleConnection ) )
                 {
                     activeConnectionCounter.incrementAndGet();
-                    return emailConnection;
+                    return idleConnection;
                 }
-                emailConnection.close();
+                idleConnection.close();
+                idleConnection = idleConnections.pollFirst();
             }
-            final Instant startTime = Instant.now();
-            final EmailConnection emailConnection = getSmtpTransport();
-            LOGGER.trace( sessionLabel, () -> "created new email connection #" + emailConnection.getId()
-                            + " to " + emailConnection.getEmailServer().getId(),
-                    TimeDuration.fromCurrent( startTime ) );
+
+            final EmailConnection emailConnection = openConnection();
             activeConnectionCounter.incrementAndGet();
             return emailConnection;
         }
         finally
         {
-            lock.unlock();
+            final TimeDuration waitTime = TimeDuration.fromCurrent( startTime );
+            averageWaitTime.update( waitTime.asMillis() );
+            updateStatistic( AvgStatistic.AVG_EMAIL_POOL_WAIT_TIME, waitTime );
+            prewarmConnections();
         }
     }
 
     public void returnEmailConnection( final EmailConnection emailConnection )
     {
-        lock.lock();
-        try
+        activeConnectionCounter.decrementAndGet();
+
+        if ( closed.get() || connectionExpired( emailConnection ) )
         {
-            if ( connections.add( emailConnection ) )
+            emailConnection.close();
+            prewarmConnections();
+            return;
+        }
+
+        idleConnections.offerFirst( emailConnection );
+    }
+
+    /**
+     * Open connections in the background until the configured minimum number of idle connections is available.
+     */
+    public void prewarmConnections()
+    {
+        final int missingConnections = settings.getConnectionMinIdle() - idleConnections.size() - pendingWarmupCounter.get();
+        for ( int i = 0; i < missingConnections && !closed.get(); i++ )
+        {
+            pendingWarmupCounter.incrementAndGet();
+            try
+            {
+                warmupExecutor.execute( this::prewarmConnection );
+            }
+            catch ( final RejectedExecutionException e )
             {
-                activeConnectionCounter.decrementAndGet();
+                pendingWarmupCounter.decrementAndGet();
+                return;
             }
-            else
+        }
+    }
+
+    private void prewarmConnection()
+    {
+        try
+        {
+            if ( !closed.get() && idleConnections.size() < settings.getConnectionMinIdle() )
             {
-                LOGGER.warn( sessionLabel, () -> "connection #" + emailConnection.getId() + "returned but was already in oool" );
+                final EmailConnection emailConnection = openConnection();
+                if ( closed.get() )
+                {
+                    emailConnection.close();
+                }
+                else
+                {
+                    idleConnections.offerLast( emailConnection );
+                }
             }
         }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.debug( sessionLabel, () -> "unable to pre-warm email connection: " + e.getMessage() );
+        }
         finally
         {
-            lock.unlock();
+            pendingWarmupCounter.decrementAndGet();
         }
     }
 
-    private boolean connectionStillValid( final EmailConnection emailConnection )
+    private boolean connectionExpired( final EmailConnection emailConnection )
     {
         if ( emailConnection.getSentItems() >= settings.getConnectionSendItemLimit() )
         {
             LOGGER.trace( sessionLabel, () -> "email connection #" + emailConnection.getId()
                     + " has sent " + emailConnection.getSentItems() + " and will be retired" );
-            return false;
+            return true;
         }
 
         final TimeDuration connectionAge = TimeDuration.fromCurrent( emailConnection.getStartTime() );
@@ -157,74 +225,129 @@ public class EmailConnectionPool
         {
             LOGGER.trace( sessionLabel, () -> "email connection #" + emailConnection.getId()
                     + " has lived " + connectionAge.asCompactString() + " and will be retired" );
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean connectionStillValid( final EmailConnection emailConnection )
+    {
+        if ( connectionExpired( emailConnection ) )
+        {
             return false;
         }
 
         if ( !emailConnection.getTransport().isConnected() )
         {
             LOGGER.trace( sessionLabel, () -> "email connection #" + emailConnection.getId()
-                    + " is no longer connected " + connectionAge.asCompactString() + " and will be retired" );
+                    + " is no longer connected and will be retired" );
             return false;
-
         }
 
         return true;
     }
 
-    private EmailConnection getSmtpTransport( )
+    private EmailConnection openConnection( )
             throws PwmUnrecoverableException
     {
-        final int serverCount = servers.size();
-
-        // the global server incrementer rotates the server list by 1 offset each attempt to get an smtp transport.
-        int nextSlot = serverIncrementer.next();
-
-        for ( int i = 0; i < serverCount; i++ )
+        for ( final EmailServer server : orderServersByHealth( servers, ThreadLocalRandom.current().nextDouble() ) )
         {
-            if ( nextSlot >= serverCount )
-            {
-                nextSlot -= serverCount;
-            }
-
-            final EmailServer server = servers.get( nextSlot );
+            final Instant startTime = Instant.now();
             try
             {
                 final Transport transport = EmailServerUtil.makeSmtpTransport( server, sessionLabel );
+                final EmailConnection emailConnection = new EmailConnection( server, transport );
+                final TimeDuration connectTime = TimeDuration.fromCurrent( startTime );
+                server.getAverageConnectTime().update( connectTime.asMillis() );
+                server.getConsecutiveConnectFailures().set( 0 );
                 server.getConnectionStats().increment( EmailServer.ServerStat.newConnections );
-                return new EmailConnection( server, transport );
+                updateStatistic( AvgStatistic.AVG_EMAIL_CONNECT_TIME, connectTime );
+                LOGGER.trace( sessionLabel, () -> "created new email connection #" + emailConnection.getId()
+                        + " to " + server.getId(), connectTime );
+                return emailConnection;
             }
             catch ( final Exception e )
             {
+                // slow failures count against the server the same as slow connections
+                server.getAverageConnectTime().update( TimeDuration.fromCurrent( startTime ).asMillis() );
+                server.getConsecutiveConnectFailures().incrementAndGet();
+
                 final String exceptionMsg = JavaHelper.readHostileExceptionMessage( e );
                 final String msg = "unable to connect to email server '" + server.toDebugString() + "', error: " + exceptionMsg;
                 final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_SERVICE_UNREACHABLE, msg );
                 server.getConnectionStats().increment( EmailServer.ServerStat.failedConnections );
                 LOGGER.warn( errorInformation::toDebugStr );
             }
-
-            nextSlot++;
         }
 
         throw PwmUnrecoverableException.newException( PwmError.ERROR_SERVICE_UNREACHABLE, "unable to reach any configured email server" );
     }
 
-
-    public void close()
+    /**
+     * Order servers for a connection attempt.  The first server is chosen at random weighted by {@link #serverWeight(EmailServer)},
+     * so load is spread across healthy servers, the remaining servers follow in order of weight.
+     */
+    static List<EmailServer> orderServersByHealth( final List<EmailServer> servers, final double randomValue )
     {
-        closed.set( true );
-        lock.lock();
-        try
+        if ( servers.size() < 2 )
         {
-            for ( final EmailConnection emailConnection : connections )
+            return servers;
+        }
+
+        final Map<EmailServer, Double> weights = new IdentityHashMap<>( servers.size() );
+        double totalWeight = 0;
+        for ( final EmailServer server : servers )
+        {
+            final double weight = serverWeight( server );
+            weights.put( server, weight );
+            totalWeight += weight;
+        }
+
+        final List<EmailServer> orderedServers = new ArrayList<>( servers );
+        orderedServers.sort( Comparator.<EmailServer>comparingDouble( weights::get ).reversed() );
+
+        double remainingWeight = randomValue * totalWeight;
+        for ( int i = 0; i < orderedServers.size(); i++ )
+        {
+            remainingWeight -= weights.get( orderedServers.get( i ) );
+            if ( remainingWeight < 0 )
             {
-                emailConnection.close();
+                orderedServers.add( 0, orderedServers.remove( i ) );
+                break;
             }
-            connections.clear();
         }
-        finally
+
+        return Collections.unmodifiableList( orderedServers );
+    }
+
+    /**
+     * Relative preference of a server, reduced by slow connection times and halved for each consecutive connection failure.
+     */
+    static double serverWeight( final EmailServer server )
+    {
+        final double connectSeconds = server.getAverageConnectTime().getAverage() / 1000;
+        final int failurePenaltyShift = Math.min( server.getConsecutiveConnectFailures().get(), MAX_FAILURE_PENALTY_SHIFT );
+        return 1 / ( ( 1 + connectSeconds ) * ( 1 << failurePenaltyShift ) );
+    }
+
+    private void updateStatistic( final AvgStatistic statistic, final TimeDuration value )
+    {
+        if ( pwmApplication != null )
         {
-            lock.unlock();
+            StatisticsClient.updateAverageValue( pwmApplication, statistic, value.asMillis() );
         }
+    }
 
+    public void close()
+    {
+        closed.set( true );
+
+        EmailConnection emailConnection = idleConnections.pollFirst();
+        while ( emailConnection != null )
+        {
+            emailConnection.close();
+            emailConnection = idleConnections.pollFirst();
+        }
     }
 }
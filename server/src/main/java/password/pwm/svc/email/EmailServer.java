@@ -34,6 +34,7 @@ import password.pwm.util.java.TimeDuration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Value
@@ -51,6 +52,8 @@ public class EmailServer
 
     private final StatisticCounterBundle<ServerStat> connectionStats = new StatisticCounterBundle<>( ServerStat.class );
     private final MovingAverage averageSendTime = new MovingAverage( TimeDuration.MINUTE.asDuration() );
+    private final MovingAverage averageConnectTime = new MovingAverage( TimeDuration.MINUTE.asDuration() );
+    private final AtomicInteger consecutiveConnectFailures = new AtomicInteger();
     private final AtomicReference<ErrorInformation> lastConnectError = new AtomicReference<>();
 
 
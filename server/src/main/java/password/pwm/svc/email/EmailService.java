@@ -127,13 +127,20 @@ public class EmailService extends AbstractPwmService implements PwmService
                 .retryDiscardAge( emailServiceSettings.getQueueDiscardAge() )
                 .retryInterval( emailServiceSettings.getQueueRetryTimeout() )
                 .preThreads( emailServiceSettings.getMaxThreads() )
+                .lanes( emailServiceSettings.getQueueLanes() )
+                .batchSize( emailServiceSettings.getQueueBatchSize() )
+                .batchWindow( emailServiceSettings.getQueueBatchWindow() )
                 .build();
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
                 this.getPwmApplication(), this.getPwmApplication().getLocalDB(), LocalDB.DB.EMAIL_QUEUE );
+        final LocalDBStoredQueue deadLetterQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
+                this.getPwmApplication(), this.getPwmApplication().getLocalDB(), LocalDB.DB.EMAIL_DEAD_LETTER );
 
-        workQueueProcessor = new WorkQueueProcessor<>( this.getPwmApplication(), this.getSessionLabel(), localDBStoredQueue, settings, new EmailItemProcessor(), this.getClass() );
+        workQueueProcessor = new WorkQueueProcessor<>( this.getPwmApplication(), this.getSessionLabel(), localDBStoredQueue, deadLetterQueue,
+                settings, new EmailItemProcessor(), this.getClass() );
 
-        connectionPool = new EmailConnectionPool( servers, emailServiceSettings, getSessionLabel() );
+        connectionPool = new EmailConnectionPool( getPwmApplication(), servers, emailServiceSettings, getSessionLabel(), this::scheduleJob );
+        connectionPool.prewarmConnections();
 
         statsLogger.conditionallyExecuteTask();
 
@@ -232,12 +239,18 @@ public class EmailService extends AbstractPwmService implements PwmService
                 : workQueueProcessor.eldestItem();
     }
 
-    private class EmailItemProcessor implements WorkQueueProcessor.ItemProcessor<EmailItemBean>
+    private class EmailItemProcessor implements WorkQueueProcessor.BatchItemProcessor<EmailItemBean>
     {
         @Override
         public WorkQueueProcessor.ProcessResult process( final EmailItemBean workItem )
         {
-            return sendItem( workItem );
+            return sendItems( Collections.singletonList( workItem ) ).get( 0 );
+        }
+
+        @Override
+        public List<WorkQueueProcessor.ProcessResult> processBatch( final List<EmailItemBean> workItems )
+        {
+            return sendItems( workItems );
         }
 
         @Override
@@ -245,6 +258,24 @@ public class EmailService extends AbstractPwmService implements PwmService
         {
             return emailItemBean.toDebugString();
         }
+
+        /**
+         * Lanes are keyed by recipient domain, so a domain that is temporarily refused does not delay other mail.
+         */
+        @Override
+        public String laneKey( final EmailItemBean emailItemBean )
+        {
+            final String to = emailItemBean.getTo();
+            if ( StringUtil.isEmpty( to ) )
+            {
+                return null;
+            }
+            final String firstAddress = to.split( "," )[0].trim();
+            final int atIndex = firstAddress.lastIndexOf( '@' );
+            return atIndex < 0
+                    ? firstAddress.toLowerCase()
+                    : firstAddress.substring( atIndex + 1 ).toLowerCase();
+        }
     }
 
     private void logStats()
@@ -265,6 +296,7 @@ public class EmailService extends AbstractPwmService implements PwmService
         {
             stats.put( "idleConnections", Integer.toString( connectionPool.idleConnectionCount() ) );
             stats.put( "activeConnections", Integer.toString( connectionPool.activeConnectionCount() ) );
+            stats.put( "averagePoolWaitTime", connectionPool.averageWaitTime().asCompactString() );
 
             for ( final EmailServer emailServer : connectionPool.getServers() )
             {
@@ -280,6 +312,11 @@ public class EmailService extends AbstractPwmService implements PwmService
                     stats.put( name, value.asCompactString() );
 
                 }
+                {
+                    final String name = "averageConnectTime[" + emailServer.getId() + "]";
+                    final TimeDuration value = TimeDuration.fromDuration( emailServer.getAverageConnectTime().getAverageAsDuration() );
+                    stats.put( name, value.asCompactString() );
+                }
             }
         }
         stats.put( "maxThreads", String.valueOf( emailServiceSettings.getMaxThreads() ) );
@@ -470,43 +507,84 @@ public class EmailService extends AbstractPwmService implements PwmService
         }
     }
 
-    private WorkQueueProcessor.ProcessResult sendItem( final EmailItemBean emailItemBean )
+    /**
+     * Send the items over a single pooled connection where possible.  Once an item is to be retried the remaining items
+     * are not attempted and are retried as well.
+     */
+    private List<WorkQueueProcessor.ProcessResult> sendItems( final List<EmailItemBean> emailItemBeans )
     {
+        final List<WorkQueueProcessor.ProcessResult> results = new ArrayList<>( emailItemBeans.size() );
+        EmailConnection emailConnection = null;
         try
         {
-            executeEmailSend( emailItemBean );
-            return WorkQueueProcessor.ProcessResult.SUCCESS;
-        }
-        catch ( final MessagingException | PwmException e )
-        {
-            if ( EmailServerUtil.examineSendFailure( e, emailServiceSettings.getRetryableStatusResponses(), getSessionLabel() ) )
+            for ( final EmailItemBean emailItemBean : emailItemBeans )
             {
-                LOGGER.error( getSessionLabel(), () -> "error sending email (" + e.getMessage() + ") "
-                        + emailItemBean.toDebugString() + ", will retry" );
-                StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_FAILURES );
-                return WorkQueueProcessor.ProcessResult.RETRY;
+                try
+                {
+                    if ( emailConnection != null && emailConnection.getSentItems() >= emailServiceSettings.getConnectionSendItemLimit() )
+                    {
+                        connectionPool.returnEmailConnection( emailConnection );
+                        emailConnection = null;
+                    }
+                    if ( emailConnection == null )
+                    {
+                        emailConnection = connectionPool.getConnection();
+                    }
+                    executeEmailSend( emailConnection, emailItemBean );
+                    results.add( WorkQueueProcessor.ProcessResult.SUCCESS );
+                }
+                catch ( final MessagingException | PwmException e )
+                {
+                    final WorkQueueProcessor.ProcessResult result = examineSendFailure( emailItemBean, e );
+                    results.add( result );
+                    if ( result == WorkQueueProcessor.ProcessResult.RETRY )
+                    {
+                        break;
+                    }
+                }
             }
-            else
+        }
+        finally
+        {
+            if ( emailConnection != null )
             {
-                LOGGER.error( getSessionLabel(), () -> "error sending email (" + e.getMessage() + ") "
-                        + emailItemBean.toDebugString() + ", permanent failure, discarding message" );
-                StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_DISCARDS );
-                return WorkQueueProcessor.ProcessResult.FAILED;
+                connectionPool.returnEmailConnection( emailConnection );
             }
         }
+
+        while ( results.size() < emailItemBeans.size() )
+        {
+            results.add( WorkQueueProcessor.ProcessResult.RETRY );
+        }
+        return results;
+    }
+
+    private WorkQueueProcessor.ProcessResult examineSendFailure( final EmailItemBean emailItemBean, final Exception e )
+    {
+        if ( EmailServerUtil.examineSendFailure( e, emailServiceSettings.getRetryableStatusResponses(), getSessionLabel() ) )
+        {
+            LOGGER.error( getSessionLabel(), () -> "error sending email (" + e.getMessage() + ") "
+                    + emailItemBean.toDebugString() + ", will retry" );
+            StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_FAILURES );
+            return WorkQueueProcessor.ProcessResult.RETRY;
+        }
+        else
+        {
+            LOGGER.error( getSessionLabel(), () -> "error sending email (" + e.getMessage() + ") "
+                    + emailItemBean.toDebugString() + ", permanent failure, discarding message" );
+            StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_DISCARDS );
+            return WorkQueueProcessor.ProcessResult.FAILED;
+        }
     }
 
 
-    private void executeEmailSend( final EmailItemBean emailItemBean )
+    private void executeEmailSend( final EmailConnection emailConnection, final EmailItemBean emailItemBean )
             throws PwmUnrecoverableException, MessagingException
     {
         final Instant startTime = Instant.now();
-        EmailConnection emailConnection = null;
 
         try
         {
-            emailConnection = connectionPool.getConnection();
-
             final List<Message> messages = EmailServerUtil.convertEmailItemToMessages(
                     emailItemBean,
                     this.getPwmApplication().getConfig(),
@@ -549,22 +627,11 @@ public class EmailService extends AbstractPwmService implements PwmService
                 );
             }
 
-            if ( emailConnection != null )
-            {
-                lastSendError.set( errorInformation );
-                emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
-
-            }
+            lastSendError.set( errorInformation );
+            emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
             LOGGER.error( errorInformation );
             throw e;
         }
-        finally
-        {
-            if ( emailConnection != null )
-            {
-                connectionPool.returnEmailConnection( emailConnection );
-            }
-        }
 
         statsLogger.conditionallyExecuteTask();
     }
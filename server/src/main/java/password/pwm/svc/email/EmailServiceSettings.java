@@ -43,8 +43,12 @@ public class EmailServiceSettings implements Serializable
     private final TimeDuration queueRetryTimeout;
     private final TimeDuration queueDiscardAge;
     private final int connectionSendItemLimit;
+    private final int connectionMinIdle;
     private final int maxThreads;
     private final int queueMaxItems;
+    private final int queueLanes;
+    private final int queueBatchSize;
+    private final TimeDuration queueBatchWindow;
     private final Set<Integer> retryableStatusResponses;
 
 
@@ -56,12 +60,19 @@ public class EmailServiceSettings implements Serializable
                         Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MAX_SECONDS_PER_CONNECTION ) ),
                         TimeDuration.Unit.SECONDS ) )
                 .connectionSendItemLimit( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MAX_ITEMS_PER_CONNECTION ) ) )
+                .connectionMinIdle( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MIN_IDLE_CONNECTIONS ) ) )
                 .queueRetryTimeout( TimeDuration.of(
                         Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_RETRY_TIMEOUT_MS ) ),
                         TimeDuration.Unit.MILLISECONDS )
                 )
                 .queueDiscardAge( TimeDuration.of( appConfig.readSettingAsLong( PwmSetting.EMAIL_MAX_QUEUE_AGE ), TimeDuration.Unit.SECONDS ) )
                 .queueMaxItems( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MAX_COUNT ) ) )
+                .queueLanes( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_LANES ) ) )
+                .queueBatchSize( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_BATCH_SIZE ) ) )
+                .queueBatchWindow( TimeDuration.of(
+                        Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_BATCH_WINDOW_MS ) ),
+                        TimeDuration.Unit.MILLISECONDS )
+                )
                 .retryableStatusResponses( readRetryableStatusCodes( appConfig ) )
                 .build();
     }
@@ -0,0 +1,90 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Criteria for reading records from an {@link AuditVault}.  Unset criteria match any record.
+ */
+@Value
+@Builder
+public class AuditQuery
+{
+    private final AuditEventType type;
+    private final AuditEvent eventCode;
+
+    /**
+     * Matches records where the user is either the perpetrator or the target.
+     */
+    private final String userDN;
+
+    private final Instant startTime;
+    private final Instant endTime;
+
+    public static AuditQuery all()
+    {
+        return AuditQuery.builder().build();
+    }
+
+    boolean matches( final AuditRecord record )
+    {
+        if ( record == null )
+        {
+            return false;
+        }
+
+        if ( type != null && type != record.getType() )
+        {
+            return false;
+        }
+
+        if ( eventCode != null && eventCode != record.getEventCode() )
+        {
+            return false;
+        }
+
+        if ( userDN != null && !matchesUserDN( record ) )
+        {
+            return false;
+        }
+
+        if ( startTime != null && ( record.getTimestamp() == null || record.getTimestamp().isBefore( startTime ) ) )
+        {
+            return false;
+        }
+
+        return endTime == null || ( record.getTimestamp() != null && !record.getTimestamp().isAfter( endTime ) );
+    }
+
+    private boolean matchesUserDN( final AuditRecord record )
+    {
+        if ( record instanceof HelpdeskAuditRecord && userDN.equalsIgnoreCase( ( ( HelpdeskAuditRecord ) record ).getTargetDN() ) )
+        {
+            return true;
+        }
+
+        return record instanceof UserAuditRecord && userDN.equalsIgnoreCase( ( ( UserAuditRecord ) record ).getPerpetratorDN() );
+    }
+}
@@ -150,6 +150,11 @@ public class AuditService extends AbstractPwmService implements PwmService
         return auditVault.readVault();
     }
 
+    public Iterator<AuditRecord> readVault( final AuditQuery auditQuery )
+    {
+        return auditVault.readVault( auditQuery );
+    }
+
     private void sendAsEmail( final AuditRecord record )
             throws PwmUnrecoverableException
     {
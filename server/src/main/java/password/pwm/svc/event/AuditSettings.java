@@ -42,6 +42,8 @@ class AuditSettings
     private Set<AuditEvent> permittedEvents;
     private TimeDuration maxRecordAge;
     private long maxRecords;
+    private int writeBufferSize;
+    private TimeDuration commitInterval;
 
 
     static AuditSettings fromConfig( final AppConfig appConfig )
@@ -53,6 +55,8 @@ class AuditSettings
                 .permittedEvents( figurePermittedEvents( appConfig ) )
                 .maxRecordAge( TimeDuration.of( appConfig.readSettingAsLong( PwmSetting.EVENTS_AUDIT_MAX_AGE ), TimeDuration.Unit.SECONDS ) )
                 .maxRecords( appConfig.readSettingAsLong( PwmSetting.EVENTS_AUDIT_MAX_EVENTS ) )
+                .writeBufferSize( Integer.parseInt( appConfig.readAppProperty( AppProperty.AUDIT_EVENTS_LOCALDB_WRITE_BUFFER_SIZE ) ) )
+                .commitInterval( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.AUDIT_EVENTS_LOCALDB_COMMIT_INTERVAL_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .build();
     }
 
@@ -42,6 +42,8 @@ public interface AuditVault
 
     Iterator<AuditRecord> readVault( );
 
+    Iterator<AuditRecord> readVault( AuditQuery auditQuery );
+
     String sizeToDebugString( );
 
     void add( AuditRecord record ) throws PwmOperationalException;
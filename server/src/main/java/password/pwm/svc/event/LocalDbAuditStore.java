@@ -0,0 +1,626 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import password.pwm.util.json.JsonFactory;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audit record storage with secondary indexes, kept in two {@link LocalDB} databases.
+ *
+ * <p>Records are stored in {@link LocalDB.DB#AUDIT_VAULT} keyed by an ascending sequence number, between a head
+ * (oldest) and next sequence number.  For each record a row is added to an index in {@link LocalDB.DB#AUDIT_VAULT_INDEX}
+ * for its event code and event type.  {@link LocalDB} has no range scan, so each index is stored as a dense run of
+ * slot rows {@code index|slot} between a floor and count row.  Records are only ever removed from the head, so the
+ * lowest slot of each index always refers to the oldest record.  Queries by time scan from the newest record and stop
+ * at the first record older than the start time.</p>
+ *
+ * <p>Records and index rows are written in separate transactions.  The index stores the sequence number it has been
+ * written up to along with its rows; records past it are indexed again when the store is opened.</p>
+ *
+ * <p>Records stored by a previous version are migrated into a sequence range reserved ahead of any new records.  They
+ * are indexed under a separate prefix so index slots stay in sequence order.  Index rows are hints, records read
+ * through an index are always checked against the query.</p>
+ */
+class LocalDbAuditStore
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDbAuditStore.class );
+
+    private static final LocalDB.DB RECORD_DB = LocalDB.DB.AUDIT_VAULT;
+    private static final LocalDB.DB INDEX_DB = LocalDB.DB.AUDIT_VAULT_INDEX;
+
+    private static final String KEY_HEAD = "_HEAD";
+    private static final String KEY_NEXT = "_NEXT";
+    private static final String KEY_MIGRATE_NEXT = "_MIGRATE_NEXT";
+    private static final String KEY_MIGRATE_END = "_MIGRATE_END";
+    private static final String KEY_INDEXED_PREFIX = "_INDEXED";
+
+    private static final char SEPARATOR = '|';
+    private static final String COUNT_SUFFIX = "n";
+    private static final String FLOOR_SUFFIX = "f";
+    private static final String MIGRATED_PREFIX = "m" + SEPARATOR;
+
+    private static final int MAX_OLDEST_RECORD_SCAN = 1000;
+
+    enum IndexType
+    {
+        event,
+        type,
+    }
+
+    private final LocalDB localDB;
+    private final Lock writeLock = new ReentrantLock();
+
+    private volatile long head;
+    private volatile long next;
+    private volatile long migrateNext;
+    private volatile long migrateEnd;
+
+    LocalDbAuditStore( final LocalDB localDB )
+            throws LocalDBException
+    {
+        this.localDB = localDB;
+        this.head = readLong( RECORD_DB, KEY_HEAD, 0 );
+        this.next = Math.max( head, readLong( RECORD_DB, KEY_NEXT, 0 ) );
+        this.migrateNext = readLong( RECORD_DB, KEY_MIGRATE_NEXT, -1 );
+        this.migrateEnd = readLong( RECORD_DB, KEY_MIGRATE_END, -1 );
+
+        if ( isMigrating() )
+        {
+            reindexRecords( head, migrateNext, MIGRATED_PREFIX, KEY_MIGRATE_NEXT );
+        }
+        reindexRecords( Math.max( head, migrateEnd ), next, "", KEY_NEXT );
+    }
+
+    long size()
+    {
+        return next - head;
+    }
+
+    boolean isMigrating()
+    {
+        return migrateNext >= 0;
+    }
+
+    /**
+     * Number of records of a previous version still to be stored in the reserved range.  It is written in the same
+     * transaction as each migrated batch, so it also records how far the previous version's records have been read.
+     */
+    long remainingMigration()
+    {
+        return isMigrating() ? migrateEnd - migrateNext : 0;
+    }
+
+    /**
+     * Reserve a sequence range ahead of any new records for records stored by a previous version.
+     *
+     * @return false if records have already been stored, so the range can not be reserved
+     */
+    boolean beginMigration( final long recordCount )
+            throws LocalDBException
+    {
+        writeLock.lock();
+        try
+        {
+            if ( isMigrating() )
+            {
+                return true;
+            }
+
+            if ( size() > 0 )
+            {
+                return false;
+            }
+
+            final Map<String, String> metaRows = new HashMap<>();
+            metaRows.put( KEY_MIGRATE_NEXT, Long.toString( head ) );
+            metaRows.put( KEY_MIGRATE_END, Long.toString( head + recordCount ) );
+            metaRows.put( KEY_NEXT, Long.toString( head + recordCount ) );
+            localDB.putAll( RECORD_DB, metaRows );
+            migrateNext = head;
+            migrateEnd = head + recordCount;
+            next = migrateEnd;
+            return true;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Store records of a previous version into the reserved range, oldest first.
+     *
+     * @return number of records stored, less than supplied once the reserved range is full
+     */
+    int appendMigrated( final List<String> serializedRecords )
+            throws LocalDBException
+    {
+        writeLock.lock();
+        try
+        {
+            if ( !isMigrating() )
+            {
+                return 0;
+            }
+
+            final int count = ( int ) Math.min( serializedRecords.size(), migrateEnd - migrateNext );
+            final long nextMigrateSeq = writeRecords( serializedRecords.subList( 0, count ), migrateNext, MIGRATED_PREFIX, KEY_MIGRATE_NEXT );
+            migrateNext = nextMigrateSeq;
+            return count;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    void endMigration()
+            throws LocalDBException
+    {
+        writeLock.lock();
+        try
+        {
+            // the end of the migrated range is kept until those records are trimmed, as it selects their index prefix
+            localDB.remove( RECORD_DB, KEY_MIGRATE_NEXT );
+            localDB.remove( INDEX_DB, KEY_INDEXED_PREFIX + KEY_MIGRATE_NEXT );
+            migrateNext = -1;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    void append( final List<AuditRecord> records )
+            throws LocalDBException
+    {
+        if ( records.isEmpty() )
+        {
+            return;
+        }
+
+        final List<String> serializedRecords = new ArrayList<>( records.size() );
+        for ( final AuditRecord record : records )
+        {
+            serializedRecords.add( JsonFactory.get().serialize( record ) );
+        }
+
+        writeLock.lock();
+        try
+        {
+            next = writeRecords( serializedRecords, next, "", KEY_NEXT );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write records and their index rows, each in a single transaction.  If the index rows are not written, they are
+     * written when the store is next opened.
+     *
+     * @return sequence number following the last record written
+     */
+    private long writeRecords( final List<String> serializedRecords, final long startSeq, final String indexPrefix, final String seqMetaKey )
+            throws LocalDBException
+    {
+        final Map<String, String> recordRows = new HashMap<>( serializedRecords.size() + 1 );
+        final Map<String, List<Long>> indexEntries = new LinkedHashMap<>();
+        long seq = startSeq;
+        for ( final String serializedRecord : serializedRecords )
+        {
+            final long recordSeq = seq;
+            recordRows.put( Long.toString( recordSeq ), serializedRecord );
+            deserialize( serializedRecord ).ifPresent( record -> addIndexEntries( indexEntries, record, indexPrefix, recordSeq ) );
+            seq++;
+        }
+        recordRows.put( seqMetaKey, Long.toString( seq ) );
+        localDB.putAll( RECORD_DB, recordRows );
+
+        writeIndexRows( indexEntries, seqMetaKey, seq );
+        return seq;
+    }
+
+    /**
+     * Index the records following the sequence number the index was last written up to, or all records of the range
+     * if the index has not been written yet.
+     */
+    private void reindexRecords( final long startSeq, final long endSeq, final String indexPrefix, final String seqMetaKey )
+            throws LocalDBException
+    {
+        final long firstSeq = Math.max( startSeq, readLong( INDEX_DB, KEY_INDEXED_PREFIX + seqMetaKey, startSeq ) );
+        if ( firstSeq >= endSeq )
+        {
+            return;
+        }
+
+        final Map<String, List<Long>> indexEntries = new LinkedHashMap<>();
+        for ( long seq = firstSeq; seq < endSeq; seq++ )
+        {
+            final long recordSeq = seq;
+            readRecord( seq ).ifPresent( record -> addIndexEntries( indexEntries, record, indexPrefix, recordSeq ) );
+        }
+        writeIndexRows( indexEntries, seqMetaKey, endSeq );
+        LOGGER.debug( () -> "indexed " + ( endSeq - firstSeq ) + " audit records missing from the index" );
+    }
+
+    private static void addIndexEntries( final Map<String, List<Long>> indexEntries, final AuditRecord record, final String indexPrefix, final long seq )
+    {
+        for ( final String indexKey : indexKeys( record, indexPrefix ) )
+        {
+            indexEntries.computeIfAbsent( indexKey, k -> new ArrayList<>() ).add( seq );
+        }
+    }
+
+    private void writeIndexRows( final Map<String, List<Long>> indexEntries, final String seqMetaKey, final long indexedSeq )
+            throws LocalDBException
+    {
+        final Map<String, String> indexRows = new HashMap<>();
+        for ( final Map.Entry<String, List<Long>> entry : indexEntries.entrySet() )
+        {
+            final String indexKey = entry.getKey();
+            long slot = readLong( INDEX_DB, metaKey( indexKey, COUNT_SUFFIX ), 0 );
+            for ( final Long recordSeq : entry.getValue() )
+            {
+                indexRows.put( slotKey( indexKey, slot ), Long.toString( recordSeq ) );
+                slot++;
+            }
+            indexRows.put( metaKey( indexKey, COUNT_SUFFIX ), Long.toString( slot ) );
+        }
+        indexRows.put( KEY_INDEXED_PREFIX + seqMetaKey, Long.toString( indexedSeq ) );
+        localDB.putAll( INDEX_DB, indexRows );
+    }
+
+    /**
+     * Remove records from the head while there are more than the maximum number of records or they are older than
+     * the cutoff.  Records in a range still being migrated are not removed.
+     *
+     * @return number of records removed
+     */
+    int trim( final int maxRemovals, final long maxRecords, final Instant cutoff )
+            throws LocalDBException
+    {
+        writeLock.lock();
+        try
+        {
+            final long trimLimit = isMigrating() ? Math.min( next, migrateNext ) : next;
+            final List<String> recordKeys = new ArrayList<>();
+            final Map<String, Integer> indexRemovals = new HashMap<>();
+            long seq = head;
+            while ( seq < trimLimit && recordKeys.size() < maxRemovals )
+            {
+                final Optional<String> serializedRecord = localDB.get( RECORD_DB, Long.toString( seq ) );
+                final Optional<AuditRecord> record = serializedRecord.flatMap( LocalDbAuditStore::deserialize );
+                final boolean overCapacity = next - seq > maxRecords;
+                final boolean expired = record.isEmpty()
+                        || record.get().getTimestamp() == null
+                        || record.get().getTimestamp().isBefore( cutoff );
+                if ( !overCapacity && !expired )
+                {
+                    break;
+                }
+
+                if ( record.isPresent() )
+                {
+                    final String indexPrefix = isMigratedSeq( seq ) ? MIGRATED_PREFIX : "";
+                    for ( final String indexKey : indexKeys( record.get(), indexPrefix ) )
+                    {
+                        indexRemovals.merge( indexKey, 1, Integer::sum );
+                    }
+                }
+                recordKeys.add( Long.toString( seq ) );
+                seq++;
+            }
+
+            if ( recordKeys.isEmpty() )
+            {
+                return 0;
+            }
+
+            localDB.removeAll( RECORD_DB, recordKeys );
+            localDB.put( RECORD_DB, KEY_HEAD, Long.toString( seq ) );
+            head = seq;
+
+            if ( !isMigrating() && migrateEnd >= 0 && head >= migrateEnd )
+            {
+                localDB.remove( RECORD_DB, KEY_MIGRATE_END );
+                migrateEnd = -1;
+            }
+
+            for ( final Map.Entry<String, Integer> entry : indexRemovals.entrySet() )
+            {
+                removeIndexSlots( entry.getKey(), entry.getValue() );
+            }
+
+            return recordKeys.size();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isMigratedSeq( final long seq )
+    {
+        return seq < migrateEnd;
+    }
+
+    private void removeIndexSlots( final String indexKey, final int removals )
+            throws LocalDBException
+    {
+        final long floor = readLong( INDEX_DB, metaKey( indexKey, FLOOR_SUFFIX ), 0 );
+        final long count = readLong( INDEX_DB, metaKey( indexKey, COUNT_SUFFIX ), 0 );
+        final long newFloor = Math.min( floor + removals, count );
+
+        final List<String> removalKeys = new ArrayList<>();
+        for ( long slot = floor; slot < newFloor; slot++ )
+        {
+            removalKeys.add( slotKey( indexKey, slot ) );
+        }
+
+        if ( newFloor >= count )
+        {
+            removalKeys.add( metaKey( indexKey, FLOOR_SUFFIX ) );
+            removalKeys.add( metaKey( indexKey, COUNT_SUFFIX ) );
+            localDB.removeAll( INDEX_DB, removalKeys );
+        }
+        else
+        {
+            localDB.removeAll( INDEX_DB, removalKeys );
+            localDB.put( INDEX_DB, metaKey( indexKey, FLOOR_SUFFIX ), Long.toString( newFloor ) );
+        }
+    }
+
+    Optional<Instant> oldestTimestamp()
+            throws LocalDBException
+    {
+        final long limit = Math.min( next, head + MAX_OLDEST_RECORD_SCAN );
+        for ( long seq = head; seq < limit; seq++ )
+        {
+            final Optional<AuditRecord> record = readRecord( seq );
+            if ( record.isPresent() && record.get().getTimestamp() != null )
+            {
+                return Optional.of( record.get().getTimestamp() );
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Read records matching the query, newest first.  The most selective available index is used; without any criteria
+     * all records are read.
+     */
+    Iterator<AuditRecord> read( final AuditQuery query )
+    {
+        return new QueryIterator( query, queryIndexKeys( query ) );
+    }
+
+    private List<String> queryIndexKeys( final AuditQuery query )
+    {
+        final List<String> indexKeys = new ArrayList<>();
+        if ( query.getEventCode() != null )
+        {
+            indexKeys.add( indexKey( IndexType.event, query.getEventCode().name() ) );
+        }
+        else if ( query.getType() != null )
+        {
+            indexKeys.add( indexKey( IndexType.type, query.getType().name() ) );
+        }
+        else
+        {
+            return null;
+        }
+
+        // migrated records are all older than the records in the current index
+        final List<String> allIndexKeys = new ArrayList<>( indexKeys );
+        for ( final String indexKey : indexKeys )
+        {
+            allIndexKeys.add( MIGRATED_PREFIX + indexKey );
+        }
+        return Collections.unmodifiableList( allIndexKeys );
+    }
+
+    static Set<String> indexKeys( final AuditRecord record, final String indexPrefix )
+    {
+        final Set<String> indexKeys = new LinkedHashSet<>();
+        if ( record.getEventCode() != null )
+        {
+            indexKeys.add( indexPrefix + indexKey( IndexType.event, record.getEventCode().name() ) );
+        }
+        if ( record.getType() != null )
+        {
+            indexKeys.add( indexPrefix + indexKey( IndexType.type, record.getType().name() ) );
+        }
+        return Collections.unmodifiableSet( indexKeys );
+    }
+
+    private static String indexKey( final IndexType indexType, final String value )
+    {
+        return indexType.name() + SEPARATOR + value;
+    }
+
+    private static String slotKey( final String indexKey, final long slot )
+    {
+        return indexKey + SEPARATOR + slot;
+    }
+
+    private static String metaKey( final String indexKey, final String suffix )
+    {
+        return indexKey + SEPARATOR + suffix;
+    }
+
+    private Optional<AuditRecord> readRecord( final long seq )
+            throws LocalDBException
+    {
+        return localDB.get( RECORD_DB, Long.toString( seq ) ).flatMap( LocalDbAuditStore::deserialize );
+    }
+
+    private static Optional<AuditRecord> deserialize( final String input )
+    {
+        try
+        {
+            return Optional.ofNullable( JsonFactory.get().deserialize( input, AuditRecordData.class ) );
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( () -> "unable to deserialize stored record '" + input + "', error: " + e.getMessage() );
+        }
+        return Optional.empty();
+    }
+
+    private long readLong( final LocalDB.DB db, final String key, final long defaultValue )
+            throws LocalDBException
+    {
+        final Optional<String> value = localDB.get( db, key );
+        return value.isPresent() ? Long.parseLong( value.get() ) : defaultValue;
+    }
+
+    private class QueryIterator implements Iterator<AuditRecord>
+    {
+        private final AuditQuery query;
+        private final Iterator<String> indexKeys;
+
+        private long scanSeq = next - 1;
+        private long slot = -1;
+        private long floor;
+        private String indexKey;
+
+        private AuditRecord nextRecord;
+        private boolean finished;
+
+        QueryIterator( final AuditQuery query, final List<String> indexKeys )
+        {
+            this.query = query;
+            this.indexKeys = indexKeys == null ? null : indexKeys.iterator();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( nextRecord == null && !finished )
+            {
+                try
+                {
+                    nextRecord = readNextRecord();
+                }
+                catch ( final LocalDBException e )
+                {
+                    throw new IllegalStateException( "unexpected localDB error while reading audit records: " + e.getMessage(), e );
+                }
+            }
+            return nextRecord != null;
+        }
+
+        @Override
+        public AuditRecord next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            final AuditRecord record = nextRecord;
+            nextRecord = null;
+            return record;
+        }
+
+        private AuditRecord readNextRecord()
+                throws LocalDBException
+        {
+            while ( true )
+            {
+                final OptionalLong seq = nextSeq();
+                if ( seq.isEmpty() )
+                {
+                    finished = true;
+                    return null;
+                }
+
+                final Optional<AuditRecord> record = readRecord( seq.getAsLong() );
+                if ( record.isPresent() )
+                {
+                    // records are stored in time order, so everything that follows is older still
+                    if ( query.getStartTime() != null
+                            && record.get().getTimestamp() != null
+                            && record.get().getTimestamp().isBefore( query.getStartTime() ) )
+                    {
+                        finished = true;
+                        return null;
+                    }
+
+                    if ( query.matches( record.get() ) )
+                    {
+                        return record.get();
+                    }
+                }
+            }
+        }
+
+        private OptionalLong nextSeq()
+                throws LocalDBException
+        {
+            if ( indexKeys == null )
+            {
+                return scanSeq >= head ? OptionalLong.of( scanSeq-- ) : OptionalLong.empty();
+            }
+
+            while ( true )
+            {
+                while ( indexKey == null || slot < floor )
+                {
+                    if ( !indexKeys.hasNext() )
+                    {
+                        return OptionalLong.empty();
+                    }
+                    indexKey = indexKeys.next();
+                    slot = readLong( INDEX_DB, metaKey( indexKey, COUNT_SUFFIX ), 0 ) - 1;
+                    floor = readLong( INDEX_DB, metaKey( indexKey, FLOOR_SUFFIX ), 0 );
+                }
+
+                final Optional<String> seqValue = localDB.get( INDEX_DB, slotKey( indexKey, slot ) );
+                slot--;
+                if ( seqValue.isPresent() )
+                {
+                    return OptionalLong.of( Long.parseLong( seqValue.get() ) );
+                }
+            }
+        }
+    }
+}
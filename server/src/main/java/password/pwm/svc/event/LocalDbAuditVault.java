@@ -35,18 +35,37 @@ import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audit vault backed by a {@link LocalDbAuditStore}.  Added records are buffered in memory and written to the
+ * store together after the configured commit interval, or immediately by the caller if the buffer is full.  Reads
+ * flush the buffer first so they always include previously added records.
+ */
 public class LocalDbAuditVault implements AuditVault
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDbAuditVault.class );
 
-    private LocalDBStoredQueue auditDB;
+    private PwmApplication pwmApplication;
+    private LocalDbAuditStore auditStore;
+    private LocalDBStoredQueue legacyAuditDB;
     private AuditSettings settings;
-    private Instant oldestRecord;
+
+    private BlockingQueue<AuditRecord> writeBuffer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean( false );
+    private final Lock flushLock = new ReentrantLock();
 
     private ScheduledExecutorService executorService;
+    private ScheduledExecutorService writerExecutorService;
     private volatile PwmService.STATUS status = PwmService.STATUS.CLOSED;
 
 
@@ -65,14 +84,35 @@ public class LocalDbAuditVault implements AuditVault
     )
             throws PwmException
     {
+        this.pwmApplication = pwmApplication;
         this.settings = settings;
-        this.auditDB = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LocalDB.DB.AUDIT_EVENTS );
-
-        readOldestRecord();
+        this.auditStore = new LocalDbAuditStore( localDB );
+        this.legacyAuditDB = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LocalDB.DB.AUDIT_EVENTS );
+        this.writeBuffer = new ArrayBlockingQueue<>( Math.max( 1, settings.getWriteBufferSize() ) );
 
         executorService = PwmScheduler.makeBackgroundServiceExecutor( pwmApplication, sessionLabel, this.getClass() );
+        writerExecutorService = PwmScheduler.makeBackgroundServiceExecutor( pwmApplication, sessionLabel, this.getClass(), "writer" );
 
         status = PwmService.STATUS.OPEN;
+
+        if ( !legacyAuditDB.isEmpty() )
+        {
+            if ( auditStore.beginMigration( legacyAuditDB.size() ) )
+            {
+                executorService.execute( new MigrationThread() );
+            }
+            else
+            {
+                LOGGER.warn( sessionLabel, () -> "discarding " + legacyAuditDB.size() + " audit records of previous format, audit vault already contains records" );
+                legacyAuditDB.clear();
+            }
+        }
+        else if ( auditStore.isMigrating() )
+        {
+            // previous records were all migrated, but the migration was not ended before shutdown
+            auditStore.endMigration();
+        }
+
         final TimeDuration jobFrequency = TimeDuration.of( 10, TimeDuration.Unit.MINUTES );
         pwmApplication.getPwmScheduler().scheduleFixedRateJob( new TrimmerThread(), executorService, TimeDuration.SECONDS_10, jobFrequency );
     }
@@ -80,8 +120,10 @@ public class LocalDbAuditVault implements AuditVault
     @Override
     public void close( )
     {
-        executorService.shutdown();
         status = PwmService.STATUS.CLOSED;
+        flush();
+        executorService.shutdown();
+        writerExecutorService.shutdown();
     }
 
     public PwmService.STATUS getStatus( )
@@ -92,48 +134,45 @@ public class LocalDbAuditVault implements AuditVault
     @Override
     public Instant oldestRecord( )
     {
-        return oldestRecord;
+        try
+        {
+            final Optional<Instant> oldestTimestamp = auditStore.oldestTimestamp();
+            if ( oldestTimestamp.isPresent() )
+            {
+                return oldestTimestamp.get();
+            }
+        }
+        catch ( final LocalDBException e )
+        {
+            LOGGER.error( () -> "error reading oldest audit record: " + e.getMessage() );
+        }
+
+        if ( auditStore.isMigrating() && !legacyAuditDB.isEmpty() )
+        {
+            final AuditRecord firstRecord = deSerializeRecord( legacyAuditDB.getFirst() );
+            return firstRecord == null ? null : firstRecord.getTimestamp();
+        }
+
+        return null;
     }
 
     @Override
     public int size( )
     {
-        return auditDB.size();
+        return ( int ) Math.min( Integer.MAX_VALUE, auditStore.size() + writeBuffer.size() );
     }
 
     @Override
     public Iterator<AuditRecord> readVault( )
     {
-        return new IteratorWrapper( auditDB.descendingIterator() );
+        return readVault( AuditQuery.all() );
     }
 
-    private static class IteratorWrapper implements Iterator<AuditRecord>
+    @Override
+    public Iterator<AuditRecord> readVault( final AuditQuery auditQuery )
     {
-        private final Iterator<String> innerIter;
-
-        private IteratorWrapper( final Iterator<String> innerIter )
-        {
-            this.innerIter = innerIter;
-        }
-
-        @Override
-        public boolean hasNext( )
-        {
-            return innerIter.hasNext();
-        }
-
-        @Override
-        public AuditRecord next( )
-        {
-            final String value = innerIter.next();
-            return deSerializeRecord( value );
-        }
-
-        @Override
-        public void remove( )
-        {
-            throw new UnsupportedOperationException();
-        }
+        flush();
+        return auditStore.read( auditQuery );
     }
 
     @Override
@@ -169,29 +208,113 @@ public class LocalDbAuditVault implements AuditVault
             return;
         }
 
-        final String jsonRecord = JsonFactory.get().serialize( record );
-        auditDB.addLast( jsonRecord );
+        while ( !writeBuffer.offer( record ) )
+        {
+            flush();
+        }
 
-        if ( auditDB.size() > settings.getMaxRecords() )
+        if ( status == PwmService.STATUS.OPEN && flushScheduled.compareAndSet( false, true ) )
         {
-            removeRecords( 1 );
+            pwmApplication.getPwmScheduler().scheduleJob( this::scheduledFlush, writerExecutorService, settings.getCommitInterval() );
         }
     }
 
-    private void readOldestRecord( )
+    private void scheduledFlush()
+    {
+        flushScheduled.set( false );
+        flush();
+    }
+
+    private void flush()
     {
-        if ( auditDB != null && !auditDB.isEmpty() )
+        if ( writeBuffer == null || writeBuffer.isEmpty() )
+        {
+            return;
+        }
+
+        flushLock.lock();
+        try
+        {
+            final List<AuditRecord> records = new ArrayList<>( writeBuffer.size() );
+            writeBuffer.drainTo( records );
+            auditStore.append( records );
+        }
+        catch ( final LocalDBException e )
+        {
+            LOGGER.error( () -> "error writing audit records to localDB: " + e.getMessage() );
+        }
+        finally
         {
-            final String stringFirstRecord = auditDB.getFirst();
-            final AuditRecordData firstRecord = JsonFactory.get().deserialize( stringFirstRecord, AuditRecordData.class );
-            oldestRecord = firstRecord.getTimestamp();
+            flushLock.unlock();
         }
     }
 
-    private void removeRecords( final int count )
+    private class MigrationThread implements Runnable
     {
-        auditDB.removeFirst( count );
-        readOldestRecord();
+        final TransactionSizeCalculator transactionSizeCalculator = new TransactionSizeCalculator(
+                TransactionSizeCalculator.Settings.builder()
+                        .durationGoal( TimeDuration.of( 101, TimeDuration.Unit.MILLISECONDS ) )
+                        .maxTransactions( 5003 )
+                        .minTransactions( 3 )
+                        .build()
+        );
+
+        @Override
+        public void run( )
+        {
+            final Instant startTime = Instant.now();
+            final int initialSize = legacyAuditDB.size();
+            try
+            {
+                while ( status == PwmService.STATUS.OPEN && !legacyAuditDB.isEmpty() )
+                {
+                    final Instant batchStartTime = Instant.now();
+                    if ( !migrateBatch( transactionSizeCalculator.getTransactionSize() ) )
+                    {
+                        break;
+                    }
+                    transactionSizeCalculator.recordLastTransactionDuration( TimeDuration.fromCurrent( batchStartTime ) );
+                    transactionSizeCalculator.pause();
+                }
+
+                if ( status == PwmService.STATUS.OPEN )
+                {
+                    auditStore.endMigration();
+                    legacyAuditDB.clear();
+                    LOGGER.info( () -> "migrated " + initialSize + " audit records of previous format", TimeDuration.fromCurrent( startTime ) );
+                }
+            }
+            catch ( final LocalDBException e )
+            {
+                LOGGER.error( () -> "error migrating audit records of previous format: " + e.getMessage() );
+            }
+        }
+
+        private boolean migrateBatch( final int batchSize )
+                throws LocalDBException
+        {
+            // records stored before the previous records were removed, such as before a restart, are skipped
+            final long alreadyMigrated = legacyAuditDB.size() - auditStore.remainingMigration();
+            if ( alreadyMigrated > 0 )
+            {
+                legacyAuditDB.removeFirst( ( int ) alreadyMigrated );
+            }
+
+            if ( auditStore.remainingMigration() <= 0 )
+            {
+                return false;
+            }
+
+            final List<String> batch = new ArrayList<>( batchSize );
+            for ( final Iterator<String> iterator = legacyAuditDB.iterator(); iterator.hasNext() && batch.size() < batchSize; )
+            {
+                batch.add( iterator.next() );
+            }
+
+            final int stored = auditStore.appendMigrated( batch );
+            legacyAuditDB.removeFirst( batch.size() );
+            return stored == batch.size();
+        }
     }
 
     private class TrimmerThread implements Runnable
@@ -222,36 +345,16 @@ public class LocalDbAuditVault implements AuditVault
 
         private boolean trim( final int maxRemovals )
         {
-            if ( auditDB.isEmpty() )
-            {
-                return false;
-            }
-
-            if ( auditDB.size() > settings.getMaxRecords() + maxRemovals )
+            try
             {
-                removeRecords( maxRemovals );
-                return true;
+                final Instant cutoff = Instant.now().minus( settings.getMaxRecordAge().asDuration() );
+                return auditStore.trim( maxRemovals, settings.getMaxRecords(), cutoff ) > 0;
             }
-
-            int workActions = 0;
-            while ( oldestRecord != null
-                    && workActions < maxRemovals
-                    && !auditDB.isEmpty()
-                    && status == PwmService.STATUS.OPEN
-                    )
+            catch ( final LocalDBException e )
             {
-                if ( TimeDuration.fromCurrent( oldestRecord ).isLongerThan( settings.getMaxRecordAge() ) )
-                {
-                    removeRecords( 1 );
-                    workActions++;
-                }
-                else
-                {
-                    break;
-                }
+                LOGGER.error( () -> "error trimming audit records: " + e.getMessage() );
             }
-
-            return workActions > 0;
+            return false;
         }
     }
 }
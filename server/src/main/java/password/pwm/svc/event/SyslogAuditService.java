@@ -115,12 +115,18 @@ public class SyslogAuditService
                 .maxEvents( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_MAX_COUNT ) ) )
                 .retryDiscardAge( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_MAX_AGE_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .retryInterval( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_RETRY_TIMEOUT_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
+                .lanes( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_LANES ) ) )
+                .batchSize( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_BATCH_SIZE ) ) )
+                .batchWindow( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_BATCH_WINDOW_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .build();
 
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
                 pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SYSLOG_QUEUE );
+        final LocalDBStoredQueue deadLetterQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
+                pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SYSLOG_DEAD_LETTER );
 
-        return new WorkQueueProcessor<>( pwmApplication, sessionLabel, localDBStoredQueue, settings, new SyslogItemProcessor(), this.getClass() );
+        return new WorkQueueProcessor<>( pwmApplication, sessionLabel, localDBStoredQueue, deadLetterQueue,
+                settings, new SyslogItemProcessor(), this.getClass() );
     }
 
     private static AuditFormatter makeAuditFormatter( final AppConfig appConfig )
@@ -165,12 +171,18 @@ public class SyslogAuditService
         return List.copyOf( returnData );
     }
 
-    private class SyslogItemProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    private class SyslogItemProcessor implements WorkQueueProcessor.BatchItemProcessor<String>
     {
         @Override
         public WorkQueueProcessor.ProcessResult process( final String workItem )
         {
-            return processEvent( workItem );
+            return processEvents( Collections.singletonList( workItem ) ).get( 0 );
+        }
+
+        @Override
+        public List<WorkQueueProcessor.ProcessResult> processBatch( final List<String> workItems )
+        {
+            return processEvents( workItems );
         }
 
         @Override
@@ -197,6 +209,7 @@ public class SyslogAuditService
             {
                 syslogConfigIF = new SSLTCPNetSyslogConfig();
                 ( ( SSLTCPNetSyslogConfig ) syslogConfigIF ).setBackLogHandlers( Collections.singletonList( new NullSyslogBackLogHandler() ) );
+                ( ( SSLTCPNetSyslogConfig ) syslogConfigIF ).setPersistentConnection( true );
                 syslogInstance = new LocalTrustSSLTCPNetSyslog( appConfig, certificates );
             }
             break;
@@ -205,6 +218,7 @@ public class SyslogAuditService
             {
                 syslogConfigIF = new TCPNetSyslogConfig();
                 ( ( TCPNetSyslogConfig ) syslogConfigIF ).setBackLogHandlers( Collections.singletonList( new NullSyslogBackLogHandler() ) );
+                ( ( TCPNetSyslogConfig ) syslogConfigIF ).setPersistentConnection( true );
                 syslogInstance = new TCPNetSyslog();
             }
             break;
@@ -278,32 +292,48 @@ public class SyslogAuditService
         return healthRecords;
     }
 
-    private WorkQueueProcessor.ProcessResult processEvent( final String auditRecord )
+    /**
+     * Send the audit records in order over the connection of the first syslog server, continuing with the next server
+     * once a record can not be sent.  Records that could not be sent to any server are returned as
+     * {@link WorkQueueProcessor.ProcessResult#RETRY}, so only the successfully sent records are removed from the queue.
+     */
+    private List<WorkQueueProcessor.ProcessResult> processEvents( final List<String> auditRecords )
     {
+        final List<WorkQueueProcessor.ProcessResult> results = new ArrayList<>( auditRecords.size() );
 
         for ( final SyslogIF syslogInstance : syslogInstances )
         {
-            try
-            {
-                syslogInstance.info( auditRecord );
-                LOGGER.trace( () -> "delivered syslog audit event: " + auditRecord );
-                lastError = null;
-                StatisticsClient.incrementStat( pwmApplication, Statistic.SYSLOG_MESSAGES_SENT );
-                return WorkQueueProcessor.ProcessResult.SUCCESS;
-            }
-            catch ( final Exception e )
+            while ( results.size() < auditRecords.size() )
             {
-                final String errorMsg = "error while sending syslog message to remote service: " + e.getMessage();
-                final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_SYSLOG_WRITE_ERROR, errorMsg, new String[]
-                        {
-                                e.getMessage(),
-                        }
-                );
-                lastError = errorInformation;
-                LOGGER.error( errorInformation::toDebugStr );
+                final String auditRecord = auditRecords.get( results.size() );
+                try
+                {
+                    syslogInstance.info( auditRecord );
+                    LOGGER.trace( () -> "delivered syslog audit event: " + auditRecord );
+                    lastError = null;
+                    StatisticsClient.incrementStat( pwmApplication, Statistic.SYSLOG_MESSAGES_SENT );
+                    results.add( WorkQueueProcessor.ProcessResult.SUCCESS );
+                }
+                catch ( final Exception e )
+                {
+                    final String errorMsg = "error while sending syslog message to remote service: " + e.getMessage();
+                    final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_SYSLOG_WRITE_ERROR, errorMsg, new String[]
+                            {
+                                    e.getMessage(),
+                            }
+                    );
+                    lastError = errorInformation;
+                    LOGGER.error( errorInformation::toDebugStr );
+                    break;
+                }
             }
         }
-        return WorkQueueProcessor.ProcessResult.RETRY;
+
+        while ( results.size() < auditRecords.size() )
+        {
+            results.add( WorkQueueProcessor.ProcessResult.RETRY );
+        }
+        return results;
     }
 
     public void close( )
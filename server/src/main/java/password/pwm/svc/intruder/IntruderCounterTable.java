@@ -0,0 +1,444 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory attempt counters for a single {@link IntruderRecordType}, keyed by subject.  Each subject's attempts
+ * are counted in a sliding window of {@link #WINDOW_SLOTS} time slices spanning the check duration, so a check
+ * is a map lookup and a sum over a few atomic longs with no storage access.
+ *
+ * <p>Lookups are lock-free.  Mutations go through {@link ConcurrentHashMap#compute}, which locks only the
+ * affected bin, so concurrent marks of the same subject are never lost and never race with eviction.  Changed
+ * entries are marked dirty and written back to the record store by {@link IntruderRecordManagerImpl#flush()}.</p>
+ *
+ * <p>The table holds at most {@code maxEntries} entries.  When it is full, changed entries are written and the
+ * entries with the oldest attempts are evicted; evicted counters are read back from the record store when needed.
+ * Entries with changes that could not be written are never evicted.</p>
+ */
+class IntruderCounterTable
+{
+    static final int WINDOW_SLOTS = 8;
+
+    // each slot packs the slice number (upper bits) and the attempt count for that slice (lower bits)
+    private static final int COUNT_BITS = 22;
+    private static final long COUNT_MASK = ( 1L << COUNT_BITS ) - 1;
+
+    private final Map<String, CounterEntry> entries = new ConcurrentHashMap<>();
+    private final long slotMillis;
+    private final int maxIdleEntries;
+    private final int maxEntries;
+    private final EntryWriter entryWriter;
+    private final Lock evictionLock = new ReentrantLock();
+
+    IntruderCounterTable( final TimeDuration checkDuration, final int maxIdleEntries, final int maxEntries, final EntryWriter entryWriter )
+    {
+        this.slotMillis = Math.max( 1, checkDuration.asMillis() / WINDOW_SLOTS );
+        this.maxIdleEntries = Math.min( maxIdleEntries, maxEntries );
+        this.maxEntries = Math.max( 1, maxEntries );
+        this.entryWriter = entryWriter;
+    }
+
+    Optional<CounterEntry> get( final String subject )
+    {
+        return Optional.ofNullable( entries.get( subject ) );
+    }
+
+    /**
+     * Add an entry loaded from storage.  Entries without any attempts are only cached while the table is below
+     * its idle entry limit, so a spray of unique subjects can not grow the table without bound.
+     *
+     * @param subject subject of the entry
+     * @param loadedEntry entry built from the stored record
+     * @return the cached entry, which may be one added concurrently by another thread
+     */
+    CounterEntry add( final String subject, final CounterEntry loadedEntry )
+    {
+        if ( !loadedEntry.hasAttempts() && entries.size() >= maxIdleEntries )
+        {
+            return loadedEntry;
+        }
+
+        ensureCapacity( subject );
+        final CounterEntry existing = entries.putIfAbsent( subject, loadedEntry );
+        return existing == null ? loadedEntry : existing;
+    }
+
+    /**
+     * Apply a mutation to the cached entry for the subject, or to the supplied entry if none is cached.  The
+     * entry is cached and marked dirty.
+     */
+    void update( final String subject, final CounterEntry loadedEntry, final Consumer<CounterEntry> mutation )
+    {
+        ensureCapacity( subject );
+        entries.compute( subject, ( key, existing ) ->
+        {
+            final CounterEntry entry = existing == null ? loadedEntry : existing;
+            mutation.accept( entry );
+            entry.dirty.set( true );
+            return entry;
+        } );
+    }
+
+    /**
+     * Apply changes read from the record store to the cached entry for the subject.  Unlike {@link #update}, the
+     * entry is not marked dirty.
+     */
+    void refresh( final String subject, final Consumer<CounterEntry> mutation )
+    {
+        entries.computeIfPresent( subject, ( key, existing ) ->
+        {
+            mutation.accept( existing );
+            return existing;
+        } );
+    }
+
+    /**
+     * Replace the cached entry for the subject if it is still the expected entry and has no unwritten changes.
+     *
+     * @return the cached entry after the replacement
+     */
+    CounterEntry replace( final String subject, final CounterEntry expectedEntry, final CounterEntry replacementEntry )
+    {
+        final CounterEntry entry = entries.computeIfPresent( subject, ( key, existing ) ->
+                existing == expectedEntry && !existing.dirty.get() ? replacementEntry : existing );
+        return entry == null ? replacementEntry : entry;
+    }
+
+    /**
+     * Write each dirty entry, then drop entries that have been written and have no attempts left in their window.
+     *
+     * @param writer writes an entry to storage, returning false if the write failed and should be retried
+     * @param now current time in milliseconds
+     * @return number of entries written
+     */
+    int flush( final EntryWriter writer, final long now )
+    {
+        int written = 0;
+
+        for ( final Map.Entry<String, CounterEntry> mapEntry : entries.entrySet() )
+        {
+            final CounterEntry entry = mapEntry.getValue();
+            if ( entry.dirty.compareAndSet( true, false ) )
+            {
+                if ( writer.write( mapEntry.getKey(), entry, now ) )
+                {
+                    written++;
+                }
+                else
+                {
+                    entry.dirty.set( true );
+                }
+            }
+
+            entries.computeIfPresent( mapEntry.getKey(), ( key, existing ) ->
+                    !existing.dirty.get() && existing.windowCount( now ) == 0 ? null : existing );
+        }
+
+        return written;
+    }
+
+    int flush( final long now )
+    {
+        return flush( entryWriter, now );
+    }
+
+    /**
+     * Make room for a new subject once the table is full: write changed entries, then evict entries without
+     * unwritten changes, oldest attempts first, until the table is a tenth below its limit.
+     */
+    private void ensureCapacity( final String subject )
+    {
+        if ( entries.size() < maxEntries || entries.containsKey( subject ) )
+        {
+            return;
+        }
+
+        evictionLock.lock();
+        try
+        {
+            if ( entries.size() < maxEntries )
+            {
+                return;
+            }
+
+            flush( entryWriter, System.currentTimeMillis() );
+
+            final int targetSize = maxEntries - Math.max( 1, maxEntries / 10 );
+            if ( entries.size() <= targetSize )
+            {
+                return;
+            }
+
+            final List<String> evictionCandidates = entries.entrySet().stream()
+                    .filter( mapEntry -> !mapEntry.getValue().dirty.get() )
+                    .sorted( Comparator.comparingLong( mapEntry -> mapEntry.getValue().lastAttemptMillis ) )
+                    .map( Map.Entry::getKey )
+                    .collect( Collectors.toList() );
+
+            for ( final String candidate : evictionCandidates )
+            {
+                if ( entries.size() <= targetSize )
+                {
+                    return;
+                }
+                entries.computeIfPresent( candidate, ( key, existing ) -> existing.dirty.get() ? existing : null );
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    int size()
+    {
+        return entries.size();
+    }
+
+    CounterEntry newEntry()
+    {
+        return new CounterEntry( slotMillis );
+    }
+
+    interface EntryWriter
+    {
+        boolean write( String subject, CounterEntry entry, long now );
+    }
+
+    static class CounterEntry
+    {
+        private final long slotMillis;
+        private final AtomicLongArray slots = new AtomicLongArray( WINDOW_SLOTS );
+        private final AtomicInteger pendingAttempts = new AtomicInteger();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private volatile long lastAttemptMillis;
+        private volatile long refreshMillis;
+        private volatile boolean alerted;
+        private volatile boolean cleared;
+
+        CounterEntry( final long slotMillis )
+        {
+            this.slotMillis = slotMillis;
+        }
+
+        /**
+         * Seed the window from a stored record, attributing its attempts to the slice of its timestamp.
+         */
+        void seed( final IntruderRecord record, final long now )
+        {
+            final long recordMillis = record.getTimeStamp() == null ? 0 : record.getTimeStamp().toEpochMilli();
+            addAttempts( recordMillis, record.getAttemptCount(), now );
+            lastAttemptMillis = Math.max( lastAttemptMillis, recordMillis );
+            alerted = record.isAlerted();
+        }
+
+        /**
+         * Merge the attempt count of a current stored record, written by this or another node sharing the record
+         * store.  Attempts missing locally were made on other nodes; if the stored count is lower than the local
+         * count the record has been cleared elsewhere, and the window is rebuilt from the stored record and the
+         * local attempts not yet written.
+         */
+        void mergeStored( final IntruderRecord record, final int storedCount, final long now )
+        {
+            if ( cleared )
+            {
+                // the local clear has not been written yet and takes precedence
+                return;
+            }
+
+            final long recordMillis = record == null || record.getTimeStamp() == null ? now : record.getTimeStamp().toEpochMilli();
+            final int pendingCount = pendingAttempts.get();
+            final int localCount = windowCount( now );
+            final int expectedCount = storedCount + pendingCount;
+
+            if ( expectedCount > localCount )
+            {
+                addAttempts( recordMillis, expectedCount - localCount, now );
+                lastAttemptMillis = Math.max( lastAttemptMillis, recordMillis );
+                alerted = alerted || record != null && record.isAlerted();
+            }
+            else if ( expectedCount < localCount )
+            {
+                for ( int i = 0; i < WINDOW_SLOTS; i++ )
+                {
+                    slots.set( i, 0 );
+                }
+                addAttempts( recordMillis, storedCount, now );
+                addAttempts( now, pendingCount, now );
+                alerted = record != null && record.isAlerted();
+            }
+        }
+
+        boolean isRefreshDue( final long now, final long refreshIntervalMillis )
+        {
+            return now - refreshMillis >= refreshIntervalMillis;
+        }
+
+        void markRefreshed( final long now )
+        {
+            refreshMillis = now;
+        }
+
+        boolean isDirty()
+        {
+            return dirty.get();
+        }
+
+        void increment( final long now )
+        {
+            addAttempts( now, 1, now );
+            pendingAttempts.incrementAndGet();
+            lastAttemptMillis = now;
+        }
+
+        /**
+         * Add attempts recorded elsewhere, such as by another node sharing the record store.
+         */
+        void addRemoteAttempts( final int count, final long now )
+        {
+            addAttempts( now, count, now );
+        }
+
+        void clear()
+        {
+            for ( int i = 0; i < WINDOW_SLOTS; i++ )
+            {
+                slots.set( i, 0 );
+            }
+            pendingAttempts.set( 0 );
+            alerted = false;
+            cleared = true;
+        }
+
+        void markAlerted()
+        {
+            alerted = true;
+        }
+
+        boolean isAlerted()
+        {
+            return alerted;
+        }
+
+        boolean hasAttempts()
+        {
+            return lastAttemptMillis > 0;
+        }
+
+        /**
+         * True if there are no attempts in the window and the entry is not alerted, such as after it has been cleared.
+         */
+        boolean isClear( final long now )
+        {
+            return !alerted && windowCount( now ) == 0;
+        }
+
+        Instant lastAttempt()
+        {
+            return Instant.ofEpochMilli( lastAttemptMillis );
+        }
+
+        int drainPendingAttempts()
+        {
+            return pendingAttempts.getAndSet( 0 );
+        }
+
+        boolean drainCleared()
+        {
+            final boolean wasCleared = cleared;
+            cleared = false;
+            return wasCleared;
+        }
+
+        /**
+         * Restore state drained for a write that failed, so it is included in the next flush.
+         */
+        void requeue( final int pendingCount, final boolean wasCleared )
+        {
+            pendingAttempts.addAndGet( pendingCount );
+            if ( wasCleared )
+            {
+                cleared = true;
+            }
+        }
+
+        int windowCount( final long now )
+        {
+            final long currentSlice = now / slotMillis;
+            long total = 0;
+            for ( int i = 0; i < WINDOW_SLOTS; i++ )
+            {
+                final long packed = slots.get( i );
+                final long slice = packed >>> COUNT_BITS;
+                if ( slice > currentSlice - WINDOW_SLOTS && slice <= currentSlice )
+                {
+                    total += packed & COUNT_MASK;
+                }
+            }
+            return ( int ) Math.min( total, Integer.MAX_VALUE );
+        }
+
+        private void addAttempts( final long attemptMillis, final int count, final long now )
+        {
+            final long slice = attemptMillis / slotMillis;
+            if ( count <= 0 || slice <= ( now / slotMillis ) - WINDOW_SLOTS )
+            {
+                return;
+            }
+
+            final int index = ( int ) ( slice % WINDOW_SLOTS );
+            while ( true )
+            {
+                final long packed = slots.get( index );
+                final long existingSlice = packed >>> COUNT_BITS;
+                final long existingCount = existingSlice == slice ? packed & COUNT_MASK : 0;
+                if ( existingSlice > slice )
+                {
+                    // slot already reused for a newer slice, the attempts are outside the window
+                    return;
+                }
+
+                final long newCount = Math.min( COUNT_MASK, existingCount + count );
+                if ( slots.compareAndSet( index, packed, ( slice << COUNT_BITS ) | newCount ) )
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
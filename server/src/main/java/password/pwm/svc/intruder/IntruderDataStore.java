@@ -20,6 +20,7 @@
 
 package password.pwm.svc.intruder;
 
+import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmDataStoreException;
 import password.pwm.error.PwmError;
@@ -28,6 +29,7 @@ import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.PwmService;
 import password.pwm.util.DataStore;
+import password.pwm.util.DataStoreExpiryIndex;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StatisticCounterBundle;
@@ -39,29 +41,30 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 class IntruderDataStore implements IntruderRecordStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( IntruderDataStore.class );
-    private static final long CLEANER_MIN_WRITE_COUNT = 1_000;
 
     private final DataStore dataStore;
+    private final DataStoreExpiryIndex expiryIndex;
     private final Supplier<PwmService.STATUS> serviceStatus;
     private final StatisticCounterBundle<DebugKeys> stats = new StatisticCounterBundle<>( DebugKeys.class );
     private final PwmService intruderService;
 
-    private final LongAdder writeCounter = new LongAdder();
-
-    private Instant eldestRecord;
-
-    IntruderDataStore( final PwmService intruderService, final DataStore dataStore, final Supplier<PwmService.STATUS> serviceStatus )
+    IntruderDataStore(
+            final PwmService intruderService,
+            final DataStore dataStore,
+            final DataStoreExpiryIndex expiryIndex,
+            final Supplier<PwmService.STATUS> serviceStatus
+    )
     {
         this.intruderService = intruderService;
         this.dataStore = dataStore;
+        this.expiryIndex = expiryIndex;
         this.serviceStatus = serviceStatus;
-        writeCounter.add( CLEANER_MIN_WRITE_COUNT );
     }
 
     @Override
@@ -70,6 +73,12 @@ class IntruderDataStore implements IntruderRecordStore
         return stats;
     }
 
+    @Override
+    public DataStorageMethod getDataStorageMethod()
+    {
+        return dataStore.getDataStorageMethod();
+    }
+
     @Override
     public Optional<IntruderRecord> read( final String key )
             throws PwmUnrecoverableException
@@ -125,13 +134,22 @@ class IntruderDataStore implements IntruderRecordStore
         try
         {
             dataStore.put( key, jsonRecord );
-            writeCounter.increment();
         }
         catch ( final PwmDataStoreException e )
         {
             throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, "error writing to LocalDB: " + e.getMessage() ) );
         }
         stats.increment( DebugKeys.writes );
+
+        try
+        {
+            final Instant timestamp = record.getTimeStamp() == null ? Instant.now() : record.getTimeStamp();
+            expiryIndex.add( key, timestamp );
+        }
+        catch ( final PwmDataStoreException e )
+        {
+            LOGGER.error( intruderService.getSessionLabel(), () -> "error adding intruder record to expiry index: " + e.getMessage() );
+        }
     }
 
     @Override
@@ -226,58 +244,77 @@ class IntruderDataStore implements IntruderRecordStore
     @Override
     public void cleanup( final TimeDuration maxRecordAge )
     {
-        if ( writeCounter.longValue() < CLEANER_MIN_WRITE_COUNT )
+        stats.increment( DebugKeys.cleanupCycles );
+        final Instant startTime = Instant.now();
+        final AtomicInteger recordsExamined = new AtomicInteger();
+        final AtomicInteger recordsRemoved = new AtomicInteger();
+
+        try
         {
-            return;
-        }
+            if ( !expiryIndex.isLegacyScanComplete() )
+            {
+                scanCleanup( maxRecordAge, recordsExamined, recordsRemoved );
+                if ( isOpen() )
+                {
+                    expiryIndex.markLegacyScanComplete();
+                }
+            }
 
-        if ( eldestRecord != null && TimeDuration.fromCurrent( eldestRecord ).isShorterThan( maxRecordAge ) )
+            final Instant cutoff = Instant.now().minus( maxRecordAge.asDuration() );
+            expiryIndex.purge( cutoff, key ->
+            {
+                stats.increment( DebugKeys.cleanupExamines );
+                recordsExamined.incrementAndGet();
+                final Optional<IntruderRecord> record = read( key );
+                if ( record.isPresent() && isOutdated( record.get(), maxRecordAge ) )
+                {
+                    dataStore.remove( key );
+                    stats.increment( DebugKeys.cleanupRemoves );
+                    recordsRemoved.incrementAndGet();
+                }
+            }, this::isOpen );
+        }
+        catch ( final PwmException e )
         {
-            LOGGER.trace( intruderService.getSessionLabel(), () -> "skipping table cleanup: eldest record is younger than max age" );
-            return;
+            LOGGER.error( intruderService.getSessionLabel(), () -> "unable to perform intruder table cleanup: " + e.getMessage() );
         }
 
-        eldestRecord = Instant.now();
-
-        stats.increment( DebugKeys.cleanupCycles );
-        final Instant startTime = Instant.now();
-
-        int recordsExamined = 0;
-        int recordsRemoved = 0;
+        LOGGER.trace( intruderService.getSessionLabel(), () -> "completed cleanup of intruder table in "
+                + TimeDuration.compactFromCurrent( startTime ) + ", recordsExamined="
+                + recordsExamined.get() + ", recordsRemoved=" + recordsRemoved.get() );
+    }
 
+    /**
+     * Full pass over every stored record, only needed once for records written before the expiry index existed.
+     */
+    private void scanCleanup( final TimeDuration maxRecordAge, final AtomicInteger recordsExamined, final AtomicInteger recordsRemoved )
+            throws PwmUnrecoverableException
+    {
         try ( ClosableIterator<IntruderRecord> iterator = this.iterator( ) )
         {
-            while ( this.serviceStatus.get() == PwmService.STATUS.OPEN && iterator.hasNext() )
+            while ( isOpen() && iterator.hasNext() )
             {
                 final IntruderRecord record = iterator.next();
                 stats.increment( DebugKeys.cleanupExamines );
-                recordsExamined++;
+                recordsExamined.incrementAndGet();
 
-                if ( TimeDuration.fromCurrent( record.getTimeStamp() ).isLongerThan( maxRecordAge ) )
+                if ( isOutdated( record, maxRecordAge ) )
                 {
                     iterator.remove();
                     stats.increment( DebugKeys.cleanupRemoves );
-                    recordsRemoved++;
-                }
-                if ( eldestRecord.compareTo( record.getTimeStamp() ) > 0 )
-                {
-                    eldestRecord = record.getTimeStamp();
+                    recordsRemoved.incrementAndGet();
                 }
             }
         }
-        catch ( final PwmException e )
-        {
-            LOGGER.error( intruderService.getSessionLabel(), () -> "unable to perform intruder table cleanup: " + e.getMessage() );
-        }
+    }
 
-        {
-            final int finalRemoved = recordsRemoved;
-            final int finalExamined = recordsExamined;
-            LOGGER.trace( intruderService.getSessionLabel(), () -> "completed cleanup of intruder table in "
-                    + TimeDuration.compactFromCurrent( startTime ) + ", recordsExamined="
-                    + finalExamined + ", recordsRemoved=" + finalRemoved );
-        }
+    private static boolean isOutdated( final IntruderRecord record, final TimeDuration maxRecordAge )
+    {
+        return record.getTimeStamp() == null || TimeDuration.fromCurrent( record.getTimeStamp() ).isLongerThan( maxRecordAge );
+    }
 
-        writeCounter.reset();
+    private boolean isOpen()
+    {
+        return serviceStatus.get() == PwmService.STATUS.OPEN;
     }
 }
@@ -115,6 +115,9 @@ public class IntruderDomainService extends AbstractPwmService implements PwmServ
             serviceInfo = ServiceInfoBean.builder().storageMethod( dataStore.getDataStorageMethod() ).build();
 
             initializeRecordManagers();
+
+            final TimeDuration writeBehindInterval = intruderSettings.getWriteBehindInterval();
+            scheduleFixedRateJob( this::flushRecordManagers, writeBehindInterval, writeBehindInterval );
         }
         catch ( final Exception e )
         {
@@ -196,9 +199,29 @@ public class IntruderDomainService extends AbstractPwmService implements PwmServ
     @Override
     public void shutdownImpl()
     {
+        flushRecordManagers();
         setStatus( STATUS.CLOSED );
     }
 
+    private void flushRecordManagers()
+    {
+        for ( final Map.Entry<IntruderRecordType, IntruderRecordManager> entry : recordManagers.entrySet() )
+        {
+            try
+            {
+                final int written = entry.getValue().flush();
+                if ( written > 0 )
+                {
+                    LOGGER.trace( getSessionLabel(), () -> "wrote " + written + " changed " + entry.getKey() + " intruder records" );
+                }
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.error( getSessionLabel(), () -> "error writing " + entry.getKey() + " intruder records: " + e.getMessage(), e );
+            }
+        }
+    }
+
     @Override
     public List<HealthRecord> serviceHealthCheck()
     {
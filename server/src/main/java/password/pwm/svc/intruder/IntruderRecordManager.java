@@ -39,5 +39,7 @@ public interface IntruderRecordManager
 
     Optional<IntruderRecord> readIntruderRecord( String subject );
 
+    int flush();
+
     ClosableIterator<IntruderRecord> iterator( ) throws PwmException;
 }
@@ -22,17 +22,18 @@ package password.pwm.svc.intruder;
 
 import password.pwm.PwmDomain;
 import password.pwm.bean.DomainID;
+import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
+import password.pwm.error.PwmInternalException;
 import password.pwm.error.PwmOperationalException;
-import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.secure.SecureService;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.JavaHelper;
-import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PooledMessageDigest;
 import password.pwm.util.secure.PwmHashAlgorithm;
 
 import java.util.Optional;
@@ -41,12 +42,18 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( IntruderRecordManagerImpl.class );
 
+    private static final ThreadLocal<StringBuilder> KEY_BUILDER = ThreadLocal.withInitial( () -> new StringBuilder( 192 ) );
+
     private final IntruderRecordType recordType;
     private final IntruderRecordStore recordStore;
     private final IntruderSettings.TypeSettings settings;
     private final SecureService secureService;
     private final DomainID domainID;
     private final PwmHashAlgorithm storageHashAlgorithm;
+    private final String keySuffix;
+    private final IntruderCounterTable counterTable;
+    private final boolean sharedRecordStore;
+    private final long sharedRecordRefreshMillis;
 
     IntruderRecordManagerImpl(
             final PwmDomain pwmDomain,
@@ -61,6 +68,16 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
         this.recordStore = recordStore;
         this.settings = settings.getTargetSettings().get( recordType );
         this.storageHashAlgorithm = settings.getStorageHashAlgorithm();
+        this.keySuffix = "-" + domainID + "-" + recordType;
+        this.counterTable = new IntruderCounterTable(
+                this.settings.getCheckDuration(),
+                settings.getMaxIdleCounterEntries(),
+                settings.getMaxCounterEntries(),
+                this::writeCounterEntry );
+
+        // other nodes may update records in a shared store, so cached counters are periodically merged with the stored records
+        this.sharedRecordStore = recordStore.getDataStorageMethod() != DataStorageMethod.LOCALDB;
+        this.sharedRecordRefreshMillis = settings.getSharedRecordRefreshInterval().asMillis();
     }
 
     @Override
@@ -71,22 +88,8 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
             throw new IllegalArgumentException( "subject is required value" );
         }
 
-        final Optional<IntruderRecord> record = readIntruderRecord( subject );
-        if ( record.isEmpty() )
-        {
-            return false;
-        }
-
-        if ( TimeDuration.fromCurrent( record.get().getTimeStamp() ).isLongerThan( settings.getCheckDuration() ) )
-        {
-            return false;
-        }
-
-        if ( record.get().getAttemptCount() >= settings.getCheckCount() )
-        {
-            return true;
-        }
-        return false;
+        final IntruderCounterTable.CounterEntry entry = counterEntry( subject );
+        return entry.windowCount( System.currentTimeMillis() ) >= settings.getCheckCount();
     }
 
     @Override
@@ -97,82 +100,187 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
             throw new IllegalArgumentException( "subject is required value" );
         }
 
-        IntruderRecord record = readIntruderRecord( subject ).orElseGet( () -> new IntruderRecord( domainID, recordType, subject ) );
+        final long now = System.currentTimeMillis();
+        counterTable.update( subject, counterEntry( subject ), entry -> entry.increment( now ) );
+    }
 
-        final TimeDuration age = TimeDuration.fromCurrent( record.getTimeStamp() );
-        if ( age.isLongerThan( settings.getCheckDuration() ) )
+    @Override
+    public void clearSubject( final String subject )
+    {
+        final IntruderCounterTable.CounterEntry loadedEntry = counterEntry( subject );
+        if ( loadedEntry.isClear( System.currentTimeMillis() ) )
         {
-            final IntruderRecord finalRecord = record;
-            LOGGER.debug( () -> "re-setting existing outdated record=" + JsonFactory.get().serialize( finalRecord ) + " (" + age.asCompactString() + ")" );
-            record = new IntruderRecord( domainID, recordType, subject );
+            return;
         }
 
-        record.incrementAttemptCount();
+        counterTable.update( subject, loadedEntry, IntruderCounterTable.CounterEntry::clear );
+    }
 
-        writeIntruderRecord( record );
+    @Override
+    public boolean isAlerted( final String subject )
+    {
+        return counterEntry( subject ).isAlerted();
     }
 
     @Override
-    public void clearSubject( final String subject )
+    public void markAlerted( final String subject )
     {
-        final Optional<IntruderRecord> record = readIntruderRecord( subject );
-        if ( record.isEmpty() )
+        final IntruderCounterTable.CounterEntry loadedEntry = counterEntry( subject );
+        if ( !loadedEntry.hasAttempts() || loadedEntry.isAlerted() )
         {
             return;
         }
 
-        if ( record.get().getAttemptCount() == 0 )
+        counterTable.update( subject, loadedEntry, IntruderCounterTable.CounterEntry::markAlerted );
+    }
+
+    @Override
+    public Optional<IntruderRecord> readIntruderRecord( final String subject )
+    {
+        final IntruderCounterTable.CounterEntry entry = counterEntry( subject );
+        final long now = System.currentTimeMillis();
+        if ( entry.isClear( now ) )
         {
-            return;
+            return Optional.empty();
         }
 
-        record.get().clearAttemptCount();
-        writeIntruderRecord( record.get() );
+        return Optional.of( makeRecord( subject, entry, entry.windowCount( now ) ) );
     }
 
+    /**
+     * Write changed counters to the record store.  Attempts made on other nodes sharing the store since the
+     * last flush are merged into the local counters.
+     *
+     * @return number of records written
+     */
     @Override
-    public boolean isAlerted( final String subject )
+    public int flush()
     {
-        final Optional<IntruderRecord> record = readIntruderRecord( subject );
-        return record.isPresent() && record.get().isAlerted();
+        return counterTable.flush( System.currentTimeMillis() );
     }
 
-    @Override
-    public void markAlerted( final String subject )
+    private IntruderCounterTable.CounterEntry counterEntry( final String subject )
     {
-        final Optional<IntruderRecord> record = readIntruderRecord( subject );
-        if ( record.isEmpty() || record.get().isAlerted() )
+        final long now = System.currentTimeMillis();
+        final Optional<IntruderCounterTable.CounterEntry> cachedEntry = counterTable.get( subject );
+        if ( cachedEntry.isPresent() )
         {
-            return;
+            final IntruderCounterTable.CounterEntry entry = cachedEntry.get();
+            if ( sharedRecordStore && entry.isRefreshDue( now, sharedRecordRefreshMillis ) )
+            {
+                return refreshCounterEntry( subject, entry, now );
+            }
+            return entry;
         }
-        record.get().setAlerted( true );
-        writeIntruderRecord( record.get() );
+
+        final IntruderCounterTable.CounterEntry loadedEntry = counterTable.newEntry();
+        readStoredRecord( subject ).ifPresent( record -> loadedEntry.seed( record, now ) );
+        loadedEntry.markRefreshed( now );
+        return counterTable.add( subject, loadedEntry );
     }
 
-    @Override
-    public Optional<IntruderRecord> readIntruderRecord( final String subject )
+    /**
+     * Merge the stored record into a cached entry, so attempts made and clears done on other nodes sharing the
+     * record store are seen by this node.
+     */
+    private IntruderCounterTable.CounterEntry refreshCounterEntry(
+            final String subject,
+            final IntruderCounterTable.CounterEntry entry,
+            final long now
+    )
+    {
+        entry.markRefreshed( now );
+        final Optional<IntruderRecord> storedRecord = readStoredRecord( subject );
+        final int storedCount = storedRecord.filter( this::isCurrentRecord ).map( IntruderRecord::getAttemptCount ).orElse( 0 );
+
+        if ( !entry.isDirty() && storedCount < entry.windowCount( now ) )
+        {
+            // record was cleared on another node, such as by an administrator unlock, so evict the cached entry
+            final IntruderCounterTable.CounterEntry loadedEntry = counterTable.newEntry();
+            storedRecord.ifPresent( record -> loadedEntry.seed( record, now ) );
+            loadedEntry.markRefreshed( now );
+            return counterTable.replace( subject, entry, loadedEntry );
+        }
+
+        counterTable.refresh( subject, existing -> existing.mergeStored( storedRecord.orElse( null ), storedCount, now ) );
+        return entry;
+    }
+
+    private boolean isCurrentRecord( final IntruderRecord record )
+    {
+        return record.getTimeStamp() != null
+                && TimeDuration.fromCurrent( record.getTimeStamp() ).isShorterThan( settings.getCheckDuration() );
+    }
+
+    private boolean writeCounterEntry( final String subject, final IntruderCounterTable.CounterEntry entry, final long now )
     {
+        final int pendingAttempts = entry.drainPendingAttempts();
+        final boolean cleared = entry.drainCleared();
+
         try
         {
-            return Optional.ofNullable( recordStore.read( makeKey( subject ) ).orElse( null ) );
+            final String key = makeKey( subject );
+            int attemptCount = entry.windowCount( now );
+
+            if ( !cleared && pendingAttempts > 0 )
+            {
+                final Optional<IntruderRecord> storedRecord = readIntruderRecordByKey( key );
+                if ( storedRecord.isPresent() && isCurrentRecord( storedRecord.get() ) )
+                {
+                    final int mergedCount = storedRecord.get().getAttemptCount() + pendingAttempts;
+                    if ( mergedCount > attemptCount )
+                    {
+                        entry.addRemoteAttempts( mergedCount - attemptCount, now );
+                        attemptCount = mergedCount;
+                    }
+                }
+            }
+
+            recordStore.write( key, makeRecord( subject, entry, attemptCount ) );
+            return true;
         }
         catch ( final PwmException e )
+        {
+            LOGGER.warn( () -> "unexpected error attempting to write intruder record for " + recordType + " subject, error: " + e.getMessage() );
+        }
+
+        entry.requeue( pendingAttempts, cleared );
+        return false;
+    }
+
+    private IntruderRecord makeRecord( final String subject, final IntruderCounterTable.CounterEntry entry, final int attemptCount )
+    {
+        final IntruderRecord record = new IntruderRecord( domainID, recordType, subject );
+        record.setTimeStamp( entry.lastAttempt() );
+        record.setAttemptCount( attemptCount );
+        record.setAlerted( entry.isAlerted() );
+        return record;
+    }
+
+    private Optional<IntruderRecord> readStoredRecord( final String subject )
+    {
+        try
+        {
+            return readIntruderRecordByKey( makeKey( subject ) );
+        }
+        catch ( final PwmOperationalException e )
         {
             LOGGER.error( () -> "unable to read read intruder record from storage: " + e.getMessage() );
         }
         return Optional.empty();
     }
 
-    private void writeIntruderRecord( final IntruderRecord intruderRecord )
+    private Optional<IntruderRecord> readIntruderRecordByKey( final String key )
     {
         try
         {
-            recordStore.write( makeKey( intruderRecord.getSubject() ), intruderRecord );
+            return Optional.ofNullable( recordStore.read( key ).orElse( null ) );
         }
         catch ( final PwmException e )
         {
-            LOGGER.warn( () -> "unexpected error attempting to write intruder record " + JsonFactory.get().serialize( intruderRecord ) + ", error: " + e.getMessage() );
+            LOGGER.error( () -> "unable to read read intruder record from storage: " + e.getMessage() );
         }
+        return Optional.empty();
     }
 
     private String makeKey( final String subject ) throws PwmOperationalException
@@ -181,9 +289,12 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
 
         try
         {
-            return secureService.hash( storageHashAlgorithm, subject ) + "-" + domainID + "-" + recordType;
+            final StringBuilder keyBuilder = KEY_BUILDER.get();
+            keyBuilder.setLength( 0 );
+            secureService.appendHash( storageHashAlgorithm, subject, keyBuilder, PooledMessageDigest.HexCase.UPPER );
+            return keyBuilder.append( keySuffix ).toString();
         }
-        catch ( final PwmUnrecoverableException e )
+        catch ( final PwmInternalException e )
         {
             throw new PwmOperationalException( PwmError.ERROR_INTERNAL, "error generating hash for intruder record: " + e.getMessage() );
         }
@@ -192,6 +303,7 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
     @Override
     public ClosableIterator<IntruderRecord> iterator( ) throws PwmException
     {
+        flush();
         return new RecordIterator<>( recordStore.iterator() );
     }
 
@@ -20,6 +20,7 @@
 
 package password.pwm.svc.intruder;
 
+import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.ClosableIterator;
@@ -33,6 +34,8 @@ interface IntruderRecordStore
 {
     StatisticCounterBundle<DebugKeys> getStats();
 
+    DataStorageMethod getDataStorageMethod();
+
     Optional<IntruderRecord> read( String key ) throws PwmUnrecoverableException;
 
     void write( String key, IntruderRecord record ) throws PwmOperationalException, PwmUnrecoverableException;
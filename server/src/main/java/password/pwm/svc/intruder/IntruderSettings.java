@@ -42,6 +42,10 @@ public class IntruderSettings
     private final Map<IntruderRecordType, TypeSettings> targetSettings;
     private final IntruderStorageMethod intruderStorageMethod;
     private final PwmHashAlgorithm storageHashAlgorithm;
+    private final TimeDuration writeBehindInterval;
+    private final int maxIdleCounterEntries;
+    private final int maxCounterEntries;
+    private final TimeDuration sharedRecordRefreshInterval;
 
     public static IntruderSettings fromConfiguration( final DomainConfig config )
     {
@@ -52,6 +56,11 @@ public class IntruderSettings
                 .targetSettings( makeTypeSettings( config ) )
                 .intruderStorageMethod( config.getAppConfig().readSettingAsEnum( PwmSetting.INTRUDER_STORAGE_METHOD, IntruderStorageMethod.class ) )
                 .storageHashAlgorithm( storageHashAlgorithm )
+                .writeBehindInterval( TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.INTRUDER_WRITE_BEHIND_INTERVAL_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
+                .maxIdleCounterEntries( Integer.parseInt( config.readAppProperty( AppProperty.INTRUDER_MAX_IDLE_COUNTER_ENTRIES ) ) )
+                .maxCounterEntries( Integer.parseInt( config.readAppProperty( AppProperty.INTRUDER_MAX_COUNTER_ENTRIES ) ) )
+                .sharedRecordRefreshInterval( TimeDuration.of( Long.parseLong(
+                        config.readAppProperty( AppProperty.INTRUDER_SHARED_RECORD_REFRESH_INTERVAL_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .build();
     }
 
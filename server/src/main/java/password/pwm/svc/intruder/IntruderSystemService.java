@@ -35,12 +35,17 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.db.DatabaseTable;
 import password.pwm.util.DataStore;
+import password.pwm.util.DataStoreExpiryIndex;
+import password.pwm.util.DataStoreFactory;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.logging.PwmLogger;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -61,7 +66,13 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
             final DataStore dataStore = IntruderDomainService.initDataStore( pwmApplication, getSessionLabel(), storageMethod );
             dataStorageMethod = dataStore.getDataStorageMethod();
 
-            recordStore = new IntruderDataStore( this, dataStore, this::status );
+            final DataStore indexStore = DataStoreFactory.companionStore( pwmApplication, dataStore, DatabaseTable.INTRUDER_EXPIRY, LocalDB.DB.INTRUDER_EXPIRY );
+            final TimeDuration bucketDuration = TimeDuration.of( Long.parseLong(
+                    pwmApplication.getConfig().readAppProperty( AppProperty.INTRUDER_CLEANUP_FREQUENCY_MS ) ), TimeDuration.Unit.MILLISECONDS );
+            final DataStoreExpiryIndex expiryIndex = new DataStoreExpiryIndex( indexStore, "intruder", bucketDuration );
+            expiryIndex.initialize( Instant.now() );
+
+            recordStore = new IntruderDataStore( this, dataStore, expiryIndex, this::status );
 
             scheduleCleaner();
         }
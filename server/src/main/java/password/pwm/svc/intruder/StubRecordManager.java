@@ -44,6 +44,12 @@ class StubRecordManager implements IntruderRecordManager
     {
     }
 
+    @Override
+    public int flush()
+    {
+        return 0;
+    }
+
     @Override
     public boolean isAlerted( final String subject )
     {
@@ -37,6 +37,7 @@ import password.pwm.util.java.StringUtil;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.secure.HmacAlgorithm;
+import password.pwm.util.secure.PooledMessageDigest;
 import password.pwm.util.secure.PwmBlockAlgorithm;
 import password.pwm.util.secure.PwmHashAlgorithm;
 import password.pwm.util.secure.PwmRandom;
@@ -170,6 +171,17 @@ public abstract class AbstractSecureService extends AbstractPwmService implement
         return SecureEngine.encryptToString( value, securityKey, defaultBlockAlgorithm, SecureEngine.Flag.URL_SAFE );
     }
 
+    /**
+     * Encrypt using {@link SecureEngine.Flag#COMPACT}, for values such as cookies where the encoded size matters.
+     */
+    public String encryptToCompactString( final String value, final PwmSecurityKey securityKey )
+            throws PwmUnrecoverableException
+    {
+        stats.increment( StatKey.encryptOperations );
+        stats.increment( StatKey.encryptBytes, value.length() );
+        return SecureEngine.encryptToString( value, securityKey, defaultBlockAlgorithm, SecureEngine.Flag.URL_SAFE, SecureEngine.Flag.COMPACT );
+    }
+
     @Override
     public String encryptObjectToString( final Object serializableObject )
             throws PwmUnrecoverableException
@@ -211,6 +223,21 @@ public abstract class AbstractSecureService extends AbstractPwmService implement
         return SecureEngine.decryptStringValue( value, securityKey, defaultBlockAlgorithm, SecureEngine.Flag.URL_SAFE );
     }
 
+    /**
+     * Decrypt a value encrypted by {@link #encryptToCompactString(String, PwmSecurityKey)}, or by
+     * {@link #encryptToString(String, PwmSecurityKey)}.
+     */
+    public String decryptCompactStringValue(
+            final String value,
+            final PwmSecurityKey securityKey
+    )
+            throws PwmUnrecoverableException
+    {
+        stats.increment( StatKey.decryptOperations );
+        stats.increment( StatKey.decryptBytes, value.length() );
+        return SecureEngine.decryptStringValue( value, securityKey, defaultBlockAlgorithm, SecureEngine.Flag.URL_SAFE, SecureEngine.Flag.COMPACT );
+    }
+
     @Override
     public <T> T decryptObject( final String value, final Class<T> returnClass ) throws PwmUnrecoverableException
     {
@@ -261,6 +288,19 @@ public abstract class AbstractSecureService extends AbstractPwmService implement
         return SecureEngine.hash( input, pwmHashAlgorithm );
     }
 
+    @Override
+    public StringBuilder appendHash(
+            final PwmHashAlgorithm pwmHashAlgorithm,
+            final CharSequence input,
+            final StringBuilder output,
+            final PooledMessageDigest.HexCase hexCase
+    )
+    {
+        stats.increment( StatKey.hashOperations );
+        stats.increment( StatKey.hashBytes, input.length() );
+        return PooledMessageDigest.appendHash( pwmHashAlgorithm, input, output, hexCase );
+    }
+
     public DigestInputStream digestInputStream(
             final PwmHashAlgorithm pwmHashAlgorithm,
             final InputStream inputStream
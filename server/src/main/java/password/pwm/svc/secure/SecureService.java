@@ -21,6 +21,7 @@
 package password.pwm.svc.secure;
 
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.secure.PooledMessageDigest;
 import password.pwm.util.secure.PwmHashAlgorithm;
 import password.pwm.util.secure.PwmSecurityKey;
 
@@ -38,6 +39,23 @@ public interface SecureService
     )
             throws PwmUnrecoverableException;
 
+    /**
+     * Hash the input and append the hex encoded value to the output using pooled digest instances, without
+     * creating intermediate strings.  Intended for building storage keys on hot paths.
+     *
+     * @param pwmHashAlgorithm hash algorithm
+     * @param input value to hash
+     * @param output builder the hex value is appended to
+     * @param hexCase case of the hex characters
+     * @return the output builder
+     */
+    StringBuilder appendHash(
+            PwmHashAlgorithm pwmHashAlgorithm,
+            CharSequence input,
+            StringBuilder output,
+            PooledMessageDigest.HexCase hexCase
+    );
+
     String hash(
             byte[] input
     )
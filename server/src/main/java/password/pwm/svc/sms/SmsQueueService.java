@@ -160,11 +160,14 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
                         Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS ) ),
                         TimeDuration.Unit.MILLISECONDS )
                 )
+                .lanes( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_LANES ) ) )
                 .build();
 
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SMS_QUEUE );
+        final LocalDBStoredQueue deadLetterQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SMS_DEAD_LETTER );
 
-        workQueueProcessor = new WorkQueueProcessor<>( pwmApplication, getSessionLabel(), localDBStoredQueue, settings, new SmsItemProcessor(), this.getClass() );
+        workQueueProcessor = new WorkQueueProcessor<>( pwmApplication, getSessionLabel(), localDBStoredQueue, deadLetterQueue,
+                settings, new SmsItemProcessor(), this.getClass() );
 
         smsSendEngine = new SmsSendEngine( pwmApplication, pwmApplication.getConfig() );
 
@@ -212,6 +215,12 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
 
             return JsonFactory.get().serializeMap( debugOutputMap );
         }
+
+        @Override
+        public String laneKey( final SmsItemBean workItem )
+        {
+            return workItem.getTo();
+        }
     }
 
     public void addSmsToQueue( final SmsItemBean smsItem, final SessionLabel sessionLabel )
@@ -27,22 +27,27 @@ import java.util.Locale;
 
 public enum AvgStatistic
 {
-    AVG_PASSWORD_SYNC_TIME( "AvgPasswordSyncTime", "ms" ),
-    AVG_AUTHENTICATION_TIME( "AvgAuthenticationTime",  "ms" ),
-    AVG_PASSWORD_STRENGTH( "AvgPasswordStrength", "" ),
-    AVG_LDAP_SEARCH_TIME( "AvgLdapSearchTime",  "ms" ),
-    AVG_REQUEST_PROCESS_TIME( "AvgRequestProcessTime",  "ms" ),;
+    AVG_PASSWORD_SYNC_TIME( "AvgPasswordSyncTime", "ms", true ),
+    AVG_AUTHENTICATION_TIME( "AvgAuthenticationTime",  "ms", true ),
+    AVG_PASSWORD_STRENGTH( "AvgPasswordStrength", "", false ),
+    AVG_LDAP_SEARCH_TIME( "AvgLdapSearchTime",  "ms", true ),
+    AVG_REQUEST_PROCESS_TIME( "AvgRequestProcessTime",  "ms", true ),
+    AVG_EMAIL_POOL_WAIT_TIME( "AvgEmailPoolWaitTime",  "ms", true ),
+    AVG_EMAIL_CONNECT_TIME( "AvgEmailConnectTime",  "ms", true ),;
 
     private final String key;
     private final String unit;
+    private final boolean histogram;
 
     AvgStatistic(
             final String key,
-            final String unit
+            final String unit,
+            final boolean histogram
     )
     {
         this.key = key;
         this.unit = unit;
+        this.histogram = histogram;
     }
 
     public String getKey( )
@@ -55,6 +60,14 @@ public enum AvgStatistic
         return unit;
     }
 
+    /**
+     * True if the distribution of values is also recorded, so percentiles can be reported alongside the average.
+     */
+    public boolean isHistogram()
+    {
+        return histogram;
+    }
+
     public String getLabel( final Locale locale )
     {
         final String keyName = Admin.STATISTICS_LABEL_PREFIX + this.getKey();
@@ -0,0 +1,159 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.stats;
+
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values using log-linear buckets.  Values below {@code 32} are counted exactly,
+ * larger values are counted in one of sixteen buckets per power of two, so a reported percentile is within about six
+ * percent of the recorded value.
+ */
+final class LatencyHistogram
+{
+    private static final int EXACT_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = 5;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = EXACT_BUCKETS + ( MAX_EXPONENT - MIN_EXPONENT + 1 ) * SUB_BUCKETS;
+    private static final long MAX_VALUE = ( 1L << ( MAX_EXPONENT + 1 ) ) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKET_COUNT );
+
+    void recordValue( final long value )
+    {
+        counts.incrementAndGet( bucketIndex( value ) );
+    }
+
+    boolean isEmpty()
+    {
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            if ( counts.get( i ) > 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Highest value that is counted in the same bucket as the value at {@code percentile}, or zero if no values
+     * have been recorded.
+     */
+    long valueAtPercentile( final double percentile )
+    {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            snapshot[i] = counts.get( i );
+            total += snapshot[i];
+        }
+
+        if ( total == 0 )
+        {
+            return 0;
+        }
+
+        final long targetCount = Math.max( 1, ( long ) Math.ceil( total * percentile / 100 ) );
+        long runningCount = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            runningCount += snapshot[i];
+            if ( runningCount >= targetCount )
+            {
+                return bucketUpperBound( i );
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    /**
+     * Encode non-empty buckets as comma separated {@code index:count} pairs.
+     */
+    String encode()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            final long count = counts.get( i );
+            if ( count > 0 )
+            {
+                if ( sb.length() > 0 )
+                {
+                    sb.append( ',' );
+                }
+                sb.append( i ).append( ':' ).append( count );
+            }
+        }
+        return sb.toString();
+    }
+
+    static LatencyHistogram decode( final String input )
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( final String pair : StringUtil.splitAndTrim( input, "," ) )
+        {
+            final int separator = pair.indexOf( ':' );
+            if ( separator > 0 )
+            {
+                final int index = JavaHelper.silentParseInt( pair.substring( 0, separator ), -1 );
+                final long count = JavaHelper.silentParseLong( pair.substring( separator + 1 ), 0 );
+                if ( index >= 0 && index < BUCKET_COUNT && count > 0 )
+                {
+                    histogram.counts.set( index, count );
+                }
+            }
+        }
+        return histogram;
+    }
+
+    static int bucketIndex( final long value )
+    {
+        final long boundedValue = Math.min( Math.max( value, 0 ), MAX_VALUE );
+        if ( boundedValue < EXACT_BUCKETS )
+        {
+            return ( int ) boundedValue;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros( boundedValue );
+        final int subBucket = ( int ) ( boundedValue >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+        return EXACT_BUCKETS + ( exponent - MIN_EXPONENT ) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound( final int index )
+    {
+        if ( index < EXACT_BUCKETS )
+        {
+            return index;
+        }
+
+        final int exponent = MIN_EXPONENT + ( index - EXACT_BUCKETS ) / SUB_BUCKETS;
+        final int subBucket = ( index - EXACT_BUCKETS ) % SUB_BUCKETS;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ( ( ( long ) ( SUB_BUCKETS + subBucket + 1 ) ) << shift ) - 1;
+    }
+}
@@ -25,4 +25,5 @@ public enum StatisticType
     INCREMENTER,
     AVERAGE,
     EPS,
+    HISTOGRAM,
 }
@@ -20,24 +20,29 @@
 
 package password.pwm.svc.stats;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StringUtil;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.LongAccumulator;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 public class StatisticsBundle
 {
+    private static final String HISTOGRAM_KEY_SUFFIX = "_HISTOGRAM";
+    private static final List<Integer> PERCENTILES = List.of( 50, 95, 99 );
+
     private final Map<Statistic, LongAccumulator> incrementerMap = new EnumMap<>( Statistic.class );
     private final Map<AvgStatistic, AverageBean> avgMap = new EnumMap<>( AvgStatistic.class );
+    private final Map<AvgStatistic, LatencyHistogram> histogramMap = new EnumMap<>( AvgStatistic.class );
 
     StatisticsBundle( )
     {
@@ -48,6 +53,10 @@ public class StatisticsBundle
         for ( final AvgStatistic avgStatistic : AvgStatistic.values() )
         {
             avgMap.put( avgStatistic, new AverageBean() );
+            if ( avgStatistic.isHistogram() )
+            {
+                histogramMap.put( avgStatistic, new LatencyHistogram() );
+            }
         }
     }
 
@@ -68,7 +77,14 @@ public class StatisticsBundle
             final AverageBean averageBean = avgMap.get( epsStatistic );
             if ( !averageBean.isZero() )
             {
-                outputMap.put( epsStatistic.name(), JsonFactory.get().serialize( averageBean ) );
+                outputMap.put( epsStatistic.name(), JsonFactory.get().serialize( averageBean.toStoredAverage() ) );
+            }
+        }
+        for ( final Map.Entry<AvgStatistic, LatencyHistogram> entry : histogramMap.entrySet() )
+        {
+            if ( !entry.getValue().isEmpty() )
+            {
+                outputMap.put( entry.getKey().name() + HISTOGRAM_KEY_SUFFIX, entry.getValue().encode() );
             }
         }
 
@@ -97,8 +113,14 @@ public class StatisticsBundle
             final String value = loadedMap.get( loopStat.name() );
             if ( StringUtil.notEmpty( value ) )
             {
-                final AverageBean avgBean = JsonFactory.get().deserialize( value, AverageBean.class );
-                bundle.avgMap.put( loopStat, avgBean );
+                final StoredAverage storedAverage = JsonFactory.get().deserialize( value, StoredAverage.class );
+                bundle.avgMap.put( loopStat, AverageBean.fromStoredAverage( storedAverage ) );
+            }
+
+            final String histogramValue = loadedMap.get( loopStat.name() + HISTOGRAM_KEY_SUFFIX );
+            if ( loopStat.isHistogram() && StringUtil.notEmpty( histogramValue ) )
+            {
+                bundle.histogramMap.put( loopStat, LatencyHistogram.decode( histogramValue ) );
             }
         }
 
@@ -113,6 +135,12 @@ public class StatisticsBundle
     void updateAverageValue( final AvgStatistic statistic, final long timeDuration )
     {
         avgMap.get( statistic ).appendValue( timeDuration );
+
+        final LatencyHistogram histogram = histogramMap.get( statistic );
+        if ( histogram != null )
+        {
+            histogram.recordValue( timeDuration );
+        }
     }
 
     public String getStatistic( final Statistic statistic )
@@ -125,63 +153,115 @@ public class StatisticsBundle
         return avgMap.get( statistic ).getAverage().toString();
     }
 
-    private static class AverageBean implements Serializable
+    /**
+     * Percentile values of a histogram statistic keyed by percentile name, such as {@code p95}.  Empty for
+     * statistics without a histogram.
+     */
+    public Map<String, String> getAvgStatisticPercentiles( final AvgStatistic statistic )
     {
-        private static final long serialVersionUID = 1L;
-
-        private BigInteger total = BigInteger.ZERO;
-        private BigInteger count = BigInteger.ZERO;
-
-        @SuppressFBWarnings( "SE_TRANSIENT_FIELD_NOT_RESTORED" )
-        private final transient Lock lock = new ReentrantLock();
+        final LatencyHistogram histogram = histogramMap.get( statistic );
+        if ( histogram == null )
+        {
+            return Collections.emptyMap();
+        }
 
-        AverageBean( )
+        final Map<String, String> output = new LinkedHashMap<>();
+        for ( final int percentile : PERCENTILES )
         {
+            output.put( percentileName( percentile ), Long.toString( histogram.valueAtPercentile( percentile ) ) );
         }
+        return Collections.unmodifiableMap( output );
+    }
+
+    public static List<String> percentileNames()
+    {
+        return PERCENTILES.stream()
+                .map( StatisticsBundle::percentileName )
+                .collect( Collectors.toUnmodifiableList() );
+    }
+
+    private static String percentileName( final int percentile )
+    {
+        return "p" + percentile;
+    }
+
+    /**
+     * Running average using striped adders, so concurrent updates do not contend on a lock.  The total and count
+     * are read separately, a concurrent update may be reflected in one and not the other.
+     */
+    private static class AverageBean
+    {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder count = new LongAdder();
 
         BigInteger getAverage( )
         {
-            lock.lock();
-            try
-            {
-                if ( BigInteger.ZERO.equals( count ) )
-                {
-                    return BigInteger.ZERO;
-                }
-                return total.divide( count );
-            }
-            finally
+            final long countValue = count.sum();
+            if ( countValue == 0 )
             {
-                lock.unlock();
+                return BigInteger.ZERO;
             }
+            return BigInteger.valueOf( total.sum() / countValue );
         }
 
         void appendValue( final long value )
         {
-            lock.lock();
-            try
-            {
-                count = count.add( BigInteger.ONE );
-                total = total.add( BigInteger.valueOf( value ) );
-            }
-            finally
-            {
-                lock.unlock();
-            }
+            total.add( value );
+            count.increment();
         }
 
         boolean isZero()
         {
-            lock.lock();
+            return total.sum() == 0;
+        }
+
+        StoredAverage toStoredAverage()
+        {
+            return new StoredAverage( BigInteger.valueOf( total.sum() ), BigInteger.valueOf( count.sum() ) );
+        }
+
+        static AverageBean fromStoredAverage( final StoredAverage storedAverage )
+        {
+            if ( storedAverage == null || storedAverage.total == null || storedAverage.count == null )
+            {
+                return new AverageBean();
+            }
+
             try
             {
-                return total.equals( BigInteger.ZERO );
+                final long total = storedAverage.total.longValueExact();
+                final long count = storedAverage.count.longValueExact();
+                final AverageBean averageBean = new AverageBean();
+                averageBean.total.add( total );
+                averageBean.count.add( count );
+                return averageBean;
             }
-            finally
+            catch ( final ArithmeticException e )
             {
-                lock.unlock();
+                // stored values that no longer fit in a long reset the average rather than being truncated
+                return new AverageBean();
             }
         }
     }
 
+    /**
+     * Persisted form of {@link AverageBean}, compatible with previously stored values.
+     */
+    private static class StoredAverage implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private BigInteger total;
+        private BigInteger count;
+
+        StoredAverage( )
+        {
+        }
+
+        StoredAverage( final BigInteger total, final BigInteger count )
+        {
+            this.total = total;
+            this.count = count;
+        }
+    }
 }
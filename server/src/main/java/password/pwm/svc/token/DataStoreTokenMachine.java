@@ -27,6 +27,7 @@ import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.PwmService;
 import password.pwm.util.DataStore;
+import password.pwm.util.DataStoreExpiryIndex;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.TimeDuration;
@@ -43,17 +44,21 @@ public class DataStoreTokenMachine implements TokenMachine
 
     private final DataStore dataStore;
 
+    private final DataStoreExpiryIndex expiryIndex;
+
     private final PwmDomain pwmDomain;
 
     DataStoreTokenMachine(
             final PwmDomain pwmDomain,
             final TokenService tokenService,
-            final DataStore dataStore
+            final DataStore dataStore,
+            final DataStoreExpiryIndex expiryIndex
     )
     {
         this.pwmDomain = pwmDomain;
         this.tokenService = tokenService;
         this.dataStore = dataStore;
+        this.expiryIndex = expiryIndex;
     }
 
     @Override
@@ -87,16 +92,19 @@ public class DataStoreTokenMachine implements TokenMachine
             final long finalSize = size();
             LOGGER.trace( () -> "beginning purge cycle; database size = " + finalSize );
         }
-        try ( ClosableIterator<Map.Entry<String, String>> keyIterator = dataStore.iterator() )
+        try
         {
-            while ( tokenService.status() == PwmService.STATUS.OPEN && keyIterator.hasNext() )
+            if ( !expiryIndex.isLegacyScanComplete() )
             {
-                final String storedHash = keyIterator.next().getKey();
-                final TokenKey loopKey = keyFromStoredHash( storedHash );
-
-                // retrieving token tests validity and causes purging
-                retrieveToken( null, loopKey );
+                purgeAllTokens();
+                if ( isOpen() )
+                {
+                    expiryIndex.markLegacyScanComplete();
+                }
             }
+
+            // retrieving token tests validity and causes purging
+            expiryIndex.purge( Instant.now(), storedHash -> retrieveToken( null, keyFromStoredHash( storedHash ) ), this::isOpen );
         }
         catch ( final Exception e )
         {
@@ -108,6 +116,30 @@ public class DataStoreTokenMachine implements TokenMachine
         }
     }
 
+    /**
+     * Full pass over every stored token, only needed once for tokens stored before the expiry index existed.
+     */
+    private void purgeAllTokens( )
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        try ( ClosableIterator<Map.Entry<String, String>> keyIterator = dataStore.iterator() )
+        {
+            while ( isOpen() && keyIterator.hasNext() )
+            {
+                final String storedHash = keyIterator.next().getKey();
+                final TokenKey loopKey = keyFromStoredHash( storedHash );
+
+                // retrieving token tests validity and causes purging
+                retrieveToken( null, loopKey );
+            }
+        }
+    }
+
+    private boolean isOpen()
+    {
+        return tokenService.status() == PwmService.STATUS.OPEN;
+    }
+
     private boolean testIfTokenNeedsPurging( final TokenPayload theToken )
     {
         if ( theToken == null )
@@ -180,6 +212,9 @@ public class DataStoreTokenMachine implements TokenMachine
         final String rawValue = tokenService.toEncryptedString( tokenPayload );
         final String storedHash = tokenKey.getStoredHash();
         dataStore.put( storedHash, rawValue );
+
+        final Instant expiration = tokenPayload.getExpiration() == null ? Instant.now() : tokenPayload.getExpiration();
+        expiryIndex.add( storedHash, expiration );
     }
 
     @Override
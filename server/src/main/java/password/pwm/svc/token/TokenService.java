@@ -65,6 +65,7 @@ import password.pwm.svc.sms.SmsQueueService;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.DataStore;
+import password.pwm.util.DataStoreExpiryIndex;
 import password.pwm.util.java.MiscUtil;
 import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.StringUtil;
@@ -174,7 +175,8 @@ public class TokenService extends AbstractPwmService implements PwmService
                 case STORE_LOCALDB:
                 {
                     final DataStore dataStore = new LocalDBDataStore( pwmApplication.getLocalDB(), LocalDB.DB.TOKENS );
-                    tokenMachine = new DataStoreTokenMachine( pwmDomain, this, dataStore );
+                    final DataStore indexStore = new LocalDBDataStore( pwmApplication.getLocalDB(), LocalDB.DB.TOKENS_EXPIRY );
+                    tokenMachine = new DataStoreTokenMachine( pwmDomain, this, dataStore, makeExpiryIndex( indexStore ) );
                     usedStorageMethod = DataStorageMethod.LOCALDB;
                     break;
                 }
@@ -182,7 +184,8 @@ public class TokenService extends AbstractPwmService implements PwmService
                 case STORE_DB:
                 {
                     final DataStore dataStore = new DatabaseDataStore( pwmDomain.getPwmApplication().getDatabaseService(), DatabaseTable.TOKENS );
-                    tokenMachine = new DataStoreTokenMachine( pwmDomain, this, dataStore );
+                    final DataStore indexStore = new DatabaseDataStore( pwmDomain.getPwmApplication().getDatabaseService(), DatabaseTable.TOKENS_EXPIRY );
+                    tokenMachine = new DataStoreTokenMachine( pwmDomain, this, dataStore, makeExpiryIndex( indexStore ) );
                     usedStorageMethod = DataStorageMethod.DB;
                     break;
                 }
@@ -219,6 +222,16 @@ public class TokenService extends AbstractPwmService implements PwmService
         return STATUS.OPEN;
     }
 
+    private DataStoreExpiryIndex makeExpiryIndex( final DataStore indexStore )
+            throws PwmException
+    {
+        final TimeDuration bucketDuration = TimeDuration.of( Long.parseLong(
+                getPwmApplication().getConfig().readAppProperty( AppProperty.TOKEN_CLEANER_INTERVAL_SECONDS ) ), TimeDuration.Unit.SECONDS );
+        final DataStoreExpiryIndex expiryIndex = new DataStoreExpiryIndex( indexStore, "tokens-" + getDomainID().stringValue(), bucketDuration );
+        expiryIndex.initialize( Instant.now() );
+        return expiryIndex;
+    }
+
     public boolean supportsName( )
     {
         return tokenMachine.supportsName();
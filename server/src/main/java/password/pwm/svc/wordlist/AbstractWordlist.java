@@ -34,8 +34,10 @@ import password.pwm.health.HealthRecord;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
 import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.ConditionalTaskExecutor;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.MiscUtil;
 import password.pwm.util.java.Percent;
 import password.pwm.util.java.PwmCallable;
 import password.pwm.util.java.StringUtil;
@@ -43,14 +45,21 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
@@ -60,8 +69,12 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
 {
     static final TimeDuration DEBUG_OUTPUT_FREQUENCY = TimeDuration.MINUTE;
 
+    private static final String BLOOM_FILTER_FILE_SUFFIX = ".bloomfilter";
+    private static final int TEST_MODE_BLOOM_FILTER_MAX_BYTES = 1024 * 1024;
+
     private WordlistConfiguration wordlistConfiguration;
     private WordlistBucket wordlistBucket;
+    private WordlistBloomFilter bloomFilter;
     private ScheduledExecutorService executorService;
     private volatile Set<WordType> wordTypesCache = null;
 
@@ -117,7 +130,8 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
                 return STATUS.CLOSED;
             }
 
-            this.wordlistBucket = new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+            this.wordlistBucket = makeWordlistBucket( pwmApplication, type );
+            this.bloomFilter = openBloomFilter( pwmApplication.getLocalDB().getFileLocation() );
         }
 
         inhibitBackgroundImportFlag.set( false );
@@ -141,10 +155,93 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
     private void startTestInstance( final WordlistType wordlistType )
     {
         this.wordlistBucket = new MemoryWordlistBucket( getPwmApplication(), wordlistConfiguration, wordlistType );
+        this.bloomFilter = openBloomFilter( null );
         final WordlistInspector wordlistInspector = new WordlistInspector( getPwmApplication(), AbstractWordlist.this, () -> false );
         wordlistInspector.run();
     }
 
+    private WordlistBucket makeWordlistBucket( final PwmApplication pwmApplication, final WordlistType type )
+            throws PwmUnrecoverableException
+    {
+        final WordlistBucketType bucketType = wordlistConfiguration.getBucketType();
+        switch ( bucketType )
+        {
+            case LocalDB:
+                return new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+
+            case MappedHash:
+                return new MappedHashWordlistBucket( pwmApplication, wordlistConfiguration, type, pwmApplication.getLocalDB().getFileLocation() );
+
+            default:
+                MiscUtil.unhandledSwitchStatement( bucketType );
+        }
+
+        throw new IllegalStateException( "unreachable switch statement" );
+    }
+
+    private WordlistBloomFilter openBloomFilter( final File localDbDirectory )
+    {
+        // a mapped hash bucket miss is already a binary search over memory, and its hashes can't be used to rebuild the filter
+        if ( !wordlistConfiguration.isBloomFilterEnabled() || wordlistConfiguration.getBucketType() == WordlistBucketType.MappedHash )
+        {
+            return null;
+        }
+
+        final int sizeBytes = wordlistConfiguration.getBloomFilterSizeBytes();
+        final int hashCount = wordlistConfiguration.getBloomFilterHashCount();
+
+        if ( localDbDirectory == null )
+        {
+            return WordlistBloomFilter.createOffHeap( Math.min( sizeBytes, TEST_MODE_BLOOM_FILTER_MAX_BYTES ), hashCount );
+        }
+
+        final File bloomFilterFile = new File( localDbDirectory, wordlistConfiguration.getDb().name() + BLOOM_FILTER_FILE_SUFFIX );
+        try
+        {
+            final WordlistBloomFilter openedFilter = WordlistBloomFilter.openMapped( bloomFilterFile, sizeBytes, hashCount );
+            getLogger().debug( getSessionLabel(), () -> "opened bloom filter " + StringUtil.mapToString( openedFilter.debugStats() ) );
+            return openedFilter;
+        }
+        catch ( final IOException e )
+        {
+            getLogger().warn( getSessionLabel(), () -> "unable to open wordlist bloom filter file '"
+                    + bloomFilterFile.getAbsolutePath() + "', lookups will not be filtered: " + e.getMessage() );
+        }
+
+        return null;
+    }
+
+    Optional<WordlistBloomFilter> getBloomFilter()
+    {
+        return Optional.ofNullable( bloomFilter );
+    }
+
+    /**
+     * Rebuild the bloom filter from the bucket contents if the stored wordlist is complete but the
+     * filter was not completed along with it, such as after an unclean shutdown or when the
+     * filter is first enabled on an existing wordlist.
+     *
+     * @param cancelFlag checked during the rebuild
+     * @throws PwmUnrecoverableException if the bucket can not be read
+     */
+    void checkBloomFilter( final BooleanSupplier cancelFlag )
+            throws PwmUnrecoverableException
+    {
+        if ( bloomFilter == null || bloomFilter.isComplete() || !readWordlistStatus().isCompleted() )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        getLogger().debug( getSessionLabel(), () -> "rebuilding bloom filter from stored wordlist, previous state: " + bloomFilter.getState() );
+        try ( ClosableIterator<String> keyIterator = wordlistBucket.keyIterator() )
+        {
+            bloomFilter.rebuild( keyIterator, cancelFlag );
+        }
+        getLogger().debug( getSessionLabel(), () -> "rebuilt bloom filter " + StringUtil.mapToString( bloomFilter.debugStats() ),
+                TimeDuration.fromCurrent( startTime ) );
+    }
+
     boolean containsWord( final Set<WordType> wordTypes, final String word ) throws PwmUnrecoverableException
     {
         final Instant startTime = Instant.now();
@@ -156,21 +253,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
             return false;
         }
 
-        boolean result = false;
-        for ( final WordType wordType : wordTypes )
-        {
-            if ( !result )
-            {
-                if ( wordType == WordType.RAW )
-                {
-                    result = checkRawWords( testWord.get() );
-                }
-                else
-                {
-                    result = checkHashWords( wordType, testWord.get() );
-                }
-            }
-        }
+        final boolean result = checkWords( wordTypes, testWord.get() );
 
         getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.avgWordCheckLength, word.length() );
         getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.wordCheckTimeMS, TimeDuration.fromCurrent( startTime ).asDuration() );
@@ -187,31 +270,111 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         return result;
     }
 
-    private boolean checkHashWords( final WordType wordType, final String word )
+    /**
+     * Gather the raw chunks and hashed forms of the word for every word type, then resolve all of them
+     * against the bucket with a single {@link WordlistBucket#containsAny} call.
+     */
+    private boolean checkWords( final Set<WordType> wordTypes, final String word )
             throws PwmUnrecoverableException
     {
-        final String hashWord = wordType.convertInputFromUser( getPwmApplication(), wordlistConfiguration, word );
-        return realBucketCheck( hashWord, wordType );
+        final Map<WordType, Set<String>> candidatesByType = new EnumMap<>( WordType.class );
+        for ( final WordType wordType : wordTypes )
+        {
+            if ( wordType == WordType.RAW )
+            {
+                final String normalizedWord = WordType.RAW.convertInputFromUser( getPwmApplication(), wordlistConfiguration, word );
+                final Set<String> chunks = WordlistUtil.chunkWord( normalizedWord, this.wordlistConfiguration.getCheckSize() );
+                getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunksPerWordCheck, chunks.size() );
+                candidatesByType.put( wordType, chunks );
+            }
+            else
+            {
+                final String hashWord = wordType.convertInputFromUser( getPwmApplication(), wordlistConfiguration, word );
+                candidatesByType.put( wordType, Collections.singleton( hashWord ) );
+            }
+        }
+
+        final Set<String> candidates = new HashSet<>();
+        candidatesByType.values().forEach( candidates::addAll );
+        if ( candidates.isEmpty() )
+        {
+            return false;
+        }
+
+        final Instant startTime = Instant.now();
+        final Set<String> bucketCandidates = filterCandidates( candidates );
+        final boolean results = !bucketCandidates.isEmpty() && wordlistBucket.containsAny( bucketCandidates );
+
+        if ( !results && bloomFilter != null && bloomFilter.isComplete() )
+        {
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.bloomFilterFalsePositives, bucketCandidates.size() );
+        }
+
+        statsOutput.conditionallyExecuteTask();
+
+        final Duration perChunkDuration = TimeDuration.fromCurrent( startTime ).asDuration().dividedBy( candidates.size() );
+        getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunkCheckTimeMS, perChunkDuration );
+        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkChecks, candidates.size() );
+        if ( results )
+        {
+            recordWordTypeHit( candidatesByType, bucketCandidates );
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkHits );
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkMisses, candidates.size() - 1 );
+        }
+        else
+        {
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkMisses, candidates.size() );
+        }
+
+        return results;
+    }
+
+    /**
+     * Remove candidates the bloom filter rules out, if the filter is complete.
+     */
+    private Set<String> filterCandidates( final Set<String> candidates )
+    {
+        if ( bloomFilter == null || !bloomFilter.isComplete() )
+        {
+            return candidates;
+        }
+
+        final Set<String> bucketCandidates = new HashSet<>();
+        for ( final String candidate : candidates )
+        {
+            if ( bloomFilter.mightContain( candidate ) )
+            {
+                bucketCandidates.add( candidate );
+            }
+        }
+
+        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.bloomFilterRejects, candidates.size() - bucketCandidates.size() );
+        return bucketCandidates;
     }
 
-    private boolean checkRawWords( final String word )
+    /**
+     * Attribute a batch hit to a word type.  Only reached when the password is already rejected, so the
+     * additional per-type read is not on the common path.
+     */
+    private void recordWordTypeHit( final Map<WordType, Set<String>> candidatesByType, final Set<String> bucketCandidates )
             throws PwmUnrecoverableException
     {
-        final String normalizedWord = WordType.RAW.convertInputFromUser( getPwmApplication(), wordlistConfiguration, word );
-        final Set<String> testWords = WordlistUtil.chunkWord( normalizedWord, this.wordlistConfiguration.getCheckSize() );
-
-        getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunksPerWordCheck, testWords.size() );
+        if ( candidatesByType.size() == 1 )
+        {
+            getStatistics().getWordTypeHits().get( candidatesByType.keySet().iterator().next() ).increment();
+            return;
+        }
 
-        for ( final String t : testWords )
+        for ( final Map.Entry<WordType, Set<String>> entry : candidatesByType.entrySet() )
         {
-            // stop checking once found
-            if ( realBucketCheck( t, WordType.RAW ) )
+            final Set<String> typeCandidates = new HashSet<>( entry.getValue() );
+            typeCandidates.retainAll( bucketCandidates );
+            if ( !typeCandidates.isEmpty() && wordlistBucket.containsAny( typeCandidates ) )
             {
-                return true;
+                getStatistics().getWordTypeHits().get( entry.getKey() ).increment();
+                return;
             }
         }
-
-        return false;
     }
 
     void outputStats()
@@ -231,29 +394,6 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         }
     }
 
-    private boolean realBucketCheck( final String word, final WordType wordType )
-            throws PwmUnrecoverableException
-    {
-        final Instant startTime = Instant.now();
-        final boolean results = wordlistBucket.containsWord( word );
-
-        statsOutput.conditionallyExecuteTask();
-
-        getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunkCheckTimeMS, TimeDuration.fromCurrent( startTime ).asDuration() );
-        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkChecks );
-        if ( results )
-        {
-            getStatistics().getWordTypeHits().get( wordType ).increment();
-            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkHits );
-        }
-        else
-        {
-            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkMisses );
-        }
-
-        return results;
-    }
-
     String randomSeed() throws PwmUnrecoverableException
     {
         return getWordlistBucket().randomSeed();
@@ -309,6 +449,18 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
                 getLogger().warn( getSessionLabel(), () -> "background thread still running after waiting " + closeWaitTime.asCompactString() );
             }
         }
+
+        if ( bloomFilter != null )
+        {
+            try
+            {
+                bloomFilter.close();
+            }
+            catch ( final IOException e )
+            {
+                getLogger().warn( getSessionLabel(), () -> "error closing bloom filter: " + e.getMessage() );
+            }
+        }
     }
 
     @Override
@@ -398,10 +550,54 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         activity = Wordlist.Activity.Clearing;
         writeWordlistStatus( WordlistStatus.builder().build() );
         getWordlistBucket().clear();
+        storeRankedEntries( Collections.emptyList() );
+        if ( bloomFilter != null )
+        {
+            bloomFilter.clear();
+        }
         getLogger().debug( getSessionLabel(), () -> "cleared stored wordlist", TimeDuration.fromCurrent( startTime ) );
         setActivity( postCleanActivity );
     }
 
+    /**
+     * Number of leading entries of a source the importer keeps in source order and passes to
+     * {@link #storeRankedEntries(List)} once the import is complete.
+     *
+     * @param sourceType type of the source being imported
+     * @return maximum number of entries to keep, or zero if entries should not be kept
+     */
+    int rankedEntryLimit( final WordlistSourceType sourceType )
+    {
+        return 0;
+    }
+
+    /**
+     * Called with the leading entries of a completed import, or with an empty list when the wordlist is cleared.
+     *
+     * @param rankedEntries normalized entries in source order
+     */
+    void storeRankedEntries( final List<String> rankedEntries )
+    {
+    }
+
+    Optional<String> normalizeRankedEntry( final String line )
+    {
+        if ( StringUtil.isEmpty( line ) || WordType.determineWordType( line ) != WordType.RAW )
+        {
+            return Optional.empty();
+        }
+
+        for ( final String commentPrefix : getConfiguration().getCommentPrefixes() )
+        {
+            if ( line.startsWith( commentPrefix ) )
+            {
+                return Optional.empty();
+            }
+        }
+
+        return WordlistUtil.normalizeWordLength( line, getConfiguration() ).map( String::toLowerCase );
+    }
+
     void setAutoImportError( final ErrorInformation autoImportError )
     {
         this.autoImportError = autoImportError;
@@ -519,9 +715,12 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
     {
         if ( status() == STATUS.OPEN )
         {
+            final Map<String, String> debugProperties = new TreeMap<>( getStatistics().asDebugMap() );
+            debugProperties.put( "BucketType", wordlistConfiguration.getBucketType().name() );
+            getBloomFilter().ifPresent( filter -> debugProperties.putAll( filter.debugStats() ) );
             return ServiceInfoBean.builder()
                     .storageMethod( DataStorageMethod.LOCALDB )
-                    .debugProperties( getStatistics().asDebugMap() )
+                    .debugProperties( debugProperties )
                     .build();
         }
 
@@ -29,7 +29,9 @@ import password.pwm.util.java.StringUtil;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 public abstract class AbstractWordlistBucket implements WordlistBucket
 {
@@ -117,12 +119,54 @@ public abstract class AbstractWordlistBucket implements WordlistBucket
         throw new PwmUnrecoverableException( PwmError.ERROR_INTERNAL, "seedlist word not available" );
     }
 
+    @Override
+    public void finalizeImport() throws PwmUnrecoverableException
+    {
+        // words are visible as soon as they are written by default
+    }
+
     @Override
     public boolean containsWord( final String word ) throws PwmUnrecoverableException
     {
         return containsKey( word );
     }
 
+    @Override
+    public boolean containsAny( final Collection<String> words ) throws PwmUnrecoverableException
+    {
+        final SortedSet<String> sortedKeys = new TreeSet<>();
+        for ( final String word : words )
+        {
+            if ( StringUtil.notEmpty( word ) )
+            {
+                sortedKeys.add( word );
+            }
+        }
+
+        return !sortedKeys.isEmpty() && containsAnyKey( sortedKeys );
+    }
+
+    /**
+     * Test sorted, de-duplicated keys.  The default implementation tests each key in turn, buckets backed
+     * by an ordered store should override to resolve the keys in one pass.
+     *
+     * @param sortedKeys non-empty set of keys in natural order
+     * @return true if any key is present
+     * @throws PwmUnrecoverableException if the bucket can not be read
+     */
+    boolean containsAnyKey( final SortedSet<String> sortedKeys )
+            throws PwmUnrecoverableException
+    {
+        for ( final String key : sortedKeys )
+        {
+            if ( containsKey( key ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     abstract void putValues( Map<String, String> values )
             throws PwmUnrecoverableException;
 
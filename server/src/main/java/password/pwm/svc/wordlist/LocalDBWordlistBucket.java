@@ -24,11 +24,13 @@ import password.pwm.AppAttribute;
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.FileSystemUtility;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
 
 import java.util.Map;
+import java.util.SortedSet;
 
 class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBucket
 {
@@ -88,6 +90,20 @@ class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBu
         }
     }
 
+    @Override
+    boolean containsAnyKey( final SortedSet<String> sortedKeys )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            return localDB.containsAny( db, sortedKeys );
+        }
+        catch ( final LocalDBException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_LOCALDB_UNAVAILABLE, e.getMessage() );
+        }
+    }
+
     @Override
     public long size() throws PwmUnrecoverableException
     {
@@ -101,6 +117,38 @@ class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBu
         }
     }
 
+    @Override
+    public ClosableIterator<String> keyIterator() throws PwmUnrecoverableException
+    {
+        try
+        {
+            final LocalDB.LocalDBIterator<Map.Entry<String, String>> innerIterator = localDB.iterator( db );
+            return new ClosableIterator<>()
+            {
+                @Override
+                public void close()
+                {
+                    innerIterator.close();
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return innerIterator.hasNext();
+                }
+
+                @Override
+                public String next()
+                {
+                    return innerIterator.next().getKey();
+                }
+            };
+        }
+        catch ( final LocalDBException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_LOCALDB_UNAVAILABLE, e.getMessage() );
+        }
+    }
 
     @Override
     public void clear() throws PwmUnrecoverableException
@@ -0,0 +1,529 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.AppAttribute;
+import password.pwm.PwmApplication;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.FileSystemUtility;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+
+/**
+ * Read-mostly wordlist bucket that stores a sorted array of fixed width 64 bit word hashes in a single file.  The
+ * file is memory-mapped and lookups are a binary search over the mapping, without any per-lookup allocation.
+ *
+ * <p>Words added during an import are appended unsorted to a staging file, and are merged into the sorted
+ * file when the import completes.  Staged words are not visible to {@link #containsKey(String)} until then.</p>
+ */
+class MappedHashWordlistBucket extends AbstractWordlistBucket implements WordlistBucket
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( MappedHashWordlistBucket.class );
+
+    private static final String SORTED_FILE_SUFFIX = ".hashes";
+    private static final String STAGING_FILE_SUFFIX = ".hashes.staging";
+    private static final String TEMP_FILE_SUFFIX = ".hashes.tmp";
+    private static final String RUN_FILE_SUFFIX = ".hashes.run";
+
+    private static final long HASH_SEED = 0x9E3779B97F4A7C15L;
+
+    // 2^27 longs (1GB) per mapped segment, MappedByteBuffer is limited to 2GB
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = ( 1L << SEGMENT_SHIFT ) - 1;
+
+    private static final int SORT_RUN_SIZE = 4 * 1024 * 1024;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final String baseName;
+    private final File sortedFile;
+    private final File stagingFile;
+
+    private volatile MappedHashes mappedHashes;
+
+    MappedHashWordlistBucket(
+            final PwmApplication pwmApplication,
+            final WordlistConfiguration wordlistConfiguration,
+            final WordlistType type,
+            final File directory
+    )
+            throws PwmUnrecoverableException
+    {
+        super( pwmApplication, wordlistConfiguration, type );
+        this.directory = directory;
+        this.baseName = wordlistConfiguration.getDb().name();
+        this.sortedFile = new File( directory, baseName + SORTED_FILE_SUFFIX );
+        this.stagingFile = new File( directory, baseName + STAGING_FILE_SUFFIX );
+
+        try
+        {
+            truncatePartialStagingWrite();
+            this.mappedHashes = MappedHashes.map( sortedFile );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error opening wordlist hash file: " + e.getMessage() );
+        }
+    }
+
+    static long hashWord( final String word )
+    {
+        return WordlistUtil.hash64( word, HASH_SEED );
+    }
+
+    @Override
+    void putValues( final Map<String, String> values )
+            throws PwmUnrecoverableException
+    {
+        if ( values.isEmpty() )
+        {
+            return;
+        }
+
+        final ByteBuffer byteBuffer = ByteBuffer.allocate( values.size() * Long.BYTES );
+        for ( final String word : values.keySet() )
+        {
+            byteBuffer.putLong( hashWord( word ) );
+        }
+        byteBuffer.flip();
+
+        try ( FileChannel fileChannel = FileChannel.open( stagingFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND ) )
+        {
+            while ( byteBuffer.hasRemaining() )
+            {
+                fileChannel.write( byteBuffer );
+            }
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error while writing words to wordlist: " + e.getMessage() );
+        }
+    }
+
+    @Override
+    boolean containsKey( final String key )
+    {
+        return mappedHashes.contains( hashWord( key ) );
+    }
+
+    @Override
+    boolean containsAnyKey( final SortedSet<String> sortedKeys )
+    {
+        final long[] hashes = new long[sortedKeys.size()];
+        int index = 0;
+        for ( final String key : sortedKeys )
+        {
+            hashes[index++] = hashWord( key );
+        }
+        Arrays.sort( hashes );
+        return mappedHashes.containsAny( hashes );
+    }
+
+    @Override
+    String getValue( final String key )
+    {
+        return containsKey( key ) ? "" : null;
+    }
+
+    @Override
+    public void finalizeImport()
+            throws PwmUnrecoverableException
+    {
+        if ( !stagingFile.exists() )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        try
+        {
+            mergeStagingFile();
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error while sorting wordlist hash file: " + e.getMessage() );
+        }
+
+        LOGGER.debug( () -> "merged staged wordlist hashes, " + mappedHashes.count + " total hashes", TimeDuration.fromCurrent( startTime ) );
+    }
+
+    @Override
+    public long size()
+    {
+        return mappedHashes.count + ( stagingFile.length() / Long.BYTES );
+    }
+
+    @Override
+    public ClosableIterator<String> keyIterator()
+            throws PwmUnrecoverableException
+    {
+        throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "wordlist hash file does not retain words and can not be iterated" );
+    }
+
+    @Override
+    public void clear()
+            throws PwmUnrecoverableException
+    {
+        mappedHashes = MappedHashes.EMPTY;
+
+        try
+        {
+            Files.deleteIfExists( stagingFile.toPath() );
+            Files.deleteIfExists( sortedFile.toPath() );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error clearing wordlist hash files: " + e.getMessage() );
+        }
+    }
+
+    @Override
+    public WordlistStatus readWordlistStatus()
+    {
+        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
+        return pwmApplication.readAppAttribute( appAttribute, WordlistStatus.class )
+                .orElseGet( () -> WordlistStatus.builder().build() );
+    }
+
+    @Override
+    public void writeWordlistStatus( final WordlistStatus wordlistStatus )
+    {
+        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
+        pwmApplication.writeAppAttribute( appAttribute, wordlistStatus );
+    }
+
+    @Override
+    public long spaceRemaining()
+    {
+        return FileSystemUtility.diskSpaceRemaining( directory );
+    }
+
+    /**
+     * A crash during {@link #putValues(Map)} may leave a partial hash at the end of the staging file.
+     */
+    private void truncatePartialStagingWrite()
+            throws IOException
+    {
+        if ( stagingFile.exists() && stagingFile.length() % Long.BYTES != 0 )
+        {
+            try ( FileChannel fileChannel = FileChannel.open( stagingFile.toPath(), StandardOpenOption.WRITE ) )
+            {
+                fileChannel.truncate( stagingFile.length() - ( stagingFile.length() % Long.BYTES ) );
+            }
+        }
+    }
+
+    /**
+     * External merge sort of the staging file together with the existing sorted file.  The staging file is
+     * sorted in fixed size runs, then all runs are merged, de-duplicated and written to a temporary file that
+     * replaces the sorted file.
+     */
+    private void mergeStagingFile()
+            throws IOException
+    {
+        truncatePartialStagingWrite();
+
+        final List<File> runFiles = writeSortedRuns();
+        final File tempFile = new File( directory, baseName + TEMP_FILE_SUFFIX );
+
+        try
+        {
+            final List<File> mergeFiles = new ArrayList<>( runFiles );
+            if ( sortedFile.exists() )
+            {
+                mergeFiles.add( sortedFile );
+            }
+
+            mergeRuns( mergeFiles, tempFile );
+
+            Files.move( tempFile.toPath(), sortedFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            mappedHashes = MappedHashes.map( sortedFile );
+            Files.deleteIfExists( stagingFile.toPath() );
+        }
+        finally
+        {
+            for ( final File runFile : runFiles )
+            {
+                Files.deleteIfExists( runFile.toPath() );
+            }
+            Files.deleteIfExists( tempFile.toPath() );
+        }
+    }
+
+    private List<File> writeSortedRuns()
+            throws IOException
+    {
+        final List<File> runFiles = new ArrayList<>();
+        final long totalHashes = stagingFile.length() / Long.BYTES;
+
+        try ( DataInputStream inputStream = new DataInputStream( new BufferedInputStream( Files.newInputStream( stagingFile.toPath() ), IO_BUFFER_SIZE ) ) )
+        {
+            long hashesRead = 0;
+            while ( hashesRead < totalHashes )
+            {
+                final int runSize = ( int ) Math.min( SORT_RUN_SIZE, totalHashes - hashesRead );
+                final long[] run = new long[runSize];
+                for ( int i = 0; i < runSize; i++ )
+                {
+                    run[i] = inputStream.readLong();
+                }
+                hashesRead += runSize;
+
+                Arrays.sort( run );
+
+                final File runFile = new File( directory, baseName + RUN_FILE_SUFFIX + runFiles.size() );
+                runFiles.add( runFile );
+                try ( DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( runFile.toPath() ), IO_BUFFER_SIZE ) ) )
+                {
+                    for ( final long hash : run )
+                    {
+                        outputStream.writeLong( hash );
+                    }
+                }
+            }
+        }
+
+        return runFiles;
+    }
+
+    private static void mergeRuns( final List<File> runFiles, final File outputFile )
+            throws IOException
+    {
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>( Comparator.comparingLong( RunReader::getCurrent ) );
+        try ( DataOutputStream outputStream = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( outputFile.toPath() ), IO_BUFFER_SIZE ) ) )
+        {
+            for ( final File runFile : runFiles )
+            {
+                final RunReader runReader = new RunReader( Files.newInputStream( runFile.toPath() ) );
+                if ( runReader.advance() )
+                {
+                    queue.add( runReader );
+                }
+                else
+                {
+                    runReader.close();
+                }
+            }
+
+            boolean firstValue = true;
+            long lastValue = 0;
+            while ( !queue.isEmpty() )
+            {
+                final RunReader runReader = queue.poll();
+                final long value = runReader.getCurrent();
+                if ( firstValue || value != lastValue )
+                {
+                    outputStream.writeLong( value );
+                    lastValue = value;
+                    firstValue = false;
+                }
+
+                if ( runReader.advance() )
+                {
+                    queue.add( runReader );
+                }
+                else
+                {
+                    runReader.close();
+                }
+            }
+        }
+        finally
+        {
+            for ( final RunReader runReader : queue )
+            {
+                runReader.close();
+            }
+        }
+    }
+
+    private static class RunReader
+    {
+        private final DataInputStream inputStream;
+        private long current;
+
+        RunReader( final InputStream inputStream )
+        {
+            this.inputStream = new DataInputStream( new BufferedInputStream( inputStream, IO_BUFFER_SIZE ) );
+        }
+
+        long getCurrent()
+        {
+            return current;
+        }
+
+        boolean advance()
+                throws IOException
+        {
+            try
+            {
+                current = inputStream.readLong();
+                return true;
+            }
+            catch ( final EOFException e )
+            {
+                return false;
+            }
+        }
+
+        void close()
+                throws IOException
+        {
+            inputStream.close();
+        }
+    }
+
+    private static class MappedHashes
+    {
+        private static final MappedHashes EMPTY = new MappedHashes( new LongBuffer[0], 0 );
+
+        private final LongBuffer[] segments;
+        private final long count;
+
+        private MappedHashes( final LongBuffer[] segments, final long count )
+        {
+            this.segments = segments;
+            this.count = count;
+        }
+
+        static MappedHashes map( final File file )
+                throws IOException
+        {
+            if ( !file.exists() || file.length() < Long.BYTES )
+            {
+                return EMPTY;
+            }
+
+            final long count = file.length() / Long.BYTES;
+            final int segmentCount = ( int ) ( ( count + SEGMENT_MASK ) >>> SEGMENT_SHIFT );
+            final LongBuffer[] segments = new LongBuffer[segmentCount];
+
+            // mappings remain valid after the channel is closed
+            try ( FileChannel fileChannel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+            {
+                for ( int i = 0; i < segmentCount; i++ )
+                {
+                    final long startIndex = ( long ) i << SEGMENT_SHIFT;
+                    final long segmentLength = Math.min( 1L << SEGMENT_SHIFT, count - startIndex );
+                    segments[i] = fileChannel.map( FileChannel.MapMode.READ_ONLY, startIndex * Long.BYTES, segmentLength * Long.BYTES ).asLongBuffer();
+                }
+            }
+
+            return new MappedHashes( segments, count );
+        }
+
+        boolean contains( final long hash )
+        {
+            long low = 0;
+            long high = count - 1;
+
+            while ( low <= high )
+            {
+                final long mid = ( low + high ) >>> 1;
+                final long value = get( mid );
+
+                if ( value < hash )
+                {
+                    low = mid + 1;
+                }
+                else if ( value > hash )
+                {
+                    high = mid - 1;
+                }
+                else
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Search for sorted hashes, each search starts where the previous one ended so the batch is
+         * resolved in a single forward pass over the mapping.
+         */
+        boolean containsAny( final long[] sortedHashes )
+        {
+            long low = 0;
+            for ( final long hash : sortedHashes )
+            {
+                long high = count - 1;
+                while ( low <= high )
+                {
+                    final long mid = ( low + high ) >>> 1;
+                    final long value = get( mid );
+
+                    if ( value < hash )
+                    {
+                        low = mid + 1;
+                    }
+                    else if ( value > hash )
+                    {
+                        high = mid - 1;
+                    }
+                    else
+                    {
+                        return true;
+                    }
+                }
+
+                if ( low >= count )
+                {
+                    return false;
+                }
+            }
+
+            return false;
+        }
+
+        private long get( final long index )
+        {
+            return segments[( int ) ( index >>> SEGMENT_SHIFT )].get( ( int ) ( index & SEGMENT_MASK ) );
+        }
+    }
+}
@@ -22,7 +22,9 @@ package password.pwm.svc.wordlist;
 
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.ClosableIterator;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -71,6 +73,31 @@ public class MemoryWordlistBucket extends AbstractWordlistBucket
         map.clear();
     }
 
+    @Override
+    public ClosableIterator<String> keyIterator()
+    {
+        final Iterator<String> innerIterator = map.keySet().iterator();
+        return new ClosableIterator<>()
+        {
+            @Override
+            public void close()
+            {
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return innerIterator.hasNext();
+            }
+
+            @Override
+            public String next()
+            {
+                return innerIterator.next();
+            }
+        };
+    }
+
     @Override
     public WordlistStatus readWordlistStatus()
     {
@@ -22,6 +22,7 @@ package password.pwm.svc.wordlist;
 
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.secure.PooledMessageDigest;
 import password.pwm.util.secure.PwmHashAlgorithm;
 
 import java.util.ArrayList;
@@ -90,8 +91,11 @@ public enum WordType
                     : input;
         }
 
-        final String hashedValue = pwmApplication.getSecureService().hash( this.hashAlgorithm, input );
-        return makeHashedStoredValue( hashedValue );
+        // same value as makeHashedStoredValue(), built in a reused buffer as this is called for every word check
+        final StringBuilder keyBuilder = KeyBuilderHolder.KEY_BUILDER.get();
+        keyBuilder.setLength( 0 );
+        pwmApplication.getSecureService().appendHash( this.hashAlgorithm, input, keyBuilder, PooledMessageDigest.HexCase.LOWER );
+        return keyBuilder.append( DELIMITER ).append( name() ).toString();
     }
 
     private String makeHashedStoredValue( final String hash )
@@ -150,6 +154,11 @@ public enum WordType
         return false;
     }
 
+    private static class KeyBuilderHolder
+    {
+        private static final ThreadLocal<StringBuilder> KEY_BUILDER = ThreadLocal.withInitial( () -> new StringBuilder( 160 ) );
+    }
+
     private static class NonRawTypeSingleton
     {
         private static final WordType[] NON_RAW_TYPES;
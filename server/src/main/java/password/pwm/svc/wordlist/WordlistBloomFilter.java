@@ -0,0 +1,354 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.util.java.Percent;
+import password.pwm.util.java.StringUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Probabilistic pre-filter for wordlist bucket lookups.  Bits are held outside the java heap, either in a
+ * direct buffer or in a file mapped next to the LocalDB files.  A negative result from {@link #mightContain(String)}
+ * is definitive, so lookups it rejects never need to reach the bucket.
+ *
+ * <p>The filter is only consulted once it is {@link State#Complete}.  Words are added while an import is in
+ * progress ({@link State#Building}); any interruption that may have lost writes leaves the filter
+ * {@link State#Invalid} until it is rebuilt from the bucket contents.</p>
+ */
+class WordlistBloomFilter implements Closeable
+{
+    private static final long MAGIC = 0x50574D424C4F4F4DL;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 8;
+    private static final int OFFSET_HASH_COUNT = 12;
+    private static final int OFFSET_BIT_COUNT = 16;
+    private static final int OFFSET_INSERT_COUNT = 24;
+    private static final int OFFSET_STATE = 32;
+    private static final int OFFSET_OPEN_FLAG = 36;
+
+    private static final long HASH_SEED_1 = 0xCBF29CE484222325L;
+    private static final long HASH_SEED_2 = 0x84222325CBF29CE4L;
+
+    enum State
+    {
+        Invalid,
+        Building,
+        Complete,
+    }
+
+    private final ByteBuffer buffer;
+    private final FileChannel fileChannel;
+    private final File file;
+    private final long bitCount;
+    private final int hashCount;
+
+    private volatile State state;
+    private long insertCount;
+
+    private WordlistBloomFilter(
+            final ByteBuffer buffer,
+            final FileChannel fileChannel,
+            final File file,
+            final long bitCount,
+            final int hashCount,
+            final State state,
+            final long insertCount
+    )
+    {
+        this.buffer = buffer;
+        this.fileChannel = fileChannel;
+        this.file = file;
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.state = state;
+        this.insertCount = insertCount;
+    }
+
+    static WordlistBloomFilter createOffHeap( final int sizeBytes, final int hashCount )
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect( HEADER_SIZE + sizeBytes );
+        final WordlistBloomFilter bloomFilter = new WordlistBloomFilter( buffer, null, null, sizeBytes * 8L, hashCount, State.Invalid, 0 );
+        bloomFilter.writeHeader( true );
+        return bloomFilter;
+    }
+
+    static WordlistBloomFilter openMapped( final File file, final int sizeBytes, final int hashCount )
+            throws IOException
+    {
+        final long fileSize = HEADER_SIZE + ( long ) sizeBytes;
+        final boolean existingFile = file.exists() && file.length() == fileSize;
+
+        final FileChannel fileChannel = FileChannel.open( file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+
+        try
+        {
+            if ( !existingFile )
+            {
+                fileChannel.truncate( 0 );
+            }
+
+            final MappedByteBuffer buffer = fileChannel.map( FileChannel.MapMode.READ_WRITE, 0, fileSize );
+
+            State state = State.Invalid;
+            long insertCount = 0;
+
+            if ( existingFile
+                    && buffer.getLong( OFFSET_MAGIC ) == MAGIC
+                    && buffer.getInt( OFFSET_VERSION ) == VERSION
+                    && buffer.getInt( OFFSET_HASH_COUNT ) == hashCount
+                    && buffer.getLong( OFFSET_BIT_COUNT ) == sizeBytes * 8L
+                    && buffer.getInt( OFFSET_OPEN_FLAG ) == 0 )
+            {
+                final int storedState = buffer.getInt( OFFSET_STATE );
+                if ( storedState >= 0 && storedState < State.values().length )
+                {
+                    state = State.values()[storedState];
+                    insertCount = buffer.getLong( OFFSET_INSERT_COUNT );
+                }
+            }
+
+            final WordlistBloomFilter bloomFilter = new WordlistBloomFilter( buffer, fileChannel, file, sizeBytes * 8L, hashCount, state, insertCount );
+            bloomFilter.writeHeader( true );
+            buffer.force();
+            return bloomFilter;
+        }
+        catch ( final IOException | RuntimeException e )
+        {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    State getState()
+    {
+        return state;
+    }
+
+    boolean isComplete()
+    {
+        return state == State.Complete;
+    }
+
+    boolean mightContain( final String word )
+    {
+        final long hash1 = WordlistUtil.hash64( word, HASH_SEED_1 );
+        final long hash2 = WordlistUtil.hash64( word, HASH_SEED_2 );
+
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            if ( !readBit( bitIndex( hash1, hash2, i ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Add words to the filter.  Words are only recorded while the filter is {@link State#Building}, callers
+     * must add words before they are written to the bucket so that the filter is always a superset of the
+     * bucket contents.
+     *
+     * @param words words to add
+     */
+    void addAll( final Collection<String> words )
+    {
+        if ( state != State.Building )
+        {
+            return;
+        }
+
+        for ( final String word : words )
+        {
+            if ( StringUtil.notEmpty( word ) )
+            {
+                add( word );
+            }
+        }
+
+        buffer.putLong( OFFSET_INSERT_COUNT, insertCount );
+    }
+
+    private void add( final String word )
+    {
+        final long hash1 = WordlistUtil.hash64( word, HASH_SEED_1 );
+        final long hash2 = WordlistUtil.hash64( word, HASH_SEED_2 );
+
+        for ( int i = 0; i < hashCount; i++ )
+        {
+            setBit( bitIndex( hash1, hash2, i ) );
+        }
+
+        insertCount++;
+    }
+
+    void clear()
+    {
+        state = State.Building;
+        insertCount = 0;
+        writeHeader( true );
+
+        final int limit = buffer.capacity();
+        int position = HEADER_SIZE;
+        while ( position + Long.BYTES <= limit )
+        {
+            buffer.putLong( position, 0 );
+            position += Long.BYTES;
+        }
+        while ( position < limit )
+        {
+            buffer.put( position, ( byte ) 0 );
+            position++;
+        }
+    }
+
+    void markComplete()
+    {
+        if ( state == State.Building )
+        {
+            state = State.Complete;
+            writeHeader( true );
+            force();
+        }
+    }
+
+    void rebuild( final Iterator<String> words, final BooleanSupplier cancelFlag )
+    {
+        clear();
+
+        while ( words.hasNext() )
+        {
+            if ( cancelFlag.getAsBoolean() )
+            {
+                state = State.Invalid;
+                writeHeader( true );
+                throw new CancellationException();
+            }
+
+            final String word = words.next();
+            if ( StringUtil.notEmpty( word ) )
+            {
+                add( word );
+            }
+        }
+
+        markComplete();
+    }
+
+    /**
+     * Expected false positive rate given the current number of inserted words, calculated as
+     * <i>(1 - e^(-kn/m))^k</i>.
+     *
+     * @return probability (0-1) that a word not in the filter will be reported as present
+     */
+    double expectedFalsePositiveRate()
+    {
+        if ( insertCount <= 0 )
+        {
+            return 0;
+        }
+
+        final double exponent = -( ( double ) hashCount * insertCount ) / bitCount;
+        return Math.pow( 1 - Math.exp( exponent ), hashCount );
+    }
+
+    Map<String, String> debugStats()
+    {
+        final Map<String, String> outputMap = new LinkedHashMap<>();
+        outputMap.put( "BloomFilterState", state.name() );
+        outputMap.put( "BloomFilterSize", StringUtil.formatDiskSize( bitCount / 8 ) );
+        outputMap.put( "BloomFilterHashCount", Integer.toString( hashCount ) );
+        outputMap.put( "BloomFilterInsertCount", Long.toString( insertCount ) );
+        outputMap.put( "BloomFilterExpectedFalsePositiveRate", Percent.of( ( float ) expectedFalsePositiveRate(), 1 ).pretty( 4 ) );
+        if ( file != null )
+        {
+            outputMap.put( "BloomFilterFile", file.getAbsolutePath() );
+        }
+        return Collections.unmodifiableMap( outputMap );
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if ( fileChannel != null && fileChannel.isOpen() )
+        {
+            writeHeader( false );
+            force();
+            fileChannel.close();
+        }
+    }
+
+    private void force()
+    {
+        if ( buffer instanceof MappedByteBuffer )
+        {
+            ( ( MappedByteBuffer ) buffer ).force();
+        }
+    }
+
+    private void writeHeader( final boolean open )
+    {
+        buffer.putLong( OFFSET_MAGIC, MAGIC );
+        buffer.putInt( OFFSET_VERSION, VERSION );
+        buffer.putInt( OFFSET_HASH_COUNT, hashCount );
+        buffer.putLong( OFFSET_BIT_COUNT, bitCount );
+        buffer.putLong( OFFSET_INSERT_COUNT, insertCount );
+        buffer.putInt( OFFSET_STATE, state.ordinal() );
+        buffer.putInt( OFFSET_OPEN_FLAG, open ? 1 : 0 );
+    }
+
+    private long bitIndex( final long hash1, final long hash2, final int iteration )
+    {
+        return Math.floorMod( hash1 + iteration * hash2, bitCount );
+    }
+
+    private boolean readBit( final long bitIndex )
+    {
+        final int byteIndex = HEADER_SIZE + ( int ) ( bitIndex >>> 3 );
+        return ( buffer.get( byteIndex ) & ( 1 << ( bitIndex & 7 ) ) ) != 0;
+    }
+
+    private void setBit( final long bitIndex )
+    {
+        final int byteIndex = HEADER_SIZE + ( int ) ( bitIndex >>> 3 );
+        buffer.put( byteIndex, ( byte ) ( buffer.get( byteIndex ) | ( 1 << ( bitIndex & 7 ) ) ) );
+    }
+}
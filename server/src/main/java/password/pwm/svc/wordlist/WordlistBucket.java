@@ -21,6 +21,7 @@
 package password.pwm.svc.wordlist;
 
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.ClosableIterator;
 
 import java.util.Collection;
 
@@ -29,6 +30,17 @@ public interface WordlistBucket
     boolean containsWord( String hashWord )
             throws PwmUnrecoverableException;
 
+    /**
+     * Test a batch of candidate words in a single storage pass.  Candidates are sorted and duplicates removed
+     * before the bucket is read.
+     *
+     * @param words candidate words, may contain duplicates
+     * @return true if any of the words is in the bucket
+     * @throws PwmUnrecoverableException if the bucket can not be read
+     */
+    boolean containsAny( Collection<String> words )
+            throws PwmUnrecoverableException;
+
     String randomSeed() throws PwmUnrecoverableException;
 
     void addWords( Collection<String> words, AbstractWordlist abstractWordlist )
@@ -36,6 +48,10 @@ public interface WordlistBucket
 
     long size() throws PwmUnrecoverableException;
 
+    void finalizeImport() throws PwmUnrecoverableException;
+
+    ClosableIterator<String> keyIterator() throws PwmUnrecoverableException;
+
     void clear() throws PwmUnrecoverableException;
 
     WordlistStatus readWordlistStatus();
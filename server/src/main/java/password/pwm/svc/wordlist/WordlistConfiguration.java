@@ -81,6 +81,16 @@ public class WordlistConfiguration implements Serializable
 
     private final TimeDuration inspectorFrequency;
 
+    // included in the config hash only when not the default, see configHash
+    private final transient WordlistBucketType bucketType;
+
+    // settings below do not affect stored wordlist contents, so are excluded from the config hash
+    private final transient int importWorkerThreads;
+    private final transient int importChunkLines;
+    private final transient boolean bloomFilterEnabled;
+    private final transient int bloomFilterSizeBytes;
+    private final transient int bloomFilterHashCount;
+
     static WordlistConfiguration fromConfiguration(
             final AppConfig appConfig,
             final WordlistType type
@@ -128,6 +138,12 @@ public class WordlistConfiguration implements Serializable
                 .importMinFreeSpace( JavaHelper.silentParseLong( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_MIN_FREE_SPACE ), 100_000_000 ) )
                 .importPauseDuration( appConfig.readDurationAppProperty( AppProperty.WORDLIST_IMPORT_PAUSE_DURATION_MS ) )
                 .importPauseFrequency( appConfig.readDurationAppProperty( AppProperty.WORDLIST_IMPORT_PAUSE_FREQUENCY_MS ) )
+                .bucketType( JavaHelper.readEnumFromString( WordlistBucketType.class, WordlistBucketType.LocalDB, appConfig.readAppProperty( AppProperty.WORDLIST_BUCKET_TYPE ) ) )
+                .importWorkerThreads( JavaHelper.silentParseInt( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_WORKER_THREADS ), 2 ) )
+                .importChunkLines( JavaHelper.silentParseInt( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_CHUNK_LINES ), 1000 ) )
+                .bloomFilterEnabled( Boolean.parseBoolean( appConfig.readAppProperty( AppProperty.WORDLIST_BLOOM_FILTER_ENABLE ) ) )
+                .bloomFilterSizeBytes( JavaHelper.silentParseInt( appConfig.readAppProperty( AppProperty.WORDLIST_BLOOM_FILTER_SIZE_BYTES ), 64 * 1024 * 1024 ) )
+                .bloomFilterHashCount( JavaHelper.silentParseInt( appConfig.readAppProperty( AppProperty.WORDLIST_BLOOM_FILTER_HASH_COUNT ), 7 ) )
                 .build();
     }
 
@@ -153,7 +169,16 @@ public class WordlistConfiguration implements Serializable
 
     @Getter( AccessLevel.PRIVATE )
     private final transient Supplier<String> configHash = LazySupplier.create( () ->
-            SecureEngine.hash( JsonFactory.get().serialize( WordlistConfiguration.this ), HASH_ALGORITHM ) );
+            SecureEngine.hash( JsonFactory.get().serialize( WordlistConfiguration.this ) + bucketTypeHashValue(), HASH_ALGORITHM ) );
+
+    /**
+     * Stored words are only readable by the bucket type that wrote them, so a change of bucket type must invalidate
+     * the stored wordlist.  The default type is omitted so existing stored wordlists remain valid.
+     */
+    private String bucketTypeHashValue()
+    {
+        return bucketType == null || bucketType == WordlistBucketType.LocalDB ? "" : bucketType.name();
+    }
 
     public boolean isAutoImportUrlConfigured()
     {
@@ -20,10 +20,13 @@
 
 package password.pwm.svc.wordlist;
 
+import lombok.Value;
 import password.pwm.PwmConstants;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.EventRateMeter;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.TransactionSizeCalculator;
 import password.pwm.util.java.ConditionalTaskExecutor;
 import password.pwm.util.java.JavaHelper;
@@ -37,22 +40,44 @@ import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BooleanSupplier;
 
 /**
+ * Imports a wordlist zip into the wordlist bucket using a staged pipeline.  A reader thread splits the zip
+ * stream into chunks of lines, worker threads normalize and chunk the words, and the calling thread merges the
+ * results back into stream order and writes them to the bucket in transactions.  The stored byte count only
+ * advances past lines that have been written, so an interrupted import resumes from the last written transaction.
+ *
  * @author Jason D. Rivard
  */
 class WordlistImporter implements Runnable
 {
+    private static final LineChunk END_OF_INPUT = new LineChunk( -1, Collections.emptyList(), 0 );
+    private static final TimeDuration PIPELINE_POLL_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
+    private static final TimeDuration PIPELINE_SHUTDOWN_WAIT = TimeDuration.SECONDS_10;
+
     private final WordlistZipReader zipFileReader;
     private final WordlistSourceType sourceType;
     private final AbstractWordlist rootWordlist;
@@ -65,12 +90,25 @@ class WordlistImporter implements Runnable
     private final StatisticAverageBundle<StatKey> importStatistics = new StatisticAverageBundle<>( StatKey.class );
     private final ConditionalTaskExecutor pauseTimer;
 
+    private final int workerThreads;
+    private final int chunkLines;
+    private final int rankedEntryLimit;
+    private final List<String> rankedEntries = new ArrayList<>();
+    private final BlockingQueue<LineChunk> readQueue;
+    private final BlockingQueue<WordChunk> writeQueue;
+    private final Semaphore unwrittenChunkPermits;
+    private final AtomicLong totalChunks = new AtomicLong( -1 );
+    private final AtomicReference<Throwable> pipelineError = new AtomicReference<>();
+    private final EventRateMeter wordRateMeter = new EventRateMeter( TimeDuration.MINUTE );
+
     private long charsInBuffer;
+    private long bufferedByteCount;
+    private long committedByteCount;
     private ErrorInformation exitError;
     private Instant startTime = Instant.now();
     private long bytesSkipped;
     private TimeDuration previousImportDuration;
-    private final Map<WordType, LongAdder> seenWordTypes = new EnumMap<>( WordType.class );
+    private final Map<WordType, LongAdder> seenWordTypes = new ConcurrentHashMap<>();
     private boolean completed;
 
     private enum StatKey
@@ -114,6 +152,26 @@ class WordlistImporter implements Runnable
         CharsPerTxn,
         ChunksPerWord,
         AvgWordLength,
+        WordsPerSecond,
+        ReadBacklog,
+        WriteBacklog,
+    }
+
+    @Value
+    private static class LineChunk
+    {
+        private final long sequence;
+        private final List<String> lines;
+        private final long byteCount;
+    }
+
+    @Value
+    private static class WordChunk
+    {
+        private final long sequence;
+        private final Set<String> words;
+        private final long chars;
+        private final long byteCount;
     }
 
     WordlistImporter(
@@ -141,6 +199,15 @@ class WordlistImporter implements Runnable
                         .build()
         );
 
+        this.workerThreads = Math.max( 1, wordlistConfiguration.getImportWorkerThreads() );
+        this.chunkLines = Math.max( 1, wordlistConfiguration.getImportChunkLines() );
+        this.rankedEntryLimit = rootWordlist.rankedEntryLimit( sourceType );
+        this.readQueue = new ArrayBlockingQueue<>( workerThreads * 4 );
+        this.writeQueue = new ArrayBlockingQueue<>( workerThreads * 4 );
+
+        // bounds the chunks read but not yet written, which also bounds the out-of-order chunks held by the writer
+        this.unwrittenChunkPermits = new Semaphore( workerThreads * 4 );
+
         {
             final TimeDuration pauseDuration = wordlistConfiguration.getImportPauseDuration();
             this.pauseTimer = ConditionalTaskExecutor.forPeriodicTask(
@@ -232,6 +299,8 @@ class WordlistImporter implements Runnable
                 () -> getLogger().debug( rootWordlist.getSessionLabel(), this::makeStatString ),
                 AbstractWordlist.DEBUG_OUTPUT_FREQUENCY.asDuration() );
 
+        ExecutorService pipelineExecutor = null;
+
         try
         {
             debugOutputter.conditionallyExecuteTask();
@@ -239,19 +308,40 @@ class WordlistImporter implements Runnable
             initImportProcess();
 
             startTime = Instant.now();
+            committedByteCount = zipFileReader.getByteCount();
+            bufferedByteCount = committedByteCount;
 
-            getLogger().debug( rootWordlist.getSessionLabel(), () -> "beginning import: " + JsonFactory.get().serialize( rootWordlist.readWordlistStatus() ) );
-            Instant lastTxnInstant = Instant.now();
+            getLogger().debug( rootWordlist.getSessionLabel(), () -> "beginning import with " + workerThreads + " worker threads: "
+                    + JsonFactory.get().serialize( rootWordlist.readWordlistStatus() ) );
+
+            pipelineExecutor = startPipeline();
 
             final long importMaxChars = rootWordlist.getConfiguration().getImportMaxChars();
+            final Map<Long, WordChunk> pendingChunks = new HashMap<>();
+            long nextSequence = 0;
+            Instant lastTxnInstant = Instant.now();
 
-            String line;
-            do
+            while ( totalChunks.get() < 0 || nextSequence < totalChunks.get() )
             {
-                line = zipFileReader.nextLine();
-                if ( line != null )
+                cancelCheck();
+                checkPipelineError();
+
+                final WordChunk polledChunk = pollWriteQueue();
+                if ( polledChunk != null )
                 {
-                    addLine( line );
+                    pendingChunks.put( polledChunk.getSequence(), polledChunk );
+                }
+
+                // workers complete out of order, buffer chunks so they are written in stream order
+                while ( pendingChunks.containsKey( nextSequence ) )
+                {
+                    final WordChunk wordChunk = pendingChunks.remove( nextSequence );
+                    nextSequence++;
+                    unwrittenChunkPermits.release();
+
+                    bufferedWords.addAll( wordChunk.getWords() );
+                    charsInBuffer += wordChunk.getChars();
+                    bufferedByteCount = wordChunk.getByteCount();
 
                     debugOutputter.conditionallyExecuteTask();
 
@@ -272,27 +362,161 @@ class WordlistImporter implements Runnable
                     cancelCheck();
                 }
             }
-            while ( line != null );
 
+            checkPipelineError();
             cancelCheck();
             populationComplete();
         }
         finally
         {
+            if ( pipelineExecutor != null )
+            {
+                pipelineExecutor.shutdownNow();
+                JavaHelper.closeAndWaitExecutor( pipelineExecutor, PIPELINE_SHUTDOWN_WAIT );
+            }
             JavaHelper.closeQuietly( zipFileReader );
         }
     }
 
-    private void addLine( final String input )
+    private ExecutorService startPipeline()
+    {
+        final String threadName = PwmScheduler.makeThreadName(
+                rootWordlist.getSessionLabel(),
+                ( String ) null,
+                WordlistImporter.class,
+                null );
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                workerThreads + 1,
+                PwmScheduler.makePwmThreadFactory( threadName + "-", true ) );
+
+        executorService.execute( this::readLines );
+        for ( int i = 0; i < workerThreads; i++ )
+        {
+            executorService.execute( this::normalizeLines );
+        }
+
+        return executorService;
+    }
+
+    private WordChunk pollWriteQueue()
+    {
+        try
+        {
+            return writeQueue.poll( PIPELINE_POLL_INTERVAL.asMillis(), TimeUnit.MILLISECONDS );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    private void checkPipelineError()
+            throws PwmUnrecoverableException
+    {
+        final Throwable throwable = pipelineError.get();
+        if ( throwable != null )
+        {
+            if ( throwable instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) throwable;
+            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error during import pipeline: " + throwable.getMessage() );
+        }
+    }
+
+    /**
+     * Reader stage, splits the zip stream into chunks of lines tagged with the stream position at the end of the chunk.
+     */
+    private void readLines()
+    {
+        try
+        {
+            long sequence = 0;
+            List<String> lines = new ArrayList<>( chunkLines );
+            String line = zipFileReader.nextLine();
+            while ( line != null )
+            {
+                collectRankedEntry( line );
+                lines.add( line );
+                if ( lines.size() >= chunkLines )
+                {
+                    unwrittenChunkPermits.acquire();
+                    readQueue.put( new LineChunk( sequence, lines, zipFileReader.getByteCount() ) );
+                    sequence++;
+                    lines = new ArrayList<>( chunkLines );
+                }
+                line = zipFileReader.nextLine();
+            }
+
+            unwrittenChunkPermits.acquire();
+            readQueue.put( new LineChunk( sequence, lines, zipFileReader.getByteCount() ) );
+            sequence++;
+            totalChunks.set( sequence );
+
+            for ( int i = 0; i < workerThreads; i++ )
+            {
+                readQueue.put( END_OF_INPUT );
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( final Throwable t )
+        {
+            pipelineError.compareAndSet( null, t );
+        }
+    }
+
+    /**
+     * Worker stage, normalizes, hashes and chunks the lines read by the reader stage.
+     */
+    private void normalizeLines()
+    {
+        try
+        {
+            LineChunk lineChunk = readQueue.take();
+            while ( lineChunk != END_OF_INPUT )
+            {
+                final Set<String> words = new HashSet<>();
+                long chars = 0;
+                for ( final String line : lineChunk.getLines() )
+                {
+                    chars += addLine( line, words );
+                }
+                writeQueue.put( new WordChunk( lineChunk.getSequence(), words, chars, lineChunk.getByteCount() ) );
+                lineChunk = readQueue.take();
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( final Throwable t )
+        {
+            pipelineError.compareAndSet( null, t );
+        }
+    }
+
+    /**
+     * Normalize a single wordlist line and add the resulting words to the output set.
+     *
+     * @param input wordlist line
+     * @param outputWords set to add normalized words to
+     * @return number of chars added
+     */
+    private long addLine( final String input, final Set<String> outputWords )
     {
         if ( StringUtil.isEmpty( input ) )
         {
-            return;
+            return 0;
         }
 
         if ( checkIfCommentLine( input ) )
         {
-            return;
+            return 0;
         }
 
         final WordType wordType = WordType.determineWordType( input );
@@ -300,29 +524,43 @@ class WordlistImporter implements Runnable
 
         if ( wordType == WordType.RAW )
         {
-            WordlistUtil.normalizeWordLength( input, rootWordlist.getConfiguration() ).ifPresent( word ->
+            final Optional<String> word = WordlistUtil.normalizeWordLength( input, rootWordlist.getConfiguration() );
+            if ( word.isPresent() )
             {
-                final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), word );
+                final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), word.get() );
                 final Set<String> words = WordlistUtil.chunkWord( normalizedWord, rootWordlist.getConfiguration().getCheckSize() );
                 importStatistics.update( StatKey.averageWordLength, normalizedWord.length() );
                 importStatistics.update( StatKey.chunksPerWord, words.size() );
-                incrementCharBufferCounter( words );
-                bufferedWords.addAll( words );
-            } );
+                outputWords.addAll( words );
+                return countChars( words );
+            }
+            return 0;
         }
-        else
+
+        final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), input );
+        outputWords.add( normalizedWord );
+        return normalizedWord.length();
+    }
+
+    private static long countChars( final Set<String> words )
+    {
+        long chars = 0;
+        for ( final String word : words )
         {
-            final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), input );
-            incrementCharBufferCounter( Collections.singleton( normalizedWord ) );
-            bufferedWords.add( normalizedWord );
+            chars += word.length();
         }
+        return chars;
     }
 
-    private void incrementCharBufferCounter( final Collection<String> words )
+    /**
+     * Keep the leading entries of the source in source order.  Called by the reader stage, and while skipping
+     * forward on a resumed import, so entries are always seen in stream order by a single thread.
+     */
+    private void collectRankedEntry( final String line )
     {
-        for ( final String word : words )
+        if ( rankedEntries.size() < rankedEntryLimit )
         {
-            charsInBuffer += word.length();
+            rootWordlist.normalizeRankedEntry( line ).ifPresent( rankedEntries::add );
         }
     }
 
@@ -344,6 +582,9 @@ class WordlistImporter implements Runnable
     {
         final Instant startTime = Instant.now();
 
+        // add to the bloom filter first so it always covers everything in the bucket
+        rootWordlist.getBloomFilter().ifPresent( bloomFilter -> bloomFilter.addAll( bufferedWords ) );
+
         //add the elements
         wordlistBucket.addWords( bufferedWords, rootWordlist );
 
@@ -355,6 +596,8 @@ class WordlistImporter implements Runnable
 
         importStatistics.update( StatKey.wordsPerTransaction, bufferedWords.size() );
         importStatistics.update( StatKey.charsPerTransaction, charsInBuffer );
+        wordRateMeter.markEvents( bufferedWords.size() );
+        committedByteCount = bufferedByteCount;
 
         //clear the buffers.
         bufferedWords.clear();
@@ -365,6 +608,7 @@ class WordlistImporter implements Runnable
             throws PwmUnrecoverableException
     {
         flushBuffer();
+        wordlistBucket.finalizeImport();
         getLogger().info( this::makeStatString );
         final long wordlistSize = wordlistBucket.size();
 
@@ -372,8 +616,14 @@ class WordlistImporter implements Runnable
                 + PwmNumberFormat.forLocale( PwmConstants.DEFAULT_LOCALE ).format( wordlistSize )
                 + " total words", this.getImportDuration() );
 
+        if ( rankedEntryLimit > 0 )
+        {
+            rootWordlist.storeRankedEntries( List.copyOf( rankedEntries ) );
+        }
+
         completed = true;
         writeCurrentWordlistStatus();
+        rootWordlist.getBloomFilter().ifPresent( WordlistBloomFilter::markComplete );
 
         getLogger().debug( rootWordlist.getSessionLabel(), () -> "final post-population status: " + JsonFactory.get().serialize( rootWordlist.readWordlistStatus() ) );
     }
@@ -408,7 +658,7 @@ class WordlistImporter implements Runnable
 
             while ( bytesSkipped < previousBytesRead )
             {
-                zipFileReader.nextLine();
+                collectRankedEntry( zipFileReader.nextLine() );
                 bytesSkipped = zipFileReader.getByteCount();
                 debugOutputter.conditionallyExecuteTask();
                 cancelCheck();
@@ -468,6 +718,9 @@ class WordlistImporter implements Runnable
         stats.put( DebugKey.ImportDuration, getImportDuration().asCompactString() );
         stats.put( DebugKey.ZipFile, zipFileReader.currentZipName() );
         stats.put( DebugKey.WordTypes, JsonFactory.get().serializeMap( seenWordTypes, WordType.class, LongAdder.class ) );
+        stats.put( DebugKey.WordsPerSecond, MiscUtil.forDefaultLocale().format( readWordsPerSecond() ) );
+        stats.put( DebugKey.ReadBacklog, Integer.toString( readQueue.size() ) );
+        stats.put( DebugKey.WriteBacklog, Integer.toString( writeQueue.size() ) );
 
         if ( bytesSkipped > 0 )
         {
@@ -503,11 +756,19 @@ class WordlistImporter implements Runnable
                 .sourceType( sourceType )
                 .completed( completed )
                 .wordTypes( outputWordTypeMap )
-                .bytes( zipFileReader.getByteCount() )
+                .bytes( committedByteCount )
                 .importMs( getImportDuration().asMillis() )
+                .importWordsPerSecond( completed ? 0 : readWordsPerSecond() )
+                .importReadBacklog( completed ? 0 : readQueue.size() )
+                .importWriteBacklog( completed ? 0 : writeQueue.size() )
                 .build() );
     }
 
+    private long readWordsPerSecond()
+    {
+        return wordRateMeter.readEventRate().longValue();
+    }
+
     private void checkWordlistSpaceRemaining()
             throws PwmUnrecoverableException
     {
@@ -56,6 +56,8 @@ class WordlistInspector implements Runnable
         try
         {
             checkPopulation();
+            cancelCheck();
+            rootWordlist.checkBloomFilter( cancelFlag );
         }
         catch ( final CancellationException e )
         {
@@ -20,8 +20,18 @@
 
 package password.pwm.svc.wordlist;
 
+import password.pwm.AppAttribute;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.bean.DomainID;
+import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.ZxcvbnStrengthEstimator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -31,10 +41,27 @@ public class WordlistService extends AbstractWordlist implements Wordlist
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( WordlistService.class );
 
+    private final ReentrantLock strengthEstimatorLock = new ReentrantLock();
+    private volatile ZxcvbnStrengthEstimator strengthEstimator;
+
     public WordlistService( )
     {
     }
 
+    @Override
+    protected STATUS postAbstractInit( final PwmApplication pwmApplication, final DomainID domainID )
+            throws PwmException
+    {
+        final STATUS status = super.postAbstractInit( pwmApplication, domainID );
+
+        if ( status == STATUS.OPEN && !getConfiguration().isTestMode() )
+        {
+            scheduleJob( this::initStrengthEstimator );
+        }
+
+        return status;
+    }
+
     @Override
     protected WordlistType getWordlistType()
     {
@@ -51,4 +78,93 @@ public class WordlistService extends AbstractWordlist implements Wordlist
     {
         return super.containsWord( this.getWordTypesCache(), word );
     }
+
+    /**
+     * Shared strength estimator.  Uses the leading entries of the imported wordlist when the source is
+     * ranked, otherwise only the standard zxcvbn dictionaries.
+     *
+     * @return the application strength estimator
+     */
+    public ZxcvbnStrengthEstimator getStrengthEstimator()
+    {
+        final ZxcvbnStrengthEstimator estimator = strengthEstimator;
+        if ( estimator != null )
+        {
+            return estimator;
+        }
+
+        strengthEstimatorLock.lock();
+        try
+        {
+            if ( strengthEstimator == null )
+            {
+                strengthEstimator = new ZxcvbnStrengthEstimator( Collections.emptyList(), readMemoSize() );
+            }
+            return strengthEstimator;
+        }
+        finally
+        {
+            strengthEstimatorLock.unlock();
+        }
+    }
+
+    @Override
+    int rankedEntryLimit( final WordlistSourceType sourceType )
+    {
+        // the built-in wordlist is sorted alphabetically, so only other sources can be used as a ranked dictionary
+        if ( sourceType == WordlistSourceType.BuiltIn || sourceType == WordlistSourceType.Temporary_BuiltIn || !isRankedWordlist() )
+        {
+            return 0;
+        }
+
+        return Integer.parseInt( getPwmApplication().getConfig().readAppProperty( AppProperty.PASSWORD_STRENGTH_ZXCVBN_WORDLIST_ENTRIES ) );
+    }
+
+    @Override
+    void storeRankedEntries( final List<String> rankedEntries )
+    {
+        getPwmApplication().writeAppAttribute( AppAttribute.WORDLIST_RANKED_ENTRIES, new WordlistRankedEntries( rankedEntries ) );
+
+        if ( status() == STATUS.OPEN && !getConfiguration().isTestMode() )
+        {
+            scheduleJob( this::initStrengthEstimator );
+        }
+    }
+
+    private void initStrengthEstimator()
+    {
+        final List<String> rankedEntries = isRankedWordlist()
+                ? getPwmApplication().readAppAttribute( AppAttribute.WORDLIST_RANKED_ENTRIES, WordlistRankedEntries.class )
+                        .map( WordlistRankedEntries::getEntries )
+                        .orElse( Collections.emptyList() )
+                : Collections.emptyList();
+
+        final ZxcvbnStrengthEstimator estimator = new ZxcvbnStrengthEstimator( rankedEntries, readMemoSize() );
+
+        strengthEstimatorLock.lock();
+        try
+        {
+            strengthEstimator = estimator;
+        }
+        finally
+        {
+            strengthEstimatorLock.unlock();
+        }
+
+        LOGGER.debug( getSessionLabel(), () -> "initialized strength estimator with " + rankedEntries.size() + " ranked wordlist entries" );
+    }
+
+    private boolean isRankedWordlist()
+    {
+        return Boolean.parseBoolean( getPwmApplication().getConfig().readAppProperty( AppProperty.PASSWORD_STRENGTH_ZXCVBN_WORDLIST_RANKED ) );
+    }
+
+    private int readMemoSize()
+    {
+        final PwmApplication pwmApplication = getPwmApplication();
+        final String memoSize = pwmApplication == null
+                ? AppProperty.PASSWORD_STRENGTH_ZXCVBN_MEMO_SIZE.getDefaultValue()
+                : pwmApplication.getConfig().readAppProperty( AppProperty.PASSWORD_STRENGTH_ZXCVBN_MEMO_SIZE );
+        return Integer.parseInt( memoSize );
+    }
 }
@@ -22,6 +22,7 @@ package password.pwm.svc.wordlist;
 
 import lombok.Value;
 import password.pwm.util.java.CollectionUtil;
+import password.pwm.util.java.Percent;
 import password.pwm.util.java.StatisticAverageBundle;
 import password.pwm.util.java.StatisticCounterBundle;
 
@@ -46,6 +47,8 @@ class WordlistStatistics
         chunkChecks,
         chunkHits,
         chunkMisses,
+        bloomFilterRejects,
+        bloomFilterFalsePositives,
     }
 
     enum AverageStat
@@ -61,6 +64,18 @@ class WordlistStatistics
         CollectionUtil.enumStream( WordType.class ).forEach( wordType -> wordTypeHits.put( wordType, new LongAdder() ) );
     }
 
+    /**
+     * Proportion of bucket misses that the bloom filter failed to reject.
+     *
+     * @return observed false positive rate of the bloom filter
+     */
+    Percent observedBloomFilterFalsePositiveRate()
+    {
+        final long falsePositives = counterStats.get( CounterStat.bloomFilterFalsePositives );
+        final long rejects = counterStats.get( CounterStat.bloomFilterRejects );
+        return Percent.of( falsePositives, falsePositives + rejects );
+    }
+
     Map<String, String> asDebugMap()
     {
         final Map<String, String> outputMap = new TreeMap<>(  );
@@ -70,6 +85,7 @@ class WordlistStatistics
         }
         outputMap.putAll( counterStats.debugStats() );
         outputMap.putAll( averageStats.debugStats() );
+        outputMap.put( "BloomFilterObservedFalsePositiveRate", observedBloomFilterFalsePositiveRate().pretty( 4 ) );
         return Collections.unmodifiableMap( outputMap );
     }
 }
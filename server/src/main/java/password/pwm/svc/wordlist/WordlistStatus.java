@@ -47,6 +47,10 @@ public class WordlistStatus implements Serializable
     private long importMs;
     private String configHash;
 
+    private long importWordsPerSecond;
+    private int importReadBacklog;
+    private int importWriteBacklog;
+
     @Builder.Default
     private Map<WordType, Long> wordTypes = new HashMap<>();
 }
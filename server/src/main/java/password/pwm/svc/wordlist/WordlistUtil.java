@@ -29,6 +29,29 @@ import java.util.TreeSet;
 
 class WordlistUtil
 {
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * Non-cryptographic 64 bit hash of a word, computed without allocation.
+     *
+     * @param value word to hash
+     * @param seed initial hash value, different seeds produce independent hashes
+     * @return 64 bit hash
+     */
+    static long hash64( final String value, final long seed )
+    {
+        long hash = seed;
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            hash = ( hash ^ value.charAt( i ) ) * FNV_PRIME;
+        }
+
+        // murmur3 finalizer to spread fnv output across all bits
+        hash = ( hash ^ ( hash >>> 33 ) ) * 0xFF51AFD7ED558CCDL;
+        hash = ( hash ^ ( hash >>> 33 ) ) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ ( hash >>> 33 );
+    }
+
     static Set<String> chunkWord( final String input, final int chunkSize )
     {
         if ( StringUtil.isEmpty( input ) )
@@ -0,0 +1,217 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util;
+
+import password.pwm.error.PwmDataStoreException;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Secondary index of record keys grouped into fixed width time buckets, stored in a separate {@link DataStore}.  Lets
+ * a cleaner visit only the records that fell due since the last pass instead of iterating and decoding the entire
+ * primary store.
+ *
+ * <p>{@link DataStore} has no range scan, so each bucket is stored as a dense run of slot rows keyed
+ * {@code namespace|bucket|slot}.  Writers claim the next free slot with {@link DataStore#putIfAbsent(String, String)}
+ * so several nodes can share one index without further coordination, and readers walk a bucket from slot zero until
+ * the first missing slot.  A floor row records the oldest bucket that has not yet been purged.</p>
+ *
+ * <p>Index rows are hints only, a key may be indexed more than once or its record may have been rewritten since, so
+ * the {@link KeyHandler} must re-check the record itself before removing it.</p>
+ */
+public class DataStoreExpiryIndex
+{
+    private static final String FLOOR_KEY = "floor";
+    private static final String LEGACY_SCAN_KEY = "legacyScanComplete";
+    private static final char SEPARATOR = '|';
+    private static final int MAX_RECENT_KEYS = 100_000;
+
+    private final DataStore indexStore;
+    private final String namespace;
+    private final long bucketMillis;
+
+    private final Map<Long, AtomicInteger> slotHints = new ConcurrentHashMap<>();
+    private final Set<String> recentKeys = ConcurrentHashMap.newKeySet();
+    private volatile long recentKeysBucket = -1;
+
+    public DataStoreExpiryIndex( final DataStore indexStore, final String namespace, final TimeDuration bucketDuration )
+    {
+        this.indexStore = indexStore;
+        this.namespace = namespace;
+        this.bucketMillis = Math.max( 1, bucketDuration.asMillis() );
+    }
+
+    @FunctionalInterface
+    public interface KeyHandler
+    {
+        void handle( String key ) throws PwmException;
+    }
+
+    /**
+     * Create the floor row if this is a new index.  Must be called before any keys are added so that buckets
+     * written from this point on are visited by {@link #purge(Instant, KeyHandler, BooleanSupplier)}.
+     */
+    public void initialize( final Instant now )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        indexStore.putIfAbsent( metaKey( FLOOR_KEY ), Long.toString( bucketFor( now ) ) );
+    }
+
+    /**
+     * Records stored before this index existed are not listed in it, callers should make one full pass over
+     * the primary store and then call {@link #markLegacyScanComplete()}.
+     */
+    public boolean isLegacyScanComplete()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return indexStore.contains( metaKey( LEGACY_SCAN_KEY ) );
+    }
+
+    public void markLegacyScanComplete()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        indexStore.put( metaKey( LEGACY_SCAN_KEY ), Instant.now().toString() );
+    }
+
+    /**
+     * Add a key to the bucket containing the timestamp.  Timestamps in the past are added to the current bucket.
+     */
+    public void add( final String key, final Instant timestamp )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final long bucket = Math.max( bucketFor( timestamp ), bucketFor( Instant.now() ) );
+
+        if ( isRecentlyAdded( key, bucket ) )
+        {
+            return;
+        }
+
+        final AtomicInteger hint = slotHints.computeIfAbsent( bucket, b -> new AtomicInteger() );
+        int slot = hint.get();
+        while ( !indexStore.putIfAbsent( slotKey( bucket, slot ), key ) )
+        {
+            slot++;
+        }
+
+        final int nextSlot = slot + 1;
+        hint.accumulateAndGet( nextSlot, Math::max );
+        rememberRecentKey( key, bucket );
+    }
+
+    /**
+     * Hand every key in each bucket that ended before the cutoff to the handler, then remove the bucket.
+     *
+     * @return number of index entries handled
+     */
+    public int purge( final Instant cutoff, final KeyHandler keyHandler, final BooleanSupplier continuePurge )
+            throws PwmException
+    {
+        final Optional<String> floorValue = indexStore.get( metaKey( FLOOR_KEY ) );
+        if ( floorValue.isEmpty() )
+        {
+            return 0;
+        }
+
+        final long cutoffBucket = bucketFor( cutoff );
+        long bucket = Long.parseLong( floorValue.get() );
+        int handled = 0;
+
+        while ( bucket < cutoffBucket && continuePurge.getAsBoolean() )
+        {
+            final List<String> slotKeys = new ArrayList<>();
+            while ( continuePurge.getAsBoolean() )
+            {
+                final String slotKey = slotKey( bucket, slotKeys.size() );
+                final Optional<String> recordKey = indexStore.get( slotKey );
+                if ( recordKey.isEmpty() )
+                {
+                    break;
+                }
+
+                keyHandler.handle( recordKey.get() );
+                slotKeys.add( slotKey );
+                handled++;
+            }
+
+            if ( !continuePurge.getAsBoolean() )
+            {
+                return handled;
+            }
+
+            // remove the highest slots first so an interrupted removal still leaves a dense run starting at slot zero
+            for ( int slot = slotKeys.size() - 1; slot >= 0; slot-- )
+            {
+                indexStore.remove( slotKeys.get( slot ) );
+            }
+
+            slotHints.remove( bucket );
+            bucket++;
+            indexStore.put( metaKey( FLOOR_KEY ), Long.toString( bucket ) );
+        }
+
+        return handled;
+    }
+
+    long bucketFor( final Instant timestamp )
+    {
+        return timestamp.toEpochMilli() / bucketMillis;
+    }
+
+    /**
+     * Hot records are rewritten often, skip adding a key to the same bucket more than once from this node.
+     */
+    private boolean isRecentlyAdded( final String key, final long bucket )
+    {
+        return recentKeysBucket == bucket && recentKeys.contains( key );
+    }
+
+    private void rememberRecentKey( final String key, final long bucket )
+    {
+        if ( recentKeysBucket != bucket || recentKeys.size() > MAX_RECENT_KEYS )
+        {
+            recentKeys.clear();
+            recentKeysBucket = bucket;
+        }
+
+        recentKeys.add( key );
+    }
+
+    private String slotKey( final long bucket, final int slot )
+    {
+        return namespace + SEPARATOR + bucket + SEPARATOR + slot;
+    }
+
+    private String metaKey( final String name )
+    {
+        return namespace + SEPARATOR + name;
+    }
+}
@@ -21,6 +21,7 @@
 package password.pwm.util;
 
 import password.pwm.PwmApplication;
+import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.db.DatabaseDataStore;
 import password.pwm.svc.db.DatabaseTable;
@@ -39,4 +40,22 @@ public abstract class DataStoreFactory
 
         return new LocalDBDataStore( pwmApplication.getLocalDB(), db );
     }
+
+    /**
+     * Open a store in the same storage as an existing store, for indexes or other data kept alongside it.
+     */
+    public static DataStore companionStore(
+            final PwmApplication pwmApplication,
+            final DataStore primaryStore,
+            final DatabaseTable table,
+            final LocalDB.DB db
+    )
+    {
+        if ( primaryStore.getDataStorageMethod() == DataStorageMethod.DB )
+        {
+            return new DatabaseDataStore( pwmApplication.getDatabaseService(), table );
+        }
+
+        return new LocalDBDataStore( pwmApplication.getLocalDB(), db );
+    }
 }
@@ -25,16 +25,22 @@ import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Moving average of an event rate.  Events are counted in a striped adder and folded into the moving average by
+ * whichever caller finds the meter unlocked, so marking events never waits on another thread.
+ */
 public class EventRateMeter implements Serializable
 {
     private final TimeDuration maxDuration;
     private final Lock lock = new ReentrantLock();
+    private final LongAdder markedEvents = new LongAdder();
 
     private MovingAverage movingAverage;
-    private double remainder;
+    private long foldedEvents;
 
     public EventRateMeter( final TimeDuration maxDuration )
     {
@@ -52,7 +58,7 @@ public class EventRateMeter implements Serializable
         try
         {
             movingAverage = new MovingAverage( maxDuration.asMillis() );
-            remainder = 0;
+            foldedEvents = markedEvents.sum();
         }
         finally
         {
@@ -62,25 +68,20 @@ public class EventRateMeter implements Serializable
 
     public void markEvents( final int eventCount )
     {
-        lock.lock();
-        try
+        markedEvents.add( eventCount );
+
+        // events not folded here are picked up by the next update or read
+        if ( lock.tryLock() )
         {
-            final long timeSinceLastUpdate = System.currentTimeMillis() - movingAverage.getLastMillis();
-            if ( timeSinceLastUpdate != 0 )
+            try
             {
-                final double eventRate = ( eventCount + remainder ) / timeSinceLastUpdate;
-                movingAverage.update( eventRate * 1000 );
-                remainder = 0;
+                foldMarkedEvents();
             }
-            else
+            finally
             {
-                remainder += eventCount;
+                lock.unlock();
             }
         }
-        finally
-        {
-            lock.unlock();
-        }
     }
 
     public BigDecimal readEventRate( )
@@ -88,6 +89,7 @@ public class EventRateMeter implements Serializable
         lock.lock();
         try
         {
+            foldMarkedEvents();
             return BigDecimal.valueOf( this.movingAverage.getAverage() );
         }
         finally
@@ -96,4 +98,19 @@ public class EventRateMeter implements Serializable
         }
     }
 
+    private void foldMarkedEvents()
+    {
+        final long timeSinceLastUpdate = System.currentTimeMillis() - movingAverage.getLastMillis();
+        if ( timeSinceLastUpdate != 0 )
+        {
+            final long totalEvents = markedEvents.sum();
+            final long newEvents = totalEvents - foldedEvents;
+            if ( newEvents != 0 )
+            {
+                final double eventRate = ( double ) newEvents / timeSinceLastUpdate;
+                movingAverage.update( eventRate * 1000 );
+                foldedEvents = totalEvents;
+            }
+        }
+    }
 }
@@ -0,0 +1,261 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.java;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Memoizing wrapper for interfaces that don't have a hand-written caching implementation.  Each interface method
+ * is resolved once to a {@link CallPolicy} and a {@link MethodHandle} bound to the wrapped instance, so calls
+ * do not go through reflective {@link Method#invoke}.  Results of {@link CallPolicy#MEMOIZE} methods are cached
+ * per argument list, {@link CallPolicy#INVALIDATE} methods clear the cache after they are invoked, and
+ * {@link CallPolicy#PASS_THROUGH} methods are never cached.
+ */
+@SuppressFBWarnings( "THROWS_METHOD_THROWS_CLAUSE_THROWABLE" )
+public final class MemoizingProxy
+{
+    private static final Object NULL_VALUE = new Object();
+
+    public enum CallPolicy
+    {
+        MEMOIZE,
+        INVALIDATE,
+        PASS_THROUGH,
+    }
+
+    private MemoizingProxy()
+    {
+    }
+
+    public static <T> T create(
+            final Class<T> proxiedClass,
+            final T innerInstance,
+            final Function<Method, CallPolicy> callPolicy
+    )
+    {
+        final Class<?>[] classList = new Class[]
+                {
+                        proxiedClass,
+                };
+
+        return ( T ) Proxy.newProxyInstance(
+                proxiedClass.getClassLoader(),
+                classList,
+                new MemoizingHandler( Objects.requireNonNull( innerInstance ), callPolicy ) );
+    }
+
+    private static final class CallKey
+    {
+        private final MethodInvoker invoker;
+        private final Object[] arguments;
+        private final int hashCode;
+
+        CallKey( final MethodInvoker invoker, final Object[] arguments )
+        {
+            this.invoker = invoker;
+            this.arguments = arguments;
+            this.hashCode = 31 * System.identityHashCode( invoker ) + Arrays.hashCode( arguments );
+        }
+
+        @Override
+        public boolean equals( final Object other )
+        {
+            if ( this == other )
+            {
+                return true;
+            }
+            if ( !( other instanceof CallKey ) )
+            {
+                return false;
+            }
+            final CallKey otherKey = ( CallKey ) other;
+            return invoker == otherKey.invoker && Arrays.equals( arguments, otherKey.arguments );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    private static final class MethodInvoker
+    {
+        private final CallPolicy callPolicy;
+        private final MethodHandle methodHandle;
+        private final boolean noArguments;
+
+        /** Memoized result of a method without arguments, avoids key allocation for the common getter case. */
+        private final AtomicReference<Object> noArgumentValue = new AtomicReference<>();
+
+        MethodInvoker( final Method method, final Object target, final CallPolicy callPolicy )
+        {
+            this.callPolicy = Objects.requireNonNull( callPolicy );
+            this.noArguments = method.getParameterCount() == 0;
+            try
+            {
+                this.methodHandle = MethodHandles.publicLookup()
+                        .unreflect( method )
+                        .bindTo( target )
+                        .asSpreader( Object[].class, method.getParameterCount() );
+            }
+            catch ( final IllegalAccessException e )
+            {
+                throw new IllegalStateException( "unable to access method " + method + ": " + e.getMessage(), e );
+            }
+        }
+
+        Object invoke( final Object[] args )
+                throws Throwable
+        {
+            return methodHandle.invoke( args == null ? new Object[0] : args );
+        }
+    }
+
+    private static final class MemoizingHandler implements InvocationHandler
+    {
+        private final Object target;
+        private final Function<Method, CallPolicy> callPolicy;
+        private final Map<Method, MethodInvoker> invokers = new ConcurrentHashMap<>();
+        private final Map<CallKey, Object> cache = new ConcurrentHashMap<>();
+
+        /** Incremented by each invalidation, so results of calls that overlap an invalidation are not stored. */
+        private final AtomicLong generation = new AtomicLong();
+
+        MemoizingHandler( final Object target, final Function<Method, CallPolicy> callPolicy )
+        {
+            this.target = target;
+            this.callPolicy = callPolicy;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+                throws Throwable
+        {
+            final MethodInvoker existingInvoker = invokers.get( method );
+            final MethodInvoker invoker = existingInvoker == null
+                    ? invokers.computeIfAbsent( method, this::makeInvoker )
+                    : existingInvoker;
+
+            switch ( invoker.callPolicy )
+            {
+                case MEMOIZE:
+                    return invokeMemoized( invoker, args );
+
+                case INVALIDATE:
+                    try
+                    {
+                        return invoker.invoke( args );
+                    }
+                    finally
+                    {
+                        invalidate();
+                    }
+
+                default:
+                    return invoker.invoke( args );
+            }
+        }
+
+        private MethodInvoker makeInvoker( final Method method )
+        {
+            // object methods such as equals and hashCode are forwarded without memoization
+            final CallPolicy policy = method.getDeclaringClass() == Object.class
+                    ? CallPolicy.PASS_THROUGH
+                    : callPolicy.apply( method );
+            return new MethodInvoker( method, target, policy );
+        }
+
+        private Object invokeMemoized( final MethodInvoker invoker, final Object[] args )
+                throws Throwable
+        {
+            // exceptions are not memoized, so a failed call is retried on the next invocation
+            if ( invoker.noArguments )
+            {
+                final Object cachedValue = invoker.noArgumentValue.get();
+                if ( cachedValue != null )
+                {
+                    return cachedValue == NULL_VALUE ? null : cachedValue;
+                }
+
+                final long startGeneration = generation.get();
+                final Object result = invoker.invoke( args );
+                final Object storedValue = result == null ? NULL_VALUE : result;
+                if ( generation.get() == startGeneration )
+                {
+                    invoker.noArgumentValue.set( storedValue );
+
+                    // an invalidation that raced the store above may have already cleared, so undo the store
+                    if ( generation.get() != startGeneration )
+                    {
+                        invoker.noArgumentValue.compareAndSet( storedValue, null );
+                    }
+                }
+                return result;
+            }
+
+            final CallKey callKey = new CallKey( invoker, args.clone() );
+            final Object cachedValue = cache.get( callKey );
+            if ( cachedValue != null )
+            {
+                return cachedValue == NULL_VALUE ? null : cachedValue;
+            }
+
+            final long startGeneration = generation.get();
+            final Object result = invoker.invoke( args );
+            final Object storedValue = result == null ? NULL_VALUE : result;
+            if ( generation.get() == startGeneration )
+            {
+                cache.put( callKey, storedValue );
+
+                // an invalidation that raced the store above may have already cleared, so undo the store
+                if ( generation.get() != startGeneration )
+                {
+                    cache.remove( callKey, storedValue );
+                }
+            }
+            return result;
+        }
+
+        void invalidate()
+        {
+            generation.incrementAndGet();
+            cache.clear();
+            for ( final MethodInvoker invoker : invokers.values() )
+            {
+                invoker.noArgumentValue.set( null );
+            }
+        }
+    }
+}
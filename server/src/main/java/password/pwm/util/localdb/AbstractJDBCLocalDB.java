@@ -244,6 +244,43 @@ public abstract class AbstractJDBCLocalDB implements LocalDBProvider
         return get( db, key ).isPresent();
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys )
+            throws LocalDBException
+    {
+        preCheck( false );
+        final String sqlText = "SELECT " + KEY_COLUMN + " FROM " + db.toString() + " WHERE " + KEY_COLUMN + " = ?";
+
+        PreparedStatement statement = null;
+        try
+        {
+            lock.readLock().lock();
+            statement = dbConnection.prepareStatement( sqlText );
+            statement.setMaxRows( 1 );
+            for ( final String key : keys )
+            {
+                statement.setString( 1, key );
+                try ( ResultSet resultSet = statement.executeQuery() )
+                {
+                    if ( resultSet.next() )
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        catch ( final SQLException ex )
+        {
+            throw new LocalDBException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, ex.getMessage() ) );
+        }
+        finally
+        {
+            close( statement );
+            lock.readLock().unlock();
+        }
+        return false;
+    }
+
     @Override
     public Optional<String> get( final LocalDB.DB db, final String key )
             throws LocalDBException
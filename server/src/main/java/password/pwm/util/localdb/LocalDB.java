@@ -59,6 +59,19 @@ public interface LocalDB
     boolean contains( DB db, String key )
             throws LocalDBException;
 
+    /**
+     * Test if any of the keys exist in a database.  Implementations should resolve all the keys in a single
+     * read transaction or cursor pass; callers should supply keys in sorted order without duplicates.
+     *
+     * @param db   database to perform the operation on
+     * @param keys keys to test
+     * @return true if at least one of the keys exists
+     * @throws LocalDBException if there is an error reading the store
+     */
+    @ReadOperation
+    boolean containsAny( DB db, Collection<String> keys )
+            throws LocalDBException;
+
     @ReadOperation
     Optional<String> get( DB db, String key )
             throws LocalDBException;
@@ -139,7 +152,14 @@ public interface LocalDB
         TEMP(  ),
         SYSLOG_QUEUE( Flag.Backup ),
         CACHE(  ),
-        REPORT_QUEUE( ),;
+        REPORT_QUEUE( ),
+        TOKENS_EXPIRY( Flag.Backup ),
+        INTRUDER_EXPIRY( Flag.Backup ),
+        EMAIL_DEAD_LETTER(  ),
+        SMS_DEAD_LETTER(  ),
+        SYSLOG_DEAD_LETTER(  ),
+        AUDIT_VAULT( Flag.Backup ),
+        AUDIT_VAULT_INDEX( Flag.Backup ),;
 
         private final boolean backup;
 
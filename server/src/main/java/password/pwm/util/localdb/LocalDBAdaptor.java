@@ -74,6 +74,27 @@ public class LocalDBAdaptor implements LocalDB
         return value;
     }
 
+    @Override
+    public boolean containsAny( final DB db, final Collection<String> keys ) throws LocalDBException
+    {
+        ParameterValidator.validateDBValue( db );
+        for ( final String loopKey : keys )
+        {
+            ParameterValidator.validateKeyValue( loopKey );
+        }
+
+        if ( keys.isEmpty() )
+        {
+            return false;
+        }
+
+        final boolean value = keys.size() > 1
+                ? innerDB.containsAny( db, keys )
+                : innerDB.contains( db, keys.iterator().next() );
+        markRead();
+        return value;
+    }
+
 
     @Override
     public Optional<String> get( final DB db, final String key ) throws LocalDBException
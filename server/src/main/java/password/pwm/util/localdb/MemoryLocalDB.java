@@ -81,6 +81,15 @@ public class MemoryLocalDB implements LocalDBProvider
         return map.containsKey( key );
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys )
+            throws LocalDBException
+    {
+        operationPreCheck();
+        final Map<String, String> map = maps.get( db );
+        return keys.stream().anyMatch( map::containsKey );
+    }
+
     @Override
     public Optional<String> get( final LocalDB.DB db, final String key )
             throws LocalDBException
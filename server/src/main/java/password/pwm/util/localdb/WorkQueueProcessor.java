@@ -42,28 +42,57 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.Serializable;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
 
 /**
  * A work item queue manager.   Items submitted to the queue will eventually be worked on by the client side @code {@link ItemProcessor}.
+ *
+ * <p>Queued items are read from the head of the queue by a dispatcher thread and handed to one of
+ * {@link Settings#getLanes()} lane threads.  Items with a {@link ItemProcessor#laneKey(Serializable)} are always
+ * processed by the same lane, in queue order, items without a key go to any available lane.  When an item is to be
+ * retried, only its lane backs off and holds the item; items of other lanes within {@link Settings#getDispatchWindow()}
+ * of the head of the queue continue to be processed.  Items that fail or are discarded are recorded in an optional dead
+ * letter queue; the record holds the item's id, dates and discard reason but not the item itself.</p>
+ *
+ * <p>Items stay in the queue until they have been processed, and are removed from the head of the queue once all items
+ * ahead of them have been processed as well.  Items processed out of order are removed when the processor is closed; if
+ * the process stops unexpectedly such items may be processed again.</p>
+ *
+ * <p>A {@link BatchItemProcessor} is handed up to {@link Settings#getBatchSize()} items of the same lane at once,
+ * optionally waiting up to {@link Settings#getBatchWindow()} for a batch to fill.</p>
  */
 public final class WorkQueueProcessor<W extends Serializable>
 {
     private static final TimeDuration SUBMIT_QUEUE_FULL_RETRY_CYCLE_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
     private static final TimeDuration CLOSE_RETRY_CYCLE_INTERVAL = TimeDuration.of( 5, TimeDuration.Unit.MILLISECONDS );
+    private static final TimeDuration LANE_POLL_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
+    private static final TimeDuration DEAD_LETTER_PURGE_INTERVAL = TimeDuration.of( 1, TimeDuration.Unit.HOURS );
 
     private final Deque<String> queue;
+    private final Deque<String> deadLetterQueue;
     private final Settings settings;
     private final ItemProcessor<W> itemProcessor;
     private final SessionLabel sessionLabel;
@@ -71,6 +100,14 @@ public final class WorkQueueProcessor<W extends Serializable>
     private final PwmLogger logger;
 
     private volatile WorkerThread workerThread;
+    private final List<Lane> lanes;
+
+    // positions of items processed by a lane, to be removed from the queue by the worker thread
+    private final Queue<Long> completedItems = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger completedItemCount = new AtomicInteger();
+
+    // positions of items handed back by a backing off lane, to be handed to a lane again by the worker thread
+    private final Queue<Long> releasedItems = new ConcurrentLinkedQueue<>();
 
     private final AtomicLoopIntIncrementer idGenerator = new AtomicLoopIntIncrementer();
     private Instant eldestItem = null;
@@ -88,6 +125,9 @@ public final class WorkQueueProcessor<W extends Serializable>
         preQueueBypass,
         preQueueFallback,
         queueProcessItems,
+        queueRetryItems,
+        queueProcessBatches,
+        deadLetterItems,
     }
 
     public enum ProcessResult
@@ -106,10 +146,24 @@ public final class WorkQueueProcessor<W extends Serializable>
             final ItemProcessor<W> itemProcessor,
             final Class<?> sourceClass
     )
+    {
+        this( pwmApplication, sessionLabel, queue, null, settings, itemProcessor, sourceClass );
+    }
+
+    public WorkQueueProcessor(
+            final PwmApplication pwmApplication,
+            final SessionLabel sessionLabel,
+            final Deque<String> queue,
+            final Deque<String> deadLetterQueue,
+            final Settings settings,
+            final ItemProcessor<W> itemProcessor,
+            final Class<?> sourceClass
+    )
     {
         this.sessionLabel = sessionLabel;
         this.settings = settings;
         this.queue = queue;
+        this.deadLetterQueue = deadLetterQueue;
         this.itemProcessor = itemProcessor;
         this.logger = PwmLogger.getLogger( sourceClass.getName() + "_" + this.getClass().getSimpleName() );
 
@@ -119,9 +173,30 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         logger.trace( () -> "initializing worker thread with settings " + JsonFactory.get().serialize( settings ) );
 
+        try
+        {
+            purgeDeadLetterQueue();
+        }
+        catch ( final Exception e )
+        {
+            logger.error( sessionLabel, () -> "error purging dead letter queue: " + e.getMessage() );
+        }
+
+        final String threadName = PwmScheduler.makeThreadName( sessionLabel, pwmApplication, sourceClass );
+        final List<Lane> laneList = new ArrayList<>();
+        for ( int i = 0; i < Math.max( 1, settings.getLanes() ); i++ )
+        {
+            final Lane lane = new Lane( i );
+            lane.setDaemon( true );
+            lane.setName( threadName + "-lane" + i + "-" );
+            laneList.add( lane );
+        }
+        this.lanes = Collections.unmodifiableList( laneList );
+        this.lanes.forEach( Thread::start );
+
         this.workerThread = new WorkerThread();
         workerThread.setDaemon( true );
-        workerThread.setName( PwmScheduler.makeThreadName( sessionLabel, pwmApplication, sourceClass ) + "-worker-" );
+        workerThread.setName( threadName + "-worker-" );
         workerThread.start();
 
         if ( settings.getPreThreads() > 0 )
@@ -166,8 +241,9 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
 
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
-        final String msg = "shutting down with " + queue.size() + " items remaining in work queue (" + timeDuration.asCompactString() + ")";
-        if ( !queue.isEmpty() )
+        final int remainingItems = queueSize();
+        final String msg = "shutting down with " + remainingItems + " items remaining in work queue (" + timeDuration.asCompactString() + ")";
+        if ( remainingItems > 0 )
         {
             logger.warn( sessionLabel,  () -> msg );
         }
@@ -179,14 +255,14 @@ public final class WorkQueueProcessor<W extends Serializable>
 
     public void submitImmediate( final W workItem )
     {
-        final ItemWrapper<W> itemWrapper = new ItemWrapper<>( Instant.now(), workItem, String.valueOf( idGenerator.next() ) );
+        final ItemWrapper<W> itemWrapper = newItemWrapper( workItem );
         sendAndQueueIfNecessary( itemWrapper );
     }
 
     public void submit( final W workItem )
             throws PwmOperationalException
     {
-        final ItemWrapper<W> itemWrapper = new ItemWrapper<>( Instant.now(), workItem, String.valueOf( idGenerator.next() ) );
+        final ItemWrapper<W> itemWrapper = newItemWrapper( workItem );
 
         if ( settings.getPreThreads() < 0 )
         {
@@ -213,6 +289,11 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
     }
 
+    private ItemWrapper<W> newItemWrapper( final W workItem )
+    {
+        return new ItemWrapper<>( Instant.now(), workItem, String.valueOf( idGenerator.next() ), itemProcessor.laneKey( workItem ) );
+    }
+
     private void sendAndQueueIfNecessary( final ItemWrapper<W> itemWrapper )
     {
         final Instant processStartTime = Instant.now();
@@ -221,7 +302,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             final ProcessResult processResult = itemProcessor.process( itemWrapper.getWorkItem() );
             if ( processResult == ProcessResult.SUCCESS )
             {
-                logAndStatUpdateForSuccess( itemWrapper, TimeDuration.fromCurrent( processStartTime ) );
+                logAndStatUpdateForSuccess( null, itemWrapper, TimeDuration.fromCurrent( processStartTime ) );
             }
             else if ( processResult == ProcessResult.RETRY || processResult == ProcessResult.NOOP )
             {
@@ -289,9 +370,12 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
     }
 
+    /**
+     * Number of queued items that have not yet been processed.
+     */
     public int queueSize( )
     {
-        return queue.size();
+        return Math.max( 0, queue.size() - completedItemCount.get() );
     }
 
     public Instant eldestItem( )
@@ -321,6 +405,11 @@ public final class WorkQueueProcessor<W extends Serializable>
         return traceMsg;
     }
 
+    /**
+     * Hands items read from the queue to the lanes, and removes items from the head of the queue once they have been
+     * processed.  Item positions are counted from the head of the queue at the time the thread started; only this
+     * thread removes items from the queue, so the positions of queued items do not change while it is running.
+     */
     private class WorkerThread extends Thread
     {
 
@@ -328,7 +417,17 @@ public final class WorkQueueProcessor<W extends Serializable>
         private final AtomicBoolean shutdownFlag = new AtomicBoolean( false );
         private final AtomicBoolean notifyWorkFlag = new AtomicBoolean( true );
 
-        private Instant retryWakeupTime;
+        // position of the item currently at the head of the queue
+        private long headPosition;
+
+        // items handed to a lane and not yet processed
+        private final Set<Long> dispatchedPositions = new HashSet<>();
+
+        // processed items that can not yet be removed because an earlier item is still in the queue
+        private final NavigableSet<Long> completedPositions = new TreeSet<>();
+
+        private Instant batchWakeupTime;
+        private Instant deadLetterPurgeTime = Instant.now();
 
         @Override
         public void run( )
@@ -338,8 +437,16 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 while ( !shutdownFlag.get() )
                 {
-                    processNextItem();
-                    waitForWork();
+                    removeCompletedItems();
+                    if ( TimeDuration.fromCurrent( deadLetterPurgeTime ).isLongerThan( DEAD_LETTER_PURGE_INTERVAL ) )
+                    {
+                        purgeDeadLetterQueue();
+                        deadLetterPurgeTime = Instant.now();
+                    }
+                    if ( !dispatchNextItems() )
+                    {
+                        waitForWork();
+                    }
                 }
             }
             catch ( final Throwable t )
@@ -349,22 +456,22 @@ public final class WorkQueueProcessor<W extends Serializable>
 
             logger.trace( sessionLabel, () -> "worker thread beginning shutdown..." );
 
-            if ( !queue.isEmpty() )
+            lanes.forEach( Lane::shutdown );
+            final Instant shutdownStartTime = Instant.now();
+            for ( final Lane lane : lanes )
             {
-                logger.trace( sessionLabel, () -> "processing remaining " + queue.size() + " items" );
+                final long remainingMs = settings.getMaxShutdownWaitTime().asMillis() - TimeDuration.fromCurrent( shutdownStartTime ).asMillis();
+                TimeDuration.of( Math.max( 0, remainingMs ), TimeDuration.Unit.MILLISECONDS ).pause( CLOSE_RETRY_CYCLE_INTERVAL, () -> !lane.isRunning() );
+            }
 
-                try
-                {
-                    final Instant shutdownStartTime = Instant.now();
-                    while ( retryWakeupTime == null && !queue.isEmpty() && TimeDuration.fromCurrent( shutdownStartTime ).isLongerThan( settings.getMaxShutdownWaitTime() ) )
-                    {
-                        processNextItem();
-                    }
-                }
-                catch ( final Throwable t )
-                {
-                    logger.error( sessionLabel, () -> "unexpected error processing work item queue: " + JavaHelper.readHostileExceptionMessage( t ), t );
-                }
+            try
+            {
+                removeCompletedItems();
+                compactQueue();
+            }
+            catch ( final Throwable t )
+            {
+                logger.error( sessionLabel, () -> "unexpected error removing processed items from work queue: " + JavaHelper.readHostileExceptionMessage( t ), t );
             }
 
             logger.trace( sessionLabel, () -> "thread exiting..." );
@@ -384,7 +491,7 @@ public final class WorkQueueProcessor<W extends Serializable>
                 final Instant startTime = Instant.now();
                 TimeDuration.of( 10, TimeDuration.Unit.SECONDS ).pause( CLOSE_RETRY_CYCLE_INTERVAL, () -> !running.get() );
                 final TimeDuration waitTime = TimeDuration.fromCurrent( startTime );
-                logger.trace( sessionLabel, () -> "waited " + waitTime.asCompactString() + " workQueueSize=" + queue.size() + " running=" + running.get() );
+                logger.trace( sessionLabel, () -> "waited " + waitTime.asCompactString() + " workQueueSize=" + queueSize() + " running=" + running.get() );
             }
         }
 
@@ -394,28 +501,29 @@ public final class WorkQueueProcessor<W extends Serializable>
             LockSupport.unpark( this );
         }
 
+        /**
+         * Wait until an item is submitted or processed, or until the batch window of a waiting batch ends.
+         */
         private void waitForWork( )
         {
-            if ( !shutdownFlag.get() )
+            if ( !shutdownFlag.get() && !notifyWorkFlag.get() )
             {
-                if ( retryWakeupTime != null )
+                if ( queueSize() <= 0 )
                 {
-                    while ( retryWakeupTime.isAfter( Instant.now() ) && !shutdownFlag.get() )
-                    {
-                        LockSupport.parkUntil( this, retryWakeupTime.toEpochMilli() );
-                    }
-                    retryWakeupTime = null;
+                    eldestItem = null;
+                    LockSupport.park( this );
                 }
                 else
                 {
-                    if ( queue.isEmpty() && !notifyWorkFlag.get() )
-                    {
-                        eldestItem = null;
-                        LockSupport.park( this );
-                    }
+                    final Instant maxWakeupTime = Instant.now().plus( settings.getRetryInterval().asDuration() );
+                    final Instant wakeupTime = batchWakeupTime != null && batchWakeupTime.isBefore( maxWakeupTime )
+                            ? batchWakeupTime
+                            : maxWakeupTime;
+                    LockSupport.parkUntil( this, wakeupTime.toEpochMilli() );
                 }
             }
 
+            batchWakeupTime = null;
             notifyWorkFlag.set( false );
         }
 
@@ -424,95 +532,710 @@ public final class WorkQueueProcessor<W extends Serializable>
             return running.get();
         }
 
-        void processNextItem( )
+        /**
+         * Remove the processed items at the head of the queue.  Items processed out of order remain in the queue
+         * until all items ahead of them have been processed.
+         */
+        private void removeCompletedItems( )
         {
-            final Instant processStartTime = Instant.now();
-            final String nextStrValue = queue.peekFirst();
-            if ( nextStrValue == null )
+            Long releasedPosition = releasedItems.poll();
+            while ( releasedPosition != null )
+            {
+                dispatchedPositions.remove( releasedPosition );
+                releasedPosition = releasedItems.poll();
+            }
+
+            Long completedPosition = completedItems.poll();
+            while ( completedPosition != null )
+            {
+                dispatchedPositions.remove( completedPosition );
+                completedPositions.add( completedPosition );
+                completedPosition = completedItems.poll();
+            }
+
+            int count = 0;
+            while ( completedPositions.remove( headPosition + count ) )
+            {
+                count++;
+            }
+
+            if ( count > 0 )
+            {
+                removeQueueHead( count );
+                headPosition += count;
+                completedItemCount.addAndGet( -count );
+            }
+        }
+
+        /**
+         * Rewrite the head of the queue so that items processed out of order are not processed again after a restart.
+         * Only called once the lanes have stopped.
+         */
+        private void compactQueue( )
+        {
+            if ( completedPositions.isEmpty() )
             {
                 return;
             }
 
-            final ItemWrapper<W> itemWrapper;
-            try
+            final int count = ( int ) ( completedPositions.last() - headPosition + 1 );
+            final List<String> remainingItems = new ArrayList<>();
+            final Iterator<String> iterator = queue.iterator();
+            for ( long position = headPosition; position < headPosition + count && iterator.hasNext(); position++ )
             {
-                itemWrapper = JsonFactory.get().deserialize( nextStrValue, ItemWrapper.class );
-                if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+                final String strValue = iterator.next();
+                if ( !completedPositions.contains( position ) )
                 {
-                    removeQueueTop();
-                    logger.warn( () -> "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
-                    return;
+                    remainingItems.add( strValue );
                 }
             }
-            catch ( final Throwable e )
+
+            removeQueueHead( count );
+            for ( int i = remainingItems.size() - 1; i >= 0; i-- )
             {
-                removeQueueTop();
-                logger.warn( () -> "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + nextStrValue );
-                return;
+                queue.offerFirst( remainingItems.get( i ) );
             }
 
-            final ProcessResult processResult;
-            try
+            headPosition += count - remainingItems.size();
+            completedItemCount.addAndGet( -completedPositions.size() );
+            completedPositions.clear();
+        }
+
+        /**
+         * Read queued items from the head of the queue, up to {@link Settings#getDispatchWindow()} items, and hand one
+         * batch of items to a lane.  Items already handed to a lane are skipped.  Once an item can not be handed to its
+         * lane, later items of the same lane are skipped as well so that each lane processes its items in queue order.
+         *
+         * @return true if items were handed to a lane
+         */
+        private boolean dispatchNextItems( )
+        {
+            if ( lanes.stream().noneMatch( Lane::canAccept ) )
             {
-                workQueueStats.increment( WorkQueueStat.queueProcessItems );
-                processResult = itemProcessor.process( itemWrapper.getWorkItem() );
-                if ( processResult == null )
+                return false;
+            }
+
+            final int maxBatchSize = isBatchEnabled() ? settings.getBatchSize() : 1;
+            final Set<Lane> blockedLanes = new HashSet<>();
+            final Map<Lane, List<QueuedItem<W>>> laneBatches = new LinkedHashMap<>();
+            Lane unkeyedLane = null;
+
+            final Iterator<String> iterator = queue.iterator();
+            final long maxPosition = headPosition + settings.getDispatchWindow();
+            for ( long position = headPosition; position < maxPosition && iterator.hasNext() && !shutdownFlag.get(); position++ )
+            {
+                final String strValue = iterator.next();
+                if ( dispatchedPositions.contains( position ) || completedPositions.contains( position ) )
+                {
+                    continue;
+                }
+
+                final QueuedItem<W> queuedItem = readQueuedItem( strValue, position );
+                if ( queuedItem == null )
                 {
-                    removeQueueTop();
-                    logger.warn( sessionLabel, () -> "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
+                    continue;
+                }
+
+                final String laneKey = queuedItem.getItemWrapper().getLaneKey();
+                final Lane lane;
+                if ( laneKey != null )
+                {
+                    lane = lanes.get( laneIndex( laneKey ) );
                 }
                 else
                 {
-                    switch ( processResult )
+                    if ( unkeyedLane == null )
                     {
-                        case FAILED:
-                        {
-                            removeQueueTop();
-                            logger.error( sessionLabel, () -> "discarding item after process failure, item=" + makeDebugText( itemWrapper ) );
-                        }
-                        break;
+                        unkeyedLane = selectUnkeyedLane( blockedLanes, laneBatches );
+                    }
+                    lane = unkeyedLane;
+                }
 
-                        case RETRY:
-                        {
-                            retryWakeupTime = Instant.ofEpochMilli( System.currentTimeMillis() + settings.getRetryInterval().asMillis() );
-                            logger.debug( sessionLabel, () -> "will retry item after failure, item=" + makeDebugText( itemWrapper ) );
-                        }
-                        break;
+                if ( lane == null || blockedLanes.contains( lane ) )
+                {
+                    continue;
+                }
 
-                        case SUCCESS:
-                        {
-                            removeQueueTop();
-                            logAndStatUpdateForSuccess( itemWrapper, TimeDuration.fromCurrent( processStartTime ) );
-                        }
+                if ( !laneBatches.containsKey( lane ) && !lane.canAccept() )
+                {
+                    blockedLanes.add( lane );
+                    if ( blockedLanes.size() >= lanes.size() )
+                    {
                         break;
+                    }
+                    continue;
+                }
 
-                        case NOOP:
-                            break;
+                final List<QueuedItem<W>> laneBatch = laneBatches.computeIfAbsent( lane, k -> new ArrayList<>() );
+                laneBatch.add( queuedItem );
+                if ( laneBatch.size() >= maxBatchSize )
+                {
+                    return dispatchBatch( lane, laneBatch );
+                }
+            }
+
+            for ( final Map.Entry<Lane, List<QueuedItem<W>>> entry : laneBatches.entrySet() )
+            {
+                if ( !waitForBatch( entry.getValue() ) )
+                {
+                    return dispatchBatch( entry.getKey(), entry.getValue() );
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Parse a queued item, moving items that are unreadable or too old to the dead letter queue.
+         */
+        private QueuedItem<W> readQueuedItem( final String strValue, final long position )
+        {
+            final ItemWrapper<W> itemWrapper;
+            try
+            {
+                itemWrapper = JsonFactory.get().deserialize( strValue, ItemWrapper.class );
+            }
+            catch ( final Throwable e )
+            {
+                discardItem( position, null, DeadLetterReason.unreadable );
+                logger.warn( () -> "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + strValue );
+                return null;
+            }
 
+            if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+            {
+                discardItem( position, itemWrapper, DeadLetterReason.expired );
+                logger.warn( () -> "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
+                return null;
+            }
 
-                        default:
-                            throw new IllegalStateException( "unexpected processResult type " + processResult );
+            return new QueuedItem<>( itemWrapper, position );
+        }
+
+        private void discardItem( final long position, final ItemWrapper<W> itemWrapper, final DeadLetterReason reason )
+        {
+            addToDeadLetterQueue( itemWrapper, reason );
+            completedPositions.add( position );
+            completedItemCount.incrementAndGet();
+        }
+
+        /**
+         * Wait for more items if the batch is not full and the first item is younger than {@link Settings#getBatchWindow()}.
+         */
+        private boolean waitForBatch( final List<QueuedItem<W>> queuedItems )
+        {
+            if ( !isBatchEnabled() || queuedItems.size() >= settings.getBatchSize() || shutdownFlag.get() )
+            {
+                return false;
+            }
+
+            final Instant windowEndTime = settings.getBatchWindow().incrementFromInstant( queuedItems.get( 0 ).getItemWrapper().getDate() );
+            if ( windowEndTime.isAfter( Instant.now() ) )
+            {
+                if ( batchWakeupTime == null || windowEndTime.isBefore( batchWakeupTime ) )
+                {
+                    batchWakeupTime = windowEndTime;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private boolean dispatchBatch( final Lane lane, final List<QueuedItem<W>> queuedItems )
+        {
+            try
+            {
+                while ( !lane.pendingItems.offer( Collections.unmodifiableList( queuedItems ), LANE_POLL_INTERVAL.asMillis(), TimeUnit.MILLISECONDS ) )
+                {
+                    if ( shutdownFlag.get() )
+                    {
+                        return false;
                     }
                 }
             }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            queuedItems.forEach( queuedItem -> dispatchedPositions.add( queuedItem.getPosition() ) );
+            return true;
+        }
+
+        private Lane selectUnkeyedLane( final Set<Lane> blockedLanes, final Map<Lane, List<QueuedItem<W>>> laneBatches )
+        {
+            Lane selectedLane = null;
+            for ( final Lane lane : lanes )
+            {
+                if ( !blockedLanes.contains( lane ) && !laneBatches.containsKey( lane ) && lane.canAccept()
+                        && ( selectedLane == null || lane.pendingItems.size() < selectedLane.pendingItems.size() ) )
+                {
+                    selectedLane = lane;
+                }
+            }
+            return selectedLane;
+        }
+
+        private int laneIndex( final String laneKey )
+        {
+            return Math.floorMod( laneKey.hashCode(), lanes.size() );
+        }
+    }
+
+    /**
+     * Processes items handed over by the {@link WorkerThread}.  A lane that is asked to retry an item holds the item,
+     * along with any later items of the same batch, and backs off without affecting other lanes.  Held items are
+     * processed before any new items are accepted, so the lane keeps processing its items in queue order.
+     */
+    private class Lane extends Thread
+    {
+        private final int laneId;
+        private final BlockingQueue<List<QueuedItem<W>>> pendingItems = new ArrayBlockingQueue<>( 1 );
+        private final AtomicBoolean running = new AtomicBoolean( false );
+        private final AtomicBoolean shutdownFlag = new AtomicBoolean( false );
+
+        private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.MINUTE.asDuration() );
+        private final EventRateMeter sendRate = new EventRateMeter( TimeDuration.MINUTE );
+        private final StatisticCounterBundle<WorkQueueStat> laneStats = new StatisticCounterBundle<>( WorkQueueStat.class );
+
+        // only accessed by the lane thread
+        private final Deque<QueuedItem<W>> heldItems = new ArrayDeque<>();
+        private volatile boolean holdingItems;
+
+        private volatile Instant retryWakeupTime;
+        private int consecutiveRetries;
+
+        Lane( final int laneId )
+        {
+            this.laneId = laneId;
+        }
+
+        @Override
+        public void run( )
+        {
+            running.set( true );
+            try
+            {
+                while ( !shutdownFlag.get() )
+                {
+                    waitForBackoff();
+                    final List<QueuedItem<W>> queuedItems = holdingItems
+                            ? takeHeldItems()
+                            : pendingItems.poll( LANE_POLL_INTERVAL.asMillis(), TimeUnit.MILLISECONDS );
+                    if ( queuedItems != null && !queuedItems.isEmpty() )
+                    {
+                        processItems( queuedItems );
+                        notifyWorkerThread();
+                    }
+                }
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( final Throwable t )
+            {
+                logger.error( sessionLabel, () -> "unexpected error processing work item queue lane " + laneId + ": "
+                        + JavaHelper.readHostileExceptionMessage( t ), t );
+            }
+
+            // held and pending items have not been processed, so they are still in the queue
+            running.set( false );
+        }
+
+        void shutdown( )
+        {
+            shutdownFlag.set( true );
+            LockSupport.unpark( this );
+        }
+
+        boolean isRunning( )
+        {
+            return running.get();
+        }
+
+        boolean isBackingOff( )
+        {
+            final Instant wakeupTime = retryWakeupTime;
+            return wakeupTime != null && wakeupTime.isAfter( Instant.now() );
+        }
+
+        boolean canAccept( )
+        {
+            return !holdingItems && !isBackingOff() && pendingItems.isEmpty();
+        }
+
+        private void waitForBackoff( )
+        {
+            final Instant wakeupTime = retryWakeupTime;
+            if ( wakeupTime != null )
+            {
+                while ( wakeupTime.isAfter( Instant.now() ) && !shutdownFlag.get() )
+                {
+                    LockSupport.parkUntil( this, wakeupTime.toEpochMilli() );
+                }
+            }
+        }
+
+        private List<QueuedItem<W>> takeHeldItems( )
+        {
+            final int maxItems = isBatchEnabled() ? settings.getBatchSize() : 1;
+            final List<QueuedItem<W>> queuedItems = new ArrayList<>();
+            while ( !heldItems.isEmpty() && queuedItems.size() < maxItems )
+            {
+                final QueuedItem<W> queuedItem = heldItems.pollFirst();
+                if ( TimeDuration.fromCurrent( queuedItem.getItemWrapper().getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+                {
+                    addToDeadLetterQueue( queuedItem.getItemWrapper(), DeadLetterReason.expired );
+                    completeItem( queuedItem );
+                    logger.warn( () -> "discarding queued item due to age, item=" + makeDebugText( queuedItem.getItemWrapper() ) );
+                }
+                else
+                {
+                    queuedItems.add( queuedItem );
+                }
+            }
+            holdingItems = !heldItems.isEmpty();
+            return queuedItems;
+        }
+
+        private void processItems( final List<QueuedItem<W>> queuedItems )
+        {
+            final List<ProcessResult> processResults = queuedItems.size() > 1 && itemProcessor instanceof BatchItemProcessor
+                    ? processBatch( queuedItems )
+                    : Collections.singletonList( processItem( queuedItems.get( 0 ) ) );
+
+            final List<QueuedItem<W>> returnedItems = new ArrayList<>();
+            for ( int i = 0; i < queuedItems.size(); i++ )
+            {
+                final ProcessResult processResult = processResults.get( i );
+                if ( processResult == ProcessResult.RETRY || processResult == ProcessResult.NOOP )
+                {
+                    returnedItems.add( queuedItems.get( i ) );
+                }
+                else
+                {
+                    completeItem( queuedItems.get( i ) );
+                }
+            }
+
+            // returned items are processed again before any later items
+            for ( int i = returnedItems.size() - 1; i >= 0; i-- )
+            {
+                heldItems.offerFirst( returnedItems.get( i ) );
+            }
+            holdingItems = !heldItems.isEmpty();
+
+            if ( processResults.contains( ProcessResult.RETRY ) )
+            {
+                consecutiveRetries++;
+                retryWakeupTime = Instant.now().plus( retryBackoff( settings, consecutiveRetries ).asDuration() );
+
+                // items already handed to this lane can be handed to another lane, or back to this lane in order
+                final List<QueuedItem<W>> nextItems = pendingItems.poll();
+                if ( nextItems != null )
+                {
+                    nextItems.forEach( queuedItem -> releasedItems.offer( queuedItem.getPosition() ) );
+                }
+                logger.debug( sessionLabel, () -> "lane " + laneId + " will retry items after failure at "
+                        + StringUtil.toIsoDate( retryWakeupTime ) );
+            }
+            else if ( processResults.contains( ProcessResult.SUCCESS ) )
+            {
+                consecutiveRetries = 0;
+                retryWakeupTime = null;
+            }
+        }
+
+        private ProcessResult processItem( final QueuedItem<W> queuedItem )
+        {
+            final Instant processStartTime = Instant.now();
+            try
+            {
+                workQueueStats.increment( WorkQueueStat.queueProcessItems );
+                laneStats.increment( WorkQueueStat.queueProcessItems );
+                final ProcessResult processResult = itemProcessor.process( queuedItem.getItemWrapper().getWorkItem() );
+                return handleResult( queuedItem, processResult, TimeDuration.fromCurrent( processStartTime ) );
+            }
+            catch ( final Throwable e )
+            {
+                return handleError( queuedItem, e );
+            }
+        }
+
+        /**
+         * Process the items as a single batch, returning one result per item in the same order as the items.
+         */
+        private List<ProcessResult> processBatch( final List<QueuedItem<W>> queuedItems )
+        {
+            final Instant processStartTime = Instant.now();
+            final List<ProcessResult> processResults = new ArrayList<>( Collections.nCopies( queuedItems.size(), null ) );
+            final List<Integer> batchIndexes = new ArrayList<>( queuedItems.size() );
+            final List<W> workItems = new ArrayList<>( queuedItems.size() );
+            for ( int i = 0; i < queuedItems.size(); i++ )
+            {
+                try
+                {
+                    workItems.add( queuedItems.get( i ).getItemWrapper().getWorkItem() );
+                    batchIndexes.add( i );
+                }
+                catch ( final PwmOperationalException e )
+                {
+                    processResults.set( i, handleError( queuedItems.get( i ), e ) );
+                }
+            }
+
+            if ( batchIndexes.isEmpty() )
+            {
+                return processResults;
+            }
+
+            workQueueStats.increment( WorkQueueStat.queueProcessItems, batchIndexes.size() );
+            workQueueStats.increment( WorkQueueStat.queueProcessBatches );
+            laneStats.increment( WorkQueueStat.queueProcessItems, batchIndexes.size() );
+            laneStats.increment( WorkQueueStat.queueProcessBatches );
+
+            final List<ProcessResult> batchResults;
+            try
+            {
+                batchResults = ( ( BatchItemProcessor<W> ) itemProcessor ).processBatch( workItems );
+            }
             catch ( final Throwable e )
             {
-                if ( !shutdownFlag.get() )
+                batchIndexes.forEach( index -> processResults.set( index, handleError( queuedItems.get( index ), e ) ) );
+                return processResults;
+            }
+
+            final TimeDuration processDuration = TimeDuration.fromCurrent( processStartTime );
+            for ( int i = 0; i < batchIndexes.size(); i++ )
+            {
+                final int index = batchIndexes.get( i );
+                final ProcessResult processResult = batchResults != null && i < batchResults.size() ? batchResults.get( i ) : null;
+                try
                 {
-                    removeQueueTop();
-                    logger.error( sessionLabel, () -> "unexpected error while processing work queue: " + e.getMessage() );
+                    processResults.set( index, handleResult( queuedItems.get( index ), processResult, processDuration ) );
+                }
+                catch ( final Throwable e )
+                {
+                    processResults.set( index, handleError( queuedItems.get( index ), e ) );
                 }
             }
+            return processResults;
+        }
 
+        private ProcessResult handleResult( final QueuedItem<W> queuedItem, final ProcessResult processResult, final TimeDuration processDuration )
+                throws PwmOperationalException
+        {
+            final ItemWrapper<W> itemWrapper = queuedItem.getItemWrapper();
+            if ( processResult == null )
+            {
+                logger.warn( sessionLabel, () -> "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
+                return ProcessResult.FAILED;
+            }
+
+            switch ( processResult )
+            {
+                case FAILED:
+                    addToDeadLetterQueue( itemWrapper, DeadLetterReason.failed );
+                    logger.error( sessionLabel, () -> "discarding item after process failure, item=" + makeDebugText( itemWrapper ) );
+                    break;
+
+                case RETRY:
+                    workQueueStats.increment( WorkQueueStat.queueRetryItems );
+                    laneStats.increment( WorkQueueStat.queueRetryItems );
+                    logger.debug( sessionLabel, () -> "lane " + laneId + " will retry item=" + makeDebugText( itemWrapper ) );
+                    break;
+
+                case SUCCESS:
+                    logAndStatUpdateForSuccess( this, itemWrapper, processDuration );
+                    break;
+
+                case NOOP:
+                    break;
+
+                default:
+                    throw new IllegalStateException( "unexpected processResult type " + processResult );
+            }
+            return processResult;
         }
 
-        private void removeQueueTop( )
+        private ProcessResult handleError( final QueuedItem<W> queuedItem, final Throwable e )
+        {
+            if ( shutdownFlag.get() )
+            {
+                // leave the item in the queue to be processed after restart
+                return ProcessResult.NOOP;
+            }
+
+            addToDeadLetterQueue( queuedItem.getItemWrapper(), DeadLetterReason.error );
+            logger.error( sessionLabel, () -> "unexpected error while processing work queue: " + e.getMessage() );
+            return ProcessResult.FAILED;
+        }
+
+        private void notifyWorkerThread( )
+        {
+            final WorkerThread localWorkerThread = workerThread;
+            if ( localWorkerThread != null )
+            {
+                localWorkerThread.notifyWorkPending();
+            }
+        }
+
+        Map<String, String> debugInfo( )
+        {
+            final String prefix = "lane" + laneId + ".";
+            final Map<String, String> output = new HashMap<>();
+            output.put( prefix + "avgLagTime", TimeDuration.fromDuration( avgLagTime.getAverageAsDuration() ).asCompactString() );
+            output.put( prefix + "sendRate", sendRate.readEventRate().setScale( 2, RoundingMode.DOWN ) + "/s" );
+            if ( isBackingOff() )
+            {
+                output.put( prefix + "retryWakeupTime", StringUtil.toIsoDate( retryWakeupTime ) );
+            }
+            laneStats.debugStats().forEach( ( key, value ) -> output.put( prefix + key, value ) );
+            return output;
+        }
+    }
+
+    /**
+     * Delay before a lane retries, doubling with each consecutive retry up to {@link Settings#getMaxRetryInterval()}.
+     */
+    static TimeDuration retryBackoff( final Settings settings, final int consecutiveRetries )
+    {
+        final long retryMs = settings.getRetryInterval().asMillis();
+        final long maxRetryMs = Math.max( retryMs, settings.getMaxRetryInterval().asMillis() );
+        final int shift = Math.min( Math.max( consecutiveRetries - 1, 0 ), 30 );
+        final long backoffMs = retryMs > ( maxRetryMs >> shift ) ? maxRetryMs : retryMs << shift;
+        return TimeDuration.of( backoffMs, TimeDuration.Unit.MILLISECONDS );
+    }
+
+    private boolean isBatchEnabled( )
+    {
+        return settings.getBatchSize() > 1 && itemProcessor instanceof BatchItemProcessor;
+    }
+
+    private void removeQueueHead( final int count )
+    {
+        if ( count > 1 && queue instanceof LocalDBStoredQueue )
+        {
+            ( ( LocalDBStoredQueue ) queue ).removeFirst( count );
+            return;
+        }
+
+        for ( int i = 0; i < count; i++ )
         {
             queue.removeFirst();
-            retryWakeupTime = null;
         }
     }
 
+    private void completeItem( final QueuedItem<W> queuedItem )
+    {
+        completedItemCount.incrementAndGet();
+        completedItems.offer( queuedItem.getPosition() );
+    }
+
+    /**
+     * Record a discarded item in the dead letter queue.  Only the item's id and dates are kept, the item itself may
+     * contain personal data or credentials and is not stored.
+     */
+    private void addToDeadLetterQueue( final ItemWrapper<W> itemWrapper, final DeadLetterReason reason )
+    {
+        workQueueStats.increment( WorkQueueStat.deadLetterItems );
+        if ( deadLetterQueue == null || settings.getMaxDeadLetterItems() <= 0 )
+        {
+            return;
+        }
+
+        try
+        {
+            final DeadLetterItem deadLetterItem = new DeadLetterItem(
+                    itemWrapper == null ? null : itemWrapper.getDate(),
+                    Instant.now(),
+                    itemWrapper == null ? null : itemWrapper.getId(),
+                    reason );
+            deadLetterQueue.offerLast( JsonFactory.get().serialize( deadLetterItem ) );
+            purgeDeadLetterQueue();
+        }
+        catch ( final Exception e )
+        {
+            logger.error( sessionLabel, () -> "error writing item to dead letter queue: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Remove dead letter records beyond {@link Settings#getMaxDeadLetterItems()} or older than
+     * {@link Settings#getMaxDeadLetterAge()}.  Records that can not be read, such as records of earlier versions that
+     * contained the whole item, are removed as well.
+     */
+    private void purgeDeadLetterQueue( )
+    {
+        if ( deadLetterQueue == null )
+        {
+            return;
+        }
+
+        while ( deadLetterQueue.size() > Math.max( 0, settings.getMaxDeadLetterItems() ) )
+        {
+            deadLetterQueue.pollFirst();
+        }
+
+        String strValue = deadLetterQueue.peekFirst();
+        while ( strValue != null && isExpiredDeadLetter( strValue ) )
+        {
+            deadLetterQueue.pollFirst();
+            strValue = deadLetterQueue.peekFirst();
+        }
+    }
+
+    private boolean isExpiredDeadLetter( final String strValue )
+    {
+        try
+        {
+            final DeadLetterItem deadLetterItem = JsonFactory.get().deserialize( strValue, DeadLetterItem.class );
+            return deadLetterItem.getDiscardDate() == null
+                    || TimeDuration.fromCurrent( deadLetterItem.getDiscardDate() ).isLongerThan( settings.getMaxDeadLetterAge() );
+        }
+        catch ( final Exception e )
+        {
+            return true;
+        }
+    }
+
+    public int deadLetterQueueSize( )
+    {
+        return deadLetterQueue == null ? 0 : deadLetterQueue.size();
+    }
+
+    private enum DeadLetterReason
+    {
+        unreadable,
+        expired,
+        failed,
+        error,
+    }
+
+    @Value
+    private static class DeadLetterItem implements Serializable
+    {
+        @SerializedName( "s" )
+        private final Instant submitDate;
+
+        @SerializedName( "d" )
+        private final Instant discardDate;
+
+        @SerializedName( "i" )
+        private final String id;
+
+        @SerializedName( "r" )
+        private final DeadLetterReason reason;
+    }
+
+    @Value
+    private static class QueuedItem<W extends Serializable>
+    {
+        private final ItemWrapper<W> itemWrapper;
+        private final long position;
+    }
+
     private static class ItemWrapper<W extends Serializable> implements Serializable
     {
         @SerializedName( "t" )
@@ -527,12 +1250,16 @@ public final class WorkQueueProcessor<W extends Serializable>
         @SerializedName( "i" )
         private final String id;
 
-        ItemWrapper( final Instant submitDate, final W workItem, final String itemId )
+        @SerializedName( "l" )
+        private final String laneKey;
+
+        ItemWrapper( final Instant submitDate, final W workItem, final String itemId, final String laneKey )
         {
             this.timestamp = submitDate;
             this.item = JsonFactory.get().serialize( workItem );
             this.className = workItem.getClass().getName();
             this.id = itemId;
+            this.laneKey = laneKey;
         }
 
         Instant getDate( )
@@ -559,6 +1286,11 @@ public final class WorkQueueProcessor<W extends Serializable>
             return id;
         }
 
+        String getLaneKey( )
+        {
+            return laneKey;
+        }
+
         String toDebugString( final ItemProcessor<W> itemProcessor ) throws PwmOperationalException
         {
             final Map<String, String> debugOutput = new LinkedHashMap<>();
@@ -577,6 +1309,29 @@ public final class WorkQueueProcessor<W extends Serializable>
         ProcessResult process( W workItem );
 
         String convertToDebugString( W workItem );
+
+        /**
+         * Key of the lane that processes the item, such as the destination address or server.  Items with the same
+         * key are processed in order by the same lane, a retry of one item only delays items with the same key.
+         * Items with a null key may be processed by any lane.
+         */
+        default String laneKey( final W workItem )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * An {@link ItemProcessor} able to process several queued items at once, such as over a single connection.  Batches
+     * are only used when {@link Settings#getBatchSize()} is greater than one.
+     */
+    public interface BatchItemProcessor<W extends Serializable> extends ItemProcessor<W>
+    {
+        /**
+         * Process the items in queue order, returning one result per item.  Items after an item that is to be retried
+         * should also be returned as {@link ProcessResult#RETRY}.
+         */
+        List<ProcessResult> processBatch( List<W> workItems );
     }
 
     @Value
@@ -600,14 +1355,40 @@ public final class WorkQueueProcessor<W extends Serializable>
 
         @Builder.Default
         private TimeDuration maxShutdownWaitTime = TimeDuration.of( 30, TimeDuration.Unit.SECONDS );
+
+        @Builder.Default
+        private int lanes = 1;
+
+        @Builder.Default
+        private TimeDuration maxRetryInterval = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+
+        @Builder.Default
+        private int maxDeadLetterItems = 1000;
+
+        @Builder.Default
+        private TimeDuration maxDeadLetterAge = TimeDuration.of( 7, TimeDuration.Unit.DAYS );
+
+        @Builder.Default
+        private int batchSize = 1;
+
+        @Builder.Default
+        private TimeDuration batchWindow = TimeDuration.ZERO;
+
+        @Builder.Default
+        private int dispatchWindow = 1000;
     }
 
-    private void logAndStatUpdateForSuccess( final ItemWrapper<W> itemWrapper, final TimeDuration processDuration )
+    private void logAndStatUpdateForSuccess( final Lane lane, final ItemWrapper<W> itemWrapper, final TimeDuration processDuration )
             throws PwmOperationalException
     {
         final TimeDuration lagTime = TimeDuration.fromCurrent( itemWrapper.getDate() );
         avgLagTime.update( lagTime.asMillis() );
         sendRate.markEvents( 1 );
+        if ( lane != null )
+        {
+            lane.avgLagTime.update( lagTime.asMillis() );
+            lane.sendRate.markEvents( 1 );
+        }
         logger.trace( sessionLabel, () -> "processed item=" + makeDebugText( itemWrapper ) + "; lagTime=" + lagTime.asCompactString()
                 + "; " + StringUtil.mapToString( debugInfo() ), processDuration );
     }
@@ -623,7 +1404,15 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         if ( workerThread != null )
         {
-            output.put( "postQueueThreads", workerThread.isRunning() ? "1" : "0" );
+            output.put( "postQueueThreads", String.valueOf( lanes.stream().filter( Lane::isRunning ).count() ) );
+        }
+        if ( deadLetterQueue != null )
+        {
+            output.put( "deadLetterQueueSize", String.valueOf( deadLetterQueue.size() ) );
+        }
+        if ( lanes.size() > 1 )
+        {
+            lanes.forEach( lane -> output.putAll( lane.debugInfo() ) );
         }
         output.putAll( workQueueStats.debugStats() );
         return Collections.unmodifiableMap( output );
@@ -252,6 +252,32 @@ public class XodusLocalDB implements LocalDBProvider
         return get( db, key ).isPresent();
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys ) throws LocalDBException
+    {
+        checkStatus( false );
+        return environment.computeInReadonlyTransaction( transaction ->
+        {
+            // each key is an independent point lookup, sharing one cursor and read transaction avoids reopening them per key
+            final Cursor cursor = getStore( db ).openCursor( transaction );
+            try
+            {
+                for ( final String key : keys )
+                {
+                    if ( cursor.getSearchKey( bindMachine.keyToEntry( key ) ) != null )
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            finally
+            {
+                cursor.close();
+            }
+        } );
+    }
+
     @Override
     public Optional<String> get( final LocalDB.DB db, final String key ) throws LocalDBException
     {
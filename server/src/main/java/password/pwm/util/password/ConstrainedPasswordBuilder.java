@@ -0,0 +1,236 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.util.secure.PwmRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds random passwords that satisfy the character class, length, position and repeat constraints of a
+ * password policy by construction, so that normally only a single validation round (for the wordlist, history,
+ * strength and other rules that can't be constructed for) is needed.
+ */
+class ConstrainedPasswordBuilder
+{
+    private enum CharClass
+    {
+        UPPER,
+        LOWER,
+        NUMERIC,
+        SPECIAL,
+    }
+
+    private final PwmRandom pwmRandom;
+    private final String[] pools = new String[CharClass.values().length];
+    private final int[] minimums = new int[CharClass.values().length];
+    private final int[] maximums = new int[CharClass.values().length];
+    private final int minimumLength;
+    private final int maximumLength;
+    private final boolean allowFirstNumeric;
+    private final boolean allowLastNumeric;
+    private final boolean allowFirstSpecial;
+    private final boolean allowLastSpecial;
+
+    ConstrainedPasswordBuilder(
+            final PwmRandom pwmRandom,
+            final RandomPasswordGenerator.SeedMachine seedMachine,
+            final PasswordRuleReaderHelper ruleHelper,
+            final int desiredLength
+    )
+    {
+        this.pwmRandom = pwmRandom;
+
+        final boolean allowNumeric = ruleHelper.readBooleanValue( PwmPasswordRule.AllowNumeric );
+        final boolean allowSpecial = ruleHelper.readBooleanValue( PwmPasswordRule.AllowSpecial );
+
+        pools[CharClass.UPPER.ordinal()] = seedMachine.getUpperChars();
+        pools[CharClass.LOWER.ordinal()] = seedMachine.getLowerChars();
+        pools[CharClass.NUMERIC.ordinal()] = allowNumeric ? seedMachine.getNumChars() : "";
+        pools[CharClass.SPECIAL.ordinal()] = allowSpecial ? seedMachine.getSpecialChars() : "";
+
+        setLimits( CharClass.UPPER, ruleHelper.readIntValue( PwmPasswordRule.MinimumUpperCase ), ruleHelper.readIntValue( PwmPasswordRule.MaximumUpperCase ) );
+        setLimits( CharClass.LOWER, ruleHelper.readIntValue( PwmPasswordRule.MinimumLowerCase ), ruleHelper.readIntValue( PwmPasswordRule.MaximumLowerCase ) );
+        setLimits( CharClass.NUMERIC, ruleHelper.readIntValue( PwmPasswordRule.MinimumNumeric ), ruleHelper.readIntValue( PwmPasswordRule.MaximumNumeric ) );
+        setLimits( CharClass.SPECIAL, ruleHelper.readIntValue( PwmPasswordRule.MinimumSpecial ), ruleHelper.readIntValue( PwmPasswordRule.MaximumSpecial ) );
+
+        this.minimumLength = Math.max( desiredLength, ruleHelper.readIntValue( PwmPasswordRule.MinimumLength ) );
+        this.maximumLength = ruleHelper.readIntValue( PwmPasswordRule.MaximumLength );
+        this.allowFirstNumeric = ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharNumeric );
+        this.allowLastNumeric = ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharNumeric );
+        this.allowFirstSpecial = ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharSpecial );
+        this.allowLastSpecial = ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharSpecial );
+    }
+
+    private void setLimits( final CharClass charClass, final int minimum, final int maximum )
+    {
+        minimums[charClass.ordinal()] = minimum;
+        maximums[charClass.ordinal()] = pools[charClass.ordinal()].isEmpty() ? 0 : ( maximum > 0 ? maximum : Integer.MAX_VALUE );
+    }
+
+    /**
+     * Build a new candidate password.
+     *
+     * @return a candidate, or empty if the policy constraints can not be satisfied by construction.
+     */
+    Optional<String> build()
+    {
+        final int classCount = CharClass.values().length;
+        final int[] counts = new int[classCount];
+
+        int requiredLength = 0;
+        for ( int i = 0; i < classCount; i++ )
+        {
+            if ( minimums[i] > maximums[i] )
+            {
+                return Optional.empty();
+            }
+            counts[i] = minimums[i];
+            requiredLength += minimums[i];
+        }
+
+        final int targetLength = Math.max( minimumLength, requiredLength );
+        if ( maximumLength > 0 && targetLength > maximumLength )
+        {
+            return Optional.empty();
+        }
+
+        // letters are preferred for the remainder so class maximums and position rules are rarely touched
+        for ( int length = requiredLength; length < targetLength; length++ )
+        {
+            final Optional<CharClass> charClass = randomOpenClass( counts );
+            if ( charClass.isEmpty() )
+            {
+                return Optional.empty();
+            }
+            counts[charClass.get().ordinal()]++;
+        }
+
+        final StringBuilder password = new StringBuilder( targetLength );
+        for ( final CharClass charClass : CharClass.values() )
+        {
+            appendDistinctChars( password, pools[charClass.ordinal()], counts[charClass.ordinal()] );
+        }
+
+        shuffle( password );
+
+        if ( !fixPosition( password, 0, allowFirstNumeric, allowFirstSpecial )
+                || !fixPosition( password, password.length() - 1, allowLastNumeric, allowLastSpecial ) )
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of( password.toString() );
+    }
+
+    private Optional<CharClass> randomOpenClass( final int[] counts )
+    {
+        final List<CharClass> openClasses = new ArrayList<>( CharClass.values().length );
+        for ( final CharClass charClass : CharClass.values() )
+        {
+            if ( counts[charClass.ordinal()] < maximums[charClass.ordinal()] )
+            {
+                openClasses.add( charClass );
+                if ( charClass == CharClass.UPPER || charClass == CharClass.LOWER )
+                {
+                    openClasses.add( charClass );
+                }
+            }
+        }
+
+        return openClasses.isEmpty()
+                ? Optional.empty()
+                : Optional.of( openClasses.get( pwmRandom.nextInt( openClasses.size() ) ) );
+    }
+
+    /**
+     * Appends chars from the pool, avoiding repeated chars until the pool is exhausted so that repeat and
+     * uniqueness rules are satisfied whenever the pool is large enough.
+     */
+    private void appendDistinctChars( final StringBuilder password, final String pool, final int count )
+    {
+        final char[] remaining = pool.toCharArray();
+        int remainingLength = remaining.length;
+
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( remainingLength == 0 )
+            {
+                remainingLength = remaining.length;
+            }
+            final int index = pwmRandom.nextInt( remainingLength );
+            final char nextChar = remaining[index];
+            remaining[index] = remaining[remainingLength - 1];
+            remaining[remainingLength - 1] = nextChar;
+            remainingLength--;
+            password.append( nextChar );
+        }
+    }
+
+    private void shuffle( final StringBuilder password )
+    {
+        for ( int i = password.length() - 1; i > 0; i-- )
+        {
+            final int swapIndex = pwmRandom.nextInt( i + 1 );
+            final char swapChar = password.charAt( swapIndex );
+            password.setCharAt( swapIndex, password.charAt( i ) );
+            password.setCharAt( i, swapChar );
+        }
+    }
+
+    private static boolean fixPosition(
+            final StringBuilder password,
+            final int position,
+            final boolean allowNumeric,
+            final boolean allowSpecial
+    )
+    {
+        if ( password.length() == 0 || isAllowedAt( password.charAt( position ), allowNumeric, allowSpecial ) )
+        {
+            return true;
+        }
+
+        for ( int i = 1; i < password.length() - 1; i++ )
+        {
+            final char swapChar = password.charAt( i );
+            if ( Character.isLetter( swapChar ) )
+            {
+                password.setCharAt( i, password.charAt( position ) );
+                password.setCharAt( position, swapChar );
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAllowedAt( final char value, final boolean allowNumeric, final boolean allowSpecial )
+    {
+        if ( Character.isDigit( value ) )
+        {
+            return allowNumeric;
+        }
+        return Character.isLetter( value ) || allowSpecial;
+    }
+}
@@ -20,20 +20,134 @@
 
 package password.pwm.util.password;
 
+import java.util.Arrays;
+
+/**
+ * Character class statistics of a password.  All counts are computed in a single pass over the password
+ * when the counter is created.
+ */
 public class PasswordCharCounter
 {
     private final String password;
     private final int passwordLength;
 
+    private final int numericCount;
+    private final int upperCount;
+    private final int lowerCount;
+    private final int alphaCount;
+    private final int specialCount;
+    private final int otherLetterCount;
+
+    private final int repeatedChars;
+    private final int sequentialRepeatedChars;
+    private final int sequentialNumericChars;
+    private final int sequentialAlphaChars;
+    private final int uniqueChars;
+
     public PasswordCharCounter( final String password )
     {
         this.password = password;
         this.passwordLength = password.length();
+
+        int numericCount = 0;
+        int upperCount = 0;
+        int lowerCount = 0;
+        int alphaCount = 0;
+        int specialCount = 0;
+        int otherLetterCount = 0;
+
+        int sequentialRepeatedChars = 0;
+        int sequentialNumericChars = 0;
+        int sequentialAlphaChars = 0;
+        int repeatRun = 0;
+        int numericRun = 0;
+        int alphaRun = 0;
+
+        final char[] lowerChars = new char[passwordLength];
+        for ( int i = 0; i < passwordLength; i++ )
+        {
+            final char loopChar = password.charAt( i );
+            final char lowerChar = Character.toLowerCase( loopChar );
+            lowerChars[i] = lowerChar;
+
+            final boolean digit = Character.isDigit( loopChar );
+            final boolean letter = Character.isLetter( loopChar );
+
+            if ( digit )
+            {
+                numericCount++;
+            }
+            if ( letter )
+            {
+                alphaCount++;
+                if ( Character.getType( loopChar ) == Character.OTHER_LETTER )
+                {
+                    otherLetterCount++;
+                }
+            }
+            if ( !digit && !letter )
+            {
+                specialCount++;
+            }
+            if ( Character.isUpperCase( loopChar ) )
+            {
+                upperCount++;
+            }
+            if ( Character.isLowerCase( loopChar ) )
+            {
+                lowerCount++;
+            }
+
+            repeatRun = i > 0 && lowerChar == lowerChars[i - 1] ? repeatRun + 1 : 1;
+            numericRun = digit ? numericRun + 1 : 0;
+            alphaRun = letter ? alphaRun + 1 : 0;
+
+            // a run starting on the final character is not counted
+            final boolean finalCharRun = i == passwordLength - 1;
+            if ( !finalCharRun || repeatRun > 1 )
+            {
+                sequentialRepeatedChars = Math.max( sequentialRepeatedChars, repeatRun );
+            }
+            if ( !finalCharRun || numericRun > 1 )
+            {
+                sequentialNumericChars = Math.max( sequentialNumericChars, numericRun );
+            }
+            if ( !finalCharRun || alphaRun > 1 )
+            {
+                sequentialAlphaChars = Math.max( sequentialAlphaChars, alphaRun );
+            }
+        }
+
+        this.numericCount = numericCount;
+        this.upperCount = upperCount;
+        this.lowerCount = lowerCount;
+        this.alphaCount = alphaCount;
+        this.specialCount = specialCount;
+        this.otherLetterCount = otherLetterCount;
+        this.sequentialRepeatedChars = sequentialRepeatedChars;
+        this.sequentialNumericChars = sequentialNumericChars;
+        this.sequentialAlphaChars = sequentialAlphaChars;
+
+        Arrays.sort( lowerChars );
+        int uniqueChars = 0;
+        int repeatedChars = 0;
+        int sameCharCount = 0;
+        for ( int i = 0; i < passwordLength; i++ )
+        {
+            sameCharCount = i > 0 && lowerChars[i] == lowerChars[i - 1] ? sameCharCount + 1 : 1;
+            if ( sameCharCount == 1 )
+            {
+                uniqueChars++;
+            }
+            repeatedChars = Math.max( repeatedChars, sameCharCount );
+        }
+        this.uniqueChars = uniqueChars;
+        this.repeatedChars = passwordLength > 1 ? repeatedChars : 0;
     }
 
     public int getNumericCharCount( )
     {
-        return getNumericChars().length();
+        return numericCount;
     }
 
     public String getNumericChars( )
@@ -43,7 +157,7 @@ public class PasswordCharCounter
 
     public int getUpperCharCount( )
     {
-        return getUpperChars().length();
+        return upperCount;
     }
 
     public String getUpperChars( )
@@ -53,7 +167,7 @@ public class PasswordCharCounter
 
     public int getAlphaCharCount( )
     {
-        return getAlphaChars().length();
+        return alphaCount;
     }
 
     public String getAlphaChars( )
@@ -63,7 +177,7 @@ public class PasswordCharCounter
 
     public int getNonAlphaCharCount( )
     {
-        return getNonAlphaChars().length();
+        return passwordLength - alphaCount;
     }
 
     public String getNonAlphaChars( )
@@ -73,7 +187,7 @@ public class PasswordCharCounter
 
     public int getLowerCharCount( )
     {
-        return getLowerChars().length();
+        return lowerCount;
     }
 
     public String getLowerChars( )
@@ -83,7 +197,7 @@ public class PasswordCharCounter
 
     public int getSpecialCharsCount( )
     {
-        return getSpecialChars().length();
+        return specialCount;
     }
 
     public String getSpecialChars( )
@@ -93,128 +207,32 @@ public class PasswordCharCounter
 
     public int getRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return repeatedChars;
     }
 
     public int getSequentialRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialRepeatedChars;
     }
 
     public int getSequentialNumericChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isDigit( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialNumericChars;
     }
 
     public int getSequentialAlphaChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isLetter( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialAlphaChars;
     }
 
     public int getUniqueChars( )
     {
-        final StringBuilder sb = new StringBuilder();
-        final String passwordL = password.toLowerCase();
-        for ( int i = 0; i < passwordLength; i++ )
-        {
-            final char loopChar = passwordL.charAt( i );
-            if ( sb.indexOf( String.valueOf( loopChar ) ) == -1 )
-            {
-                sb.append( loopChar );
-            }
-        }
-        return sb.length();
+        return uniqueChars;
     }
 
     public int getOtherLetterCharCount( )
     {
-        return getOtherLetterChars().length();
+        return otherLetterCount;
     }
 
     public String getOtherLetterChars( )
@@ -567,12 +567,12 @@ public class PasswordRuleChecks
         {
             final List<ErrorInformation> errorList = new ArrayList<>();
             final UserInfo userInfo = ruleCheckData.getUserInfo();
-            final PwmPasswordPolicy policy = ruleCheckData.getPolicy();
+            final PasswordRuleReaderHelper ruleHelper = ruleCheckData.getRuleHelper();
 
             // check disallowed attributes.
-            if ( !policy.getRuleHelper().getDisallowedAttributes().isEmpty() )
+            if ( !ruleHelper.getDisallowedAttributes().isEmpty() )
             {
-                final List<String> paramConfigs = policy.getRuleHelper().getDisallowedAttributes( PasswordRuleReaderHelper.Flag.KeepThresholds );
+                final List<String> paramConfigs = ruleHelper.getDisallowedAttributes( PasswordRuleReaderHelper.Flag.KeepThresholds );
                 if ( userInfo != null )
                 {
                     final Map<String, String> userValues = userInfo.getCachedPasswordRuleAttributes();
@@ -614,7 +614,7 @@ public class PasswordRuleChecks
                 if ( pwmDomain != null )
                 {
                     final int passwordStrength = PasswordUtility.judgePasswordStrength(
-                            pwmDomain.getConfig(),
+                            pwmDomain,
                             password
                     );
                     if ( passwordStrength < requiredPasswordStrength )
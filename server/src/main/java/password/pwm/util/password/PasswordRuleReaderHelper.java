@@ -22,6 +22,7 @@ package password.pwm.util.password;
 
 import com.novell.ldapchai.ChaiPasswordRule;
 import com.novell.ldapchai.util.DefaultChaiPasswordPolicy;
+import lombok.Value;
 import password.pwm.config.option.ADPolicyComplexity;
 import password.pwm.config.profile.PwmPasswordPolicy;
 import password.pwm.config.profile.PwmPasswordRule;
@@ -32,10 +33,18 @@ import password.pwm.util.macro.MacroRequest;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+/**
+ * Reads the rule values of a {@link PwmPasswordPolicy}.  Rule values and macro independent regular expressions are
+ * compiled once when the helper is created; instances are immutable and cached by the policy.
+ */
 public class PasswordRuleReaderHelper
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordRuleReaderHelper.class );
@@ -46,85 +55,127 @@ public class PasswordRuleReaderHelper
     }
 
     private final PwmPasswordPolicy passwordPolicy;
-    private final com.novell.ldapchai.util.PasswordRuleHelper chaiRuleHelper;
+    private final List<String> disallowedValues;
+    private final List<String> disallowedAttributes;
+    private final List<String> strippedDisallowedAttributes;
+
+    // indexed by PwmPasswordRule ordinal
+    private final int[] intValues;
+    private final boolean[] booleanValues;
+
+    private final Map<PwmPasswordRule, List<RegExValue>> regExValues;
 
     public PasswordRuleReaderHelper( final PwmPasswordPolicy passwordPolicy )
     {
         this.passwordPolicy = passwordPolicy;
-        chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy( passwordPolicy.getPolicyMap() ).getRuleHelper();
+        final com.novell.ldapchai.util.PasswordRuleHelper chaiRuleHelper
+                = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy( passwordPolicy.getPolicyMap() ).getRuleHelper();
+
+        this.disallowedValues = immutableCopy( chaiRuleHelper.getDisallowedValues() );
+        this.disallowedAttributes = immutableCopy( chaiRuleHelper.getDisallowedAttributes() );
+        this.strippedDisallowedAttributes = stripThresholds( disallowedAttributes );
+
+        final PwmPasswordRule[] allRules = PwmPasswordRule.values();
+        this.intValues = new int[allRules.length];
+        this.booleanValues = new boolean[allRules.length];
+        for ( final PwmPasswordRule rule : allRules )
+        {
+            final String value = passwordPolicy.getPolicyMap().get( rule.getKey() );
+            if ( rule.getRuleType() == ChaiPasswordRule.RuleType.BOOLEAN )
+            {
+                booleanValues[rule.ordinal()] = StringUtil.convertStrToBoolean( value );
+            }
+            else if ( isNumericRule( rule ) )
+            {
+                final int defaultValue = StringUtil.convertStrToInt( rule.getDefaultValue(), 0 );
+                intValues[rule.ordinal()] = StringUtil.convertStrToInt( value, defaultValue );
+            }
+        }
+
+        final Map<PwmPasswordRule, List<RegExValue>> regExValues = new EnumMap<>( PwmPasswordRule.class );
+        for ( final PwmPasswordRule rule : List.of( PwmPasswordRule.RegExMatch, PwmPasswordRule.RegExNoMatch, PwmPasswordRule.CharGroupsValues ) )
+        {
+            regExValues.put( rule, compileRegExValues( rule, passwordPolicy.getPolicyMap().get( rule.getKey() ) ) );
+        }
+        this.regExValues = Collections.unmodifiableMap( regExValues );
     }
 
     public List<String> getDisallowedValues( )
     {
-        return chaiRuleHelper.getDisallowedValues();
+        return disallowedValues;
     }
 
     public List<String> getDisallowedAttributes( final Flag... flags )
     {
-        final List<String> disallowedAttributes = chaiRuleHelper.getDisallowedAttributes();
+        return JavaHelper.enumArrayContainsValue( flags, Flag.KeepThresholds )
+                ? disallowedAttributes
+                : strippedDisallowedAttributes;
+    }
 
-        if ( JavaHelper.enumArrayContainsValue( flags, Flag.KeepThresholds ) )
-        {
-            return disallowedAttributes;
-        }
-        else
-        {
-            // Strip off any thresholds from attribute (specified as: "attributeName:N", where N is a numeric value).
-            final List<String> strippedDisallowedAttributes = new ArrayList<>();
+    private static List<String> stripThresholds( final List<String> disallowedAttributes )
+    {
+        // Strip off any thresholds from attribute (specified as: "attributeName:N", where N is a numeric value).
+        final List<String> strippedDisallowedAttributes = new ArrayList<>();
 
-            if ( disallowedAttributes != null )
+        for ( final String disallowedAttribute : disallowedAttributes )
+        {
+            final int indexOfColon = disallowedAttribute.indexOf( ':' );
+            if ( indexOfColon > 0 )
             {
-                for ( final String disallowedAttribute : disallowedAttributes )
-                {
-                    if ( disallowedAttribute != null )
-                    {
-                        final int indexOfColon = disallowedAttribute.indexOf( ':' );
-                        if ( indexOfColon > 0 )
-                        {
-                            strippedDisallowedAttributes.add( disallowedAttribute.substring( 0, indexOfColon ) );
-                        }
-                        else
-                        {
-                            strippedDisallowedAttributes.add( disallowedAttribute );
-                        }
-                    }
-                }
+                strippedDisallowedAttributes.add( disallowedAttribute.substring( 0, indexOfColon ) );
+            }
+            else
+            {
+                strippedDisallowedAttributes.add( disallowedAttribute );
             }
+        }
+
+        return Collections.unmodifiableList( strippedDisallowedAttributes );
+    }
 
-            return strippedDisallowedAttributes;
+    private static List<String> immutableCopy( final List<String> values )
+    {
+        if ( values == null || values.isEmpty() )
+        {
+            return Collections.emptyList();
         }
+
+        final List<String> copy = new ArrayList<>( values );
+        copy.removeIf( Objects::isNull );
+        return Collections.unmodifiableList( copy );
     }
 
     public List<Pattern> getRegExMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExMatch, macroRequest );
+        return resolveRegExValues( PwmPasswordRule.RegExMatch, macroRequest );
     }
 
     public List<Pattern> getRegExNoMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExNoMatch, macroRequest );
+        return resolveRegExValues( PwmPasswordRule.RegExNoMatch, macroRequest );
     }
 
     public List<Pattern> getCharGroupValues( )
     {
-        return readRegExSetting( PwmPasswordRule.CharGroupsValues, null );
+        return resolveRegExValues( PwmPasswordRule.CharGroupsValues, null );
     }
 
 
     public int readIntValue( final PwmPasswordRule rule )
     {
-        if (
-                ( rule.getRuleType() != ChaiPasswordRule.RuleType.MIN )
-                        && ( rule.getRuleType() != ChaiPasswordRule.RuleType.MAX )
-                        && ( rule.getRuleType() != ChaiPasswordRule.RuleType.NUMERIC )
-                )
+        if ( !isNumericRule( rule ) )
         {
             throw new IllegalArgumentException( "attempt to read non-numeric rule value as int for rule " + rule );
         }
 
-        final String value = passwordPolicy.getPolicyMap().get( rule.getKey() );
-        final int defaultValue = StringUtil.convertStrToInt( rule.getDefaultValue(), 0 );
-        return StringUtil.convertStrToInt( value, defaultValue );
+        return intValues[rule.ordinal()];
+    }
+
+    private static boolean isNumericRule( final PwmPasswordRule rule )
+    {
+        return ( rule.getRuleType() == ChaiPasswordRule.RuleType.MIN )
+                || ( rule.getRuleType() == ChaiPasswordRule.RuleType.MAX )
+                || ( rule.getRuleType() == ChaiPasswordRule.RuleType.NUMERIC );
     }
 
     public boolean readBooleanValue( final PwmPasswordRule rule )
@@ -134,52 +185,108 @@ public class PasswordRuleReaderHelper
             throw new IllegalArgumentException( "attempt to read non-boolean rule value as boolean for rule " + rule );
         }
 
-        final String value = passwordPolicy.getPolicyMap().get( rule.getKey() );
-        return StringUtil.convertStrToBoolean( value );
+        return booleanValues[rule.ordinal()];
     }
 
-    private List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest )
+    private List<Pattern> resolveRegExValues( final PwmPasswordRule rule, final MacroRequest macroRequest )
     {
-        final String input = passwordPolicy.getPolicyMap().get( rule.getKey() );
+        final List<RegExValue> values = regExValues.get( rule );
+        if ( values.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
 
-        return readRegExSetting( rule, macroRequest, input );
+        final List<Pattern> patterns = new ArrayList<>( values.size() );
+        for ( final RegExValue value : values )
+        {
+            if ( value.getPattern() != null )
+            {
+                patterns.add( value.getPattern() );
+            }
+            else
+            {
+                final String valueToCompile = macroRequest == null
+                        ? value.getMacroValue()
+                        : macroRequest.expandMacros( value.getMacroValue() );
+                compilePattern( rule, valueToCompile ).ifPresent( patterns::add );
+            }
+        }
+        return patterns;
     }
 
-    public List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest, final String input )
+    private List<RegExValue> compileRegExValues( final PwmPasswordRule rule, final String input )
     {
         if ( input == null )
         {
             return Collections.emptyList();
         }
 
-        final String separator = ( rule == PwmPasswordRule.RegExMatch || rule == PwmPasswordRule.RegExNoMatch ) ? ";;;" : "\n";
-        final List<String> values = new ArrayList<>( StringUtil.tokenizeString( input, separator ) );
-        final List<Pattern> patterns = new ArrayList<>();
-
-        for ( final String value : values )
+        final boolean allowMacros = readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting );
+        final List<RegExValue> values = new ArrayList<>();
+        for ( final String value : StringUtil.tokenizeString( input, regExSeparator( rule ) ) )
         {
             if ( StringUtil.notEmpty( value ) )
             {
-                String valueToCompile = value;
-
-                if ( macroRequest != null && readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting ) )
-                {
-                    valueToCompile = macroRequest.expandMacros( value );
-                }
-
-                try
+                if ( allowMacros && value.indexOf( '@' ) >= 0 )
                 {
-                    final Pattern loopPattern = Pattern.compile( valueToCompile );
-                    patterns.add( loopPattern );
+                    // macro values depend on the user and are compiled when read
+                    values.add( new RegExValue( null, value ) );
                 }
-                catch ( final PatternSyntaxException e )
+                else
                 {
-                    final String valueToCompileFinal = valueToCompile;
-                    LOGGER.warn( () -> "reading password rule value '" + valueToCompileFinal + "' for rule " + rule.getKey()
-                            + " is not a valid regular expression " + e.getMessage() );
+                    compilePattern( rule, value ).ifPresent( pattern -> values.add( new RegExValue( pattern, null ) ) );
                 }
             }
         }
+        return Collections.unmodifiableList( values );
+    }
+
+    private static String regExSeparator( final PwmPasswordRule rule )
+    {
+        return ( rule == PwmPasswordRule.RegExMatch || rule == PwmPasswordRule.RegExNoMatch ) ? ";;;" : "\n";
+    }
+
+    private static Optional<Pattern> compilePattern( final PwmPasswordRule rule, final String valueToCompile )
+    {
+        try
+        {
+            return Optional.of( Pattern.compile( valueToCompile ) );
+        }
+        catch ( final PatternSyntaxException e )
+        {
+            LOGGER.warn( () -> "reading password rule value '" + valueToCompile + "' for rule " + rule.getKey()
+                    + " is not a valid regular expression " + e.getMessage() );
+        }
+        return Optional.empty();
+    }
+
+    @Value
+    private static class RegExValue
+    {
+        private final Pattern pattern;
+        private final String macroValue;
+    }
+
+    public List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest, final String input )
+    {
+        if ( input == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<Pattern> patterns = new ArrayList<>();
+
+        for ( final String value : StringUtil.tokenizeString( input, regExSeparator( rule ) ) )
+        {
+            if ( StringUtil.notEmpty( value ) )
+            {
+                final String valueToCompile = macroRequest != null && readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting )
+                        ? macroRequest.expandMacros( value )
+                        : value;
+
+                compilePattern( rule, valueToCompile ).ifPresent( patterns::add );
+            }
+        }
 
         return patterns;
     }
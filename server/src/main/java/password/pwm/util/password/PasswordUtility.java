@@ -32,9 +32,8 @@ import com.novell.ldapchai.provider.ChaiProvider;
 import com.novell.ldapchai.provider.ChaiSetting;
 import com.novell.ldapchai.provider.DirectoryVendor;
 import com.novell.ldapchai.util.ChaiUtility;
-import com.nulabinc.zxcvbn.Strength;
-import com.nulabinc.zxcvbn.Zxcvbn;
 import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
 import password.pwm.PwmDomain;
 import password.pwm.bean.EmailItemBean;
 import password.pwm.bean.LocalSessionStateBean;
@@ -85,6 +84,7 @@ import password.pwm.svc.stats.AvgStatistic;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
+import password.pwm.svc.wordlist.WordlistService;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.MiscUtil;
@@ -107,6 +107,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * @author Jason D. Rivard
@@ -486,7 +487,7 @@ public class PasswordUtility
         // update stats
         pwmDomain.getStatisticsManager().updateEps( EpsStatistic.PASSWORD_CHANGES, 1 );
 
-        final int passwordStrength = PasswordUtility.judgePasswordStrength( pwmDomain.getConfig(), newPassword.getStringValue() );
+        final int passwordStrength = PasswordUtility.judgePasswordStrength( pwmDomain, newPassword.getStringValue() );
         pwmDomain.getStatisticsManager().updateAverageValue( AvgStatistic.AVG_PASSWORD_STRENGTH, passwordStrength );
 
         // at this point the password has been changed, so log it.
@@ -813,8 +814,52 @@ public class PasswordUtility
 
     */
 
+    /**
+     * Judge password strength using the application strength estimator.
+     *
+     * @param pwmDomain domain of the password
+     * @param password password value
+     * @return strength of 0-100
+     * @throws PwmUnrecoverableException if the strength meter type can not be read
+     */
     public static int judgePasswordStrength(
+            final PwmDomain pwmDomain,
+            final String password
+    )
+            throws PwmUnrecoverableException
+    {
+        return judgePasswordStrength( pwmDomain.getConfig(), () -> readStrengthEstimator( pwmDomain.getPwmApplication() ), password );
+    }
+
+    /**
+     * Judge password strength when only a configuration is available.  A zxcvbn estimator is created for each call,
+     * so callers with a {@link PwmDomain} should use {@link #judgePasswordStrength(PwmDomain, String)}.
+     *
+     * @param domainConfig domain configuration
+     * @param password password value
+     * @return strength of 0-100
+     * @throws PwmUnrecoverableException if the strength meter type can not be read
+     */
+    public static int judgePasswordStrength(
+            final DomainConfig domainConfig,
+            final String password
+    )
+            throws PwmUnrecoverableException
+    {
+        return judgePasswordStrength( domainConfig, () -> new ZxcvbnStrengthEstimator( Collections.emptyList(), 1 ), password );
+    }
+
+    private static ZxcvbnStrengthEstimator readStrengthEstimator( final PwmApplication pwmApplication )
+    {
+        final WordlistService wordlistService = pwmApplication.getWordlistService();
+        return wordlistService == null
+                ? new ZxcvbnStrengthEstimator( Collections.emptyList(), 1 )
+                : wordlistService.getStrengthEstimator();
+    }
+
+    private static int judgePasswordStrength(
             final DomainConfig domainConfig,
+            final Supplier<ZxcvbnStrengthEstimator> strengthEstimator,
             final String password
     )
             throws PwmUnrecoverableException
@@ -823,7 +868,7 @@ public class PasswordUtility
         switch ( strengthMeterType )
         {
             case ZXCVBN:
-                return judgePasswordStrengthUsingZxcvbnAlgorithm( domainConfig, password );
+                return judgePasswordStrengthUsingZxcvbnAlgorithm( domainConfig, strengthEstimator.get(), password );
 
             case PWM:
                 return judgePasswordStrengthUsingTraditionalAlgorithm( password );
@@ -837,6 +882,7 @@ public class PasswordUtility
 
     public static int judgePasswordStrengthUsingZxcvbnAlgorithm(
             final DomainConfig domainConfig,
+            final ZxcvbnStrengthEstimator strengthEstimator,
             final String password
     )
     {
@@ -849,10 +895,7 @@ public class PasswordUtility
 
         final String testPassword = StringUtil.truncate( password, maxTestLength );
 
-        final Zxcvbn zxcvbn = new Zxcvbn();
-        final Strength strength = zxcvbn.measure( testPassword );
-
-        final int zxcvbnScore = strength.getScore();
+        final int zxcvbnScore = strengthEstimator.score( testPassword );
 
         // zxcvbn returns a score of 0-4 (see: https://github.com/nulab/zxcvbn4j)
         switch ( zxcvbnScore )
@@ -1155,7 +1198,7 @@ public class PasswordUtility
             }
         }
 
-        final int strength = judgePasswordStrength( pwmDomain.getConfig(), password == null ? null : password.getStringValue() );
+        final int strength = judgePasswordStrength( pwmDomain, password == null ? null : password.getStringValue() );
         return new PasswordCheckInfo( userMessage, pass, strength, matchStatus, errorCode );
     }
 
@@ -65,6 +65,12 @@ public class RandomGeneratorConfig
 
     private int jitter;
 
+    /**
+     * Candidates built to meet the structural rules that are tried before falling back to mutating a password.
+     * These attempts are part of the {@link #maximumAttempts} budget.
+     */
+    private int constructAttempts;
+
     private int maximumAttempts;
 
     public static RandomGeneratorConfig make(
@@ -87,6 +93,7 @@ public class RandomGeneratorConfig
         final RandomGeneratorConfig config = RandomGeneratorConfig.builder()
                 .maximumAttempts( Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_MAX_ATTEMPTS ) ) )
                 .jitter( Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_JITTER_COUNT ) ) )
+                .constructAttempts( Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_CONSTRUCT_ATTEMPTS ) ) )
                 .maximumLength( figureMaximumLength( pwmDomain, pwmPasswordPolicy, request.getMaximumLength() ) )
                 .minimumLength( figureMinimumLength( pwmDomain, pwmPasswordPolicy, request.getMinimumLength() ) )
                 .minimumStrength( figureMinimumStrength( pwmDomain, pwmPasswordPolicy, request.getMinimumStrength() ) )
@@ -49,6 +49,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -112,46 +113,84 @@ public class RandomPasswordGenerator
     )
             throws PwmUnrecoverableException
     {
-        final Instant startTime = Instant.now();
+        return createRandomPasswords( sessionLabel, randomGeneratorConfig, pwmDomain, 1 ).get( 0 );
+    }
 
+    /**
+     * Creates multiple random passwords using the same configuration.  The generation policy, rule validator and
+     * seed characters are prepared once and shared by all the generated values.
+     *
+     * @param sessionLabel          A valid pwmSession
+     * @param randomGeneratorConfig Policy to be used during generation
+     * @param pwmDomain             Used to read configuration, seedmanager and other services.
+     * @param count                 Number of passwords to generate
+     * @return Randomly generated password values that meet the requirements of this {@code PasswordPolicy}
+     * @throws ImpossiblePasswordPolicyException If there is no way to create a password using the configured rules and
+     *                                        default seed phrase
+     * @throws PwmUnrecoverableException if the operation can not be completed
+     */
+    public static List<PasswordData> createRandomPasswords(
+            final SessionLabel sessionLabel,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final PwmDomain pwmDomain,
+            final int count
+    )
+            throws PwmUnrecoverableException
+    {
         randomGeneratorConfig.validateSettings( pwmDomain );
 
         final PwmRandom pwmRandom = pwmDomain.getSecureService().pwmRandom();
-        final SeedMachine seedMachine = new SeedMachine( pwmRandom, normalizeSeeds( randomGeneratorConfig.getSeedlistPhrases() ) );
+        final Collection<String> seeds = normalizeSeeds( randomGeneratorConfig.getSeedlistPhrases() );
+        final SeedMachine seedMachine = new SeedMachine( pwmRandom, seeds );
 
         // determine the password policy to use for random generation
         final PwmPasswordPolicy randomGenPolicy = makeRandomGenPwdPolicy( randomGeneratorConfig, pwmDomain );
 
         // read a rule validator
-        // modify until it passes all the rules
-        final MutatorResult mutatorResult = passwordMutator( sessionLabel, pwmDomain, seedMachine, randomGeneratorConfig, randomGenPolicy );
+        final PwmPasswordRuleValidator pwmPasswordRuleValidator = PwmPasswordRuleValidator.create(
+                sessionLabel, pwmDomain, randomGenPolicy, PwmPasswordRuleValidator.Flag.FailFast );
 
-        // report outcome
+        // multi-character seed phrases are only honored by the mutator
+        final ConstrainedPasswordBuilder constrainedPasswordBuilder = seeds.stream().allMatch( seed -> seed.length() == 1 )
+                ? new ConstrainedPasswordBuilder( pwmRandom, seedMachine, randomGenPolicy.getRuleHelper(), randomGeneratorConfig.getMinimumLength() )
+                : null;
 
-        if ( mutatorResult.isValidPassword() )
+        final List<PasswordData> passwords = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
         {
-            LOGGER.trace( sessionLabel, () -> "finished random password generation after " + mutatorResult.getRounds()
-                    + " rounds.", TimeDuration.fromCurrent( startTime ) );
-        }
-        else
-        {
-            if ( LOGGER.isInterestingLevel( PwmLogLevel.ERROR ) )
+            final Instant startTime = Instant.now();
+
+            final MutatorResult mutatorResult = generatePassword(
+                    pwmDomain, seedMachine, randomGeneratorConfig, pwmPasswordRuleValidator, constrainedPasswordBuilder );
+
+            // report outcome
+            if ( mutatorResult.isValidPassword() )
             {
-                final PwmPasswordRuleValidator pwmPasswordRuleValidator = PwmPasswordRuleValidator.create( sessionLabel, pwmDomain, randomGenPolicy );
-                final int errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( mutatorResult.getPassword(), null, null ).size();
-                final int judgeLevel = PasswordUtility.judgePasswordStrength( pwmDomain.getConfig(), mutatorResult.getPassword() );
-                LOGGER.error( sessionLabel, () -> "failed random password generation after "
-                                + mutatorResult.getRounds() + " rounds. " + "(errors=" + errors + ", judgeLevel=" + judgeLevel,
-                        TimeDuration.fromCurrent( startTime ) );
+                LOGGER.trace( sessionLabel, () -> "finished random password generation after " + mutatorResult.getRounds()
+                        + " rounds.", TimeDuration.fromCurrent( startTime ) );
+            }
+            else
+            {
+                if ( LOGGER.isInterestingLevel( PwmLogLevel.ERROR ) )
+                {
+                    final PwmPasswordRuleValidator errorRuleValidator = PwmPasswordRuleValidator.create( sessionLabel, pwmDomain, randomGenPolicy );
+                    final int errors = errorRuleValidator.internalPwmPolicyValidator( mutatorResult.getPassword(), null, null ).size();
+                    final int judgeLevel = PasswordUtility.judgePasswordStrength( pwmDomain, mutatorResult.getPassword() );
+                    LOGGER.error( sessionLabel, () -> "failed random password generation after "
+                                    + mutatorResult.getRounds() + " rounds. " + "(errors=" + errors + ", judgeLevel=" + judgeLevel,
+                            TimeDuration.fromCurrent( startTime ) );
+                }
             }
-        }
 
-        StatisticsClient.incrementStat( pwmDomain, Statistic.GENERATED_PASSWORDS );
+            StatisticsClient.incrementStat( pwmDomain, Statistic.GENERATED_PASSWORDS );
 
-        LOGGER.trace( sessionLabel, () -> "real-time random password generator called"
-                + " (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
+            LOGGER.trace( sessionLabel, () -> "real-time random password generator called"
+                    + " (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
 
-        return new PasswordData( mutatorResult.getPassword() );
+            passwords.add( new PasswordData( mutatorResult.getPassword() ) );
+        }
+
+        return Collections.unmodifiableList( passwords );
     }
 
     @Value
@@ -186,28 +225,61 @@ public class RandomPasswordGenerator
         return  PwmPasswordPolicy.createPwmPasswordPolicy( pwmDomain.getDomainID(), newPolicyMap );
     }
 
-    private static MutatorResult passwordMutator(
-            final SessionLabel sessionLabel,
+    private static MutatorResult generatePassword(
             final PwmDomain pwmDomain,
             final SeedMachine seedMachine,
             final RandomGeneratorConfig effectiveConfig,
-            final PwmPasswordPolicy randomGenPolicy
+            final PwmPasswordRuleValidator pwmPasswordRuleValidator,
+            final ConstrainedPasswordBuilder constrainedPasswordBuilder
+    )
+            throws PwmUnrecoverableException
+    {
+        int constructRounds = 0;
+        if ( constrainedPasswordBuilder != null )
+        {
+            // constructed candidates already meet the length, class, position and repeat rules, so only the
+            // remaining rules (wordlist, history, strength, etc.) can reject them.
+            final int constructAttempts = Math.min( effectiveConfig.getConstructAttempts(), effectiveConfig.getMaximumAttempts() );
+            while ( constructRounds < constructAttempts )
+            {
+                final Optional<String> candidate = constrainedPasswordBuilder.build();
+                if ( candidate.isEmpty() )
+                {
+                    break;
+                }
+
+                constructRounds++;
+                final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( candidate.get(), null, null );
+                if ( ( errors == null || errors.isEmpty() )
+                        && !checkPasswordAgainstDisallowedHttpValues( pwmDomain.getConfig(), candidate.get() ) )
+                {
+                    return new MutatorResult( candidate.get(), true, constructRounds );
+                }
+            }
+        }
 
+        // construction attempts are charged against the maximum attempts
+        final MutatorResult mutatorResult = passwordMutator(
+                pwmDomain, seedMachine, effectiveConfig, pwmPasswordRuleValidator, effectiveConfig.getMaximumAttempts() - constructRounds );
+        return new MutatorResult( mutatorResult.getPassword(), mutatorResult.isValidPassword(), constructRounds + mutatorResult.getRounds() );
+    }
+
+    private static MutatorResult passwordMutator(
+            final PwmDomain pwmDomain,
+            final SeedMachine seedMachine,
+            final RandomGeneratorConfig effectiveConfig,
+            final PwmPasswordRuleValidator pwmPasswordRuleValidator,
+            final int maxTryCount
     )
             throws PwmUnrecoverableException
     {
 
-        final int maxTryCount = effectiveConfig.getMaximumAttempts();
         final int jitterCount = effectiveConfig.getJitter();
         final PwmRandom pwmRandom = pwmDomain.getSecureService().pwmRandom();
 
         final StringBuilder password = new StringBuilder();
         password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
 
-
-        final PwmPasswordRuleValidator pwmPasswordRuleValidator = PwmPasswordRuleValidator.create(
-                sessionLabel, pwmDomain, randomGenPolicy, PwmPasswordRuleValidator.Flag.FailFast );
-
         int tryCount = 0;
         boolean validPassword = false;
         while ( !validPassword && tryCount < maxTryCount )
@@ -0,0 +1,107 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nulabinc.zxcvbn.StandardDictionaries;
+import com.nulabinc.zxcvbn.StandardKeyboards;
+import com.nulabinc.zxcvbn.Zxcvbn;
+import com.nulabinc.zxcvbn.ZxcvbnBuilder;
+import com.nulabinc.zxcvbn.matchers.Dictionary;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.PwmRandom;
+import password.pwm.util.secure.SecureEngine;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reusable zxcvbn estimator.  The standard dictionaries and keyboards are loaded once per instance, optionally
+ * extended with a frequency ordered wordlist, and recent scores are memoized by a salted hash of the password
+ * so repeated checks of the same value while a user is typing skip the estimation.  The application instance is
+ * held by the {@link password.pwm.svc.wordlist.WordlistService}.
+ */
+public class ZxcvbnStrengthEstimator
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( ZxcvbnStrengthEstimator.class );
+
+    private static final String WORDLIST_DICTIONARY_NAME = "pwm_wordlist";
+
+    private final Zxcvbn zxcvbn;
+    private final Cache<String, Integer> scoreMemo;
+    private final String memoSalt = PwmRandom.getInstance().alphaNumericString( 32 );
+
+    /**
+     * Create an estimator.  zxcvbn ranks dictionary entries by their position, so the wordlist words must be
+     * ordered by frequency.
+     *
+     * @param wordlistWords lower case wordlist entries, most common first
+     * @param memoSize maximum number of memoized scores
+     */
+    public ZxcvbnStrengthEstimator( final List<String> wordlistWords, final int memoSize )
+    {
+        final Instant startTime = Instant.now();
+
+        final ZxcvbnBuilder zxcvbnBuilder = new ZxcvbnBuilder();
+        try
+        {
+            zxcvbnBuilder.dictionaries( StandardDictionaries.loadAllDictionaries() );
+            zxcvbnBuilder.keyboards( StandardKeyboards.loadAllKeyboards() );
+        }
+        catch ( final Exception e )
+        {
+            throw new IllegalStateException( "unable to load zxcvbn dictionaries: " + e.getMessage(), e );
+        }
+
+        if ( !wordlistWords.isEmpty() )
+        {
+            zxcvbnBuilder.dictionary( new Dictionary( WORDLIST_DICTIONARY_NAME, List.copyOf( wordlistWords ) ) );
+        }
+
+        this.zxcvbn = zxcvbnBuilder.build();
+        this.scoreMemo = Caffeine.newBuilder()
+                .maximumSize( memoSize )
+                .recordStats()
+                .build();
+
+        LOGGER.trace( () -> "loaded zxcvbn estimator with " + wordlistWords.size() + " wordlist entries", TimeDuration.fromCurrent( startTime ) );
+    }
+
+    /**
+     * Estimate the strength of a password.
+     *
+     * @param password password value to estimate
+     * @return zxcvbn score of 0-4
+     */
+    public int score( final String password )
+    {
+        final String memoKey = SecureEngine.hash( memoSalt + password, PwmHashAlgorithm.SHA256 );
+        return scoreMemo.get( memoKey, k -> zxcvbn.measure( password ).getScore() );
+    }
+
+    long memoHitCount()
+    {
+        return scoreMemo.stats().hitCount();
+    }
+}
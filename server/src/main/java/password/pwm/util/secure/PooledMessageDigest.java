@@ -0,0 +1,184 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.secure;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmInternalException;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Hashes short strings with per-thread {@link MessageDigest} instances and reusable input and digest buffers,
+ * writing the hex encoded digest directly into a caller supplied {@link StringBuilder}.  Produces the same
+ * value as {@link SecureEngine#hash(String, PwmHashAlgorithm)} without allocating the intermediate byte
+ * arrays and strings, for hot paths such as wordlist and intruder key generation.
+ */
+public final class PooledMessageDigest
+{
+    private static final char[] UPPER_HEX_CHARS = "0123456789ABCDEF".toCharArray();
+    private static final char[] LOWER_HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    private static final int INITIAL_INPUT_BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ThreadState> THREAD_STATE = ThreadLocal.withInitial( ThreadState::new );
+
+    public enum HexCase
+    {
+        UPPER,
+        LOWER,
+    }
+
+    private PooledMessageDigest()
+    {
+    }
+
+    /**
+     * Hash the UTF-8 encoding of the input and append the hex encoded digest to the output.
+     *
+     * @param hashAlgorithm algorithm to use
+     * @param input value to hash
+     * @param output builder the hex value is appended to
+     * @param hexCase case of the hex characters
+     * @return the output builder
+     */
+    public static StringBuilder appendHash(
+            final PwmHashAlgorithm hashAlgorithm,
+            final CharSequence input,
+            final StringBuilder output,
+            final HexCase hexCase
+    )
+    {
+        final ThreadState threadState = THREAD_STATE.get();
+        final MessageDigest messageDigest = threadState.digest( hashAlgorithm );
+        final int inputLength = threadState.encodeUtf8( input );
+        final byte[] digestBuffer = threadState.digestBuffer;
+
+        final int digestLength;
+        try
+        {
+            messageDigest.update( threadState.inputBuffer, 0, inputLength );
+            digestLength = messageDigest.digest( digestBuffer, 0, digestBuffer.length );
+        }
+        catch ( final DigestException e )
+        {
+            messageDigest.reset();
+            final String errorMsg = "unexpected error during hash operation: " + e.getMessage();
+            throw new PwmInternalException( new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, errorMsg ) );
+        }
+        finally
+        {
+            threadState.releaseLargeInputBuffer();
+        }
+
+        final char[] hexChars = hexCase == HexCase.LOWER ? LOWER_HEX_CHARS : UPPER_HEX_CHARS;
+        output.ensureCapacity( output.length() + digestLength * 2 );
+        for ( int i = 0; i < digestLength; i++ )
+        {
+            output.append( hexChars[( digestBuffer[i] & 0xF0 ) >>> 4] );
+            output.append( hexChars[digestBuffer[i] & 0x0F] );
+        }
+
+        return output;
+    }
+
+    private static class ThreadState
+    {
+        private final Map<PwmHashAlgorithm, MessageDigest> digests = new EnumMap<>( PwmHashAlgorithm.class );
+        private final byte[] digestBuffer = new byte[64];
+        private byte[] inputBuffer = new byte[INITIAL_INPUT_BUFFER_SIZE];
+
+        MessageDigest digest( final PwmHashAlgorithm hashAlgorithm )
+        {
+            return digests.computeIfAbsent( hashAlgorithm, PwmHashAlgorithm::newMessageDigest );
+        }
+
+        /**
+         * Encode input as UTF-8 into the reusable input buffer, unpaired surrogates are replaced with '?' to
+         * match {@link String#getBytes(java.nio.charset.Charset)}.
+         */
+        int encodeUtf8( final CharSequence input )
+        {
+            final int length = input.length();
+            ensureInputCapacity( length * 3 );
+
+            final byte[] buffer = inputBuffer;
+            int position = 0;
+            int index = 0;
+            while ( index < length )
+            {
+                final char c = input.charAt( index++ );
+                if ( c < 0x80 )
+                {
+                    buffer[position++] = ( byte ) c;
+                }
+                else if ( c < 0x800 )
+                {
+                    buffer[position++] = ( byte ) ( 0xC0 | ( c >> 6 ) );
+                    buffer[position++] = ( byte ) ( 0x80 | ( c & 0x3F ) );
+                }
+                else if ( Character.isSurrogate( c ) )
+                {
+                    if ( Character.isHighSurrogate( c ) && index < length && Character.isLowSurrogate( input.charAt( index ) ) )
+                    {
+                        final int codePoint = Character.toCodePoint( c, input.charAt( index++ ) );
+                        buffer[position++] = ( byte ) ( 0xF0 | ( codePoint >> 18 ) );
+                        buffer[position++] = ( byte ) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) );
+                        buffer[position++] = ( byte ) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) );
+                        buffer[position++] = ( byte ) ( 0x80 | ( codePoint & 0x3F ) );
+                    }
+                    else
+                    {
+                        buffer[position++] = ( byte ) '?';
+                    }
+                }
+                else
+                {
+                    buffer[position++] = ( byte ) ( 0xE0 | ( c >> 12 ) );
+                    buffer[position++] = ( byte ) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+                    buffer[position++] = ( byte ) ( 0x80 | ( c & 0x3F ) );
+                }
+            }
+
+            return position;
+        }
+
+        void releaseLargeInputBuffer()
+        {
+            if ( inputBuffer.length > MAX_RETAINED_INPUT_BUFFER_SIZE )
+            {
+                inputBuffer = new byte[INITIAL_INPUT_BUFFER_SIZE];
+            }
+        }
+
+        private void ensureInputCapacity( final int requiredLength )
+        {
+            if ( inputBuffer.length < requiredLength )
+            {
+                inputBuffer = new byte[Math.max( requiredLength, inputBuffer.length * 2 )];
+            }
+        }
+    }
+}
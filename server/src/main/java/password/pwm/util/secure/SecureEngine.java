@@ -37,6 +37,7 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -53,6 +54,9 @@ import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 
 /**
@@ -75,8 +79,16 @@ public class SecureEngine
     public enum Flag
     {
         URL_SAFE,
+
+        /**
+         * Compress the value before encryption instead of compressing the encrypted output, and encode the result
+         * using URL safe base64.  Values encrypted without this flag are still accepted when decrypting.
+         */
+        COMPACT,
     }
 
+    private static final String COMPACT_PREFIX = "z.";
+
     public static String encryptToString(
             final String value,
             final PwmSecurityKey key,
@@ -87,6 +99,13 @@ public class SecureEngine
     {
         try
         {
+            if ( JavaHelper.enumArrayContainsValue( flags, Flag.COMPACT ) )
+            {
+                final byte[] compressed = deflate( value.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+                final byte[] encrypted = encryptToBytes( compressed, key, blockAlgorithm );
+                return COMPACT_PREFIX + StringUtil.base64Encode( encrypted, StringUtil.Base64Options.URL_SAFE );
+            }
+
             final byte[] encrypted = encryptToBytes( value, key, blockAlgorithm );
             return Arrays.asList( flags ).contains( Flag.URL_SAFE )
                     ? StringUtil.base64Encode( encrypted, StringUtil.Base64Options.URL_SAFE, StringUtil.Base64Options.GZIP )
@@ -110,6 +129,17 @@ public class SecureEngine
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        Objects.requireNonNull( value );
+        return encryptToBytes( value.getBytes( PwmConstants.DEFAULT_CHARSET ), key, blockAlgorithm );
+    }
+
+    public static byte[] encryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
@@ -133,7 +163,7 @@ public class SecureEngine
                 cipher.init( Cipher.ENCRYPT_MODE, aesKey, cipher.getParameters() );
                 nonce = null;
             }
-            final byte[] encryptedBytes = cipher.doFinal( value.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            final byte[] encryptedBytes = cipher.doFinal( value );
 
             final byte[] output;
             if ( blockAlgorithm.getHmacAlgorithm() != null )
@@ -182,6 +212,13 @@ public class SecureEngine
                 return "";
             }
 
+            if ( JavaHelper.enumArrayContainsValue( flags, Flag.COMPACT ) && value.startsWith( COMPACT_PREFIX ) )
+            {
+                final byte[] decoded = StringUtil.base64Decode( value.substring( COMPACT_PREFIX.length() ), StringUtil.Base64Options.URL_SAFE );
+                final byte[] decrypted = decryptToBytes( decoded, key, blockAlgorithm );
+                return new String( inflate( decrypted ), PwmConstants.DEFAULT_CHARSET );
+            }
+
             final byte[] decoded = Arrays.asList( flags ).contains( Flag.URL_SAFE )
                     ? StringUtil.base64Decode( value, StringUtil.Base64Options.URL_SAFE, StringUtil.Base64Options.GZIP )
                     : StringUtil.base64Decode( value );
@@ -201,12 +238,26 @@ public class SecureEngine
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        if ( value == null || value.length < 1 )
+        {
+            return null;
+        }
+        return new String( decryptToBytes( value, key, blockAlgorithm ), PwmConstants.DEFAULT_CHARSET );
+    }
+
+    public static byte[] decryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
             if ( value == null || value.length < 1 )
             {
-                return null;
+                return new byte[0];
             }
 
             byte[] workingValue = verifyAndStripPrefix( blockAlgorithm, value );
@@ -251,8 +302,7 @@ public class SecureEngine
                 cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
                 cipher.init( Cipher.DECRYPT_MODE, aesKey );
             }
-            final byte[] decrypted = cipher.doFinal( workingValue );
-            return new String( decrypted, PwmConstants.DEFAULT_CHARSET );
+            return cipher.doFinal( workingValue );
         }
         catch ( final GeneralSecurityException e )
         {
@@ -262,6 +312,54 @@ public class SecureEngine
         }
     }
 
+    private static byte[] deflate( final byte[] input )
+    {
+        final Deflater deflater = new Deflater();
+        try
+        {
+            deflater.setInput( input );
+            deflater.finish();
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream( input.length );
+            final byte[] buffer = new byte[ 1024 ];
+            while ( !deflater.finished() )
+            {
+                final int length = deflater.deflate( buffer );
+                outputStream.write( buffer, 0, length );
+            }
+            return outputStream.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate( final byte[] input )
+            throws DataFormatException
+    {
+        final Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( input );
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream( input.length * 4 );
+            final byte[] buffer = new byte[ 1024 ];
+            while ( !inflater.finished() )
+            {
+                final int length = inflater.inflate( buffer );
+                if ( length == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    throw new DataFormatException( "compressed value is truncated" );
+                }
+                outputStream.write( buffer, 0, length );
+            }
+            return outputStream.toByteArray();
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
     public static String hash(
             final byte[] input,
             final PwmHashAlgorithm algorithm
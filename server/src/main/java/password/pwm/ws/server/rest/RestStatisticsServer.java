@@ -174,13 +174,23 @@ public class RestStatisticsServer extends RestServlet
 
         private static List<StatValue> makeStatInfos( final StatisticsService statisticsManager, final String key )
         {
-            final Map<String, StatValue> output = CollectionUtil.enumStream( Statistic.class )
+            final Map<String, StatValue> output = new TreeMap<>( CollectionUtil.enumStream( Statistic.class )
                     .collect( Collectors.toMap(
                             Enum::name,
                             stat -> new StatValue( stat.name(), statisticsManager.getStatBundleForKey( key ).getStatistic( stat ) )
-                    ) );
+                    ) ) );
 
-            return List.copyOf( new TreeMap<>( output ).values() );
+            for ( final AvgStatistic statistic : AvgStatistic.values() )
+            {
+                final Map<String, String> percentiles = statisticsManager.getStatBundleForKey( key ).getAvgStatisticPercentiles( statistic );
+                for ( final Map.Entry<String, String> entry : percentiles.entrySet() )
+                {
+                    final String name = statistic.name() + "_" + entry.getKey();
+                    output.put( name, new StatValue( name, entry.getValue() ) );
+                }
+            }
+
+            return List.copyOf( output.values() );
         }
 
         private static List<HistoryData> makeHistoryStatInfos(
@@ -258,6 +268,19 @@ public class RestStatisticsServer extends RestServlet
                         StatisticType.AVERAGE.name(),
                         statistic.getDescription( locale ) );
                 output.put( statistic.name(), statLabelData );
+
+                if ( statistic.isHistogram() )
+                {
+                    for ( final String percentile : StatisticsBundle.percentileNames() )
+                    {
+                        final String name = statistic.name() + "_" + percentile;
+                        output.put( name, new StatLabelData(
+                                name,
+                                statistic.getLabel( locale ) + " " + percentile,
+                                StatisticType.HISTOGRAM.name(),
+                                statistic.getDescription( locale ) ) );
+                    }
+                }
             }
             for ( final EpsStatistic loopEps : EpsStatistic.values() )
             {
@@ -0,0 +1,116 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.config;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.bean.DomainID;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfiguration;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationUtil;
+import password.pwm.config.value.StoredValue;
+import password.pwm.config.value.ValueTypeConverter;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the typical per-request setting reads of the public and private servlets when resolved through
+ * the stored configuration on every read against the compiled {@link StoredSettingReader} snapshot.
+ */
+@State( Scope.Thread )
+public class StoredSettingReaderBenchmarkExtendedTest
+{
+    private static final DomainID DOMAIN_ID = DomainID.DOMAIN_ID_DEFAULT;
+
+    private StoredConfiguration storedConfiguration;
+    private StoredSettingReader settingReader;
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .addProfiler( GCProfiler.class )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws PwmUnrecoverableException
+    {
+        storedConfiguration = StoredConfigurationFactory.newConfig();
+        settingReader = new StoredSettingReader( storedConfiguration, null, DOMAIN_ID );
+    }
+
+    @Benchmark
+    public void benchmarkStoredConfigurationReads( final Blackhole blackhole )
+    {
+        blackhole.consume( ValueTypeConverter.valueToBoolean( legacyRead( PwmSetting.CHANGE_PASSWORD_ENABLE ) ) );
+        blackhole.consume( ValueTypeConverter.valueToBoolean( legacyRead( PwmSetting.HELPDESK_ENABLE ) ) );
+        blackhole.consume( ValueTypeConverter.valueToString( legacyRead( PwmSetting.URL_LOGOUT ) ) );
+        blackhole.consume( ValueTypeConverter.valueToStringArray( legacyRead( PwmSetting.DEFAULT_OBJECT_CLASSES ) ) );
+        blackhole.consume( ValueTypeConverter.valueToUserPermissions( legacyRead( PwmSetting.QUERY_MATCH_PWM_ADMIN ) ) );
+        blackhole.consume( ValueTypeConverter.valueToForm( legacyRead( PwmSetting.FORGOTTEN_PASSWORD_SEARCH_FORM ) ) );
+        blackhole.consume( ValueTypeConverter.valueToForm( legacyRead( PwmSetting.FORGOTTEN_USERNAME_FORM ) ) );
+        blackhole.consume( ValueTypeConverter.valueToForm( legacyRead( PwmSetting.GUEST_UPDATE_FORM ) ) );
+    }
+
+    @Benchmark
+    public void benchmarkCompiledReads( final Blackhole blackhole )
+    {
+        blackhole.consume( settingReader.readSettingAsBoolean( PwmSetting.CHANGE_PASSWORD_ENABLE ) );
+        blackhole.consume( settingReader.readSettingAsBoolean( PwmSetting.HELPDESK_ENABLE ) );
+        blackhole.consume( settingReader.readSettingAsString( PwmSetting.URL_LOGOUT ) );
+        blackhole.consume( settingReader.readSettingAsStringArray( PwmSetting.DEFAULT_OBJECT_CLASSES ) );
+        blackhole.consume( settingReader.readSettingAsUserPermission( PwmSetting.QUERY_MATCH_PWM_ADMIN ) );
+        blackhole.consume( settingReader.readSettingAsForm( PwmSetting.FORGOTTEN_PASSWORD_SEARCH_FORM ) );
+        blackhole.consume( settingReader.readSettingAsForm( PwmSetting.FORGOTTEN_USERNAME_FORM ) );
+        blackhole.consume( settingReader.readSettingAsForm( PwmSetting.GUEST_UPDATE_FORM ) );
+    }
+
+    private StoredValue legacyRead( final PwmSetting setting )
+    {
+        return StoredConfigurationUtil.getValueOrDefault( storedConfiguration, StoredConfigKey.forSetting( setting, null, DOMAIN_ID ) );
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfiguration;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationModifier;
+import password.pwm.config.value.BooleanValue;
+import password.pwm.error.PwmUnrecoverableException;
+
+public class StoredSettingReaderTest
+{
+    @Test
+    public void testCompiledValues()
+            throws PwmUnrecoverableException
+    {
+        final StoredConfiguration storedConfiguration = StoredConfigurationFactory.newConfig();
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( storedConfiguration );
+        final StoredConfigKey key = StoredConfigKey.forSetting( PwmSetting.HELPDESK_ENABLE, null, DomainID.DOMAIN_ID_DEFAULT );
+        modifier.writeSetting( key, BooleanValue.of( true ), null );
+
+        final StoredSettingReader settingReader = new StoredSettingReader( modifier.newStoredConfiguration(), null, DomainID.DOMAIN_ID_DEFAULT );
+        Assertions.assertTrue( settingReader.readSettingAsBoolean( PwmSetting.HELPDESK_ENABLE ) );
+        Assertions.assertTrue( settingReader.readSettingAsBoolean( PwmSetting.HELPDESK_ENABLE ) );
+        Assertions.assertEquals( "true", settingReader.readSettingAsString( PwmSetting.HELPDESK_ENABLE ) );
+        Assertions.assertSame(
+                settingReader.readSettingAsForm( PwmSetting.FORGOTTEN_USERNAME_FORM ),
+                settingReader.readSettingAsForm( PwmSetting.FORGOTTEN_USERNAME_FORM ) );
+    }
+
+    @Test
+    public void testScopeViolations()
+            throws PwmUnrecoverableException
+    {
+        final StoredConfiguration storedConfiguration = StoredConfigurationFactory.newConfig();
+        final StoredSettingReader domainReader = new StoredSettingReader( storedConfiguration, null, DomainID.DOMAIN_ID_DEFAULT );
+        Assertions.assertThrows( IllegalStateException.class, () -> domainReader.readSettingAsBoolean( PwmSetting.PASSWORD_POLICY_ENABLE_WORDLIST ) );
+
+        final StoredSettingReader systemReader = new StoredSettingReader( storedConfiguration, null, DomainID.systemId() );
+        Assertions.assertThrows( IllegalStateException.class, () -> systemReader.readSettingAsBoolean( PwmSetting.HELPDESK_ENABLE ) );
+    }
+}
@@ -102,4 +102,24 @@ public class PasswordRuleReaderHelperTest
         Assertions.assertEquals( "^fflintstone[0-9]+$", patterns.get( 0 ).pattern() );
         Assertions.assertEquals( "^password$", patterns.get( 1 ).pattern() );
     }
+
+    @Test
+    public void testCompiledRegExSetting() throws Exception
+    {
+        final MacroRequest macroRequest = makeMacroRequest();
+        final Map<String, String> passwordPolicyRules = new HashMap<>( );
+        passwordPolicyRules.put( PwmPasswordRule.AllowMacroInRegExSetting.getKey(), Boolean.toString( true ) );
+        passwordPolicyRules.put( PwmPasswordRule.RegExMatch.getKey(), "^@User:ID@[0-9]+$;;;^password$;;;[invalid" );
+        final PwmPasswordPolicy passwordPolicy = PwmPasswordPolicy.createPwmPasswordPolicy( PwmPasswordPolicy.defaultPolicy().getDomainID(), passwordPolicyRules );
+        final PasswordRuleReaderHelper ruleHelper = passwordPolicy.getRuleHelper();
+
+        final List<Pattern> patterns = ruleHelper.getRegExMatch( macroRequest );
+        Assertions.assertEquals( 2, patterns.size() );
+        Assertions.assertEquals( "^fflintstone[0-9]+$", patterns.get( 0 ).pattern() );
+        Assertions.assertEquals( "^password$", patterns.get( 1 ).pattern() );
+
+        // macro independent patterns are compiled once per policy
+        Assertions.assertSame( ruleHelper, passwordPolicy.getRuleHelper() );
+        Assertions.assertSame( patterns.get( 1 ), ruleHelper.getRegExMatch( macroRequest ).get( 1 ) );
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ServletUtilityTest
+{
+    @Test
+    public void testIfNoneMatchContains()
+    {
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "\"abc\"", "\"abc\"" ) );
+        Assertions.assertFalse( ServletUtility.ifNoneMatchContains( "\"abc\"", "\"abd\"" ) );
+
+        // list of etags held by the client
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "\"xyz\", \"abc-br\",\"abc\"", "\"abc\"" ) );
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "\"xyz\", \"abc-br\",\"abc\"", "\"abc-br\"" ) );
+        Assertions.assertFalse( ServletUtility.ifNoneMatchContains( "\"xyz\", \"abc-br\"", "\"abc-gzip\"" ) );
+
+        // weak comparison
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "W/\"abc\"", "\"abc\"" ) );
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "\"abc\"", "W/\"abc\"" ) );
+
+        Assertions.assertTrue( ServletUtility.ifNoneMatchContains( "*", "\"abc\"" ) );
+        Assertions.assertFalse( ServletUtility.ifNoneMatchContains( null, "\"abc\"" ) );
+        Assertions.assertFalse( ServletUtility.ifNoneMatchContains( "", "\"abc\"" ) );
+        Assertions.assertFalse( ServletUtility.ifNoneMatchContains( "\"abc\"", null ) );
+    }
+}
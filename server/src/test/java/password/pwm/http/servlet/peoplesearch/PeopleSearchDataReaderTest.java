@@ -0,0 +1,138 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.servlet.peoplesearch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PeopleSearchDataReaderTest
+{
+    @Test
+    public void testResolveConcurrentlyOrdering()
+            throws Exception
+    {
+        final List<Integer> items = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            items.add( i );
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            final CountDownLatch allStarted = new CountDownLatch( 4 );
+            final List<String> results = PeopleSearchDataReader.resolveConcurrently( executor, 4, items, item ->
+            {
+                if ( threads.add( Thread.currentThread() ) )
+                {
+                    allStarted.countDown();
+                }
+
+                // hold the first items until every thread is working so the items are spread over the threads
+                try
+                {
+                    allStarted.await( 1, TimeUnit.SECONDS );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return "value" + item;
+            } );
+
+            Assertions.assertEquals( 100, results.size() );
+            for ( int i = 0; i < 100; i++ )
+            {
+                Assertions.assertEquals( "value" + i, results.get( i ) );
+            }
+            Assertions.assertEquals( 4, threads.size() );
+            Assertions.assertTrue( threads.contains( Thread.currentThread() ) );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testResolveConcurrentlyError()
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final AtomicInteger resolvedCount = new AtomicInteger( 0 );
+            final List<Integer> items = Collections.nCopies( 1000, 1 );
+            final PwmUnrecoverableException exception = Assertions.assertThrows( PwmUnrecoverableException.class, () ->
+                    PeopleSearchDataReader.resolveConcurrently( executor, 4, items, item ->
+                    {
+                        if ( resolvedCount.incrementAndGet() == 10 )
+                        {
+                            throw PwmUnrecoverableException.newException( PwmError.ERROR_SERVICE_NOT_AVAILABLE, "out of scope" );
+                        }
+                        return item;
+                    } ) );
+
+            Assertions.assertEquals( PwmError.ERROR_SERVICE_NOT_AVAILABLE, exception.getError() );
+
+            // remaining items are skipped once an error has been recorded
+            Assertions.assertTrue( resolvedCount.get() < 1000 );
+
+            // unexpected errors are reported as internal errors
+            final PwmUnrecoverableException internalException = Assertions.assertThrows( PwmUnrecoverableException.class, () ->
+                    PeopleSearchDataReader.resolveConcurrently( executor, 4, items, item ->
+                    {
+                        throw new IllegalStateException( "unexpected" );
+                    } ) );
+            Assertions.assertEquals( PwmError.ERROR_INTERNAL, internalException.getError() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testResolveConcurrentlyWithoutExecutor()
+            throws Exception
+    {
+        final List<Integer> items = List.of( 3, 2, 1 );
+        Assertions.assertEquals( List.of( 6, 4, 2 ), PeopleSearchDataReader.resolveConcurrently( null, 4, items, item -> item * 2 ) );
+
+        // rejected work is done on the calling thread
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        Assertions.assertEquals( List.of( 6, 4, 2 ), PeopleSearchDataReader.resolveConcurrently( executor, 4, items, item -> item * 2 ) );
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package password.pwm.http.servlet.peoplesearch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import password.pwm.bean.PhotoDataBean;
+import password.pwm.data.ImmutableByteArray;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class PhotoThumbnailCacheTest
+{
+    private static final int MAX_DIMENSION = 64;
+
+    @TempDir
+    public Path temporaryFolder;
+
+    private static PhotoDataBean makeJpegPhoto( final int width, final int height, final long seed )
+            throws IOException
+    {
+        final BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+        final Graphics2D graphics = image.createGraphics();
+        final Random random = new Random( seed );
+        for ( int i = 0; i < 500; i++ )
+        {
+            graphics.setColor( new Color( random.nextInt() ) );
+            graphics.fillOval( random.nextInt( width ), random.nextInt( height ), 40, 40 );
+        }
+        graphics.dispose();
+
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ImageIO.write( image, "jpg", byteArrayOutputStream );
+        return new PhotoDataBean( "image/jpeg", ImmutableByteArray.of( byteArrayOutputStream.toByteArray() ) );
+    }
+
+    private PhotoThumbnailCache makeCache( final long memoryMaxBytes, final long diskMaxBytes )
+    {
+        return new PhotoThumbnailCache( PhotoThumbnailCache.Settings.builder()
+                .maxDimension( MAX_DIMENSION )
+                .memoryMaxBytes( memoryMaxBytes )
+                .diskMaxBytes( diskMaxBytes )
+                .build(), temporaryFolder );
+    }
+
+    @Test
+    public void testThumbnailIsDownscaled()
+            throws IOException
+    {
+        final PhotoDataBean source = makeJpegPhoto( 800, 600, 1 );
+        final PhotoThumbnailCache.Thumbnail thumbnail = makeCache( 1_000_000, 1_000_000 ).thumbnailFor( source );
+
+        final BufferedImage thumbnailImage = ImageIO.read( thumbnail.getPhotoData().getContents().newByteArrayInputStream() );
+        Assertions.assertEquals( MAX_DIMENSION, thumbnailImage.getWidth() );
+        Assertions.assertEquals( 48, thumbnailImage.getHeight() );
+        Assertions.assertEquals( "image/jpeg", thumbnail.getPhotoData().getMimeType() );
+        Assertions.assertTrue( thumbnail.getPhotoData().getContents().size() < source.getContents().size() );
+    }
+
+    @Test
+    public void testSmallPhotoIsUnchanged()
+            throws IOException
+    {
+        final PhotoDataBean source = makeJpegPhoto( 40, 30, 2 );
+        final PhotoThumbnailCache.Thumbnail thumbnail = makeCache( 1_000_000, 1_000_000 ).thumbnailFor( source );
+        Assertions.assertSame( source, thumbnail.getPhotoData() );
+    }
+
+    @Test
+    public void testUndecodablePhotoIsPassedThrough()
+    {
+        final PhotoDataBean source = new PhotoDataBean( "image/jpeg", ImmutableByteArray.of( new byte[] { 1, 2, 3, 4 } ) );
+        final PhotoThumbnailCache.Thumbnail thumbnail = makeCache( 1_000_000, 1_000_000 ).thumbnailFor( source );
+        Assertions.assertSame( source, thumbnail.getPhotoData() );
+    }
+
+    @Test
+    public void testETagFollowsContent()
+            throws IOException
+    {
+        final PhotoThumbnailCache cache = makeCache( 1_000_000, 1_000_000 );
+        final PhotoDataBean source = makeJpegPhoto( 800, 600, 3 );
+
+        final String firstETag = cache.thumbnailFor( source ).getETag();
+        Assertions.assertEquals( firstETag, cache.thumbnailFor( source ).getETag() );
+        Assertions.assertNotEquals( firstETag, cache.thumbnailFor( makeJpegPhoto( 800, 600, 4 ) ).getETag() );
+        Assertions.assertTrue( firstETag.startsWith( "\"" ) && firstETag.endsWith( "\"" ) );
+    }
+
+    @Test
+    public void testDiskCacheSurvivesNewInstance()
+            throws IOException
+    {
+        final PhotoDataBean source = makeJpegPhoto( 800, 600, 5 );
+        final PhotoThumbnailCache.Thumbnail first = makeCache( 1_000_000, 1_000_000 ).thumbnailFor( source );
+
+        final PhotoThumbnailCache secondCache = makeCache( 1_000_000, 1_000_000 );
+        final PhotoThumbnailCache.Thumbnail second = secondCache.thumbnailFor( source );
+
+        Assertions.assertEquals( first.getETag(), second.getETag() );
+        Assertions.assertArrayEquals( first.getPhotoData().getContents().copyOf(), second.getPhotoData().getContents().copyOf() );
+        Assertions.assertEquals( "1", secondCache.debugInfo().get( PhotoThumbnailCache.StatKey.diskHits.name() ) );
+    }
+
+    @Test
+    public void testDiskCacheIsSizeBounded()
+            throws IOException
+    {
+        final PhotoDataBean sample = makeJpegPhoto( 800, 600, 6 );
+        final long thumbnailSize = makeCache( 1_000_000, 0 ).thumbnailFor( sample ).getPhotoData().getContents().size();
+        final long diskMaxBytes = thumbnailSize * 3;
+
+        final PhotoThumbnailCache cache = makeCache( 1_000_000, diskMaxBytes );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.thumbnailFor( makeJpegPhoto( 800, 600, 100 + i ) );
+        }
+
+        try ( Stream<Path> files = Files.list( temporaryFolder ) )
+        {
+            final long totalBytes = files.mapToLong( path -> path.toFile().length() ).sum();
+            Assertions.assertTrue( totalBytes <= diskMaxBytes, "disk cache size " + totalBytes + " exceeds " + diskMaxBytes );
+        }
+    }
+
+    @Test
+    public void testOrphanedTempFilesAreRemoved()
+            throws IOException
+    {
+        final Path orphanedTempFile = temporaryFolder.resolve( "orphaned.tmp" );
+        Files.write( orphanedTempFile, new byte[ 1000 ] );
+        Files.write( temporaryFolder.resolve( "unrelated.txt" ), new byte[ 1000 ] );
+
+        final PhotoThumbnailCache cache = makeCache( 1_000_000, 1_000_000 );
+        Assertions.assertFalse( Files.exists( orphanedTempFile ) );
+        Assertions.assertEquals( "0", cache.debugInfo().get( "thumbnailDiskBytes" ) );
+    }
+}
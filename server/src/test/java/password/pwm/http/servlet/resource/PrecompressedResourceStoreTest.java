@@ -0,0 +1,127 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.servlet.resource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import password.pwm.bean.SessionLabel;
+import password.pwm.util.java.JavaHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+public class PrecompressedResourceStoreTest
+{
+    private static final String SCRIPT_CONTENT = "function test() { return 'test'; }\n".repeat( 20 );
+
+    @TempDir
+    public Path temporaryFolder;
+
+    @Test
+    public void testPrecompressAndReuse() throws Exception
+    {
+        final File resourceDirectory = Files.createDirectories( temporaryFolder.resolve( "resources" ) ).toFile();
+        final File storeDirectory = temporaryFolder.resolve( "store" ).toFile();
+        final File scriptFile = writeFile( resourceDirectory, "js/main.js", SCRIPT_CONTENT );
+        final File imageFile = writeFile( resourceDirectory, "img/logo.png", "not really a png" );
+
+        final PrecompressedResourceStore store = PrecompressedResourceStore.initialize( SessionLabel.SYSTEM_LABEL, resourceDirectory, storeDirectory );
+
+        final PrecompressedResourceStore.PrecompressedResource scriptResource = store.lookup( scriptFile ).orElseThrow();
+        Assertions.assertNotNull( scriptResource.getGzipFile() );
+        Assertions.assertNull( scriptResource.getBrotliFile() );
+        Assertions.assertEquals( SCRIPT_CONTENT, gunzip( scriptResource.getGzipFile() ) );
+        Assertions.assertTrue( scriptResource.getEtag().startsWith( "\"" ) );
+
+        final PrecompressedResourceStore.PrecompressedResource imageResource = store.lookup( imageFile ).orElseThrow();
+        Assertions.assertNull( imageResource.getGzipFile() );
+
+        // unchanged files keep their checksum and etag after a restart
+        final PrecompressedResourceStore reopenedStore = PrecompressedResourceStore.initialize( SessionLabel.SYSTEM_LABEL, resourceDirectory, storeDirectory );
+        Assertions.assertEquals( store.checksum(), reopenedStore.checksum() );
+        Assertions.assertEquals( scriptResource.getEtag(), reopenedStore.lookup( scriptFile ).orElseThrow().getEtag() );
+
+        // modified files are no longer served from the store until it is initialized again
+        writeFile( resourceDirectory, "js/main.js", SCRIPT_CONTENT + "// modified\n" );
+        Assertions.assertTrue( scriptFile.setLastModified( scriptFile.lastModified() + 1000 ) );
+        Assertions.assertTrue( reopenedStore.lookup( scriptFile ).isEmpty() );
+
+        final PrecompressedResourceStore updatedStore = PrecompressedResourceStore.initialize( SessionLabel.SYSTEM_LABEL, resourceDirectory, storeDirectory );
+        Assertions.assertNotEquals( store.checksum(), updatedStore.checksum() );
+        Assertions.assertFalse( scriptResource.getGzipFile().exists() );
+        Assertions.assertEquals( SCRIPT_CONTENT + "// modified\n", gunzip( updatedStore.lookup( scriptFile ).orElseThrow().getGzipFile() ) );
+    }
+
+    @Test
+    public void testBrotliVariant() throws Exception
+    {
+        final File resourceDirectory = Files.createDirectories( temporaryFolder.resolve( "resources" ) ).toFile();
+        final File storeDirectory = temporaryFolder.resolve( "store" ).toFile();
+        final File styleFile = writeFile( resourceDirectory, "style.css", "body { margin: 0; }" );
+        final File brotliFile = writeFile( resourceDirectory, "style.css.br", "brotli" );
+        Assertions.assertTrue( brotliFile.setLastModified( styleFile.lastModified() + 1000 ) );
+
+        final PrecompressedResourceStore store = PrecompressedResourceStore.initialize( SessionLabel.SYSTEM_LABEL, resourceDirectory, storeDirectory );
+        final PrecompressedResourceStore.PrecompressedResource styleResource = store.lookup( styleFile ).orElseThrow();
+        Assertions.assertEquals( brotliFile, styleResource.getBrotliFile() );
+
+        // each encoding has its own etag, most preferred accepted encoding first
+        final String etag = styleResource.getEtag();
+        final List<PrecompressedResourceStore.Variant> variants = styleResource.acceptedVariants( true, true );
+        Assertions.assertEquals( 3, variants.size() );
+        Assertions.assertEquals( "br", variants.get( 0 ).getContentEncoding() );
+        Assertions.assertEquals( etag.substring( 0, etag.length() - 1 ) + "-br\"", variants.get( 0 ).getEtag() );
+        Assertions.assertEquals( "gzip", variants.get( 1 ).getContentEncoding() );
+        Assertions.assertEquals( etag.substring( 0, etag.length() - 1 ) + "-gzip\"", variants.get( 1 ).getEtag() );
+        Assertions.assertNull( variants.get( 2 ).getContentEncoding() );
+        Assertions.assertEquals( etag, variants.get( 2 ).getEtag() );
+        Assertions.assertEquals( styleFile, variants.get( 2 ).getFile() );
+
+        final List<PrecompressedResourceStore.Variant> identityVariants = styleResource.acceptedVariants( false, false );
+        Assertions.assertEquals( 1, identityVariants.size() );
+        Assertions.assertEquals( etag, identityVariants.get( 0 ).getEtag() );
+    }
+
+    private static File writeFile( final File directory, final String path, final String content ) throws Exception
+    {
+        final Path filePath = directory.toPath().resolve( path );
+        Files.createDirectories( filePath.getParent() );
+        Files.writeString( filePath, content, StandardCharsets.UTF_8 );
+        return filePath.toFile();
+    }
+
+    private static String gunzip( final File file ) throws Exception
+    {
+        try ( InputStream inputStream = new GZIPInputStream( Files.newInputStream( file.toPath() ) ) )
+        {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            JavaHelper.copy( inputStream, outputStream );
+            return outputStream.toString( StandardCharsets.UTF_8 );
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.ProfileID;
+import password.pwm.config.AppConfig;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationModifier;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.List;
+import java.util.Set;
+
+public class UserAttributePrefetchPlanTest
+{
+    private static DomainConfig makeDomainConfig()
+            throws PwmUnrecoverableException
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( StoredConfigurationFactory.newConfig() );
+        final StoredConfigKey key = StoredConfigKey.forSetting( PwmSetting.CACHED_USER_ATTRIBUTES, ProfileID.PROFILE_ID_DEFAULT, DomainID.DOMAIN_ID_DEFAULT );
+        modifier.writeSetting( key, StringArrayValue.create( List.of( "departmentNumber", "title" ) ), null );
+        return AppConfig.forStoredConfig( modifier.newStoredConfiguration() ).getDomainConfigs().get( DomainID.DOMAIN_ID_DEFAULT );
+    }
+
+    @Test
+    public void testPlanAttributes()
+            throws PwmUnrecoverableException
+    {
+        final DomainConfig domainConfig = makeDomainConfig();
+        final UserAttributePrefetchPlan plan = UserAttributePrefetchPlan.create( domainConfig );
+        final Set<String> attributes = plan.attributesForProfile( ProfileID.PROFILE_ID_DEFAULT );
+
+        Assertions.assertTrue( attributes.contains( "departmentNumber" ) );
+        Assertions.assertTrue( attributes.contains( "TITLE" ) );
+        Assertions.assertTrue( attributes.contains( domainConfig.getLdapProfiles().get( ProfileID.PROFILE_ID_DEFAULT ).getUsernameAttribute() ) );
+        Assertions.assertTrue( attributes.contains( domainConfig.getLdapProfiles().get( ProfileID.PROFILE_ID_DEFAULT ).readSettingAsString( PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE ) ) );
+        Assertions.assertTrue( plan.attributesForProfile( ProfileID.create( "unknown" ) ).isEmpty() );
+    }
+
+    @Test
+    public void testHitRate()
+            throws PwmUnrecoverableException
+    {
+        final UserAttributePrefetchPlan plan = UserAttributePrefetchPlan.create( makeDomainConfig() );
+        final Set<String> attributes = plan.attributesForProfile( ProfileID.PROFILE_ID_DEFAULT );
+
+        plan.recordPrefetch();
+        plan.recordReads( List.of( "departmentNumber", "title", "title" ), attributes );
+        plan.recordReads( List.of( "notInPlan" ), attributes );
+
+        Assertions.assertEquals( "1", plan.debugInfo().get( "prefetchSearches" ) );
+        Assertions.assertEquals( "3", plan.debugInfo().get( "prefetchPlanHits" ) );
+        Assertions.assertEquals( "1", plan.debugInfo().get( "prefetchPlanMisses" ) );
+        Assertions.assertEquals( "75.00%", plan.debugInfo().get( "prefetchPlanHitRate" ) );
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap.permission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class LdapFilterMatcherTest
+{
+    private final Map<String, List<String>> attributeValues = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+
+    @BeforeEach
+    public void setup()
+    {
+        attributeValues.put( "groupMembership", List.of( "cn=Admins, ou=Groups,o=Org", "cn=users,ou=groups,o=org" ) );
+        attributeValues.put( "title", List.of( "Senior Engineer" ) );
+        attributeValues.put( "cn", List.of( "J(x)" ) );
+    }
+
+    private Optional<Boolean> evaluate( final String filter )
+    {
+        return LdapFilterMatcher.parse( filter ).orElseThrow().matches( attributeValues );
+    }
+
+    @Test
+    public void testEquality()
+    {
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(groupMembership=cn=admins,ou=groups,o=org)" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(groupMembership=cn=guests,ou=groups,o=org)" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(cn=j\\28x\\29)" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(mail=user@example.com)" ) );
+    }
+
+    @Test
+    public void testPresenceAndSubstring()
+    {
+        Assertions.assertEquals( Optional.of( true ), evaluate( "objectClass=*" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(title=*)" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(mail=*)" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(title=senior*)" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(title=s*n*r e*eer)" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(title=*r*r*r*)" ) );
+    }
+
+    @Test
+    public void testBooleanOperators()
+    {
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(&(title=senior*)(!(cn=bob)))" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(&(title=senior*)(cn=bob))" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(|(cn=bob)(title=*engineer))" ) );
+    }
+
+    @Test
+    public void testUndeterminedFilters()
+    {
+        Assertions.assertEquals( Optional.empty(), evaluate( "(|(loginTime>=20200101000000Z)(cn=bob))" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(|(loginTime>=20200101000000Z)(cn=j\\28x\\29))" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(&(loginTime>=20200101000000Z)(cn=bob))" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(cn:caseExactMatch:=J\\28x\\29)" ) );
+    }
+
+    @Test
+    public void testUndeterminedAttributes()
+    {
+        attributeValues.put( "objectCategory", List.of( "CN=Person,CN=Schema,CN=Configuration,DC=example,DC=com" ) );
+        attributeValues.put( "sn", List.of( "Smith" ) );
+
+        // matching rule, aliases, supertypes and subtypes are not known without the schema
+        Assertions.assertEquals( Optional.empty(), evaluate( "(objectCategory=person)" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(objectClass=person)" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(surname=smith)" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(name=smith)" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(cn;lang-en=j\\28x\\29)" ) );
+        Assertions.assertEquals( Optional.empty(), evaluate( "(employeeID=*)" ) );
+
+        // distinguished names have no substring matching
+        Assertions.assertEquals( Optional.empty(), evaluate( "(groupMembership=cn=admins*)" ) );
+
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(sn=SMITH)" ) );
+        Assertions.assertEquals( Set.of( "sn" ), LdapFilterMatcher.parse( "(|(surname=smith)(sn=smith)(objectClass=*))" ).orElseThrow().getAttributeNames() );
+    }
+
+    @Test
+    public void testInsignificantSpaces()
+    {
+        attributeValues.put( "description", List.of( "  Team   Lead=Ops " ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(description=team lead=ops)" ) );
+        Assertions.assertEquals( Optional.of( false ), evaluate( "(description=team lead = ops)" ) );
+        Assertions.assertEquals( Optional.of( true ), evaluate( "(description=team  lead*)" ) );
+    }
+
+    @Test
+    public void testAttributeNames()
+    {
+        Assertions.assertEquals( Set.of( "cn", "title" ), LdapFilterMatcher.parse( "(&(Title=a*)(|(CN=b)(cn=c)))" ).orElseThrow().getAttributeNames() );
+    }
+
+    @Test
+    public void testInvalidFilters()
+    {
+        Assertions.assertTrue( LdapFilterMatcher.parse( "(cn=bob" ).isEmpty() );
+        Assertions.assertTrue( LdapFilterMatcher.parse( "(&(cn=bob)))" ).isEmpty() );
+        Assertions.assertTrue( LdapFilterMatcher.parse( "(cn=\\2)" ).isEmpty() );
+        Assertions.assertTrue( LdapFilterMatcher.parse( "" ).isEmpty() );
+    }
+}
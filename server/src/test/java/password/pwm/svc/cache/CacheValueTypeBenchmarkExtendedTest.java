@@ -0,0 +1,159 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.http.servlet.peoplesearch.bean.AttributeDetailBean;
+import password.pwm.http.servlet.peoplesearch.bean.LinkReferenceBean;
+import password.pwm.http.servlet.peoplesearch.bean.UserDetailBean;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous json round trip used for every cached value against the {@link CacheValueType} codecs,
+ * for a people search detail bean and a plain string such as a cached ldap guid.  Hit benchmarks decode a stored
+ * payload, miss benchmarks encode a freshly loaded value.
+ */
+@State( Scope.Thread )
+public class CacheValueTypeBenchmarkExtendedTest
+{
+    private static final String GUID_VALUE = "6f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0";
+
+    private UserDetailBean userDetailBean;
+    private Object jsonBeanPayload;
+    private Object binaryBeanPayload;
+    private Object jsonStringPayload;
+    private Object referenceStringPayload;
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .addProfiler( GCProfiler.class )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        userDetailBean = makeUserDetailBean();
+        jsonBeanPayload = CacheValueType.Json.encode( userDetailBean );
+        binaryBeanPayload = CacheValueType.Binary.encode( userDetailBean );
+        jsonStringPayload = CacheValueType.Json.encode( GUID_VALUE );
+        referenceStringPayload = CacheValueType.Reference.encode( GUID_VALUE );
+    }
+
+    @Benchmark
+    public UserDetailBean hitBeanJson()
+    {
+        return CacheValueType.Json.decode( jsonBeanPayload, UserDetailBean.class );
+    }
+
+    @Benchmark
+    public UserDetailBean hitBeanBinary()
+    {
+        return CacheValueType.Binary.decode( binaryBeanPayload, UserDetailBean.class );
+    }
+
+    @Benchmark
+    public Object missBeanJson()
+            throws IOException
+    {
+        return CacheValueType.Json.encode( userDetailBean );
+    }
+
+    @Benchmark
+    public Object missBeanBinary()
+            throws IOException
+    {
+        return CacheValueType.Binary.encode( userDetailBean );
+    }
+
+    @Benchmark
+    public String hitStringJson()
+    {
+        return CacheValueType.Json.decode( jsonStringPayload, String.class );
+    }
+
+    @Benchmark
+    public String hitStringReference()
+    {
+        return CacheValueType.Reference.decode( referenceStringPayload, String.class );
+    }
+
+    private static UserDetailBean makeUserDetailBean()
+    {
+        final Map<String, AttributeDetailBean> detail = new LinkedHashMap<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            final AttributeDetailBean attributeDetailBean = new AttributeDetailBean();
+            attributeDetailBean.setName( "attribute" + i );
+            attributeDetailBean.setLabel( "Attribute Label " + i );
+            attributeDetailBean.setValues( List.of( "value-" + i, "second-value-" + i ) );
+            attributeDetailBean.setSearchable( i % 2 == 0 );
+            detail.put( attributeDetailBean.getName(), attributeDetailBean );
+        }
+
+        final List<LinkReferenceBean> links = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            final LinkReferenceBean linkReferenceBean = new LinkReferenceBean();
+            linkReferenceBean.setName( "link" + i );
+            linkReferenceBean.setLink( "https://example.com/directory/link" + i );
+            links.add( linkReferenceBean );
+        }
+
+        final UserDetailBean userDetailBean = new UserDetailBean();
+        userDetailBean.setUserKey( "dXNlcmtleS12YWx1ZS1mb3ItdGVzdGluZw" );
+        userDetailBean.setDisplayNames( List.of( "Test User", "test.user@example.com" ) );
+        userDetailBean.setPhotoURL( "PeopleSearch?processAction=photo&userKey=dXNlcmtleQ" );
+        userDetailBean.setDetail( detail );
+        userDetailBean.setLinks( links );
+        return userDetailBean;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.servlet.peoplesearch.bean.SearchResultBean;
+import password.pwm.http.servlet.peoplesearch.bean.UserDetailBean;
+import password.pwm.util.java.TimeDuration;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoryCacheStoreTest
+{
+    private static final CacheKey KEY = CacheKey.newKey( MemoryCacheStoreTest.class, null, "test" );
+
+    @Test
+    public void testImmutableValueIsShared() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final String value = new String( "immutable-value".toCharArray() );
+        cacheStore.store( KEY, future(), value );
+
+        Assertions.assertSame( value, cacheStore.read( KEY, String.class ) );
+        Assertions.assertEquals( CacheValueType.Reference, CacheValueType.forClass( String.class ) );
+        Assertions.assertEquals( CacheValueType.Reference, CacheValueType.forClass( CacheValueType.class ) );
+    }
+
+    @Test
+    public void testMutableValueIsCopied() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final UserDetailBean value = new UserDetailBean();
+        value.setUserKey( "key1" );
+        value.setDisplayNames( new ArrayList<>( List.of( "name1", "name2" ) ) );
+        cacheStore.store( KEY, future(), value );
+
+        // changes to the stored instance are not visible in the cache
+        value.getDisplayNames().add( "name3" );
+
+        final UserDetailBean firstRead = cacheStore.read( KEY, UserDetailBean.class );
+        Assertions.assertNotSame( value, firstRead );
+        Assertions.assertEquals( List.of( "name1", "name2" ), firstRead.getDisplayNames() );
+        Assertions.assertEquals( "key1", firstRead.getUserKey() );
+
+        // collections of a read instance can not be changed, changes to the read instance itself are not visible in the cache
+        Assertions.assertThrows( UnsupportedOperationException.class, () -> firstRead.getDisplayNames().clear() );
+        firstRead.setUserKey( "key2" );
+        Assertions.assertEquals( "key1", cacheStore.read( KEY, UserDetailBean.class ).getUserKey() );
+    }
+
+    @Test
+    public void testImmutableBeanIsCopied() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final SearchResultBean value = SearchResultBean.builder()
+                .searchResults( List.of( Map.of( "cn", "user1" ), Map.of( "cn", "user2" ) ) )
+                .sizeExceeded( true )
+                .aboutResultMessage( "message" )
+                .build();
+        cacheStore.store( KEY, future(), value );
+
+        final SearchResultBean readValue = cacheStore.read( KEY, SearchResultBean.class );
+        Assertions.assertNotSame( value, readValue );
+        Assertions.assertEquals( value, readValue );
+        Assertions.assertNotSame( value.getSearchResults(), readValue.getSearchResults() );
+    }
+
+    @Test
+    public void testUncopyableValueFallsBackToJson() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final HolderBean value = new HolderBean();
+        value.part = new PartBean();
+        value.part.names = new String[] {"part1"};
+        cacheStore.store( KEY, future(), value );
+
+        final HolderBean readValue = cacheStore.read( KEY, HolderBean.class );
+        Assertions.assertNotSame( value, readValue );
+        Assertions.assertNotSame( value.part.names, readValue.part.names );
+        Assertions.assertEquals( "part1", readValue.part.names[0] );
+    }
+
+    @Test
+    public void testConstructorParametersMatchFields() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final SwappedConstructorBean value = new SwappedConstructorBean( "second", "first" );
+        cacheStore.store( KEY, future(), value );
+
+        final SwappedConstructorBean readValue = cacheStore.read( KEY, SwappedConstructorBean.class );
+        Assertions.assertNotSame( value, readValue );
+        Assertions.assertEquals( "first", readValue.first );
+        Assertions.assertEquals( "second", readValue.second );
+    }
+
+    @Test
+    public void testExpiredAndMismatchedValues() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        cacheStore.store( KEY, future(), "value" );
+        Assertions.assertNull( cacheStore.read( KEY, Boolean.class ) );
+
+        cacheStore.store( KEY, Instant.now().minusSeconds( 1 ), "value" );
+        Assertions.assertNull( cacheStore.read( KEY, String.class ) );
+    }
+
+    @Test
+    public void testReadAndStore() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CacheLoader<String> cacheLoader = () ->
+        {
+            loadCount.incrementAndGet();
+            return "loaded";
+        };
+
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        Assertions.assertEquals( "loaded", cacheStore.readAndStore( KEY, cachePolicy, String.class, cacheLoader ) );
+        Assertions.assertEquals( "loaded", cacheStore.readAndStore( KEY, cachePolicy, String.class, cacheLoader ) );
+        Assertions.assertEquals( 1, loadCount.get() );
+        Assertions.assertEquals( 1, cacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.hitCount ) );
+        Assertions.assertEquals( 1, cacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.missCount ) );
+    }
+
+    @Test
+    public void testConcurrentReadsShareOneLoad() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch loadStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoad = new CountDownLatch( 1 );
+        final CacheLoader<UserDetailBean> cacheLoader = () ->
+        {
+            loadCount.incrementAndGet();
+            loadStarted.countDown();
+            try
+            {
+                releaseLoad.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                throw new IllegalStateException( e );
+            }
+            final UserDetailBean userDetailBean = new UserDetailBean();
+            userDetailBean.setUserKey( "loaded" );
+            return userDetailBean;
+        };
+
+        final int threads = 4;
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<UserDetailBean>> futures = new ArrayList<>();
+            futures.add( executorService.submit( () -> cacheStore.readAndStore( KEY, cachePolicy, UserDetailBean.class, cacheLoader ) ) );
+            loadStarted.await();
+            for ( int i = 1; i < threads; i++ )
+            {
+                futures.add( executorService.submit( () -> cacheStore.readAndStore( KEY, cachePolicy, UserDetailBean.class, cacheLoader ) ) );
+            }
+            while ( cacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.coalescedCount ) < threads - 1 )
+            {
+                Thread.sleep( 1 );
+            }
+            releaseLoad.countDown();
+
+            final Set<UserDetailBean> results = Collections.newSetFromMap( new IdentityHashMap<>() );
+            for ( final Future<UserDetailBean> future : futures )
+            {
+                final UserDetailBean result = future.get();
+                Assertions.assertEquals( "loaded", result.getUserKey() );
+                results.add( result );
+            }
+
+            // each waiting reader receives its own copy of the loaded value
+            Assertions.assertEquals( threads, results.size() );
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        Assertions.assertEquals( 1, loadCount.get() );
+    }
+
+    @Test
+    public void testLoadErrorIsSharedAndNotCached() throws Exception
+    {
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100 );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final CacheLoader<String> failingLoader = () ->
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "load failed" );
+        };
+
+        Assertions.assertThrows( PwmUnrecoverableException.class, () -> cacheStore.readAndStore( KEY, cachePolicy, String.class, failingLoader ) );
+        Assertions.assertEquals( "loaded", cacheStore.readAndStore( KEY, cachePolicy, String.class, () -> "loaded" ) );
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception
+    {
+        final List<Runnable> scheduledRefreshes = new ArrayList<>();
+        final MemoryCacheStore cacheStore = new MemoryCacheStore( 100, scheduledRefreshes::add );
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CacheLoader<String> cacheLoader = () -> "value" + loadCount.incrementAndGet();
+
+        // refresh is due immediately, but the value does not expire for a minute
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithRefreshAhead( TimeDuration.MINUTE, TimeDuration.of( 59_999, TimeDuration.Unit.MILLISECONDS ) );
+        Assertions.assertEquals( "value1", cacheStore.readAndStore( KEY, cachePolicy, String.class, cacheLoader ) );
+        Thread.sleep( 5 );
+
+        // reads keep returning the current value and schedule a single refresh
+        Assertions.assertEquals( "value1", cacheStore.readAndStore( KEY, cachePolicy, String.class, cacheLoader ) );
+        Assertions.assertEquals( "value1", cacheStore.readAndStore( KEY, cachePolicy, String.class, cacheLoader ) );
+        Assertions.assertEquals( 1, scheduledRefreshes.size() );
+        Assertions.assertEquals( 1, loadCount.get() );
+
+        scheduledRefreshes.get( 0 ).run();
+        Assertions.assertEquals( 2, loadCount.get() );
+
+        final CachePolicy plainPolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        Assertions.assertEquals( "value2", cacheStore.readAndStore( KEY, plainPolicy, String.class, cacheLoader ) );
+        Assertions.assertEquals( 1, cacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.refreshCount ) );
+    }
+
+    private static Instant future()
+    {
+        return Instant.now().plusSeconds( 60 );
+    }
+
+    static class HolderBean implements Serializable
+    {
+        private PartBean part;
+    }
+
+    static class SwappedConstructorBean implements Serializable
+    {
+        private final String first;
+        private final String second;
+
+        @ConstructorProperties( { "second", "first" } )
+        SwappedConstructorBean( final String second, final String first )
+        {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    static class PartBean implements Serializable
+    {
+        private String[] names;
+    }
+}
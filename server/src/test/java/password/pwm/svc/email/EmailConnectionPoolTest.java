@@ -0,0 +1,77 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.email;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.bean.ProfileID;
+
+import java.util.List;
+
+public class EmailConnectionPoolTest
+{
+    @Test
+    public void testFailingServerIsTriedLast()
+    {
+        final EmailServer server1 = makeServer( "server1" );
+        final EmailServer server2 = makeServer( "server2" );
+        final EmailServer server3 = makeServer( "server3" );
+        server2.getConsecutiveConnectFailures().set( 10 );
+
+        for ( final double randomValue : new double[] { 0, 0.25, 0.5, 0.75, 0.99 } )
+        {
+            final List<EmailServer> orderedServers = EmailConnectionPool.orderServersByHealth( List.of( server1, server2, server3 ), randomValue );
+            Assertions.assertEquals( 3, orderedServers.size() );
+            Assertions.assertSame( server2, orderedServers.get( 2 ) );
+        }
+    }
+
+    @Test
+    public void testHealthyServersShareLoad()
+    {
+        final EmailServer server1 = makeServer( "server1" );
+        final EmailServer server2 = makeServer( "server2" );
+        final List<EmailServer> servers = List.of( server1, server2 );
+
+        Assertions.assertSame( server1, EmailConnectionPool.orderServersByHealth( servers, 0.1 ).get( 0 ) );
+        Assertions.assertSame( server2, EmailConnectionPool.orderServersByHealth( servers, 0.9 ).get( 0 ) );
+    }
+
+    @Test
+    public void testSlowServerWeight()
+    {
+        final EmailServer fastServer = makeServer( "fast" );
+        final EmailServer slowServer = makeServer( "slow" );
+        fastServer.getAverageConnectTime().update( 100 );
+        slowServer.getAverageConnectTime().update( 5000 );
+
+        Assertions.assertTrue( EmailConnectionPool.serverWeight( fastServer ) > EmailConnectionPool.serverWeight( slowServer ) );
+    }
+
+    private static EmailServer makeServer( final String id )
+    {
+        return EmailServer.builder()
+                .id( ProfileID.create( id ) )
+                .host( id + ".example.com" )
+                .port( 25 )
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import password.pwm.PwmApplication;
+import password.pwm.util.java.FileSystemUtility;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class LocalDbAuditStoreTest
+{
+    @TempDir
+    public Path temporaryFolder;
+
+    private LocalDB localDB;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        final File localDbTestFolder = FileSystemUtility.createDirectory( temporaryFolder, "test-audit-store" );
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( localDbTestFolder );
+        localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
+    }
+
+    @AfterEach
+    public void shutdown() throws Exception
+    {
+        localDB.close();
+    }
+
+    @Test
+    public void testQueryByIndex() throws Exception
+    {
+        final Instant now = Instant.now().truncatedTo( ChronoUnit.SECONDS );
+        final LocalDbAuditStore auditStore = new LocalDbAuditStore( localDB );
+        auditStore.append( List.of(
+                makeRecord( "1", AuditEvent.AUTHENTICATE, "cn=alice", now.minus( TimeDuration.DAY.asDuration() ) ),
+                makeRecord( "2", AuditEvent.STARTUP, null, now.minus( TimeDuration.HOUR.asDuration() ) ),
+                makeRecord( "3", AuditEvent.AUTHENTICATE, "cn=bob", now ),
+                makeRecord( "4", AuditEvent.MODIFY_CONFIGURATION, "CN=Alice", now ) ) );
+
+        Assertions.assertEquals( 4, auditStore.size() );
+        Assertions.assertEquals( List.of( "4", "3", "2", "1" ), readGuids( auditStore, AuditQuery.all() ) );
+        Assertions.assertEquals( List.of( "4", "1" ), readGuids( auditStore, AuditQuery.builder().userDN( "cn=alice" ).build() ) );
+        Assertions.assertEquals( List.of( "3", "1" ), readGuids( auditStore, AuditQuery.builder().eventCode( AuditEvent.AUTHENTICATE ).build() ) );
+        Assertions.assertEquals( List.of( "2" ), readGuids( auditStore, AuditQuery.builder().type( AuditEventType.SYSTEM ).build() ) );
+        Assertions.assertEquals( List.of( "4", "3", "2" ), readGuids( auditStore, AuditQuery.builder()
+                .startTime( now.minus( TimeDuration.HOUR.asDuration() ) )
+                .build() ) );
+        Assertions.assertEquals( List.of( "1" ), readGuids( auditStore, AuditQuery.builder()
+                .userDN( "cn=alice" )
+                .endTime( now.minus( TimeDuration.HOUR.asDuration() ) )
+                .build() ) );
+    }
+
+    @Test
+    public void testTrim() throws Exception
+    {
+        final Instant now = Instant.now().truncatedTo( ChronoUnit.SECONDS );
+        final LocalDbAuditStore auditStore = new LocalDbAuditStore( localDB );
+        final List<AuditRecord> records = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            records.add( makeRecord( Integer.toString( i ), AuditEvent.AUTHENTICATE, "cn=user" + ( i % 2 ), now.minusSeconds( 100 - i ) ) );
+        }
+        auditStore.append( records );
+
+        // over capacity, limited by max removals
+        Assertions.assertEquals( 3, auditStore.trim( 3, 5, now.minusSeconds( 1000 ) ) );
+        Assertions.assertEquals( 2, auditStore.trim( 10, 5, now.minusSeconds( 1000 ) ) );
+        Assertions.assertEquals( 0, auditStore.trim( 10, 5, now.minusSeconds( 1000 ) ) );
+        Assertions.assertEquals( 5, auditStore.size() );
+
+        // expired by age
+        Assertions.assertEquals( 2, auditStore.trim( 10, 100, now.minusSeconds( 93 ) ) );
+        Assertions.assertEquals( List.of( "9", "8", "7" ), readGuids( auditStore, AuditQuery.all() ) );
+        Assertions.assertEquals( List.of( "9", "7" ), readGuids( auditStore, AuditQuery.builder().userDN( "cn=user1" ).build() ) );
+        Assertions.assertEquals( List.of( "8" ), readGuids( auditStore, AuditQuery.builder().userDN( "cn=user0" ).build() ) );
+
+        // state survives reopening
+        final LocalDbAuditStore reopenedStore = new LocalDbAuditStore( localDB );
+        Assertions.assertEquals( 3, reopenedStore.size() );
+        Assertions.assertEquals( now.minusSeconds( 93 ), reopenedStore.oldestTimestamp().orElseThrow() );
+    }
+
+    @Test
+    public void testMigration() throws Exception
+    {
+        final Instant now = Instant.now().truncatedTo( ChronoUnit.SECONDS );
+        final LocalDbAuditStore auditStore = new LocalDbAuditStore( localDB );
+        Assertions.assertTrue( auditStore.beginMigration( 3 ) );
+
+        // records added during migration follow the reserved range
+        auditStore.append( List.of( makeRecord( "new", AuditEvent.AUTHENTICATE, "cn=alice", now ) ) );
+
+        Assertions.assertEquals( 3, auditStore.remainingMigration() );
+        Assertions.assertEquals( 2, auditStore.appendMigrated( List.of(
+                serialize( makeRecord( "old1", AuditEvent.AUTHENTICATE, "cn=alice", now.minusSeconds( 30 ) ) ),
+                serialize( makeRecord( "old2", AuditEvent.STARTUP, null, now.minusSeconds( 20 ) ) ) ) ) );
+
+        Assertions.assertEquals( 1, new LocalDbAuditStore( localDB ).remainingMigration() );
+
+        // reserved range is not trimmed past the records migrated so far
+        Assertions.assertEquals( 2, auditStore.trim( 10, 100, now.minusSeconds( 10 ) ) );
+
+        Assertions.assertEquals( 1, auditStore.appendMigrated( List.of(
+                serialize( makeRecord( "old3", AuditEvent.AUTHENTICATE, "cn=alice", now.minusSeconds( 5 ) ) ),
+                serialize( makeRecord( "extra", AuditEvent.AUTHENTICATE, "cn=alice", now.minusSeconds( 5 ) ) ) ) ) );
+        auditStore.endMigration();
+        Assertions.assertFalse( auditStore.isMigrating() );
+
+        Assertions.assertEquals( List.of( "new", "old3" ), readGuids( auditStore, AuditQuery.builder().userDN( "cn=alice" ).build() ) );
+        Assertions.assertFalse( auditStore.beginMigration( 1 ) );
+    }
+
+    @Test
+    public void testReindexOnOpen() throws Exception
+    {
+        final Instant now = Instant.now().truncatedTo( ChronoUnit.SECONDS );
+        final LocalDbAuditStore auditStore = new LocalDbAuditStore( localDB );
+        auditStore.append( List.of(
+                makeRecord( "1", AuditEvent.AUTHENTICATE, "cn=alice", now.minusSeconds( 10 ) ),
+                makeRecord( "2", AuditEvent.STARTUP, null, now ) ) );
+
+        // index rows lost after the records were written are rebuilt when the store is opened
+        localDB.truncate( LocalDB.DB.AUDIT_VAULT_INDEX );
+        final LocalDbAuditStore reopenedStore = new LocalDbAuditStore( localDB );
+        Assertions.assertEquals( List.of( "1" ), readGuids( reopenedStore, AuditQuery.builder().eventCode( AuditEvent.AUTHENTICATE ).build() ) );
+        Assertions.assertEquals( List.of( "2" ), readGuids( reopenedStore, AuditQuery.builder().type( AuditEventType.SYSTEM ).build() ) );
+
+        // records already indexed are not indexed again
+        final LocalDbAuditStore secondReopenedStore = new LocalDbAuditStore( localDB );
+        Assertions.assertEquals( List.of( "1" ), readGuids( secondReopenedStore, AuditQuery.builder().eventCode( AuditEvent.AUTHENTICATE ).build() ) );
+    }
+
+    private static List<String> readGuids( final LocalDbAuditStore auditStore, final AuditQuery auditQuery )
+    {
+        final List<String> guids = new ArrayList<>();
+        for ( final Iterator<AuditRecord> iterator = auditStore.read( auditQuery ); iterator.hasNext(); )
+        {
+            guids.add( iterator.next().getGuid() );
+        }
+        return guids;
+    }
+
+    private static String serialize( final AuditRecord record )
+    {
+        return JsonFactory.get().serialize( record );
+    }
+
+    private static AuditRecord makeRecord( final String guid, final AuditEvent auditEvent, final String userDN, final Instant timestamp )
+    {
+        return AuditRecordData.builder()
+                .guid( guid )
+                .eventCode( auditEvent )
+                .type( auditEvent.getType() )
+                .perpetratorDN( userDN )
+                .timestamp( timestamp )
+                .build();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IntruderCounterTableTest
+{
+    private static final TimeDuration CHECK_DURATION = TimeDuration.of( 80, TimeDuration.Unit.SECONDS );
+    private static final long SLOT_MILLIS = CHECK_DURATION.asMillis() / IntruderCounterTable.WINDOW_SLOTS;
+
+    @Test
+    public void testSlidingWindow()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long start = 1_000_000 * SLOT_MILLIS;
+
+        final IntruderCounterTable.CounterEntry entry = table.newEntry();
+        entry.increment( start );
+        entry.increment( start + SLOT_MILLIS );
+        entry.increment( start + SLOT_MILLIS * 2 );
+        Assertions.assertEquals( 3, entry.windowCount( start + SLOT_MILLIS * 2 ) );
+
+        // first attempt slides out of the window after a full check duration
+        Assertions.assertEquals( 3, entry.windowCount( start + SLOT_MILLIS * 7 ) );
+        Assertions.assertEquals( 2, entry.windowCount( start + SLOT_MILLIS * 8 ) );
+        Assertions.assertEquals( 0, entry.windowCount( start + SLOT_MILLIS * 10 ) );
+
+        // slots are reused once their slice has expired
+        entry.increment( start + SLOT_MILLIS * 10 );
+        Assertions.assertEquals( 1, entry.windowCount( start + SLOT_MILLIS * 10 ) );
+    }
+
+    @Test
+    public void testSeedFromStoredRecord()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long now = System.currentTimeMillis();
+
+        final IntruderRecord recentRecord = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "user" );
+        recentRecord.setAttemptCount( 4 );
+        recentRecord.setAlerted( true );
+        recentRecord.setTimeStamp( Instant.ofEpochMilli( now - SLOT_MILLIS ) );
+
+        final IntruderCounterTable.CounterEntry recentEntry = table.newEntry();
+        recentEntry.seed( recentRecord, now );
+        Assertions.assertEquals( 4, recentEntry.windowCount( now ) );
+        Assertions.assertTrue( recentEntry.isAlerted() );
+        Assertions.assertTrue( recentEntry.hasAttempts() );
+
+        final IntruderRecord oldRecord = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "user" );
+        oldRecord.setAttemptCount( 4 );
+        oldRecord.setTimeStamp( Instant.ofEpochMilli( now - CHECK_DURATION.asMillis() * 2 ) );
+
+        final IntruderCounterTable.CounterEntry oldEntry = table.newEntry();
+        oldEntry.seed( oldRecord, now );
+        Assertions.assertEquals( 0, oldEntry.windowCount( now ) );
+    }
+
+    @Test
+    public void testConcurrentIncrements()
+            throws Exception
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long now = System.currentTimeMillis();
+        final int threads = 8;
+        final int incrementsPerThread = 10_000;
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures.add( executorService.submit( () ->
+                {
+                    for ( int j = 0; j < incrementsPerThread; j++ )
+                    {
+                        table.update( "subject", table.newEntry(), entry -> entry.increment( now ) );
+                    }
+                } ) );
+            }
+            for ( final Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        final IntruderCounterTable.CounterEntry entry = table.get( "subject" ).orElseThrow();
+        Assertions.assertEquals( threads * incrementsPerThread, entry.windowCount( now ) );
+        Assertions.assertEquals( 1, table.size() );
+    }
+
+    @Test
+    public void testFlushAndEviction()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long now = System.currentTimeMillis();
+        final Map<String, Integer> written = new HashMap<>();
+
+        table.update( "subject1", table.newEntry(), entry -> entry.increment( now ) );
+        table.update( "subject1", table.newEntry(), entry -> entry.increment( now ) );
+        table.add( "subject2", table.newEntry() );
+
+        // failed writes remain dirty and are retried on the next flush
+        Assertions.assertEquals( 0, table.flush( ( subject, entry, time ) ->
+        {
+            entry.requeue( entry.drainPendingAttempts(), entry.drainCleared() );
+            return false;
+        }, now ) );
+
+        Assertions.assertEquals( 1, table.flush( ( subject, entry, time ) ->
+        {
+            written.put( subject, entry.drainPendingAttempts() );
+            return true;
+        }, now ) );
+        Assertions.assertEquals( Map.of( "subject1", 2 ), written );
+
+        // idle entry is dropped, entry with attempts in the window is kept until they expire
+        Assertions.assertEquals( 1, table.size() );
+        Assertions.assertEquals( 0, table.flush( ( subject, entry, time ) -> true, now + CHECK_DURATION.asMillis() * 2 ) );
+        Assertions.assertEquals( 0, table.size() );
+    }
+
+    @Test
+    public void testMergeStoredRecord()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long now = System.currentTimeMillis();
+
+        final IntruderCounterTable.CounterEntry entry = table.newEntry();
+        entry.increment( now );
+        entry.increment( now );
+
+        // attempts made on another node sharing the record store are added
+        final IntruderRecord storedRecord = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "user" );
+        storedRecord.setAttemptCount( 5 );
+        storedRecord.setTimeStamp( Instant.ofEpochMilli( now ) );
+        entry.mergeStored( storedRecord, 5, now );
+        Assertions.assertEquals( 7, entry.windowCount( now ) );
+
+        // a record cleared on another node resets the window, keeping the attempts not yet written
+        entry.drainPendingAttempts();
+        entry.increment( now );
+        final IntruderRecord clearedRecord = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "user" );
+        clearedRecord.setAttemptCount( 0 );
+        clearedRecord.setTimeStamp( Instant.ofEpochMilli( now ) );
+        entry.mergeStored( clearedRecord, 0, now );
+        Assertions.assertEquals( 1, entry.windowCount( now ) );
+
+        // a local clear that has not been written yet is kept
+        entry.clear();
+        entry.mergeStored( storedRecord, 5, now );
+        Assertions.assertEquals( 0, entry.windowCount( now ) );
+    }
+
+    @Test
+    public void testReplaceOnlyCleanEntries()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 1000, ( subject, entry, now ) -> true );
+        final long now = System.currentTimeMillis();
+
+        table.update( "subject", table.newEntry(), entry -> entry.increment( now ) );
+        final IntruderCounterTable.CounterEntry dirtyEntry = table.get( "subject" ).orElseThrow();
+        Assertions.assertSame( dirtyEntry, table.replace( "subject", dirtyEntry, table.newEntry() ) );
+
+        table.flush( ( subject, entry, time ) -> true, now );
+        final IntruderCounterTable.CounterEntry replacementEntry = table.newEntry();
+        Assertions.assertSame( replacementEntry, table.replace( "subject", dirtyEntry, replacementEntry ) );
+        Assertions.assertSame( replacementEntry, table.get( "subject" ).orElseThrow() );
+    }
+
+    @Test
+    public void testIdleEntryLimit()
+    {
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 2, 1000, ( subject, entry, now ) -> true );
+        table.add( "subject1", table.newEntry() );
+        table.add( "subject2", table.newEntry() );
+        table.add( "subject3", table.newEntry() );
+        Assertions.assertEquals( 2, table.size() );
+
+        table.update( "subject4", table.newEntry(), entry -> entry.increment( System.currentTimeMillis() ) );
+        Assertions.assertEquals( 3, table.size() );
+    }
+
+    @Test
+    public void testEntryLimit()
+    {
+        final long now = System.currentTimeMillis();
+        final Map<String, Integer> written = new HashMap<>();
+        final AtomicBoolean writesFail = new AtomicBoolean( false );
+        final IntruderCounterTable table = new IntruderCounterTable( CHECK_DURATION, 100, 10, ( subject, entry, time ) ->
+        {
+            if ( writesFail.get() )
+            {
+                entry.requeue( entry.drainPendingAttempts(), entry.drainCleared() );
+                return false;
+            }
+            written.merge( subject, entry.drainPendingAttempts(), Integer::sum );
+            return true;
+        } );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            final long attemptTime = now + i;
+            table.update( "subject" + i, table.newEntry(), entry -> entry.increment( attemptTime ) );
+        }
+        Assertions.assertEquals( 10, table.size() );
+
+        // a new subject writes all entries and evicts the one with the oldest attempt
+        table.update( "subject10", table.newEntry(), entry -> entry.increment( now + 10 ) );
+        Assertions.assertEquals( 10, table.size() );
+        Assertions.assertEquals( 10, written.size() );
+        Assertions.assertFalse( table.get( "subject0" ).isPresent() );
+        Assertions.assertTrue( table.get( "subject1" ).isPresent() );
+
+        // entries that could not be written are never evicted
+        writesFail.set( true );
+        for ( int i = 1; i < 11; i++ )
+        {
+            final long attemptTime = now + 20 + i;
+            table.update( "subject" + i, table.newEntry(), entry -> entry.increment( attemptTime ) );
+        }
+        table.update( "subject11", table.newEntry(), entry -> entry.increment( now + 40 ) );
+        Assertions.assertEquals( 11, table.size() );
+        Assertions.assertTrue( table.get( "subject1" ).isPresent() );
+    }
+}
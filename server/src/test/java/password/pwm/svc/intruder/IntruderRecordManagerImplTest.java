@@ -0,0 +1,138 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.svc.secure.DomainSecureService;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.secure.PwmHashAlgorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class IntruderRecordManagerImplTest
+{
+    @Test
+    public void testClearSubjectWritesOnce()
+            throws Exception
+    {
+        final TestRecordStore recordStore = new TestRecordStore();
+        final IntruderRecordManagerImpl recordManager = new IntruderRecordManagerImpl( makePwmDomain(), IntruderRecordType.USERNAME, recordStore, makeSettings() );
+
+        recordManager.markSubject( "user" );
+        Assertions.assertEquals( 1, recordManager.flush() );
+        Assertions.assertTrue( recordManager.readIntruderRecord( "user" ).isPresent() );
+
+        // only the first clear is written
+        recordManager.clearSubject( "user" );
+        recordManager.clearSubject( "user" );
+        Assertions.assertEquals( 1, recordManager.flush() );
+        Assertions.assertEquals( 2, recordStore.writes.size() );
+        Assertions.assertEquals( 0, recordStore.writes.get( 1 ).getAttemptCount() );
+
+        // a cleared subject read back from the store is not written again, such as on each later successful login
+        recordManager.clearSubject( "user" );
+        Assertions.assertEquals( 0, recordManager.flush() );
+        Assertions.assertEquals( 2, recordStore.writes.size() );
+        Assertions.assertFalse( recordManager.readIntruderRecord( "user" ).isPresent() );
+    }
+
+    private static PwmDomain makePwmDomain()
+    {
+        final DomainSecureService secureService = Mockito.mock( DomainSecureService.class );
+        Mockito.when( secureService.appendHash( Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any() ) )
+                .thenAnswer( invocation -> invocation.<StringBuilder>getArgument( 2 ).append( invocation.<CharSequence>getArgument( 1 ) ) );
+
+        final PwmDomain pwmDomain = Mockito.mock( PwmDomain.class );
+        Mockito.when( pwmDomain.getDomainID() ).thenReturn( DomainID.systemId() );
+        Mockito.when( pwmDomain.getSecureService() ).thenReturn( secureService );
+        return pwmDomain;
+    }
+
+    private static IntruderSettings makeSettings()
+    {
+        final IntruderSettings.TypeSettings typeSettings = IntruderSettings.TypeSettings.builder()
+                .checkDuration( TimeDuration.of( 60, TimeDuration.Unit.SECONDS ) )
+                .checkCount( 5 )
+                .resetDuration( TimeDuration.of( 60, TimeDuration.Unit.SECONDS ) )
+                .build();
+
+        return IntruderSettings.builder()
+                .targetSettings( Map.of( IntruderRecordType.USERNAME, typeSettings ) )
+                .storageHashAlgorithm( PwmHashAlgorithm.SHA256 )
+                .maxIdleCounterEntries( 100 )
+                .maxCounterEntries( 1000 )
+                .sharedRecordRefreshInterval( TimeDuration.of( 60, TimeDuration.Unit.SECONDS ) )
+                .build();
+    }
+
+    private static class TestRecordStore implements IntruderRecordStore
+    {
+        private final Map<String, IntruderRecord> records = new HashMap<>();
+        private final List<IntruderRecord> writes = new ArrayList<>();
+
+        @Override
+        public StatisticCounterBundle<DebugKeys> getStats()
+        {
+            return new StatisticCounterBundle<>( DebugKeys.class );
+        }
+
+        @Override
+        public DataStorageMethod getDataStorageMethod()
+        {
+            return DataStorageMethod.LOCALDB;
+        }
+
+        @Override
+        public Optional<IntruderRecord> read( final String key )
+        {
+            return Optional.ofNullable( records.get( key ) );
+        }
+
+        @Override
+        public void write( final String key, final IntruderRecord record )
+        {
+            records.put( key, record );
+            writes.add( record );
+        }
+
+        @Override
+        public ClosableIterator<IntruderRecord> iterator()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cleanup( final TimeDuration maxRecordAge )
+        {
+        }
+    }
+}
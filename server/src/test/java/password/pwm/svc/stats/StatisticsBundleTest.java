@@ -0,0 +1,110 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class StatisticsBundleTest
+{
+    @Test
+    public void testHistogramBuckets()
+    {
+        for ( long value = 0; value < 1_000_000; value += 7 )
+        {
+            final long upperBound = LatencyHistogram.bucketUpperBound( LatencyHistogram.bucketIndex( value ) );
+            Assertions.assertTrue( upperBound >= value );
+            Assertions.assertTrue( upperBound <= value + value / 16 + 1, "bucket bound too wide for " + value );
+        }
+
+        Assertions.assertEquals( 0, LatencyHistogram.bucketIndex( -5 ) );
+        Assertions.assertEquals( LatencyHistogram.bucketIndex( Long.MAX_VALUE ), LatencyHistogram.bucketIndex( Long.MAX_VALUE - 1 ) );
+    }
+
+    @Test
+    public void testHistogramPercentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertTrue( histogram.isEmpty() );
+        Assertions.assertEquals( 0, histogram.valueAtPercentile( 50 ) );
+
+        for ( int i = 1; i <= 1000; i++ )
+        {
+            histogram.recordValue( i );
+        }
+
+        assertApproximately( 500, histogram.valueAtPercentile( 50 ) );
+        assertApproximately( 950, histogram.valueAtPercentile( 95 ) );
+        assertApproximately( 990, histogram.valueAtPercentile( 99 ) );
+        assertApproximately( 1000, histogram.valueAtPercentile( 100 ) );
+    }
+
+    @Test
+    public void testOutputAndInput()
+    {
+        final StatisticsBundle bundle = new StatisticsBundle();
+        bundle.incrementValue( Statistic.AUTHENTICATIONS );
+        bundle.incrementValue( Statistic.AUTHENTICATIONS );
+        for ( int i = 1; i <= 100; i++ )
+        {
+            bundle.updateAverageValue( AvgStatistic.AVG_AUTHENTICATION_TIME, i );
+        }
+        bundle.updateAverageValue( AvgStatistic.AVG_PASSWORD_STRENGTH, 40 );
+
+        final StatisticsBundle loadedBundle = StatisticsBundle.input( bundle.output() );
+        Assertions.assertEquals( "2", loadedBundle.getStatistic( Statistic.AUTHENTICATIONS ) );
+        Assertions.assertEquals( "50", loadedBundle.getAvgStatistic( AvgStatistic.AVG_AUTHENTICATION_TIME ) );
+        Assertions.assertEquals( "40", loadedBundle.getAvgStatistic( AvgStatistic.AVG_PASSWORD_STRENGTH ) );
+        Assertions.assertEquals(
+                bundle.getAvgStatisticPercentiles( AvgStatistic.AVG_AUTHENTICATION_TIME ),
+                loadedBundle.getAvgStatisticPercentiles( AvgStatistic.AVG_AUTHENTICATION_TIME ) );
+
+        final Map<String, String> percentiles = loadedBundle.getAvgStatisticPercentiles( AvgStatistic.AVG_AUTHENTICATION_TIME );
+        Assertions.assertEquals( StatisticsBundle.percentileNames(), List.copyOf( percentiles.keySet() ) );
+        Assertions.assertTrue( loadedBundle.getAvgStatisticPercentiles( AvgStatistic.AVG_PASSWORD_STRENGTH ).isEmpty() );
+    }
+
+    @Test
+    public void testInputOfPreviousAverageFormat()
+    {
+        final String storedValue = "{\"AVG_LDAP_SEARCH_TIME\":\"{\\\"total\\\":300,\\\"count\\\":3}\"}";
+        final StatisticsBundle loadedBundle = StatisticsBundle.input( storedValue );
+        Assertions.assertEquals( "100", loadedBundle.getAvgStatistic( AvgStatistic.AVG_LDAP_SEARCH_TIME ) );
+        Assertions.assertEquals( "0", loadedBundle.getAvgStatisticPercentiles( AvgStatistic.AVG_LDAP_SEARCH_TIME ).get( "p50" ) );
+    }
+
+    @Test
+    public void testInputOfOverflowedAverage()
+    {
+        final String storedValue = "{\"AVG_LDAP_SEARCH_TIME\":\"{\\\"total\\\":18446744073709551916,\\\"count\\\":3}\"}";
+        final StatisticsBundle loadedBundle = StatisticsBundle.input( storedValue );
+        Assertions.assertEquals( "0", loadedBundle.getAvgStatistic( AvgStatistic.AVG_LDAP_SEARCH_TIME ) );
+    }
+
+    private static void assertApproximately( final long expected, final long actual )
+    {
+        Assertions.assertTrue( actual >= expected && actual <= expected + expected / 16 + 1,
+                "expected approximately " + expected + " but was " + actual );
+    }
+}
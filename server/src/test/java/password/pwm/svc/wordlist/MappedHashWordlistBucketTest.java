@@ -0,0 +1,104 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import password.pwm.PwmApplication;
+import password.pwm.util.localdb.LocalDB;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MappedHashWordlistBucketTest
+{
+    @TempDir
+    public Path temporaryFolder;
+
+    @Test
+    public void testImportAndLookup()
+            throws Exception
+    {
+        final File directory = temporaryFolder.toFile();
+        final MappedHashWordlistBucket bucket = makeBucket( directory );
+
+        bucket.putValues( makeWords( 0, 5_000 ) );
+        bucket.putValues( makeWords( 2_500, 10_000 ) );
+
+        // staged words are not visible until the import is finalized
+        Assertions.assertFalse( bucket.containsKey( "word1" ) );
+        Assertions.assertEquals( 12_500, bucket.size() );
+
+        bucket.finalizeImport();
+
+        Assertions.assertEquals( 10_000, bucket.size() );
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            Assertions.assertTrue( bucket.containsKey( "word" + i ) );
+        }
+        Assertions.assertFalse( bucket.containsKey( "word10000" ) );
+        Assertions.assertFalse( bucket.containsKey( "absent" ) );
+
+        Assertions.assertTrue( bucket.containsAny( List.of( "absent", "word9999", "word0", "absent" ) ) );
+        Assertions.assertFalse( bucket.containsAny( List.of( "absent1", "absent2", "word10000" ) ) );
+        Assertions.assertFalse( bucket.containsAny( List.of() ) );
+
+        // reopen from existing file
+        final MappedHashWordlistBucket reopenedBucket = makeBucket( directory );
+        Assertions.assertEquals( 10_000, reopenedBucket.size() );
+        Assertions.assertTrue( reopenedBucket.containsKey( "word9999" ) );
+
+        reopenedBucket.putValues( makeWords( 10_000, 10_001 ) );
+        reopenedBucket.finalizeImport();
+        Assertions.assertTrue( reopenedBucket.containsKey( "word10000" ) );
+        Assertions.assertTrue( reopenedBucket.containsKey( "word0" ) );
+
+        reopenedBucket.clear();
+        Assertions.assertEquals( 0, reopenedBucket.size() );
+        Assertions.assertFalse( reopenedBucket.containsKey( "word0" ) );
+    }
+
+    private static MappedHashWordlistBucket makeBucket( final File directory )
+            throws Exception
+    {
+        final WordlistConfiguration wordlistConfiguration = WordlistConfiguration.builder()
+                .db( LocalDB.DB.WORDLIST_WORDS )
+                .bucketType( WordlistBucketType.MappedHash )
+                .build();
+
+        return new MappedHashWordlistBucket( Mockito.mock( PwmApplication.class ), wordlistConfiguration, WordlistType.WORDLIST, directory );
+    }
+
+    private static Map<String, String> makeWords( final int start, final int end )
+    {
+        final Map<String, String> words = new TreeMap<>();
+        for ( int i = start; i < end; i++ )
+        {
+            words.put( "word" + i, "" );
+        }
+        return words;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class WordlistBloomFilterTest
+{
+    @TempDir
+    public Path temporaryFolder;
+
+    @Test
+    public void testNoFalseNegatives()
+    {
+        final WordlistBloomFilter bloomFilter = WordlistBloomFilter.createOffHeap( 64 * 1024, 7 );
+        Assertions.assertEquals( WordlistBloomFilter.State.Invalid, bloomFilter.getState() );
+
+        bloomFilter.clear();
+        final List<String> words = makeWords( "word", 10_000 );
+        bloomFilter.addAll( words );
+        bloomFilter.markComplete();
+
+        Assertions.assertTrue( bloomFilter.isComplete() );
+        for ( final String word : words )
+        {
+            Assertions.assertTrue( bloomFilter.mightContain( word ) );
+        }
+
+        int falsePositives = 0;
+        for ( final String word : makeWords( "absent", 10_000 ) )
+        {
+            if ( bloomFilter.mightContain( word ) )
+            {
+                falsePositives++;
+            }
+        }
+
+        Assertions.assertTrue( falsePositives < 100, "false positives: " + falsePositives );
+        Assertions.assertTrue( bloomFilter.expectedFalsePositiveRate() < 0.01 );
+    }
+
+    @Test
+    public void testMappedFilePersistence()
+            throws Exception
+    {
+        final File file = temporaryFolder.resolve( "test.bloomfilter" ).toFile();
+        final List<String> words = makeWords( "word", 1_000 );
+
+        {
+            final WordlistBloomFilter bloomFilter = WordlistBloomFilter.openMapped( file, 16 * 1024, 5 );
+            Assertions.assertEquals( WordlistBloomFilter.State.Invalid, bloomFilter.getState() );
+            bloomFilter.clear();
+            bloomFilter.addAll( words );
+            bloomFilter.markComplete();
+            bloomFilter.close();
+        }
+
+        {
+            final WordlistBloomFilter bloomFilter = WordlistBloomFilter.openMapped( file, 16 * 1024, 5 );
+            Assertions.assertTrue( bloomFilter.isComplete() );
+            for ( final String word : words )
+            {
+                Assertions.assertTrue( bloomFilter.mightContain( word ) );
+            }
+
+            // not closed, simulating an unclean shutdown
+        }
+
+        {
+            final WordlistBloomFilter bloomFilter = WordlistBloomFilter.openMapped( file, 16 * 1024, 5 );
+            Assertions.assertEquals( WordlistBloomFilter.State.Invalid, bloomFilter.getState() );
+            bloomFilter.rebuild( words.iterator(), () -> false );
+            Assertions.assertTrue( bloomFilter.isComplete() );
+            bloomFilter.close();
+        }
+
+        {
+            final WordlistBloomFilter bloomFilter = WordlistBloomFilter.openMapped( file, 32 * 1024, 5 );
+            Assertions.assertEquals( WordlistBloomFilter.State.Invalid, bloomFilter.getState() );
+            bloomFilter.close();
+        }
+    }
+
+    private static List<String> makeWords( final String prefix, final int count )
+    {
+        final List<String> words = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            words.add( prefix + i );
+        }
+        return words;
+    }
+}
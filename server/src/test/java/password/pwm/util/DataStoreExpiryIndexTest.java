@@ -0,0 +1,165 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import password.pwm.PwmApplication;
+import password.pwm.util.java.FileSystemUtility;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBDataStore;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DataStoreExpiryIndexTest
+{
+    private static final TimeDuration BUCKET_DURATION = TimeDuration.MINUTE;
+
+    @TempDir
+    public Path temporaryFolder;
+
+    private LocalDB localDB;
+    private DataStore indexStore;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        final File localDbTestFolder = FileSystemUtility.createDirectory( temporaryFolder, "test-expiry-index" );
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( localDbTestFolder );
+        localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
+        indexStore = new LocalDBDataStore( localDB, LocalDB.DB.TEMP );
+    }
+
+    @AfterEach
+    public void shutdown() throws Exception
+    {
+        localDB.close();
+    }
+
+    @Test
+    public void testPurgeExpiredBuckets() throws Exception
+    {
+        final Instant now = Instant.now();
+        final DataStoreExpiryIndex expiryIndex = new DataStoreExpiryIndex( indexStore, "test", BUCKET_DURATION );
+
+        // purge is a no-op until the index is initialized
+        Assertions.assertEquals( 0, expiryIndex.purge( later( now, 5 ), key -> Assertions.fail(), () -> true ) );
+
+        expiryIndex.initialize( now );
+        expiryIndex.add( "a", now );
+        expiryIndex.add( "b", now );
+        expiryIndex.add( "a", now );
+        expiryIndex.add( "c", now.minus( TimeDuration.HOUR.asDuration() ) );
+        expiryIndex.add( "d", later( now, 10 ) );
+
+        final List<String> handled = new ArrayList<>();
+
+        // current bucket has not ended yet
+        expiryIndex.purge( now, handled::add, () -> true );
+        Assertions.assertTrue( handled.isEmpty() );
+
+        expiryIndex.purge( later( now, 2 ), handled::add, () -> true );
+        Assertions.assertEquals( List.of( "a", "b", "c" ), handled );
+
+        handled.clear();
+        expiryIndex.purge( later( now, 2 ), handled::add, () -> true );
+        Assertions.assertTrue( handled.isEmpty() );
+
+        expiryIndex.purge( later( now, 20 ), handled::add, () -> true );
+        Assertions.assertEquals( List.of( "d" ), handled );
+        Assertions.assertEquals( 1, indexStore.size(), "only the floor row should remain" );
+    }
+
+    @Test
+    public void testSharedIndexStore() throws Exception
+    {
+        final Instant now = Instant.now();
+        final DataStoreExpiryIndex node1 = new DataStoreExpiryIndex( indexStore, "test", BUCKET_DURATION );
+        final DataStoreExpiryIndex node2 = new DataStoreExpiryIndex( indexStore, "test", BUCKET_DURATION );
+        final DataStoreExpiryIndex otherNamespace = new DataStoreExpiryIndex( indexStore, "other", BUCKET_DURATION );
+        node1.initialize( now );
+        node2.initialize( now );
+        otherNamespace.initialize( now );
+
+        node1.add( "a", now );
+        node2.add( "b", now );
+        node1.add( "c", now );
+        otherNamespace.add( "x", now );
+
+        final List<String> handled = new ArrayList<>();
+        node2.purge( later( now, 2 ), handled::add, () -> true );
+        Assertions.assertEquals( Set.of( "a", "b", "c" ), Set.copyOf( handled ) );
+        Assertions.assertEquals( 3, handled.size() );
+
+        handled.clear();
+        otherNamespace.purge( later( now, 2 ), handled::add, () -> true );
+        Assertions.assertEquals( List.of( "x" ), handled );
+    }
+
+    @Test
+    public void testInterruptedPurge() throws Exception
+    {
+        final Instant now = Instant.now();
+        final DataStoreExpiryIndex expiryIndex = new DataStoreExpiryIndex( indexStore, "test", BUCKET_DURATION );
+        expiryIndex.initialize( now );
+        for ( int i = 0; i < 10; i++ )
+        {
+            expiryIndex.add( "key" + i, now );
+        }
+
+        final AtomicInteger remainingChecks = new AtomicInteger( 5 );
+        final List<String> handled = new ArrayList<>();
+        expiryIndex.purge( later( now, 2 ), handled::add, () -> remainingChecks.getAndDecrement() > 0 );
+        Assertions.assertTrue( handled.size() < 10 );
+
+        // interrupted bucket is kept and visited again in full
+        handled.clear();
+        expiryIndex.purge( later( now, 2 ), handled::add, () -> true );
+        Assertions.assertEquals( 10, handled.size() );
+    }
+
+    @Test
+    public void testLegacyScanMarker() throws Exception
+    {
+        final DataStoreExpiryIndex expiryIndex = new DataStoreExpiryIndex( indexStore, "test", BUCKET_DURATION );
+        Assertions.assertFalse( expiryIndex.isLegacyScanComplete() );
+        expiryIndex.markLegacyScanComplete();
+        Assertions.assertTrue( expiryIndex.isLegacyScanComplete() );
+        Assertions.assertFalse( new DataStoreExpiryIndex( indexStore, "other", BUCKET_DURATION ).isLegacyScanComplete() );
+    }
+
+    private static Instant later( final Instant instant, final int minutes )
+    {
+        return instant.plus( TimeDuration.of( minutes, TimeDuration.Unit.MINUTES ).asDuration() );
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.java;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of a memoized call through a reflective proxy (the previous implementation), through
+ * {@link MemoizingProxy}, and through a hand-written memoizing implementation.
+ */
+@State( Scope.Thread )
+public class MemoizingProxyBenchmarkExtendedTest
+{
+    public interface AttributeReader
+    {
+        String readAttribute( String attribute );
+
+        String readName();
+    }
+
+    private static class AttributeReaderImpl implements AttributeReader
+    {
+        @Override
+        public String readAttribute( final String attribute )
+        {
+            return attribute + "-value";
+        }
+
+        @Override
+        public String readName()
+        {
+            return "name";
+        }
+    }
+
+    private static class HandWrittenReader implements AttributeReader
+    {
+        private final AttributeReader inner;
+        private final Map<String, String> attributes = new ConcurrentHashMap<>();
+        private volatile String name;
+
+        HandWrittenReader( final AttributeReader inner )
+        {
+            this.inner = inner;
+        }
+
+        @Override
+        public String readAttribute( final String attribute )
+        {
+            return attributes.computeIfAbsent( attribute, inner::readAttribute );
+        }
+
+        @Override
+        public String readName()
+        {
+            if ( name == null )
+            {
+                name = inner.readName();
+            }
+            return name;
+        }
+    }
+
+    /**
+     * Equivalent of the reflective wrapper previously used for {@code UserInfo} and {@code ChaiProvider}.
+     */
+    private static class ReflectiveCachingHandler implements InvocationHandler
+    {
+        private final Map<Object, Object> cache = new ConcurrentHashMap<>();
+        private final Object target;
+
+        ReflectiveCachingHandler( final Object target )
+        {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+                throws Throwable
+        {
+            final Object key = Arrays.asList( method, args == null ? null : Arrays.asList( args ) );
+            final Object cached = cache.get( key );
+            if ( cached != null )
+            {
+                return cached;
+            }
+            try
+            {
+                final Object result = method.invoke( target, args );
+                cache.put( key, Objects.requireNonNull( result ) );
+                return result;
+            }
+            catch ( final InvocationTargetException e )
+            {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    private final AttributeReader reflectiveReader = ( AttributeReader ) Proxy.newProxyInstance(
+            AttributeReader.class.getClassLoader(),
+            new Class[] { AttributeReader.class },
+            new ReflectiveCachingHandler( new AttributeReaderImpl() ) );
+
+    private final AttributeReader memoizingReader = MemoizingProxy.create(
+            AttributeReader.class,
+            new AttributeReaderImpl(),
+            method -> MemoizingProxy.CallPolicy.MEMOIZE );
+
+    private final AttributeReader handWrittenReader = new HandWrittenReader( new AttributeReaderImpl() );
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Benchmark
+    public String reflectiveAttribute()
+    {
+        return reflectiveReader.readAttribute( "mail" );
+    }
+
+    @Benchmark
+    public String memoizingProxyAttribute()
+    {
+        return memoizingReader.readAttribute( "mail" );
+    }
+
+    @Benchmark
+    public String handWrittenAttribute()
+    {
+        return handWrittenReader.readAttribute( "mail" );
+    }
+
+    @Benchmark
+    public String reflectiveGetter()
+    {
+        return reflectiveReader.readName();
+    }
+
+    @Benchmark
+    public String memoizingProxyGetter()
+    {
+        return memoizingReader.readName();
+    }
+
+    @Benchmark
+    public String handWrittenGetter()
+    {
+        return handWrittenReader.readName();
+    }
+}
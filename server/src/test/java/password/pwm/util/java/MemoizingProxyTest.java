@@ -0,0 +1,151 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.java;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoizingProxyTest
+{
+    public interface TestService
+    {
+        String read( String key ) throws IOException;
+
+        String readNothing();
+
+        String readWhileWriting( String key );
+
+        void write( String key );
+
+        int callCount();
+    }
+
+    private static class TestServiceImpl implements TestService
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+        private TestService proxy;
+
+        @Override
+        public String read( final String key ) throws IOException
+        {
+            final int count = calls.incrementAndGet();
+            if ( "error".equals( key ) )
+            {
+                throw new IOException( "read error" );
+            }
+            return key + count;
+        }
+
+        @Override
+        public String readNothing()
+        {
+            calls.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public String readWhileWriting( final String key )
+        {
+            final int count = calls.incrementAndGet();
+            proxy.write( key );
+            return key + count;
+        }
+
+        @Override
+        public void write( final String key )
+        {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public int callCount()
+        {
+            return calls.get();
+        }
+    }
+
+    private static MemoizingProxy.CallPolicy testPolicy( final Method method )
+    {
+        if ( method.getName().startsWith( "read" ) )
+        {
+            return MemoizingProxy.CallPolicy.MEMOIZE;
+        }
+        if ( method.getName().startsWith( "write" ) )
+        {
+            return MemoizingProxy.CallPolicy.INVALIDATE;
+        }
+        return MemoizingProxy.CallPolicy.PASS_THROUGH;
+    }
+
+    private static TestService makeProxy()
+    {
+        final TestServiceImpl testService = new TestServiceImpl();
+        testService.proxy = MemoizingProxy.create( TestService.class, testService, MemoizingProxyTest::testPolicy );
+        return testService.proxy;
+    }
+
+    @Test
+    public void testMemoizedReads() throws IOException
+    {
+        final TestService proxy = makeProxy();
+        Assertions.assertEquals( "a1", proxy.read( "a" ) );
+        Assertions.assertEquals( "a1", proxy.read( "a" ) );
+        Assertions.assertEquals( "b2", proxy.read( "b" ) );
+        Assertions.assertNull( proxy.readNothing() );
+        Assertions.assertNull( proxy.readNothing() );
+        Assertions.assertEquals( 3, proxy.callCount() );
+    }
+
+    @Test
+    public void testExceptionsNotMemoized()
+    {
+        final TestService proxy = makeProxy();
+        Assertions.assertThrows( IOException.class, () -> proxy.read( "error" ) );
+        Assertions.assertThrows( IOException.class, () -> proxy.read( "error" ) );
+        Assertions.assertEquals( 2, proxy.callCount() );
+    }
+
+    @Test
+    public void testInvalidation() throws IOException
+    {
+        final TestService proxy = makeProxy();
+        Assertions.assertEquals( "a1", proxy.read( "a" ) );
+
+        proxy.write( "a" );
+        proxy.write( "a" );
+        Assertions.assertEquals( 3, proxy.callCount() );
+        Assertions.assertEquals( "a4", proxy.read( "a" ) );
+        Assertions.assertEquals( "a4", proxy.read( "a" ) );
+    }
+
+    @Test
+    public void testInvalidationDuringRead()
+    {
+        final TestService proxy = makeProxy();
+        Assertions.assertEquals( "a1", proxy.readWhileWriting( "a" ) );
+        Assertions.assertEquals( "a3", proxy.readWhileWriting( "a" ) );
+        Assertions.assertEquals( 4, proxy.callCount() );
+    }
+}
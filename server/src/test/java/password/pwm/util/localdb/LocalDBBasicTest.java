@@ -81,6 +81,10 @@ public class LocalDBBasicTest
         Assertions.assertTrue(  localDB.get( TEST_DB, "key3" ).isEmpty() );
         Assertions.assertFalse( localDB.contains( TEST_DB, "key3" ) );
 
+        Assertions.assertTrue( localDB.containsAny( TEST_DB, List.of( "key0", "key2", "key3" ) ) );
+        Assertions.assertFalse( localDB.containsAny( TEST_DB, List.of( "key0", "key3" ) ) );
+        Assertions.assertFalse( localDB.containsAny( TEST_DB, List.of() ) );
+
         localDB.removeAll( TEST_DB, List.of( "key1", "key2" ) );
         Assertions.assertEquals( 0, localDB.size( TEST_DB ) );
     }
@@ -0,0 +1,365 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.localdb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class WorkQueueProcessorTest
+{
+    private static final TimeDuration MAX_WAIT = TimeDuration.SECONDS_10;
+
+    @Test
+    public void testRetryOnlyDelaysOwnLane() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final TestItemProcessor itemProcessor = new TestItemProcessor();
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .lanes( 4 )
+                .retryInterval( TimeDuration.HOUR )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            workQueueProcessor.submit( "retry:1" );
+            for ( int i = 0; i < 20; i++ )
+            {
+                workQueueProcessor.submit( "ok:" + i );
+            }
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> itemProcessor.successItems.size() == 20 );
+            Assertions.assertEquals( 20, itemProcessor.successItems.size() );
+            Assertions.assertEquals( 1, itemProcessor.retryCount() );
+
+            // the retried item is still queued
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> workQueueProcessor.queueSize() == 1 );
+            Assertions.assertEquals( 1, workQueueProcessor.queueSize() );
+
+            // items processed after the retried item are removed once the processor is closed
+            workQueueProcessor.close();
+            Assertions.assertEquals( 1, queue.size() );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testFailedItemsAreDeadLettered() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final Deque<String> deadLetterQueue = new ConcurrentLinkedDeque<>();
+        final TestItemProcessor itemProcessor = new TestItemProcessor();
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .lanes( 2 )
+                .maxDeadLetterItems( 2 )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, deadLetterQueue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            workQueueProcessor.submit( "fail:1" );
+            workQueueProcessor.submit( "fail:2" );
+            workQueueProcessor.submit( "fail:3" );
+            workQueueProcessor.submit( "ok:1" );
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> itemProcessor.processedItems.size() == 4 && queue.isEmpty() );
+            Assertions.assertEquals( List.of( "ok:1" ), itemProcessor.successItems );
+            Assertions.assertEquals( 2, workQueueProcessor.deadLetterQueueSize() );
+            Assertions.assertEquals( "3", workQueueProcessor.debugInfo().get( "deadLetterItems" ) );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testDeadLetterQueueOmitsItemContents() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final Deque<String> deadLetterQueue = new ConcurrentLinkedDeque<>();
+
+        // record written by an earlier version, holding the whole item
+        deadLetterQueue.add( "{\"m\":\"fail:legacy\"}" );
+
+        final TestItemProcessor itemProcessor = new TestItemProcessor();
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, deadLetterQueue, WorkQueueProcessor.Settings.builder().build(), itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            Assertions.assertEquals( 0, workQueueProcessor.deadLetterQueueSize() );
+
+            workQueueProcessor.submit( "fail:secret" );
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> itemProcessor.processedItems.size() == 1 && queue.isEmpty() );
+            Assertions.assertEquals( 1, workQueueProcessor.deadLetterQueueSize() );
+            Assertions.assertFalse( deadLetterQueue.peekFirst().contains( "secret" ) );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testBatchProcessing() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final TestBatchItemProcessor itemProcessor = new TestBatchItemProcessor();
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .batchSize( 5 )
+                .batchWindow( TimeDuration.SECONDS_10 )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                workQueueProcessor.submit( "ok:" + i );
+            }
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> itemProcessor.successItems.size() == 10 && queue.isEmpty() );
+            Assertions.assertEquals( 10, itemProcessor.successItems.size() );
+            Assertions.assertTrue( queue.isEmpty() );
+            Assertions.assertEquals( List.of( 5, 5 ), itemProcessor.batchSizes );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testBatchRetryReturnsRemainingItems() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final TestBatchItemProcessor itemProcessor = new TestBatchItemProcessor();
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .batchSize( 5 )
+                .batchWindow( TimeDuration.SECONDS_10 )
+                .retryInterval( TimeDuration.HOUR )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            workQueueProcessor.submit( "ok:1" );
+            workQueueProcessor.submit( "ok:2" );
+            workQueueProcessor.submit( "ok:3" );
+            workQueueProcessor.submit( "retry:1" );
+            workQueueProcessor.submit( "ok:4" );
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> queue.size() == 2 );
+            Assertions.assertEquals( 2, workQueueProcessor.queueSize() );
+            Assertions.assertEquals( List.of( "ok:1", "ok:2", "ok:3" ), itemProcessor.successItems );
+            Assertions.assertEquals( List.of( "ok:1", "ok:2", "ok:3", "retry:1" ), itemProcessor.processedItems );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testItemsRemainQueuedUntilProcessed() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final CountDownLatch processLatch = new CountDownLatch( 1 );
+        final TestItemProcessor itemProcessor = new TestItemProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                try
+                {
+                    processLatch.await();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return super.process( workItem );
+            }
+        };
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, WorkQueueProcessor.Settings.builder().build(), itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            workQueueProcessor.submit( "ok:1" );
+            workQueueProcessor.submit( "ok:2" );
+
+            // items handed to a lane are not removed from the queue before they have been processed
+            TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ).pause();
+            Assertions.assertEquals( 2, queue.size() );
+            Assertions.assertEquals( 2, workQueueProcessor.queueSize() );
+
+            processLatch.countDown();
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, queue::isEmpty );
+            Assertions.assertEquals( List.of( "ok:1", "ok:2" ), itemProcessor.successItems );
+        }
+        finally
+        {
+            processLatch.countDown();
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testRetryKeepsQueueOrder() throws Exception
+    {
+        final Deque<String> queue = new ConcurrentLinkedDeque<>();
+        final Set<String> retriedItems = ConcurrentHashMap.newKeySet();
+        final TestItemProcessor itemProcessor = new TestItemProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                if ( workItem.startsWith( "retry:" ) && retriedItems.add( workItem ) )
+                {
+                    processedItems.add( workItem );
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                processedItems.add( workItem );
+                successItems.add( workItem );
+                return WorkQueueProcessor.ProcessResult.SUCCESS;
+            }
+        };
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .retryInterval( TimeDuration.of( 50, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>(
+                null, null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        try
+        {
+            workQueueProcessor.submit( "ok:1" );
+            workQueueProcessor.submit( "retry:1" );
+            workQueueProcessor.submit( "ok:2" );
+            workQueueProcessor.submit( "retry:2" );
+            workQueueProcessor.submit( "ok:3" );
+
+            MAX_WAIT.pause( TimeDuration.MILLISECONDS_3, () -> itemProcessor.successItems.size() == 5 && queue.isEmpty() );
+            Assertions.assertEquals( List.of( "ok:1", "retry:1", "ok:2", "retry:2", "ok:3" ), itemProcessor.successItems );
+            Assertions.assertEquals( 4, itemProcessor.retryCount() );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+    }
+
+    @Test
+    public void testRetryBackoff()
+    {
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .retryInterval( TimeDuration.SECONDS_10 )
+                .maxRetryInterval( TimeDuration.MINUTE )
+                .build();
+
+        Assertions.assertEquals( TimeDuration.SECONDS_10, WorkQueueProcessor.retryBackoff( settings, 1 ) );
+        Assertions.assertEquals( TimeDuration.of( 20, TimeDuration.Unit.SECONDS ), WorkQueueProcessor.retryBackoff( settings, 2 ) );
+        Assertions.assertEquals( TimeDuration.of( 40, TimeDuration.Unit.SECONDS ), WorkQueueProcessor.retryBackoff( settings, 3 ) );
+        Assertions.assertEquals( TimeDuration.MINUTE, WorkQueueProcessor.retryBackoff( settings, 4 ) );
+        Assertions.assertEquals( TimeDuration.MINUTE, WorkQueueProcessor.retryBackoff( settings, 100 ) );
+    }
+
+    private static class TestBatchItemProcessor extends TestItemProcessor implements WorkQueueProcessor.BatchItemProcessor<String>
+    {
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<WorkQueueProcessor.ProcessResult> processBatch( final List<String> workItems )
+        {
+            batchSizes.add( workItems.size() );
+            final List<WorkQueueProcessor.ProcessResult> results = new ArrayList<>();
+            for ( final String workItem : workItems )
+            {
+                final boolean retry = results.contains( WorkQueueProcessor.ProcessResult.RETRY );
+                results.add( retry ? WorkQueueProcessor.ProcessResult.RETRY : process( workItem ) );
+            }
+            return results;
+        }
+
+        @Override
+        public String laneKey( final String workItem )
+        {
+            return null;
+        }
+    }
+
+    private static class TestItemProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    {
+        final List<String> processedItems = new CopyOnWriteArrayList<>();
+        final List<String> successItems = new CopyOnWriteArrayList<>();
+
+        @Override
+        public WorkQueueProcessor.ProcessResult process( final String workItem )
+        {
+            processedItems.add( workItem );
+            if ( workItem.startsWith( "retry:" ) )
+            {
+                return WorkQueueProcessor.ProcessResult.RETRY;
+            }
+            if ( workItem.startsWith( "fail:" ) )
+            {
+                return WorkQueueProcessor.ProcessResult.FAILED;
+            }
+            successItems.add( workItem );
+            return WorkQueueProcessor.ProcessResult.SUCCESS;
+        }
+
+        @Override
+        public String convertToDebugString( final String workItem )
+        {
+            return workItem;
+        }
+
+        @Override
+        public String laneKey( final String workItem )
+        {
+            return workItem.startsWith( "ok:" ) ? null : workItem.substring( 0, workItem.indexOf( ':' ) );
+        }
+
+        long retryCount()
+        {
+            return processedItems.stream().filter( item -> item.startsWith( "retry:" ) ).count();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PasswordCharCounterTest
+{
+    @Test
+    public void testCharClassCounts()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "Passw0rd!!12" );
+        Assertions.assertEquals( 3, charCounter.getNumericCharCount() );
+        Assertions.assertEquals( 1, charCounter.getUpperCharCount() );
+        Assertions.assertEquals( 6, charCounter.getLowerCharCount() );
+        Assertions.assertEquals( 7, charCounter.getAlphaCharCount() );
+        Assertions.assertEquals( 5, charCounter.getNonAlphaCharCount() );
+        Assertions.assertEquals( 2, charCounter.getSpecialCharsCount() );
+        Assertions.assertEquals( 0, charCounter.getOtherLetterCharCount() );
+        Assertions.assertEquals( "012", charCounter.getNumericChars() );
+        Assertions.assertEquals( "!!", charCounter.getSpecialChars() );
+        Assertions.assertFalse( charCounter.isFirstNumeric() );
+        Assertions.assertTrue( charCounter.isLastNumeric() );
+    }
+
+    @Test
+    public void testRepeatCounts()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "aAbBBcd1234x" );
+        Assertions.assertEquals( 3, charCounter.getRepeatedChars() );
+        Assertions.assertEquals( 3, charCounter.getSequentialRepeatedChars() );
+        Assertions.assertEquals( 4, charCounter.getSequentialNumericChars() );
+        Assertions.assertEquals( 7, charCounter.getSequentialAlphaChars() );
+        Assertions.assertEquals( 9, charCounter.getUniqueChars() );
+    }
+
+    @Test
+    public void testRunOnFinalCharacter()
+    {
+        // a run that begins on the final character is not counted
+        Assertions.assertEquals( 0, new PasswordCharCounter( "abc1" ).getSequentialNumericChars() );
+        Assertions.assertEquals( 2, new PasswordCharCounter( "abc12" ).getSequentialNumericChars() );
+        Assertions.assertEquals( 0, new PasswordCharCounter( "a" ).getRepeatedChars() );
+        Assertions.assertEquals( 0, new PasswordCharCounter( "a" ).getSequentialRepeatedChars() );
+        Assertions.assertEquals( 0, new PasswordCharCounter( "" ).getUniqueChars() );
+    }
+}
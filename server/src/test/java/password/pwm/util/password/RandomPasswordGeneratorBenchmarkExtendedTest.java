@@ -0,0 +1,125 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.PwmApplication;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.util.PasswordData;
+import password.pwm.util.java.FileSystemUtility;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures random passwords generated per second for a default and a strict policy.
+ */
+@State( Scope.Benchmark )
+public class RandomPasswordGeneratorBenchmarkExtendedTest
+{
+    @Param( { "default", "strict" } )
+    public String policyName;
+
+    private File applicationFolder;
+    private PwmApplication pwmApplication;
+    private PwmDomain pwmDomain;
+    private RandomGeneratorConfig randomGeneratorConfig;
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.Throughput )
+                .timeUnit( TimeUnit.SECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws Exception
+    {
+        applicationFolder = Files.createTempDirectory( "pwm-randomgen-benchmark" ).toFile();
+        pwmApplication = TestHelper.makeTestPwmApplication( applicationFolder );
+        pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.AllowNumeric.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.AllowSpecial.getKey(), "true" );
+        if ( "strict".equals( policyName ) )
+        {
+            policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "12" );
+            policyMap.put( PwmPasswordRule.MinimumUpperCase.getKey(), "2" );
+            policyMap.put( PwmPasswordRule.MinimumLowerCase.getKey(), "2" );
+            policyMap.put( PwmPasswordRule.MinimumNumeric.getKey(), "2" );
+            policyMap.put( PwmPasswordRule.MinimumSpecial.getKey(), "2" );
+            policyMap.put( PwmPasswordRule.MaximumRepeat.getKey(), "1" );
+            policyMap.put( PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false" );
+            policyMap.put( PwmPasswordRule.AllowLastCharSpecial.getKey(), "false" );
+        }
+        final PwmPasswordPolicy pwmPasswordPolicy = PwmPasswordPolicy.createPwmPasswordPolicy( DomainID.DOMAIN_ID_DEFAULT, policyMap );
+        randomGeneratorConfig = RandomGeneratorConfig.make( pwmDomain, pwmPasswordPolicy );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws Exception
+    {
+        pwmApplication.shutdown();
+        FileSystemUtility.deleteDirectoryContentsRecursively( applicationFolder.toPath() );
+    }
+
+    @Benchmark
+    public List<PasswordData> benchmarkGeneratePasswords()
+            throws Exception
+    {
+        return RandomPasswordGenerator.createRandomPasswords( SessionLabel.TEST_SESSION_LABEL, randomGeneratorConfig, pwmDomain, 1 );
+    }
+}
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -74,4 +75,46 @@ public class RandomPasswordGeneratorTest
             seenValues.add( passwordString );
         }
     }
+
+    @Test
+    public void generateBulkRandomPasswordsTest()
+            throws PwmUnrecoverableException, IOException
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.toFile() );
+        final PwmDomain pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.AllowNumeric.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.AllowSpecial.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "12" );
+        policyMap.put( PwmPasswordRule.MinimumUpperCase.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MinimumNumeric.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MinimumSpecial.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowLastCharSpecial.getKey(), "false" );
+        final PwmPasswordPolicy pwmPasswordPolicy = PwmPasswordPolicy.createPwmPasswordPolicy( PwmPasswordPolicy.defaultPolicy().getDomainID(), policyMap );
+        final RandomGeneratorConfig randomGeneratorConfig = RandomGeneratorConfig.make( pwmDomain, pwmPasswordPolicy );
+
+        final int count = 200;
+        final List<PasswordData> passwords = RandomPasswordGenerator.createRandomPasswords(
+                SessionLabel.TEST_SESSION_LABEL,
+                randomGeneratorConfig,
+                pwmDomain,
+                count );
+
+        Assertions.assertThat( passwords ).hasSize( count );
+        final Set<String> seenValues = new HashSet<>();
+        for ( final PasswordData passwordData : passwords )
+        {
+            final String passwordString = passwordData.getStringValue();
+            Assertions.assertThat( seenValues.add( passwordString ) ).isTrue();
+
+            final PasswordCharCounter charCounter = new PasswordCharCounter( passwordString );
+            Assertions.assertThat( passwordString.length() ).isGreaterThanOrEqualTo( 12 );
+            Assertions.assertThat( charCounter.getUpperCharCount() ).isGreaterThanOrEqualTo( 2 );
+            Assertions.assertThat( charCounter.getNumericCharCount() ).isGreaterThanOrEqualTo( 2 );
+            Assertions.assertThat( charCounter.getSpecialCharsCount() ).isGreaterThanOrEqualTo( 2 );
+            Assertions.assertThat( charCounter.isFirstNumeric() ).isFalse();
+            Assertions.assertThat( charCounter.isLastSpecial() ).isFalse();
+        }
+    }
 }
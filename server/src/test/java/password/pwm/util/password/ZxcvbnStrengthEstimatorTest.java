@@ -0,0 +1,52 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ZxcvbnStrengthEstimatorTest
+{
+    @Test
+    public void testScore()
+    {
+        final ZxcvbnStrengthEstimator estimator = new ZxcvbnStrengthEstimator( List.of(), 100 );
+        Assertions.assertEquals( 0, estimator.score( "password" ) );
+        Assertions.assertEquals( 4, estimator.score( "correct-Horse-battery-staple-7412" ) );
+        Assertions.assertEquals( 0, estimator.memoHitCount() );
+
+        // memoized result
+        Assertions.assertEquals( 0, estimator.score( "password" ) );
+        Assertions.assertEquals( 1, estimator.memoHitCount() );
+    }
+
+    @Test
+    public void testWordlistEntries()
+    {
+        final String word = "qzvxtwplorkemnbj";
+        final int defaultScore = new ZxcvbnStrengthEstimator( List.of(), 100 ).score( word );
+
+        final ZxcvbnStrengthEstimator wordlistEstimator = new ZxcvbnStrengthEstimator( List.of( word ), 100 );
+        Assertions.assertTrue( wordlistEstimator.score( word ) < defaultScore );
+    }
+}
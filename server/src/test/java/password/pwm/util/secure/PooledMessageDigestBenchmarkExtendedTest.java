@@ -0,0 +1,79 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.secure;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares wordlist style key generation using {@link SecureEngine#hash(String, PwmHashAlgorithm)} against
+ * {@link PooledMessageDigest}.  Run with the gc profiler to compare the allocation rate (gc.alloc.rate.norm).
+ */
+@State( Scope.Thread )
+public class PooledMessageDigestBenchmarkExtendedTest
+{
+    private static final String INPUT = "correct-horse-battery-staple";
+
+    private final StringBuilder keyBuilder = new StringBuilder( 160 );
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .addProfiler( GCProfiler.class )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Benchmark
+    public String benchmarkSecureEngineHash()
+    {
+        return SecureEngine.hash( INPUT, PwmHashAlgorithm.SHA256 ).toLowerCase() + ":" + "SHA256";
+    }
+
+    @Benchmark
+    public String benchmarkPooledHash()
+    {
+        keyBuilder.setLength( 0 );
+        PooledMessageDigest.appendHash( PwmHashAlgorithm.SHA256, INPUT, keyBuilder, PooledMessageDigest.HexCase.LOWER );
+        return keyBuilder.append( ':' ).append( "SHA256" ).toString();
+    }
+}
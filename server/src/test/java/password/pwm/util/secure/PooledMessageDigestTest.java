@@ -0,0 +1,66 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.secure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class PooledMessageDigestTest
+{
+    private static final List<String> TEST_VALUES = List.of(
+            "",
+            "password",
+            "Pässwörd-ünïcödé",
+            "日本語パスワード",
+            "emoji-😀-pair",
+            "unpaired-" + ( char ) 0xD83D + "-surrogate",
+            "x".repeat( 100_000 )
+    );
+
+    @Test
+    public void testMatchesSecureEngineHash()
+    {
+        for ( final PwmHashAlgorithm hashAlgorithm : PwmHashAlgorithm.values() )
+        {
+            for ( final String value : TEST_VALUES )
+            {
+                final String expected = SecureEngine.hash( value, hashAlgorithm );
+
+                final StringBuilder upperCase = PooledMessageDigest.appendHash( hashAlgorithm, value, new StringBuilder(), PooledMessageDigest.HexCase.UPPER );
+                Assertions.assertEquals( expected, upperCase.toString() );
+                Assertions.assertEquals( hashAlgorithm.getHexValueLength(), upperCase.length() );
+
+                final StringBuilder lowerCase = PooledMessageDigest.appendHash( hashAlgorithm, value, new StringBuilder(), PooledMessageDigest.HexCase.LOWER );
+                Assertions.assertEquals( expected.toLowerCase(), lowerCase.toString() );
+            }
+        }
+    }
+
+    @Test
+    public void testAppendsToExistingContent()
+    {
+        final StringBuilder output = new StringBuilder( "prefix-" );
+        PooledMessageDigest.appendHash( PwmHashAlgorithm.MD5, "password", output, PooledMessageDigest.HexCase.UPPER ).append( "-suffix" );
+        Assertions.assertEquals( "prefix-" + SecureEngine.hash( "password", PwmHashAlgorithm.MD5 ) + "-suffix", output.toString() );
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.secure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SecureEngineTest
+{
+    private static final String VALUE = "{\"guid\":\"abc\",\"timestamp\":\"2020-01-01T00:00:00Z\",\"values\":[\"value\",\"value\",\"value\",\"value\",\"value\"]}";
+
+    @Test
+    public void testCompactRoundTrip() throws Exception
+    {
+        final PwmSecurityKey pwmSecurityKey = new PwmSecurityKey( "SuperSecretKeyValue" );
+
+        for ( final PwmBlockAlgorithm blockAlgorithm : PwmBlockAlgorithm.values() )
+        {
+            final String compactValue = SecureEngine.encryptToString( VALUE, pwmSecurityKey, blockAlgorithm, SecureEngine.Flag.URL_SAFE, SecureEngine.Flag.COMPACT );
+            final String legacyValue = SecureEngine.encryptToString( VALUE, pwmSecurityKey, blockAlgorithm, SecureEngine.Flag.URL_SAFE );
+
+            Assertions.assertTrue( compactValue.length() < legacyValue.length(), blockAlgorithm.name() );
+            Assertions.assertEquals( VALUE, SecureEngine.decryptStringValue( compactValue, pwmSecurityKey, blockAlgorithm, SecureEngine.Flag.URL_SAFE, SecureEngine.Flag.COMPACT ) );
+
+            // values encrypted before the compact format was introduced are still readable
+            Assertions.assertEquals( VALUE, SecureEngine.decryptStringValue( legacyValue, pwmSecurityKey, blockAlgorithm, SecureEngine.Flag.URL_SAFE, SecureEngine.Flag.COMPACT ) );
+        }
+    }
+}
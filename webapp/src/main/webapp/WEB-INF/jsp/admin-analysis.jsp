@@ -228,6 +228,16 @@
                                         <%= stats.getAvgStatistic(loopStat) %><%= loopStat.getUnit() %>
                                     </td>
                                 </tr>
+                                <% for (final Map.Entry<String,String> percentileEntry : stats.getAvgStatisticPercentiles(loopStat).entrySet()) { %>
+                                <tr>
+                                    <td >
+                                        <span id="Statistic_Key_<%=loopStat.getKey()%>_<%=percentileEntry.getKey()%>"><%= loopStat.getLabel(locale) %> (<%= percentileEntry.getKey() %>)<span/>
+                                    </td>
+                                    <td>
+                                        <%= percentileEntry.getValue() %><%= loopStat.getUnit() %>
+                                    </td>
+                                </tr>
+                                <% } %>
                                 <% } %>
                             </table>
                         </div>